@@ -1,16 +1,13 @@
 package com.example.samplebarcodescanner;
 
 import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.drawable.GradientDrawable;
 import android.util.AttributeSet;
-import android.util.Log;
+import android.view.Choreographer;
 import android.view.MotionEvent;
 import android.view.View;
 import android.widget.ImageView;
@@ -18,24 +15,72 @@ import android.widget.PopupWindow;
 import android.widget.TextView;
 import android.widget.Button;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import com.example.samplebarcodescanner.catalog.Product;
+import com.example.samplebarcodescanner.catalog.ProductCatalog;
+import com.example.samplebarcodescanner.metrics.ScanMetrics;
+import com.example.samplebarcodescanner.overlay.FrameSnapshot;
+import com.example.samplebarcodescanner.overlay.MotionExtrapolator;
+import com.example.samplebarcodescanner.overlay.OverlayLayout;
+import com.example.samplebarcodescanner.overlay.SnapshotExchange;
+import com.example.samplebarcodescanner.overlay.TrackStateStore;
+
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class BarcodeOverlayView extends View {
-    private List<MainActivity.StabilizedBarcode> barcodes;
-    private Map<String, Integer> barcodeColors;
+    private static final float ICON_HIT_SIZE = 50;
+    private static final float ICON_SIZE = 30;
+    private static final float ICON_BAR_THICKNESS = 5;
+    private static final float ICON_BORDER_RADIUS = 50;
+    private static final float ICON_BORDER_SIZE = ICON_SIZE + 15;
+    private static final float BOX_STROKE_WIDTH = 7F;
+    private static final float ICON_STROKE_WIDTH = 4F;
+    private static final float TEXT_SIZE = 36F;
+    // How far a popup's track may move before the popup window is moved after it.
+    private static final float POPUP_MOVE_THRESHOLD_PX = 4F;
+    // Matches the product image view in barcode_menu.xml.
+    private static final int THUMBNAIL_WIDTH_DP = 50;
+    private static final int THUMBNAIL_HEIGHT_DP = 64;
+    // How often and how many times an open popup rechecks the catalog for a product still loading.
+    private static final long CATALOG_POLL_MS = 50;
+    private static final int CATALOG_POLL_ATTEMPTS = 20;
+
+    private SnapshotExchange snapshots;
+    // Opened in the background; null until then, or if the app ships without a catalog.
+    private volatile ProductCatalog productCatalog;
+    private final MotionExtrapolator extrapolator = new MotionExtrapolator();
+    // Colors, label widths and open popups per track, bounded and expiring. Dismisses the popup of
+    // any track it evicts.
+    private final TrackStateStore<PopupWindow> trackStates = new TrackStateStore<>(
+            (trackId, value, popup) -> {
+                if (popup != null) {
+                    popup.dismiss();
+                }
+            });
+    private final OverlayLayout layout;
+    private boolean motionRendering = true;
+    private boolean frameCallbackPosted;
+    private final AtomicBoolean snapshotRenderPending = new AtomicBoolean();
+    private ScanMetrics scanMetrics;
+    // When the latest snapshot was published, and the last snapshot whose latency was recorded.
+    private volatile long publishedNanos;
+    private long measuredSequence = -1;
+    private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> {
+        frameCallbackPosted = false;
+        renderFrame(frameTimeNanos);
+    };
+    private final Runnable snapshotRender = () -> {
+        snapshotRenderPending.set(false);
+        renderFrame(System.nanoTime());
+    };
+    private final RectF iconBorderRect = new RectF();
     private final Paint boundingRectPaint;
     private final Paint contentRectPaint;
     private final Paint contentTextPaint;
     private final Paint iconPaint;
     private final Paint borderPaint;
     private final int contentPadding = 25;
-    private int previewWidth;
-    private int previewHeight;
     private Context context;
-    private Bitmap appleBitmap;
-    private Map<String, PopupWindow> activePopups = new HashMap<>();
+    private final ThumbnailLoader thumbnails;
 
     public BarcodeOverlayView(Context context, AttributeSet attrs) {
         super(context, attrs);
@@ -43,7 +88,7 @@ public class BarcodeOverlayView extends View {
 
         boundingRectPaint = new Paint();
         boundingRectPaint.setStyle(Paint.Style.STROKE);
-        boundingRectPaint.setStrokeWidth(7F);
+        boundingRectPaint.setStrokeWidth(BOX_STROKE_WIDTH);
         boundingRectPaint.setAlpha(200);
 
         contentRectPaint = new Paint();
@@ -54,7 +99,7 @@ public class BarcodeOverlayView extends View {
         contentTextPaint = new Paint();
         contentTextPaint.setColor(Color.WHITE);
         contentTextPaint.setAlpha(255);
-        contentTextPaint.setTextSize(36F);
+        contentTextPaint.setTextSize(TEXT_SIZE);
 
         iconPaint = new Paint();
         iconPaint.setStyle(Paint.Style.FILL);
@@ -63,116 +108,168 @@ public class BarcodeOverlayView extends View {
         borderPaint = new Paint();
         borderPaint.setStyle(Paint.Style.STROKE);
         borderPaint.setAntiAlias(true);
-        borderPaint.setStrokeWidth(4F);
+        borderPaint.setStrokeWidth(ICON_STROKE_WIDTH);
 
-        appleBitmap = BitmapFactory.decodeResource(getResources(), R.drawable.apple);
+        layout = new OverlayLayout(trackStates, contentTextPaint::measureText, extrapolator, TEXT_SIZE, contentPadding,
+                BOX_STROKE_WIDTH, ICON_BORDER_SIZE + ICON_STROKE_WIDTH);
+
+        thumbnails = new ThumbnailLoader(getResources());
     }
 
-    public void setBarcodes(List<MainActivity.StabilizedBarcode> barcodes, Map<String, Integer> barcodeColors, int previewWidth, int previewHeight) {
-        this.barcodes = barcodes;
-        this.barcodeColors = barcodeColors;
-        this.previewWidth = previewWidth;
-        this.previewHeight = previewHeight;
-        invalidate();  // Force a redraw of the view
+    /**
+     * Sets where tracked barcodes are read from. The overlay only ever draws the latest published
+     * snapshot; publishers should call {@link #onSnapshotPublished()} after publishing.
+     */
+    public void setSnapshots(SnapshotExchange snapshots) {
+        this.snapshots = snapshots;
+        renderFrame(System.nanoTime());
+        invalidate();
+    }
+
+    /**
+     * Schedules the latest snapshot to be laid out on the next display frame. Safe to call from
+     * any thread; calls made before that frame are coalesced.
+     */
+    public void onSnapshotPublished() {
+        publishedNanos = System.nanoTime();
+        if (snapshotRenderPending.compareAndSet(false, true)) {
+            postOnAnimation(snapshotRender);
+        }
+    }
+
+    /**
+     * Records how long each snapshot took to reach the screen, from its publication and from its
+     * frame's admission. Main thread only.
+     */
+    public void setScanMetrics(ScanMetrics scanMetrics) {
+        this.scanMetrics = scanMetrics;
+    }
+
+    /**
+     * When enabled (the default), boxes are redrawn every display frame while they are moving,
+     * extrapolated from their last tracked position and velocity. When disabled, boxes are only
+     * redrawn when a new snapshot arrives.
+     */
+    public void setMotionRendering(boolean enabled) {
+        motionRendering = enabled;
+        layout.setExtrapolator(enabled ? extrapolator : null);
+        if (!enabled && frameCallbackPosted) {
+            Choreographer.getInstance().removeFrameCallback(frameCallback);
+            frameCallbackPosted = false;
+        }
+        renderFrame(System.nanoTime());
     }
 
     @Override
-    protected void onDraw(Canvas canvas) {
-        long startTime = System.nanoTime();
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        removeCallbacks(snapshotRender);
+        trackStates.clear();
+        snapshotRenderPending.set(false);
+        if (frameCallbackPosted) {
+            Choreographer.getInstance().removeFrameCallback(frameCallback);
+            frameCallbackPosted = false;
+        }
+    }
 
-        super.onDraw(canvas);
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        renderFrame(System.nanoTime());
+    }
 
-        if (barcodes != null && previewWidth > 0 && previewHeight > 0) {
-            float scaleX = getWidth() / (float) previewWidth;
-            float scaleY = getHeight() / (float) previewHeight;
-
-            for (MainActivity.StabilizedBarcode barcode : barcodes) {
-                Rect boundingBox = barcode.getBoundingBox();
-                float left = boundingBox.left * scaleX;
-                float top = boundingBox.top * scaleY;
-                float right = boundingBox.right * scaleX;
-                float bottom = boundingBox.bottom * scaleY;
-
-                int color = barcodeColors.getOrDefault(barcode.getValue(), Color.GREEN);
-                boundingRectPaint.setColor(color);
-                iconPaint.setColor(color);
-                borderPaint.setColor(color);
-
-                canvas.drawRect(left, top, right, bottom, boundingRectPaint);
-
-                String barcodeContent = barcode.getValue();
-                float textWidth = contentTextPaint.measureText(barcodeContent);
-
-                canvas.drawRect(
-                        left,
-                        bottom + contentPadding / 2,
-                        left + textWidth + contentPadding * 2,
-                        bottom + contentTextPaint.getTextSize() + contentPadding,
-                        contentRectPaint
-                );
-
-                canvas.drawText(
-                        barcodeContent,
-                        left + contentPadding,
-                        bottom + contentPadding * 2 + contentTextPaint.getTextSize(),
-                        contentTextPaint
-                );
-
-                float centerX = left + (right - left) / 2;
-                float centerY = top + (bottom - top) / 2;
-
-                drawPlusIconWithBorder(canvas, centerX, centerY, color);
-
-                barcode.setIconBounds(centerX, centerY, 50);
-
-                String uniqueId = barcode.getValue(); // Use uniqueId
-                if (activePopups.containsKey(uniqueId)) {
-                    PopupWindow popupWindow = activePopups.get(uniqueId);
-                    // Update the popup position based on the bounding box
-                    int popupX = (int) left;
-                    int popupY = (int) bottom;
-                    popupWindow.update(popupX, popupY, -1, -1);
-                }
-            }
-        } else {
-            Log.d("BarcodeOverlayView", "No barcodes to draw");
+    private FrameSnapshot latestSnapshot() {
+        return snapshots != null ? snapshots.latest() : FrameSnapshot.EMPTY;
+    }
+
+    /**
+     * Lays out the latest snapshot at {@code timeNanos} and invalidates only the area covering the
+     * previous and new geometry, or nothing if it did not change.
+     */
+    private void renderFrame(long timeNanos) {
+        FrameSnapshot snapshot = latestSnapshot();
+        if (scanMetrics != null && snapshot.getSequence() != measuredSequence && snapshot != FrameSnapshot.EMPTY) {
+            // Laid out here, drawn in this display frame.
+            measuredSequence = snapshot.getSequence();
+            long now = System.nanoTime();
+            scanMetrics.record(ScanMetrics.STAGE_DRAW, publishedNanos, now);
+            scanMetrics.record(ScanMetrics.STAGE_TOTAL, snapshot.getTimestampNanos(), now);
+        }
+        if (layout.compute(snapshot, timeNanos, getWidth(), getHeight()) && !layout.isDirtyEmpty()) {
+            invalidate((int) Math.floor(layout.getDirtyLeft()), (int) Math.floor(layout.getDirtyTop()),
+                    (int) Math.ceil(layout.getDirtyRight()), (int) Math.ceil(layout.getDirtyBottom()));
+            movePopups();
+        }
+
+        // Keep laying out at display rate until the extrapolated motion has settled; the next
+        // snapshot restarts the loop through onSnapshotPublished().
+        if (motionRendering && !frameCallbackPosted && !extrapolator.isSettled(snapshot, timeNanos)) {
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+            frameCallbackPosted = true;
         }
+    }
 
-        long endTime = System.nanoTime();
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
 
-        long totalDuration = (endTime - startTime) / 1000;
-        Log.d("BarcodeOverlayView", "Total onDraw execution time: " + totalDuration + " μs");
+        // Everything was measured and placed by renderFrame(); drawing only reads the layout.
+        float[] boxes = layout.boxes();
+        float[] labelRects = layout.labelRects();
+        float[] textOrigins = layout.textOrigins();
+        for (int i = 0; i < layout.size(); i++) {
+            int b = i * 4;
+            int color = layout.getColor(i);
+            boundingRectPaint.setColor(color);
+            iconPaint.setColor(color);
+            borderPaint.setColor(color);
+
+            canvas.drawRect(boxes[b], boxes[b + 1], boxes[b + 2], boxes[b + 3], boundingRectPaint);
+            canvas.drawRect(labelRects[b], labelRects[b + 1], labelRects[b + 2], labelRects[b + 3],
+                    contentRectPaint);
+
+            String barcodeContent = layout.getLabel(i);
+            canvas.drawText(barcodeContent, textOrigins[i * 2], textOrigins[i * 2 + 1], contentTextPaint);
+
+            drawPlusIconWithBorder(canvas, layout.getCenterX(i), layout.getCenterY(i));
+        }
     }
 
-    private void drawPlusIconWithBorder(Canvas canvas, float centerX, float centerY, int color) {
-        float iconSize = 30;
-        float barThickness = 5;
-        float borderRadius = 50;
-        float borderSize = iconSize + 15;
+    /** Moves open popups after their boxes, only those that moved past the threshold. */
+    private void movePopups() {
+        float[] boxes = layout.boxes();
+        for (int i = 0; i < layout.size(); i++) {
+            int state = trackStates.find(layout.getTrackId(i));
+            PopupWindow popupWindow = state >= 0 ? trackStates.getPopup(state) : null;
+            if (popupWindow != null
+                    && trackStates.movePopup(state, boxes[i * 4], boxes[i * 4 + 3], POPUP_MOVE_THRESHOLD_PX)) {
+                popupWindow.update((int) boxes[i * 4], (int) boxes[i * 4 + 3], -1, -1);
+            }
+        }
+    }
 
-        RectF borderRect = new RectF(
-                centerX - borderSize / 2,
-                centerY - borderSize / 2,
-                centerX + borderSize / 2,
-                centerY + borderSize / 2
+    private void drawPlusIconWithBorder(Canvas canvas, float centerX, float centerY) {
+        iconBorderRect.set(
+                centerX - ICON_BORDER_SIZE / 2,
+                centerY - ICON_BORDER_SIZE / 2,
+                centerX + ICON_BORDER_SIZE / 2,
+                centerY + ICON_BORDER_SIZE / 2
         );
-        canvas.drawRoundRect(borderRect, borderRadius, borderRadius, borderPaint);
-
-        iconPaint.setColor(color);
+        canvas.drawRoundRect(iconBorderRect, ICON_BORDER_RADIUS, ICON_BORDER_RADIUS, borderPaint);
 
         canvas.drawRect(
-                centerX - barThickness / 2,
-                centerY - iconSize / 2,
-                centerX + barThickness / 2,
-                centerY + iconSize / 2,
+                centerX - ICON_BAR_THICKNESS / 2,
+                centerY - ICON_SIZE / 2,
+                centerX + ICON_BAR_THICKNESS / 2,
+                centerY + ICON_SIZE / 2,
                 iconPaint
         );
 
         canvas.drawRect(
-                centerX - iconSize / 2,
-                centerY - barThickness / 2,
-                centerX + iconSize / 2,
-                centerY + barThickness / 2,
+                centerX - ICON_SIZE / 2,
+                centerY - ICON_BAR_THICKNESS / 2,
+                centerX + ICON_SIZE / 2,
+                centerY + ICON_BAR_THICKNESS / 2,
                 iconPaint
         );
     }
@@ -183,20 +280,37 @@ public class BarcodeOverlayView extends View {
             float touchX = event.getX();
             float touchY = event.getY();
 
-            for (MainActivity.StabilizedBarcode barcode : barcodes) {
-                RectF iconBounds = barcode.getIconBounds();
-                if (iconBounds != null && iconBounds.contains(touchX, touchY)) {
-                    showBarcodeMenu(barcode);
-                    return true;
-                }
+            int i = layout.findIcon(touchX, touchY, ICON_HIT_SIZE / 2);
+            if (i >= 0) {
+                float[] boxes = layout.boxes();
+                showBarcodeMenu(layout.getTrackId(i), layout.getLabel(i), (int) boxes[i * 4], (int) boxes[i * 4 + 3]);
+                return true;
             }
         }
         return super.onTouchEvent(event);
     }
 
-    private void showBarcodeMenu(MainActivity.StabilizedBarcode barcode) {
-        String uniqueId = barcode.getValue();
-        if (activePopups.containsKey(uniqueId)) {
+    /**
+     * Product details for the barcode popup. The popup only reads the catalog's cache; values the
+     * tracker has not prefetched yet are resolved in the background while the popup is open.
+     */
+    public void setProductCatalog(ProductCatalog productCatalog) {
+        this.productCatalog = productCatalog;
+    }
+
+    /** Forwarded from the activity's {@code onTrimMemory}; drops cached thumbnails. */
+    public void onTrimMemory(int level) {
+        thumbnails.trimMemory(level);
+    }
+
+    /** Per-track state hit, miss and eviction counts. */
+    TrackStateStore<PopupWindow> getTrackStates() {
+        return trackStates;
+    }
+
+    private void showBarcodeMenu(int trackId, String value, int popupX, int popupY) {
+        int state = trackStates.find(trackId);
+        if (state < 0 || trackStates.getPopup(state) != null) {
             return;
         }
 
@@ -212,17 +326,22 @@ public class BarcodeOverlayView extends View {
         Button cancelButton = menuView.findViewById(R.id.cancelButton);
         Button okButton = menuView.findViewById(R.id.okButton);
 
-        barcodeImageView.setImageBitmap(Bitmap.createScaledBitmap(appleBitmap, 50, 64, false));
-        barcodeDetailsTextView.setText("Barcode Value: " + (barcode.getValue() != null ? barcode.getValue() : "No value found"));
+        float density = getResources().getDisplayMetrics().density;
+        ThumbnailLoader.Thumbnail thumbnail = thumbnails.loadResource(R.drawable.apple,
+                Math.round(THUMBNAIL_WIDTH_DP * density), Math.round(THUMBNAIL_HEIGHT_DP * density), barcodeImageView);
+        showBarcodeDetails(barcodeDetailsTextView, value, CATALOG_POLL_ATTEMPTS);
 
-        cancelButton.setOnClickListener(v -> {
-            popupWindow.dismiss();
-            activePopups.remove(uniqueId);
-        });
+        cancelButton.setOnClickListener(v -> popupWindow.dismiss());
 
-        okButton.setOnClickListener(v -> {
-            popupWindow.dismiss();
-            activePopups.remove(uniqueId);
+        okButton.setOnClickListener(v -> popupWindow.dismiss());
+
+        // Also covers outside touches and eviction of the track's state.
+        popupWindow.setOnDismissListener(() -> {
+            thumbnail.clear();
+            int current = trackStates.find(trackId);
+            if (current >= 0 && trackStates.getPopup(current) == popupWindow) {
+                trackStates.setPopup(current, null);
+            }
         });
 
         GradientDrawable backgroundDrawable = new GradientDrawable();
@@ -236,14 +355,38 @@ public class BarcodeOverlayView extends View {
 
         popupWindow.setContentView(menuView);
 
-        Rect boundingBox = barcode.getBoundingBox();
-        float scaleX = getWidth() / (float) previewWidth;
-        float scaleY = getHeight() / (float) previewHeight;
-
-        int popupX = (int) (boundingBox.left * scaleX);
-        int popupY = (int) (boundingBox.bottom * scaleY);
         popupWindow.showAtLocation(this, 0, popupX, popupY);
 
-        activePopups.put(uniqueId, popupWindow);
+        trackStates.setPopup(state, popupWindow, popupX, popupY);
+    }
+
+    /**
+     * Shows the catalog's product for {@code value} if it is cached, else the raw value; while
+     * the product is still being resolved, checks again every {@link #CATALOG_POLL_MS}.
+     */
+    private void showBarcodeDetails(TextView detailsView, String value, int attemptsLeft) {
+        ProductCatalog catalog = productCatalog;
+        Product product = catalog != null && value != null ? catalog.peek(value) : null;
+        if (product != null) {
+            StringBuilder details = new StringBuilder(product.getName().isEmpty() ? value : product.getName());
+            if (!product.getBrand().isEmpty()) {
+                details.append('\n').append(product.getBrand());
+            }
+            if (!product.getPrice().isEmpty()) {
+                details.append('\n').append(product.getPrice());
+            }
+            details.append("\nBarcode: ").append(value);
+            detailsView.setText(details);
+            return;
+        }
+        detailsView.setText("Barcode Value: " + (value != null ? value : "No value found"));
+        if (catalog != null && value != null && !catalog.isResolved(value) && attemptsLeft > 0) {
+            catalog.prefetch(value);
+            detailsView.postDelayed(() -> {
+                if (detailsView.isAttachedToWindow()) {
+                    showBarcodeDetails(detailsView, value, attemptsLeft - 1);
+                }
+            }, CATALOG_POLL_MS);
+        }
     }
 }
\ No newline at end of file
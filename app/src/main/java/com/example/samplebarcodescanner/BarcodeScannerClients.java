@@ -0,0 +1,121 @@
+package com.example.samplebarcodescanner;
+
+import com.example.samplebarcodescanner.format.BarcodeFormats;
+import com.google.mlkit.vision.barcode.BarcodeScanner;
+import com.google.mlkit.vision.barcode.BarcodeScannerOptions;
+import com.google.mlkit.vision.barcode.BarcodeScanning;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ML Kit barcode scanner clients, one per format mask, so switching formats between frames
+ * reuses a client instead of rebuilding it.
+ * <p>
+ * Each frame leases its client for as long as it is being detected. A client evicted from the
+ * cache, or still busy when the cache is closed, is only closed once its last lease is released,
+ * so frames already in the detector are never dropped by a switch. Thread-safe.
+ */
+final class BarcodeScannerClients {
+    // A fixed profile, its auto-narrowed subsets and the probe client.
+    private static final int MAX_CLIENTS = 4;
+
+    /** A client in use by one frame. */
+    final class Lease {
+        private final Client client;
+        private boolean released;
+
+        private Lease(Client client) {
+            this.client = client;
+        }
+
+        BarcodeScanner getScanner() {
+            return client.scanner;
+        }
+
+        /** Call once the frame's detection has completed. */
+        void release() {
+            synchronized (BarcodeScannerClients.this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                if (--client.leases == 0 && client.retired) {
+                    client.scanner.close();
+                }
+            }
+        }
+    }
+
+    private static final class Client {
+        final BarcodeScanner scanner;
+        int leases;
+        boolean retired;
+
+        Client(BarcodeScanner scanner) {
+            this.scanner = scanner;
+        }
+    }
+
+    private final LinkedHashMap<Integer, Client> clients = new LinkedHashMap<>(8, 0.75f, true);
+    private long created;
+    private boolean closed;
+
+    /** Leases the client for {@code formats}, a {@link BarcodeFormats} mask. */
+    synchronized Lease acquire(int formats) {
+        Client client = clients.get(formats);
+        if (closed) {
+            // A frame admitted while the activity was shutting down; its client closes after it.
+            client = new Client(create(formats));
+            client.retired = true;
+            created++;
+        } else if (client == null) {
+            client = new Client(create(formats));
+            clients.put(formats, client);
+            created++;
+            Iterator<Client> eldest = clients.values().iterator();
+            while (clients.size() > MAX_CLIENTS) {
+                retire(eldest.next());
+                eldest.remove();
+            }
+        }
+        client.leases++;
+        return new Lease(client);
+    }
+
+    /** Clients created so far; a steady count means format switches are hitting the cache. */
+    synchronized long getCreatedCount() {
+        return created;
+    }
+
+    /** Closes every client, each once its frames have completed. */
+    synchronized void close() {
+        closed = true;
+        for (Client client : clients.values()) {
+            retire(client);
+        }
+        clients.clear();
+    }
+
+    private static void retire(Client client) {
+        client.retired = true;
+        if (client.leases == 0) {
+            client.scanner.close();
+        }
+    }
+
+    private static BarcodeScanner create(int formats) {
+        if ((formats & BarcodeFormats.ALL) == BarcodeFormats.ALL) {
+            return BarcodeScanning.getClient();
+        }
+        int[] split = BarcodeFormats.split(formats);
+        if (split.length == 0) {
+            throw new IllegalArgumentException("no formats: " + formats);
+        }
+        return BarcodeScanning.getClient(new BarcodeScannerOptions.Builder()
+                .setBarcodeFormats(split[0], Arrays.copyOfRange(split, 1, split.length))
+                .build());
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.samplebarcodescanner;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+import androidx.camera.core.ImageProxy;
+
+import com.example.samplebarcodescanner.batch.TiledDecoder;
+import com.example.samplebarcodescanner.tracking.Detection;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The batch scans behind the CAPTURE and BATCH buttons: a captured still or a folder of photos is
+ * decoded with a {@link BatchScanner} and its reads are written to a CSV in
+ * {@code resultsDirectory}. Blocking; run one at a time on a background thread. Each scan returns
+ * a one-line summary for the user.
+ */
+final class BatchJobs {
+    private static final String TAG = "BatchJobs";
+
+    private final File resultsDirectory;
+
+    /** @param resultsDirectory where CSVs go, or null if storage is unavailable and they are not kept */
+    BatchJobs(File resultsDirectory) {
+        this.resultsDirectory = resultsDirectory;
+    }
+
+    /** The photos in {@code folder} in name order; empty if there are none or no folder. */
+    static List<File> listPhotos(File folder) {
+        File[] photos = folder == null ? null : folder.listFiles((dir, name) -> {
+            String lower = name.toLowerCase(Locale.ROOT);
+            return lower.endsWith(".jpg") || lower.endsWith(".jpeg") || lower.endsWith(".png") || lower.endsWith(".webp");
+        });
+        if (photos == null) {
+            return Collections.emptyList();
+        }
+        Arrays.sort(photos);
+        return Arrays.asList(photos);
+    }
+
+    /** Decodes a JPEG still from {@code ImageCapture} and closes it; null if it cannot be decoded. */
+    String scanStill(ImageProxy image, int formats) throws InterruptedException {
+        Bitmap still;
+        try {
+            ByteBuffer jpeg = image.getPlanes()[0].getBuffer();
+            byte[] bytes = new byte[jpeg.remaining()];
+            jpeg.get(bytes);
+            still = BatchScanner.decodeJpeg(bytes, image.getImageInfo().getRotationDegrees());
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot decode still", e);
+            return null;
+        } finally {
+            image.close();
+        }
+        try (BatchScanner scanner = new BatchScanner(formats)) {
+            TiledDecoder.Result<Bitmap> result = scanner.scan(still);
+            return export(Collections.singletonList("still-" + System.currentTimeMillis()),
+                    Collections.singletonList(result.getDetections()));
+        } finally {
+            still.recycle();
+        }
+    }
+
+    /** Decodes {@code photos}, logging each as it completes. */
+    String scanPhotos(List<File> photos, int formats) throws InterruptedException {
+        try (BatchScanner scanner = new BatchScanner(formats)) {
+            List<TiledDecoder.Result<File>> results = scanner.scanFiles(photos, result ->
+                    Log.i(TAG, result.getSource().getName() + ": " + result.getDetections().size() + " barcodes in "
+                            + result.getTileCount() + " tiles, " + result.getElapsedNanos() / 1_000_000 + " ms"
+                            + (result.getError() != null ? ", " + result.getError() : "")));
+            List<String> names = new ArrayList<>(results.size());
+            List<List<Detection>> reads = new ArrayList<>(results.size());
+            for (TiledDecoder.Result<File> result : results) {
+                names.add(result.getSource().getName());
+                reads.add(result.getDetections());
+            }
+            return export(names, reads);
+        }
+    }
+
+    private String export(List<String> images, List<List<Detection>> reads) {
+        int count = 0;
+        for (List<Detection> imageReads : reads) {
+            count += imageReads.size();
+        }
+        String message = "Read " + count + " barcodes from " + images.size() + (images.size() == 1 ? " image" : " images");
+        if (resultsDirectory == null) {
+            return message;
+        }
+        File file = new File(resultsDirectory, "batch-" + System.currentTimeMillis() + ".csv");
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            out.write(BatchScanner.CSV_HEADER);
+            for (int i = 0; i < images.size(); i++) {
+                BatchScanner.appendCsv(out, images.get(i), reads.get(i));
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot export batch to " + file, e);
+            return message;
+        }
+        return message + ", saved to " + file.getName();
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.samplebarcodescanner;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.graphics.Rect;
+
+import com.example.samplebarcodescanner.batch.Tile;
+import com.example.samplebarcodescanner.batch.TiledDecoder;
+import com.example.samplebarcodescanner.format.BarcodeFormats;
+import com.example.samplebarcodescanner.tracking.Detection;
+import com.example.samplebarcodescanner.util.Csv;
+import com.google.android.gms.tasks.Tasks;
+import com.google.mlkit.vision.barcode.BarcodeScanner;
+import com.google.mlkit.vision.barcode.BarcodeScannerOptions;
+import com.google.mlkit.vision.barcode.BarcodeScanning;
+import com.google.mlkit.vision.barcode.common.Barcode;
+import com.google.mlkit.vision.common.InputImage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes full-resolution stills, one captured photo or a folder of them, with a
+ * {@link TiledDecoder} over ML Kit, so labels too dense for the live stream are still read.
+ * <p>
+ * An ML Kit client runs its detections one at a time, so each pool thread gets its own client,
+ * running detection inline. Blocking; use from a background thread and close when done.
+ */
+final class BatchScanner implements AutoCloseable {
+    // Stills are decoded no larger than this, which bounds each loaded image to 64 MB.
+    private static final int MAX_IMAGE_EDGE = 4096;
+    private static final long TILE_TIMEOUT_MS = 5000;
+    static final String CSV_HEADER = "image,barcode,format,left,top,right,bottom\n";
+
+    private final int formats;
+    private final TiledDecoder<Bitmap> decoder;
+    private final ThreadLocal<BarcodeScanner> scanners = new ThreadLocal<>();
+    private final List<BarcodeScanner> created = Collections.synchronizedList(new ArrayList<>());
+
+    /** @param formats a non-empty {@link BarcodeFormats} mask */
+    BatchScanner(int formats) {
+        if ((formats & BarcodeFormats.ALL) == 0) {
+            throw new IllegalArgumentException("no formats: " + formats);
+        }
+        this.formats = formats;
+        decoder = new TiledDecoder.Builder<>(new TiledDecoder.TileSource<Bitmap>() {
+            @Override
+            public int width(Bitmap image) {
+                return image.getWidth();
+            }
+
+            @Override
+            public int height(Bitmap image) {
+                return image.getHeight();
+            }
+
+            @Override
+            public List<Detection> decode(Bitmap image, Tile tile) throws Exception {
+                return decodeTile(image, tile);
+            }
+        }).build();
+    }
+
+    /** Decodes a captured still; the bitmap is left to the caller. */
+    TiledDecoder.Result<Bitmap> scan(Bitmap still) throws InterruptedException {
+        return decoder.decode(still);
+    }
+
+    /** Decodes image files, at most two loaded at a time, reporting each as it completes. */
+    List<TiledDecoder.Result<File>> scanFiles(List<File> files, TiledDecoder.Listener<File> listener)
+            throws InterruptedException {
+        return decoder.decodeAll(files, new TiledDecoder.Loader<File, Bitmap>() {
+            @Override
+            public Bitmap load(File file) throws IOException {
+                return decodeFile(file);
+            }
+
+            @Override
+            public void release(Bitmap image) {
+                image.recycle();
+            }
+        }, listener);
+    }
+
+    /** Writes one CSV line per read, under a {@link #CSV_HEADER} header. */
+    static void appendCsv(Appendable out, String image, List<Detection> detections) throws IOException {
+        for (Detection detection : detections) {
+            Csv.appendField(out, image);
+            out.append(',');
+            Csv.appendField(out, detection.getValue());
+            out.append(',').append(BarcodeFormats.toString(detection.getFormat()))
+                    .append(',').append(Integer.toString(detection.getLeft()))
+                    .append(',').append(Integer.toString(detection.getTop()))
+                    .append(',').append(Integer.toString(detection.getRight()))
+                    .append(',').append(Integer.toString(detection.getBottom()))
+                    .append('\n');
+        }
+    }
+
+    /** Decodes a JPEG still, rotated upright and capped to {@link #MAX_IMAGE_EDGE}. */
+    static Bitmap decodeJpeg(byte[] jpeg, int rotationDegrees) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(jpeg, 0, jpeg.length, options);
+        options.inSampleSize = sampleSizeFor(options.outWidth, options.outHeight);
+        options.inJustDecodeBounds = false;
+        Bitmap bitmap = BitmapFactory.decodeByteArray(jpeg, 0, jpeg.length, options);
+        if (bitmap == null) {
+            throw new IOException("Cannot decode captured still");
+        }
+        if (rotationDegrees == 0) {
+            return bitmap;
+        }
+        Matrix matrix = new Matrix();
+        matrix.postRotate(rotationDegrees);
+        Bitmap upright = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, false);
+        if (upright != bitmap) {
+            bitmap.recycle();
+        }
+        return upright;
+    }
+
+    private static Bitmap decodeFile(File file) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("Not an image: " + file);
+        }
+        options.inSampleSize = sampleSizeFor(options.outWidth, options.outHeight);
+        options.inJustDecodeBounds = false;
+        Bitmap bitmap = BitmapFactory.decodeFile(file.getPath(), options);
+        if (bitmap == null) {
+            throw new IOException("Cannot decode " + file);
+        }
+        return bitmap;
+    }
+
+    private static int sampleSizeFor(int width, int height) {
+        int sample = 1;
+        while (Math.max(width, height) / sample > MAX_IMAGE_EDGE) {
+            sample *= 2;
+        }
+        return sample;
+    }
+
+    /** Runs on a pool thread. */
+    private List<Detection> decodeTile(Bitmap image, Tile tile) throws Exception {
+        Bitmap pixels = tile.isOverview()
+                ? Bitmap.createScaledBitmap(image, tile.getOutputWidth(), tile.getOutputHeight(), true)
+                : Bitmap.createBitmap(image, tile.getLeft(), tile.getTop(), tile.getWidth(), tile.getHeight());
+        try {
+            List<Barcode> barcodes = Tasks.await(scanner().process(InputImage.fromBitmap(pixels, 0)),
+                    TILE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            List<Detection> detections = new ArrayList<>(barcodes.size());
+            for (Barcode barcode : barcodes) {
+                Rect box = barcode.getBoundingBox();
+                String value = barcode.getRawValue();
+                if (box == null || value == null) continue;
+                detections.add(new Detection(value, barcode.getFormat(), box.left, box.top, box.right, box.bottom));
+            }
+            return detections;
+        } finally {
+            // A tile covering the whole image may be the image itself.
+            if (pixels != image) {
+                pixels.recycle();
+            }
+        }
+    }
+
+    private BarcodeScanner scanner() {
+        BarcodeScanner scanner = scanners.get();
+        if (scanner == null) {
+            int[] split = (formats & BarcodeFormats.ALL) == BarcodeFormats.ALL
+                    ? new int[]{Barcode.FORMAT_ALL_FORMATS}
+                    : BarcodeFormats.split(formats);
+            scanner = BarcodeScanning.getClient(new BarcodeScannerOptions.Builder()
+                    .setBarcodeFormats(split[0], Arrays.copyOfRange(split, 1, split.length))
+                    .setExecutor(Runnable::run)
+                    .build());
+            scanners.set(scanner);
+            created.add(scanner);
+        }
+        return scanner;
+    }
+
+    @Override
+    public void close() {
+        decoder.close();
+        synchronized (created) {
+            for (BarcodeScanner scanner : created) {
+                scanner.close();
+            }
+            created.clear();
+        }
+    }
+}
@@ -3,17 +3,19 @@ package com.example.samplebarcodescanner;
 import android.Manifest;
 import android.content.pm.PackageManager;
 import android.media.MediaPlayer;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Looper;
+import android.os.Trace;
 import android.util.Log;
 import android.util.Size;
 import android.view.MenuItem;
 import android.view.View;
 import android.widget.Button;
+import android.widget.TextView;
 import android.widget.Toast;
-import android.graphics.Color;
 import android.graphics.ImageFormat;
 import android.graphics.Rect;
-import android.graphics.RectF;
 import androidx.annotation.OptIn;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
@@ -21,6 +23,7 @@ import androidx.camera.core.CameraSelector;
 import androidx.camera.core.ExperimentalGetImage;
 import androidx.camera.core.ImageAnalysis;
 import androidx.camera.core.ImageCapture;
+import androidx.camera.core.ImageCaptureException;
 import androidx.camera.core.ImageProxy;
 import androidx.camera.core.Preview;
 import androidx.camera.lifecycle.ProcessCameraProvider;
@@ -29,18 +32,55 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import androidx.lifecycle.LifecycleOwner;
 
+import com.example.samplebarcodescanner.catalog.CatalogIndex;
+import com.example.samplebarcodescanner.catalog.CatalogPrefetchStage;
+import com.example.samplebarcodescanner.catalog.ProductCatalog;
+import com.example.samplebarcodescanner.format.AutoFormatPolicy;
+import com.example.samplebarcodescanner.format.FormatPolicy;
+import com.example.samplebarcodescanner.format.ScanProfile;
+import com.example.samplebarcodescanner.geometry.IntRect;
+import com.example.samplebarcodescanner.inventory.InventoryCountStage;
+import com.example.samplebarcodescanner.inventory.InventoryTally;
+import com.example.samplebarcodescanner.journal.ConfirmedReadStage;
+import com.example.samplebarcodescanner.journal.ScanJournal;
+import com.example.samplebarcodescanner.metrics.ScanMetrics;
+import com.example.samplebarcodescanner.overlay.SnapshotExchange;
+import com.example.samplebarcodescanner.pipeline.ScanPipeline;
+import com.example.samplebarcodescanner.replay.ScanRecorder;
+import com.example.samplebarcodescanner.results.ScanResultsHub;
+import com.example.samplebarcodescanner.roi.CropRegion;
+import com.example.samplebarcodescanner.roi.DirectBufferPool;
+import com.example.samplebarcodescanner.roi.RoiGeometry;
+import com.example.samplebarcodescanner.roi.RoiPlanner;
+import com.example.samplebarcodescanner.roi.YuvCropper;
+import com.example.samplebarcodescanner.schedule.Clock;
+import com.example.samplebarcodescanner.schedule.MotionGate;
+import com.example.samplebarcodescanner.schedule.ResolutionController;
+import com.example.samplebarcodescanner.schedule.ScanScheduler;
+import com.example.samplebarcodescanner.startup.StartupPipeline;
+import com.example.samplebarcodescanner.sync.HttpSyncTransport;
+import com.example.samplebarcodescanner.sync.SyncUploader;
+import com.example.samplebarcodescanner.tracking.AssignmentTracker;
+import com.example.samplebarcodescanner.tracking.Detection;
+import com.example.samplebarcodescanner.tracking.Track;
+import com.example.samplebarcodescanner.tracking.ValueSymbolTable;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.mlkit.vision.barcode.common.Barcode;
-import com.google.mlkit.vision.barcode.BarcodeScanner;
-import com.google.mlkit.vision.barcode.BarcodeScanning;
 import com.google.mlkit.vision.common.InputImage;
 import com.google.common.util.concurrent.ListenableFuture;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.Random;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -48,19 +88,110 @@ public class MainActivity extends AppCompatActivity {
     private PreviewView previewView;
     private BarcodeOverlayView barcodeOverlayView;
     private ImageCapture imageCapture;
+    // Bound analysis use case and what it was bound with; main thread only.
+    private ProcessCameraProvider cameraProvider;
+    private CameraSelector cameraSelector;
+    private ImageAnalysis imageAnalysis;
+    private int analysisLevel;
     private ExecutorService cameraExecutor;
-    private BarcodeScanner barcodeScanner;
+    private ExecutorService trackingExecutor;
+    // Opens the product catalog and runs its lookups, which may wait for storage.
+    private ExecutorService catalogExecutor;
+    // Decodes captured stills and photo folders, one batch at a time.
+    private ExecutorService batchExecutor;
+    private BatchJobs batchJobs;
+    private ScanScheduler scanScheduler;
+    private final BarcodeScannerClients scannerClients = new BarcodeScannerClients();
+    // Which formats each frame is scanned for; replaced by setScanProfile.
+    private volatile ScanProfile scanProfile;
+    private volatile FormatPolicy formatPolicy;
     private Button imageCaptureButton;
-    private MediaPlayer mediaPlayer;
+    private Button countModeButton;
+    private Button batchButton;
+    private TextView tallyView;
+    private TextView metricsHud;
+    // Work kept off the launch path: the beep is loaded once idle, the detector model and the
+    // camera provider are warmed in parallel so the first scan starts at full speed.
+    private final StartupPipeline startup = new StartupPipeline();
+    private ExecutorService startupExecutor;
+    private StartupPipeline.Task<MediaPlayer> beep;
+    // Set when the camera is started, cleared by the first frame through the detector.
+    private volatile boolean firstDecodePending;
+    private volatile long cameraStartNanos;
 
     private static final String TAG = "BarcodeScanner";
+    // Async trace section from starting the camera to the first detector result, measured by
+    // the startup benchmark.
+    static final String FIRST_DECODE_SECTION = "TimeToFirstDecode";
+    // Side of the blank frame the detector is warmed with.
+    private static final int WARMUP_FRAME_SIZE = 64;
     private static final int REQUEST_CODE_PERMISSIONS = 10;
     private static final String[] REQUIRED_PERMISSIONS = new String[]{Manifest.permission.CAMERA};
+    private static final boolean ROI_SCANNING_ENABLED = true;
+    // The site's formats; with AUTO_FORMATS, frames are narrowed further to the formats being read.
+    private static final ScanProfile SCAN_PROFILE = ScanProfile.ALL;
+    private static final boolean AUTO_FORMATS = true;
+    // Analysis resolutions, lowest first. The stream steps along them as labels get bigger or
+    // smaller in the frame; preview and capture stay at the highest.
+    private static final Size[] ANALYSIS_RESOLUTIONS = {
+            new Size(360, 640), new Size(720, 1280), new Size(1080, 1920)};
+    private static final boolean ADAPTIVE_RESOLUTION_ENABLED = true;
+    // Skips detection while the scene and every track are still, reusing the last results.
+    private static final boolean MOTION_GATE_ENABLED = true;
+    // Writes every analysed frame, its luma and its detections to the app's external files
+    // directory for offline replay with replay.ReplayDriver. Costs a Y-plane copy per frame.
+    private static final boolean RECORDING_ENABLED = false;
+    // Endpoint the journaled reads are uploaded to in batches; empty keeps them on the device.
+    private static final String SYNC_URL = "";
     private boolean isCaptureMode = false;
-
-    private Map<String, List<StabilizedBarcode>> trackedBarcodes = new HashMap<>();
-    private Map<String, Integer> barcodeColors = new HashMap<>();
-    private Random random = new Random();
+    private boolean isCounting = false;
+    private static final long TALLY_REFRESH_MS = 250;
+    private static final int TALLY_LINES = 8;
+    private static final long HUD_REFRESH_MS = 500;
+
+    private final RoiPlanner roiPlanner = new RoiPlanner();
+    private final DirectBufferPool cropBufferPool = new DirectBufferPool(RoiPlanner.DEFAULT_MAX_REGIONS * 2);
+    private final SnapshotExchange snapshots = new SnapshotExchange();
+    private final ResolutionController resolutionController = new ResolutionController.Builder(
+            ANALYSIS_RESOLUTIONS[0].getHeight(), ANALYSIS_RESOLUTIONS[1].getHeight(),
+            ANALYSIS_RESOLUTIONS[2].getHeight()).build();
+
+    // Confined to trackingExecutor; the overlay only sees published snapshots.
+    private final ValueSymbolTable valueSymbols = new ValueSymbolTable();
+    // Stocktake: each label counted once while count mode is on; the stage is confined to
+    // trackingExecutor, the tally is read by the UI.
+    private final InventoryTally inventoryTally = new InventoryTally();
+    private final InventoryCountStage inventoryCount = new InventoryCountStage(inventoryTally);
+    private final Runnable tallyRefresh = this::refreshTally;
+    // Stage latencies and frame counters of the live path; recorded from every thread.
+    private final ScanMetrics scanMetrics = new ScanMetrics(System.nanoTime());
+    private final Runnable hudRefresh = this::refreshHud;
+    // Streams reads to integrations on their own executors; fed on trackingExecutor.
+    private final ScanResultsHub scanResults = new ScanResultsHub();
+    // Sampled on cameraExecutor; told about tracks by the pipeline.
+    private final MotionGate motionGate = new MotionGate();
+    private final ScanPipeline scanPipeline = new ScanPipeline.Builder(
+            new AssignmentTracker(AssignmentTracker.DEFAULT_MAX_MISSED_FRAMES, AssignmentTracker.DEFAULT_MIN_GATE_PX,
+                    AssignmentTracker.DEFAULT_GATE_SCALE, valueSymbols))
+            .addTrackStage((tracks, timestampNanos) -> roiPlanner.onTracksUpdated(tracks))
+            .addTrackStage(this::journalConfirmedReads)
+            .addTrackStage(this::prefetchProducts)
+            .addTrackStage(motionGate)
+            .addTrackStage(inventoryCount)
+            .addTrackStage(scanResults)
+            .build();
+    // Every confirmed read, persisted off the camera path; opened and closed on trackingExecutor.
+    private ScanJournal journal;
+    private ConfirmedReadStage confirmedReads;
+    // Drains the journal to SYNC_URL on its own thread; started and closed with the journal.
+    private SyncUploader syncUploader;
+    private ScanRecorder recorder;
+    // Size of the last detected frame, carried on coasted snapshots; trackingExecutor only.
+    private int lastFrameWidth;
+    private int lastFrameHeight;
+    // Set once the catalog index is open on catalogExecutor; read by the tracking stage.
+    private CatalogIndex catalogIndex;
+    private volatile CatalogPrefetchStage catalogPrefetch;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -75,11 +206,44 @@ public class MainActivity extends AppCompatActivity {
         previewView = findViewById(R.id.previewView);
         barcodeOverlayView = findViewById(R.id.barcodeOverlay);
         imageCaptureButton = findViewById(R.id.imageCaptureButton);
+        countModeButton = findViewById(R.id.countModeButton);
+        tallyView = findViewById(R.id.tallyView);
+        batchButton = findViewById(R.id.batchButton);
+        batchButton.setOnClickListener(view -> scanBatchFolder());
+        metricsHud = findViewById(R.id.metricsHud);
+        imageCaptureButton.setOnLongClickListener(view -> {
+            toggleHud();
+            return true;
+        });
+        inventoryCount.setCounting(false);
+        countModeButton.setOnClickListener(view -> setCounting(!isCounting));
+
+        // Detection runs asynchronously inside ML Kit, so one analyzer thread is enough; the
+        // scheduler decides how many frames may be in flight.
+        cameraExecutor = Executors.newSingleThreadExecutor();
+        scanScheduler = new ScanScheduler(Clock.SYSTEM, PowerManagerThermalSource.create(this));
+        trackingExecutor = Executors.newSingleThreadExecutor();
+        barcodeOverlayView.setSnapshots(snapshots);
+        barcodeOverlayView.setScanMetrics(scanMetrics);
+        setScanProfile(SCAN_PROFILE, AUTO_FORMATS);
+        trackingExecutor.execute(this::openJournal);
+        catalogExecutor = Executors.newSingleThreadExecutor();
+        catalogExecutor.execute(this::openCatalog);
+        batchExecutor = Executors.newSingleThreadExecutor();
+        batchJobs = new BatchJobs(getExternalFilesDir("batch-results"));
+        if (RECORDING_ENABLED) {
+            trackingExecutor.execute(this::startRecording);
+        }
 
-        mediaPlayer = MediaPlayer.create(this, R.raw.beep);
-
-        cameraExecutor = Executors.newFixedThreadPool(10);
-        barcodeScanner = BarcodeScanning.getClient();
+        // Two threads, so the model and the camera warm up side by side.
+        startupExecutor = Executors.newFixedThreadPool(2);
+        beep = startup.idle("beep", () -> MediaPlayer.create(this, R.raw.beep));
+        startup.background("detector", this::warmDetector);
+        startup.background("camera", () -> ProcessCameraProvider.getInstance(this).get());
+        startup.start(startupExecutor, work -> Looper.myQueue().addIdleHandler(() -> {
+            work.run();
+            return false;
+        }));
 
         imageCaptureButton.setOnClickListener(view -> {
             if (!isCaptureMode) {
@@ -88,22 +252,175 @@ public class MainActivity extends AppCompatActivity {
                     imageCaptureButton.setText("CAPTURE");
                     isCaptureMode = true;
 
+                    countModeButton.setVisibility(View.VISIBLE);
+                    batchButton.setVisibility(View.VISIBLE);
                     previewView.setVisibility(View.VISIBLE);
                     barcodeOverlayView.setVisibility(View.VISIBLE);
                 } else {
                     ActivityCompat.requestPermissions(this, REQUIRED_PERMISSIONS, REQUEST_CODE_PERMISSIONS);
                 }
             } else {
-                if (mediaPlayer != null) {
-                    mediaPlayer.start();
-                    Log.d(TAG, "Beep sound played.");
+                // Loaded once the app went idle; loads it now if the tap came first.
+                MediaPlayer player = beep.get();
+                if (player != null) {
+                    player.start();
                 } else {
-                    Log.e(TAG, "MediaPlayer is not initialized.");
+                    Log.e(TAG, "Cannot load the beep", beep.getError());
+                }
+                captureStill();
+            }
+        });
+    }
+
+    /**
+     * Starts a stocktake from zero, or ends it and exports the tally. While counting, every
+     * label the camera sweeps past is counted once and the running tally is shown.
+     */
+    private void setCounting(boolean counting) {
+        isCounting = counting;
+        countModeButton.setText(counting ? "STOP COUNT" : "COUNT");
+        if (counting) {
+            trackingExecutor.execute(() -> {
+                inventoryTally.clear();
+                inventoryCount.setCounting(true);
+            });
+            tallyView.setVisibility(View.VISIBLE);
+            refreshTally();
+        } else {
+            tallyView.removeCallbacks(tallyRefresh);
+            // Queued after any frames in flight, so their reads are still counted.
+            trackingExecutor.execute(() -> {
+                inventoryCount.setCounting(false);
+                exportTally();
+            });
+        }
+    }
+
+    /** Shows the running totals and the most counted values; reposts itself while counting. */
+    private void refreshTally() {
+        InventoryTally.Snapshot tally = inventoryTally.snapshot();
+        StringBuilder text = new StringBuilder()
+                .append(tally.getTotal()).append(" units, ").append(tally.size()).append(" products");
+        for (int i = 0; i < Math.min(TALLY_LINES, tally.size()); i++) {
+            text.append('\n').append(String.format("%5d  %s", tally.getCount(i), tally.getValue(i)));
+        }
+        if (tally.size() > TALLY_LINES) {
+            text.append("\n  ...");
+        }
+        tallyView.setText(text);
+        if (isCounting) {
+            tallyView.postDelayed(tallyRefresh, TALLY_REFRESH_MS);
+        }
+    }
+
+    /** Streams the tally to a CSV in the app's external files; runs on {@code trackingExecutor}. */
+    private void exportTally() {
+        File directory = getExternalFilesDir("stocktakes");
+        if (directory == null || inventoryTally.getTotal() == 0) {
+            return;
+        }
+        File file = new File(directory, "stocktake-" + System.currentTimeMillis() + ".csv");
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            inventoryTally.export(out);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot export stocktake to " + file, e);
+            return;
+        }
+        String message = "Counted " + inventoryTally.getTotal() + " units, saved to " + file.getName();
+        runOnUiThread(() -> Toast.makeText(this, message, Toast.LENGTH_LONG).show());
+    }
+
+    /** Takes a full-resolution still and decodes it tile by tile on {@code batchExecutor}. */
+    private void captureStill() {
+        if (imageCapture == null) {
+            return;
+        }
+        int formats = scanProfile.getFormats();
+        imageCapture.takePicture(batchExecutor, new ImageCapture.OnImageCapturedCallback() {
+            @Override
+            public void onCaptureSuccess(@NonNull ImageProxy image) {
+                try {
+                    showBatchResult(batchJobs.scanStill(image, formats));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
                 }
             }
+
+            @Override
+            public void onError(@NonNull ImageCaptureException e) {
+                Log.e(TAG, "Still capture failed", e);
+            }
+        });
+    }
+
+    /**
+     * Decodes every photo in the app's {@code batch} folder, such as photographed pallet
+     * manifests, on {@code batchExecutor}.
+     */
+    private void scanBatchFolder() {
+        File folder = getExternalFilesDir("batch");
+        List<File> photos = BatchJobs.listPhotos(folder);
+        if (photos.isEmpty()) {
+            Toast.makeText(this, "Put photos in " + folder + " to scan them", Toast.LENGTH_LONG).show();
+            return;
+        }
+        batchButton.setEnabled(false);
+        int formats = scanProfile.getFormats();
+        batchExecutor.execute(() -> {
+            try {
+                showBatchResult(batchJobs.scanPhotos(photos, formats));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                runOnUiThread(() -> batchButton.setEnabled(true));
+            }
         });
     }
 
+    private void showBatchResult(String message) {
+        if (message != null) {
+            runOnUiThread(() -> Toast.makeText(this, message, Toast.LENGTH_LONG).show());
+        }
+    }
+
+    /** Shows or hides the latency HUD; long-press CAPTURE. */
+    private void toggleHud() {
+        if (metricsHud.getVisibility() == View.VISIBLE) {
+            metricsHud.removeCallbacks(hudRefresh);
+            metricsHud.setVisibility(View.GONE);
+        } else {
+            metricsHud.setVisibility(View.VISIBLE);
+            refreshHud();
+        }
+    }
+
+    private void refreshHud() {
+        metricsHud.setText(scanMetrics.summary());
+        metricsHud.postDelayed(hudRefresh, HUD_REFRESH_MS);
+    }
+
+    /** Writes the metrics so far as JSON to the app's external files; runs on {@code trackingExecutor}. */
+    private void dumpMetrics() {
+        File directory = getExternalFilesDir("metrics");
+        if (directory == null || scanMetrics.getCount(ScanMetrics.COUNTER_ARRIVED) == 0) {
+            return;
+        }
+        File file = new File(directory, "scan-metrics-" + System.currentTimeMillis() + ".json");
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            scanMetrics.writeJson(out, System.nanoTime());
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot write metrics to " + file, e);
+        }
+    }
+
+    /**
+     * Where integrations subscribe to live reads, e.g. distinct confirmed reads for an ERP push
+     * or batches for a label printer. Subscribe from any thread.
+     */
+    public ScanResultsHub getScanResults() {
+        return scanResults;
+    }
+
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         if (item.getItemId() == android.R.id.home) {
@@ -114,6 +431,12 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void startCamera() {
+        cameraStartNanos = System.nanoTime();
+        firstDecodePending = true;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(FIRST_DECODE_SECTION, 0);
+        }
+        // Returns the provider the startup pipeline has been initialising since launch.
         ListenableFuture<ProcessCameraProvider> cameraProviderFuture = ProcessCameraProvider.getInstance(this);
 
         cameraProviderFuture.addListener(() -> {
@@ -127,24 +450,22 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void bindPreview(@NonNull ProcessCameraProvider cameraProvider) {
+        this.cameraProvider = cameraProvider;
         Preview preview = new Preview.Builder()
                 .setTargetResolution(new Size(1080, 1920))
                 .build();
 
-        CameraSelector cameraSelector = new CameraSelector.Builder()
+        cameraSelector = new CameraSelector.Builder()
                 .requireLensFacing(CameraSelector.LENS_FACING_BACK)
                 .build();
 
+        // Full sensor resolution: stills are tiled, so small labels keep their pixels.
         imageCapture = new ImageCapture.Builder()
-                .setTargetResolution(new Size(1080, 1920))
+                .setCaptureMode(ImageCapture.CAPTURE_MODE_MAXIMIZE_QUALITY)
                 .build();
 
-        ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
-                .setTargetResolution(new Size(1080, 1920))
-                .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
-                .build();
-
-        imageAnalysis.setAnalyzer(cameraExecutor, this::scanBarcodes);
+        analysisLevel = resolutionController.getLevel();
+        imageAnalysis = buildImageAnalysis(analysisLevel);
 
         preview.setSurfaceProvider(previewView.getSurfaceProvider());
 
@@ -156,217 +477,529 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    private ImageAnalysis buildImageAnalysis(int level) {
+        ImageAnalysis analysis = new ImageAnalysis.Builder()
+                .setTargetResolution(ANALYSIS_RESOLUTIONS[level])
+                .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                .build();
+        analysis.setAnalyzer(cameraExecutor, this::scanBarcodes);
+        return analysis;
+    }
+
+    /**
+     * Swaps the analysis use case for one at {@code level}, leaving preview and capture bound.
+     * Frames of the old stream already being scanned finish normally. Main thread only.
+     */
+    private void rebindAnalysis(int level) {
+        if (cameraProvider == null || imageAnalysis == null || level == analysisLevel) {
+            return;
+        }
+        try {
+            cameraProvider.unbind(imageAnalysis);
+            imageAnalysis = buildImageAnalysis(level);
+            cameraProvider.bindToLifecycle((LifecycleOwner) this, cameraSelector, imageAnalysis);
+            analysisLevel = level;
+            Log.i(TAG, "Analysing at " + ANALYSIS_RESOLUTIONS[level]);
+        } catch (Exception e) {
+            Log.e(TAG, "Rebinding analysis failed", e);
+        }
+    }
+
     @OptIn(markerClass = ExperimentalGetImage.class)
     private void scanBarcodes(ImageProxy image) {
+        long frameStart = -1;
+        boolean handedOff = false;
+        boolean gated = false;
+        BarcodeScannerClients.Lease scanner = null;
+        Trace.beginSection("scanBarcodes");
+        scanMetrics.increment(ScanMetrics.COUNTER_ARRIVED);
         try {
             if (image.getImage() == null || image.getFormat() != ImageFormat.YUV_420_888) {
+                scanMetrics.increment(ScanMetrics.COUNTER_CLOSED);
                 image.close();
                 return;
             }
 
-            InputImage inputImage = InputImage.fromMediaImage(image.getImage(), image.getImageInfo().getRotationDegrees());
+            // Only while nothing is in the detector, so reused results never overtake real ones.
+            if (MOTION_GATE_ENABLED && scanScheduler.getInFlight() == 0) {
+                ImageProxy.PlaneProxy luma = image.getPlanes()[0];
+                gated = true;
+                if (!motionGate.shouldScan(luma.getBuffer(), luma.getRowStride(), image.getWidth(), image.getHeight())) {
+                    scanMetrics.increment(ScanMetrics.COUNTER_SKIPPED);
+                    long skippedAt = System.nanoTime();
+                    trackingExecutor.execute(() -> reuseLastResults(skippedAt));
+                    image.close();
+                    return;
+                }
+            }
+
+            frameStart = scanScheduler.tryBeginFrame();
+            if (frameStart < 0) {
+                scanMetrics.increment(ScanMetrics.COUNTER_DROPPED);
+                image.close();
+                return;
+            }
+            scanMetrics.increment(ScanMetrics.COUNTER_SCANNED);
+            long admittedAt = frameStart;
+            FormatPolicy policy = formatPolicy;
+            int formats = policy.formatsForNextFrame();
+            scanner = scannerClients.acquire(formats);
+
+            int rotation = image.getImageInfo().getRotationDegrees();
+            int sensorWidth = image.getWidth();
+            int sensorHeight = image.getHeight();
+            byte[] luma = RECORDING_ENABLED ? copyLuma(image) : null;
+            // Tracking works at the highest analysis resolution whatever the stream's, so tracks
+            // survive resolution switches; detections are scaled up to it.
+            float toTracking = ANALYSIS_RESOLUTIONS[ANALYSIS_RESOLUTIONS.length - 1].getHeight()
+                    / (float) Math.max(image.getWidth(), image.getHeight());
+            int frameWidth = Math.round(RoiGeometry.uprightWidth(image.getWidth(), image.getHeight(), rotation) * toTracking);
+            int frameHeight = Math.round(RoiGeometry.uprightHeight(image.getWidth(), image.getHeight(), rotation) * toTracking);
+            List<CropRegion> crops = ROI_SCANNING_ENABLED
+                    ? roiPlanner.nextPlan(image.getWidth(), image.getHeight(), rotation, 1f / toTracking)
+                    : Collections.emptyList();
+            if (!crops.isEmpty()) {
+                scanRegions(image, crops, rotation, frameWidth, frameHeight, toTracking, admittedAt, luma,
+                        scanner, policy, formats);
+                handedOff = true;
+                if (gated) {
+                    motionGate.commit();
+                }
+                return;
+            }
 
-            barcodeScanner.process(inputImage)
-                    .addOnSuccessListener(this::processBarcodes)
-                    .addOnFailureListener(e -> Log.e(TAG, "Barcode scanning failed", e))
-                    .addOnCompleteListener(task -> image.close());
+            InputImage inputImage = InputImage.fromMediaImage(image.getImage(), rotation);
+
+            BarcodeScannerClients.Lease lease = scanner;
+            long detectStart = System.nanoTime();
+            scanMetrics.record(ScanMetrics.STAGE_QUEUE, admittedAt, detectStart);
+            lease.getScanner().process(inputImage)
+                    .addOnSuccessListener(trackingExecutor, barcodes -> {
+                        long detected = System.nanoTime();
+                        scanMetrics.record(ScanMetrics.STAGE_DETECT, detectStart, detected);
+                        List<Detection> detections = toDetections(barcodes, null, toTracking);
+                        policy.onFrameScanned(formats, detections);
+                        recordFrame(detections, frameWidth, frameHeight, rotation, admittedAt,
+                                luma, sensorWidth, sensorHeight);
+                        processBarcodes(detections, frameWidth, frameHeight, admittedAt);
+                        scanMetrics.record(ScanMetrics.STAGE_TRACK, detected, System.nanoTime());
+                    })
+                    .addOnFailureListener(e -> {
+                        Log.e(TAG, "Barcode scanning failed", e);
+                        // The gate took this frame as seen; make it look again.
+                        motionGate.reset();
+                    })
+                    .addOnCompleteListener(task -> {
+                        scanScheduler.endFrame(admittedAt);
+                        lease.release();
+                        image.close();
+                    });
+            handedOff = true;
+            if (gated) {
+                motionGate.commit();
+            }
         } catch (Exception e) {
             Log.e(TAG, "Error processing image", e);
+            scanMetrics.increment(ScanMetrics.COUNTER_CLOSED);
+            if (frameStart >= 0 && !handedOff) {
+                scanScheduler.endFrame(frameStart);
+                if (scanner != null) {
+                    scanner.release();
+                }
+            }
             image.close();
+        } finally {
+            Trace.endSection();
         }
     }
 
-    private void processBarcodes(List<Barcode> barcodes) {
-        Log.d(TAG, "Number of barcodes detected: " + barcodes.size());
-
-        Map<String, List<StabilizedBarcode>> currentBarcodes = new HashMap<>();
-
-        for (Barcode barcode : barcodes) {
-            if (barcode.getBoundingBox() != null) {
-                String barcodeValue = barcode.getRawValue();
-                if (barcodeValue == null) continue;
-
-                Rect boundingBox = barcode.getBoundingBox();
-
-                barcodeColors.putIfAbsent(barcodeValue, getRandomColor());
-
-                StabilizedBarcode stabilizedBarcode = new StabilizedBarcode(barcodeValue, boundingBox);
-                if (trackedBarcodes.containsKey(barcodeValue)) {
-                    List<StabilizedBarcode> existingBarcodes = trackedBarcodes.get(barcodeValue);
-                    boolean matched = false;
-                    for (StabilizedBarcode existing : existingBarcodes) {
-                        if (existing.isCloseTo(stabilizedBarcode)) {
-                            existing.update(boundingBox);
-                            matched = true;
-                            if (!currentBarcodes.containsKey(barcodeValue)) {
-                                currentBarcodes.put(barcodeValue, new ArrayList<>());
-                            }
-                            currentBarcodes.get(barcodeValue).add(existing);
-                            break;
-                        }
-                    }
-                    if (!matched) {
-                        if (!currentBarcodes.containsKey(barcodeValue)) {
-                            currentBarcodes.put(barcodeValue, new ArrayList<>());
-                        }
-                        currentBarcodes.get(barcodeValue).add(stabilizedBarcode);
+    /**
+     * Scans only the given crops of the frame. The crops are copied out of the camera buffers, so
+     * the frame is released before detection starts.
+     */
+    private void scanRegions(ImageProxy image, List<CropRegion> crops, int rotation,
+                             int frameWidth, int frameHeight, float toTracking, long frameStart, byte[] luma,
+                             BarcodeScannerClients.Lease scanner, FormatPolicy policy, int formats) {
+        int sensorWidth = image.getWidth();
+        int sensorHeight = image.getHeight();
+        List<Task<List<Barcode>>> tasks = new ArrayList<>(crops.size());
+        List<ByteBuffer> buffers = new ArrayList<>(crops.size());
+        boolean submitted = false;
+        try {
+            ImageProxy.PlaneProxy[] planes = image.getPlanes();
+            for (CropRegion crop : crops) {
+                ByteBuffer buffer = cropBufferPool.acquire(crop.nv21Size());
+                buffers.add(buffer);
+                YuvCropper.cropToNv21(planes[0].getBuffer(), planes[0].getRowStride(),
+                        planes[1].getBuffer(), planes[2].getBuffer(),
+                        planes[1].getRowStride(), planes[1].getPixelStride(), crop, buffer);
+                tasks.add(scanner.getScanner().process(InputImage.fromByteBuffer(buffer,
+                        crop.getWidth(), crop.getHeight(), rotation, InputImage.IMAGE_FORMAT_NV21)));
+            }
+            submitted = true;
+        } finally {
+            image.close();
+            if (!submitted) {
+                // Crops already handed to the detector are returned once it is done with them.
+                Tasks.whenAllComplete(tasks).addOnCompleteListener(trackingExecutor,
+                        done -> releaseCropBuffers(buffers));
+            }
+        }
+        long detectStart = System.nanoTime();
+        scanMetrics.record(ScanMetrics.STAGE_QUEUE, frameStart, detectStart);
+
+        Tasks.whenAllComplete(tasks).addOnCompleteListener(trackingExecutor, done -> {
+            long detected = System.nanoTime();
+            scanMetrics.record(ScanMetrics.STAGE_DETECT, detectStart, detected);
+            scanScheduler.endFrame(frameStart);
+            scanner.release();
+            List<Detection> mapped = new ArrayList<>();
+            try {
+                for (int i = 0; i < tasks.size(); i++) {
+                    Task<List<Barcode>> task = tasks.get(i);
+                    if (task.isSuccessful()) {
+                        mapped.addAll(toDetections(task.getResult(), crops.get(i), toTracking));
+                    } else {
+                        Log.e(TAG, "Barcode scanning failed", task.getException());
+                        motionGate.reset();
                     }
-                } else {
-                    List<StabilizedBarcode> newList = new ArrayList<>();
-                    newList.add(stabilizedBarcode);
-                    currentBarcodes.put(barcodeValue, newList);
                 }
+            } finally {
+                releaseCropBuffers(buffers);
             }
-        }
+            policy.onFrameScanned(formats, mapped);
+            recordFrame(mapped, frameWidth, frameHeight, rotation, frameStart, luma, sensorWidth, sensorHeight);
+            processBarcodes(mapped, frameWidth, frameHeight, frameStart);
+            scanMetrics.record(ScanMetrics.STAGE_TRACK, detected, System.nanoTime());
+        });
+    }
 
-        trackedBarcodes = currentBarcodes;
+    private void releaseCropBuffers(List<ByteBuffer> buffers) {
+        for (ByteBuffer buffer : buffers) {
+            cropBufferPool.release(buffer);
+        }
+    }
 
-        List<StabilizedBarcode> allStabilizedBarcodes = new ArrayList<>();
-        for (List<StabilizedBarcode> barcodeList : trackedBarcodes.values()) {
-            allStabilizedBarcodes.addAll(barcodeList);
+    /** Copies the Y plane of {@code image} into a tightly packed array. */
+    private static byte[] copyLuma(ImageProxy image) {
+        ImageProxy.PlaneProxy plane = image.getPlanes()[0];
+        ByteBuffer y = plane.getBuffer().duplicate();
+        int width = image.getWidth();
+        int height = image.getHeight();
+        byte[] luma = new byte[width * height];
+        for (int row = 0; row < height; row++) {
+            y.position(row * plane.getRowStride());
+            y.get(luma, row * width, width);
         }
-        barcodeOverlayView.setBarcodes(allStabilizedBarcodes, barcodeColors, previewView.getWidth(), previewView.getHeight());
-        barcodeOverlayView.invalidate();
+        return luma;
     }
 
-    private int getRandomColor() {
-        return Color.rgb(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+    /**
+     * Loads the detector's model and leaves its client cached, by detecting on one blank frame.
+     * Runs on {@code startupExecutor}.
+     */
+    private Void warmDetector() throws Exception {
+        BarcodeScannerClients.Lease lease = scannerClients.acquire(scanProfile.getFormats());
+        try {
+            byte[] blank = new byte[WARMUP_FRAME_SIZE * WARMUP_FRAME_SIZE * 3 / 2];
+            Tasks.await(lease.getScanner().process(InputImage.fromByteArray(blank,
+                    WARMUP_FRAME_SIZE, WARMUP_FRAME_SIZE, 0, InputImage.IMAGE_FORMAT_NV21)));
+        } finally {
+            lease.release();
+        }
+        return null;
     }
 
-    private boolean allPermissionsGranted() {
-        for (String permission : REQUIRED_PERMISSIONS) {
-            if (ContextCompat.checkSelfPermission(this, permission) != PackageManager.PERMISSION_GRANTED) {
-                return false;
-            }
+    /** Runs on {@code trackingExecutor}. */
+    private void startRecording() {
+        File file = new File(getExternalFilesDir(null), "scan-" + System.currentTimeMillis() + ".scanrec");
+        try {
+            recorder = new ScanRecorder(new FileOutputStream(file));
+            Log.i(TAG, "Recording frames to " + file);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot record to " + file, e);
         }
-        return true;
     }
 
-    @Override
-    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
-        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
-        if (requestCode == REQUEST_CODE_PERMISSIONS) {
-            if (allPermissionsGranted()) {
-                startCamera();
-                imageCaptureButton.setText("CAPTURE");
-                isCaptureMode = true;
-                previewView.setVisibility(View.VISIBLE);
-                barcodeOverlayView.setVisibility(View.VISIBLE);
-            } else {
-                Toast.makeText(this, "Permissions not granted by the user.", Toast.LENGTH_SHORT).show();
-                finish();
-            }
+    /** Runs on {@code trackingExecutor}. */
+    private void recordFrame(List<Detection> detections, int frameWidth, int frameHeight, int rotation,
+                             long timestampNanos, byte[] luma, int lumaWidth, int lumaHeight) {
+        if (recorder == null) {
+            return;
+        }
+        try {
+            recorder.recordFrame(timestampNanos, frameWidth, frameHeight, rotation, detections,
+                    luma, lumaWidth, lumaHeight);
+        } catch (IOException e) {
+            Log.e(TAG, "Recording failed, stopping", e);
+            stopRecording();
         }
     }
 
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        cameraExecutor.shutdown();
-        if (mediaPlayer != null) {
-            mediaPlayer.release();
-            mediaPlayer = null;
+    /** Runs on {@code trackingExecutor}. */
+    private void stopRecording() {
+        if (recorder == null) {
+            return;
+        }
+        try {
+            recorder.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Closing recording failed", e);
         }
+        recorder = null;
     }
 
-    public static class StabilizedBarcode {
-        private static final int SMOOTHING_WINDOW_SIZE = 15; // Number of frames for stabilization
+    /** Runs on {@code trackingExecutor}, so recovering the journal never blocks the main thread. */
+    private void openJournal() {
+        File directory = new File(getFilesDir(), "scan-journal");
+        try {
+            journal = ScanJournal.open(directory);
+            confirmedReads = new ConfirmedReadStage(journal);
+            if (journal.recoveredTornTail()) {
+                Log.w(TAG, "Scan journal dropped a torn record left by a crash");
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot open scan journal in " + directory + ", reads will not be saved", e);
+            return;
+        }
+        if (!SYNC_URL.isEmpty()) {
+            startSync();
+        }
+    }
 
-        private final String value;
-        private final String uniqueId;
-        private KalmanFilter kalmanFilter;
-        private Rect boundingBox;
-        private RectF iconBounds;
-        private final LinkedList<Rect> boundingBoxHistory = new LinkedList<>();
+    /** Runs on {@code trackingExecutor}, once the journal is open. */
+    private void startSync() {
+        try {
+            syncUploader = SyncUploader.builder(journal, new HttpSyncTransport(new URL(SYNC_URL)),
+                            new File(getFilesDir(), "scan-sync"))
+                    .listener(new SyncUploader.Listener() {
+                        @Override
+                        public void onUploaded(String batchId, int reads, int bytes) {
+                            Log.d(TAG, "Uploaded " + reads + " reads in " + bytes + " bytes as " + batchId);
+                        }
 
-        StabilizedBarcode(String value, Rect boundingBox) {
-            this.value = value;
-            this.boundingBox = boundingBox;
-            this.kalmanFilter = new KalmanFilter(boundingBox);
-            this.uniqueId = generateUniqueId(); // Generate a unique ID
-            setIconBounds((boundingBox.left + boundingBox.right) / 2, (boundingBox.top + boundingBox.bottom) / 2, 50);
+                        @Override
+                        public void onFailed(String batchId, int attempt, IOException error) {
+                            Log.w(TAG, "Upload of " + batchId + " failed, attempt " + (attempt + 1), error);
+                        }
+                    })
+                    .start();
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot start scan upload to " + SYNC_URL + ", reads stay on the device", e);
         }
+    }
 
-        private String generateUniqueId() {
-            // Use a combination of value and current time to ensure uniqueness
-            return value + "_" + System.nanoTime();
+    /** Track stage; runs on {@code trackingExecutor}. */
+    private void journalConfirmedReads(List<Track> tracks, long timestampNanos) {
+        if (confirmedReads != null) {
+            confirmedReads.onTracks(tracks, timestampNanos);
         }
+    }
 
-        public String getUniqueId() {
-            return uniqueId;
+    /** Runs on {@code trackingExecutor}; stops the upload, then waits for queued reads to be written. */
+    private void closeJournal() {
+        if (journal == null) {
+            return;
         }
-
-        void update(Rect newBoundingBox) {
-            if (boundingBoxHistory.size() >= SMOOTHING_WINDOW_SIZE) {
-                boundingBoxHistory.poll();
-            }
-            boundingBoxHistory.add(newBoundingBox);
-            this.boundingBox = kalmanFilter.predictAndUpdate(newBoundingBox);
-            setIconBounds((boundingBox.left + boundingBox.right) / 2, (boundingBox.top + boundingBox.bottom) / 2, 50);
+        if (syncUploader != null) {
+            syncUploader.close();
+            syncUploader = null;
         }
-
-        Rect getBoundingBox() {
-            return boundingBox;
+        try {
+            journal.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Closing scan journal failed", e);
         }
+        journal = null;
+        confirmedReads = null;
+    }
 
-        String getValue() {
-            return value;
-        }
+    /**
+     * Restricts scanning to {@code profile}'s formats; with {@code auto}, further to the formats
+     * being read. Takes effect from the next admitted frame; frames already in the detector
+     * finish with the client they started on.
+     */
+    void setScanProfile(ScanProfile profile, boolean auto) {
+        scanProfile = profile;
+        formatPolicy = auto ? new AutoFormatPolicy.Builder(profile).build() : FormatPolicy.fixed(profile);
+        Log.i(TAG, "Scanning for " + profile + (auto ? ", narrowed to formats in use" : ""));
+    }
 
-        void setIconBounds(float centerX, float centerY, float size) {
-            float halfSize = size / 2;
-            this.iconBounds = new RectF(centerX - halfSize, centerY - halfSize, centerX + halfSize, centerY + halfSize);
+    /** Runs on {@code catalogExecutor}; the app works without a catalog, showing raw values. */
+    private void openCatalog() {
+        File file = new File(getFilesDir(), "catalog.idx");
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            catalogIndex = CatalogIndex.open(file);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot open product catalog " + file, e);
+            return;
         }
+        ProductCatalog catalog = new ProductCatalog(catalogIndex, catalogExecutor);
+        catalogPrefetch = new CatalogPrefetchStage(catalog);
+        barcodeOverlayView.setProductCatalog(catalog);
+        Log.i(TAG, "Product catalog has " + catalog.size() + " products");
+    }
 
-        RectF getIconBounds() {
-            return iconBounds;
+    /** Track stage; runs on {@code trackingExecutor}. */
+    private void prefetchProducts(List<Track> tracks, long timestampNanos) {
+        CatalogPrefetchStage stage = catalogPrefetch;
+        if (stage != null) {
+            stage.onTracks(tracks, timestampNanos);
         }
+    }
 
-        boolean isCloseTo(StabilizedBarcode other) {
-            return Math.abs(this.boundingBox.left - other.boundingBox.left) < 30 &&
-                    Math.abs(this.boundingBox.top - other.boundingBox.top) < 30 &&
-                    Math.abs(this.boundingBox.right - other.boundingBox.right) < 30 &&
-                    Math.abs(this.boundingBox.bottom - other.boundingBox.bottom) < 30;
+    /** Runs on {@code catalogExecutor}, after any lookups already queued. */
+    private void closeCatalog() {
+        if (catalogIndex == null) {
+            return;
         }
+        try {
+            catalogIndex.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Closing product catalog failed", e);
+        }
+        catalogIndex = null;
     }
 
-    public static class KalmanFilter {
-        private float[] state;  // [left, top, right, bottom]
-        private float[][] errorCovariance;
-        private float processNoise;
-        private float measurementNoise;
+    /**
+     * Converts detector results to tracker detections in full-frame coordinates. {@code crop} is
+     * the region the results were detected in, or null for a full-frame scan; {@code toTracking}
+     * scales the frame to tracking resolution. Values are interned
+     * here, once, so the tracker only ever compares IDs. Runs on {@code trackingExecutor}.
+     */
+    private List<Detection> toDetections(List<Barcode> barcodes, CropRegion crop, float toTracking) {
+        List<Detection> result = new ArrayList<>(barcodes.size());
+        IntRect rect = new IntRect();
+        int[] scratch = new int[4];
+        for (Barcode barcode : barcodes) {
+            Rect boundingBox = barcode.getBoundingBox();
+            String barcodeValue = barcode.getRawValue();
+            if (boundingBox == null || barcodeValue == null) continue;
+
+            rect.set(boundingBox.left, boundingBox.top, boundingBox.right, boundingBox.bottom);
+            if (crop != null) {
+                crop.mapToFrame(rect, scratch);
+            }
+            if (toTracking != 1f) {
+                rect.set(Math.round(rect.left * toTracking), Math.round(rect.top * toTracking),
+                        Math.round(rect.right * toTracking), Math.round(rect.bottom * toTracking));
+            }
+            int format = barcode.getFormat();
+            result.add(new Detection(valueSymbols.intern(barcodeValue, format), barcodeValue, format,
+                    rect.left, rect.top, rect.right, rect.bottom));
+        }
+        return result;
+    }
 
-        public KalmanFilter(Rect initial) {
-            state = new float[]{initial.left, initial.top, initial.right, initial.bottom};
-            errorCovariance = new float[][]{
-                    {1, 0, 0, 0},
-                    {0, 1, 0, 0},
-                    {0, 0, 1, 0},
-                    {0, 0, 0, 1}
-            };
-            processNoise = 1e-7f;  // Reduced process noise for smoother tracking
-            measurementNoise = 1e-5f; // Reduced measurement noise to expect less variation
+    /**
+     * Publishes the tracks coasted to a frame the motion gate skipped. The skipped frame is not
+     * matched against anything, so it never confirms a read. Runs on {@code trackingExecutor}.
+     */
+    private void reuseLastResults(long timestampNanos) {
+        if (lastFrameWidth == 0) {
+            return;
         }
+        snapshots.publish(scanPipeline.coast(timestampNanos, lastFrameWidth, lastFrameHeight));
+        barcodeOverlayView.onSnapshotPublished();
+    }
 
-        public Rect predictAndUpdate(Rect measurement) {
-            // Prediction step
-            for (int i = 0; i < state.length; i++) {
-                errorCovariance[i][i] += processNoise;
+    /**
+     * Runs one frame through the scan pipeline on {@code trackingExecutor} and publishes the
+     * result for the overlay.
+     *
+     * @param frameWidth,frameHeight upright size of the analysed frame, scaled to tracking resolution
+     * @param timestampNanos         when the frame was admitted, on the {@code System.nanoTime} clock
+     */
+    private void processBarcodes(List<Detection> detections, int frameWidth, int frameHeight, long timestampNanos) {
+        Trace.beginSection("processBarcodes");
+        try {
+            if (firstDecodePending) {
+                firstDecodePending = false;
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                    Trace.endAsyncSection(FIRST_DECODE_SECTION, 0);
+                }
+                Log.i(TAG, "First decode " + (System.nanoTime() - cameraStartNanos) / 1_000_000
+                        + " ms after starting the camera; startup " + startup.getTasks());
+            }
+            lastFrameWidth = frameWidth;
+            lastFrameHeight = frameHeight;
+            snapshots.publish(scanPipeline.process(detections, timestampNanos, frameWidth, frameHeight));
+            barcodeOverlayView.onSnapshotPublished();
+            if (ADAPTIVE_RESOLUTION_ENABLED) {
+                int level = resolutionController.getLevel();
+                if (resolutionController.onFrame(detections, frameWidth, frameHeight) != level) {
+                    int next = resolutionController.getLevel();
+                    runOnUiThread(() -> rebindAnalysis(next));
+                }
             }
+        } finally {
+            Trace.endSection();
+        }
+    }
 
-            // Update step
-            float[] measurementVec = new float[]{measurement.left, measurement.top, measurement.right, measurement.bottom};
-            float[] kalmanGain = new float[state.length];  // Calculate Kalman gain for each state
-            for (int i = 0; i < state.length; i++) {
-                kalmanGain[i] = errorCovariance[i][i] / (errorCovariance[i][i] + measurementNoise);
+    private boolean allPermissionsGranted() {
+        for (String permission : REQUIRED_PERMISSIONS) {
+            if (ContextCompat.checkSelfPermission(this, permission) != PackageManager.PERMISSION_GRANTED) {
+                return false;
             }
+        }
+        return true;
+    }
 
-            for (int i = 0; i < state.length; i++) {
-                state[i] = state[i] + kalmanGain[i] * (measurementVec[i] - state[i]);
-                errorCovariance[i][i] = (1 - kalmanGain[i]) * errorCovariance[i][i];
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (requestCode == REQUEST_CODE_PERMISSIONS) {
+            if (allPermissionsGranted()) {
+                startCamera();
+                imageCaptureButton.setText("CAPTURE");
+                isCaptureMode = true;
+                countModeButton.setVisibility(View.VISIBLE);
+                batchButton.setVisibility(View.VISIBLE);
+                previewView.setVisibility(View.VISIBLE);
+                barcodeOverlayView.setVisibility(View.VISIBLE);
+            } else {
+                Toast.makeText(this, "Permissions not granted by the user.", Toast.LENGTH_SHORT).show();
+                finish();
             }
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        metricsHud.removeCallbacks(hudRefresh);
+        metricsHud.setVisibility(View.GONE);
+        trackingExecutor.execute(this::dumpMetrics);
+    }
 
-            return new Rect((int) state[0], (int) state[1], (int) state[2], (int) state[3]);
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        barcodeOverlayView.onTrimMemory(level);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        cameraExecutor.shutdown();
+        scannerClients.close();
+        // Queued ahead of the shutdown, so frames already handed to tracking are still recorded.
+        trackingExecutor.execute(this::stopRecording);
+        trackingExecutor.execute(this::closeJournal);
+        trackingExecutor.execute(scanResults::close);
+        trackingExecutor.shutdown();
+        catalogExecutor.execute(this::closeCatalog);
+        catalogExecutor.shutdown();
+        // Interrupts a running batch, which then stops between images.
+        batchExecutor.shutdownNow();
+        startupExecutor.shutdownNow();
+        MediaPlayer player = beep.getIfDone();
+        if (player != null) {
+            player.release();
         }
     }
 }
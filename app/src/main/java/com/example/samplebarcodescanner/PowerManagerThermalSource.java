@@ -0,0 +1,36 @@
+package com.example.samplebarcodescanner;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.PowerManager;
+
+import androidx.annotation.RequiresApi;
+
+import com.example.samplebarcodescanner.schedule.ThermalSource;
+
+/**
+ * {@link ThermalSource} backed by {@link PowerManager#getCurrentThermalStatus()}.
+ */
+final class PowerManagerThermalSource implements ThermalSource {
+    private final PowerManager powerManager;
+
+    @RequiresApi(Build.VERSION_CODES.Q)
+    private PowerManagerThermalSource(PowerManager powerManager) {
+        this.powerManager = powerManager;
+    }
+
+    @RequiresApi(Build.VERSION_CODES.Q)
+    @Override
+    public int getThermalStatus() {
+        return powerManager.getCurrentThermalStatus();
+    }
+
+    /** Returns the device's thermal source, or {@link ThermalSource#NONE} before Android 10. */
+    static ThermalSource create(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+            return ThermalSource.NONE;
+        }
+        PowerManager powerManager = context.getSystemService(PowerManager.class);
+        return powerManager != null ? new PowerManagerThermalSource(powerManager) : ThermalSource.NONE;
+    }
+}
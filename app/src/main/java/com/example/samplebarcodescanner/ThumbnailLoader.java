@@ -0,0 +1,218 @@
+package com.example.samplebarcodescanner;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.widget.ImageView;
+
+import com.example.samplebarcodescanner.image.CoalescingLoader;
+import com.example.samplebarcodescanner.image.ImageCache;
+import com.example.samplebarcodescanner.image.SampleSize;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes thumbnails for popups off the main thread, at no more than twice the size they are
+ * shown, and keeps them in an {@link ImageCache} so reopening a popup costs no decode at all.
+ * <p>
+ * Decodes are subsampled with {@code inSampleSize} and written into evicted bitmaps from the
+ * cache's pool with {@code inBitmap}, so steady-state browsing allocates no pixel memory.
+ * Simultaneous requests for the same image and size share one decode. Main thread only.
+ */
+final class ThumbnailLoader {
+    private static final String TAG = "ThumbnailLoader";
+    // Shares of the heap for cached thumbnails and for bitmaps kept for reuse.
+    private static final int CACHE_HEAP_DIVISOR = 16;
+    private static final int POOL_HEAP_DIVISOR = 64;
+    private static final int BYTES_PER_PIXEL = 4;
+
+    /** A thumbnail shown, or about to be shown, in an {@link ImageView}. */
+    final class Thumbnail implements CoalescingLoader.Callback<Bitmap> {
+        private final ImageView view;
+        private CoalescingLoader.Request request;
+        private Bitmap bitmap;
+
+        private Thumbnail(ImageView view) {
+            this.view = view;
+        }
+
+        @Override
+        public void onLoaded(Bitmap loaded) {
+            request = null;
+            cache.retain(loaded);
+            show(loaded);
+        }
+
+        @Override
+        public void onFailed(Exception error) {
+            request = null;
+            Log.w(TAG, "Cannot decode thumbnail", error);
+        }
+
+        private void show(Bitmap loaded) {
+            bitmap = loaded;
+            view.setImageBitmap(loaded);
+        }
+
+        /** Cancels the decode or unpins the bitmap; call when the view is no longer shown. */
+        void clear() {
+            if (request != null) {
+                request.cancel();
+                request = null;
+            }
+            if (bitmap != null) {
+                view.setImageDrawable(null);
+                cache.release(bitmap);
+                bitmap = null;
+            }
+        }
+    }
+
+    /** An image at a display size; resources and files are keyed separately. */
+    private static final class Spec {
+        final int resourceId;
+        final File file;
+        final int width;
+        final int height;
+
+        Spec(int resourceId, File file, int width, int height) {
+            if (width <= 0 || height <= 0) {
+                throw new IllegalArgumentException("thumbnail size must be positive: " + width + "x" + height);
+            }
+            this.resourceId = resourceId;
+            this.file = file;
+            this.width = width;
+            this.height = height;
+        }
+
+        Bitmap decode(Resources resources, BitmapFactory.Options options) {
+            return file != null
+                    ? BitmapFactory.decodeFile(file.getPath(), options)
+                    : BitmapFactory.decodeResource(resources, resourceId, options);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Spec)) {
+                return false;
+            }
+            Spec other = (Spec) o;
+            return resourceId == other.resourceId && Objects.equals(file, other.file)
+                    && width == other.width && height == other.height;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(resourceId, file, width, height);
+        }
+
+        @Override
+        public String toString() {
+            return (file != null ? file.getPath() : "resource 0x" + Integer.toHexString(resourceId))
+                    + " at " + width + "x" + height;
+        }
+    }
+
+    private final Resources resources;
+    private final long maxCacheBytes;
+    private final ImageCache<Spec, Bitmap> cache;
+    private final CoalescingLoader<Spec, Bitmap> loader;
+
+    ThumbnailLoader(Resources resources) {
+        this.resources = resources;
+        long heap = Runtime.getRuntime().maxMemory();
+        maxCacheBytes = heap / CACHE_HEAP_DIVISOR;
+        cache = new ImageCache<>(maxCacheBytes, heap / POOL_HEAP_DIVISOR, Bitmap::getAllocationByteCount,
+                Bitmap::recycle);
+        // One decode thread, which exits when idle.
+        ThreadPoolExecutor decoder = new ThreadPoolExecutor(1, 1, 5, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, TAG);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        decoder.allowCoreThreadTimeOut(true);
+        Handler main = new Handler(Looper.getMainLooper());
+        // The decode's own pin is dropped once every waiting view has taken one.
+        loader = new CoalescingLoader<>(this::decode, decoder, main::post, cache::release);
+    }
+
+    /** Shows drawable {@code resourceId} in {@code view}, decoded for {@code width} x {@code height} pixels. */
+    Thumbnail loadResource(int resourceId, int width, int height, ImageView view) {
+        return load(new Spec(resourceId, null, width, height), view);
+    }
+
+    /** Shows the image in {@code file} in {@code view}, decoded for {@code width} x {@code height} pixels. */
+    Thumbnail loadFile(File file, int width, int height, ImageView view) {
+        return load(new Spec(0, file, width, height), view);
+    }
+
+    /** Gives memory back as the system asks, from {@code ComponentCallbacks2.onTrimMemory}. */
+    void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            cache.trim(0, 0);
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            cache.trim(maxCacheBytes / 2, 0);
+        }
+    }
+
+    private Thumbnail load(Spec spec, ImageView view) {
+        Thumbnail thumbnail = new Thumbnail(view);
+        Bitmap cached = cache.acquire(spec);
+        if (cached != null) {
+            thumbnail.show(cached);
+        } else {
+            thumbnail.request = loader.load(spec, thumbnail);
+        }
+        return thumbnail;
+    }
+
+    /** Runs on the decode thread; returns the bitmap cached and pinned. */
+    private Bitmap decode(Spec spec) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        // Drawables are otherwise scaled for the screen density, which defeats the sample size.
+        options.inScaled = false;
+        options.inJustDecodeBounds = true;
+        spec.decode(resources, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("cannot read image bounds of " + spec);
+        }
+        int sample = SampleSize.compute(options.outWidth, options.outHeight, spec.width, spec.height);
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sample;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inMutable = true;
+        Bitmap reusable = cache.takeReusable(
+                SampleSize.decodedBytes(options.outWidth, options.outHeight, sample, BYTES_PER_PIXEL));
+        options.inBitmap = reusable;
+        Bitmap bitmap;
+        try {
+            bitmap = spec.decode(resources, options);
+        } catch (IllegalArgumentException e) {
+            if (reusable == null) {
+                throw e;
+            }
+            // The pooled bitmap cannot hold this decode after all.
+            cache.offerReusable(reusable);
+            reusable = null;
+            options.inBitmap = null;
+            bitmap = spec.decode(resources, options);
+        }
+        if (reusable != null && bitmap != reusable) {
+            cache.offerReusable(reusable);
+        }
+        if (bitmap == null) {
+            throw new IOException("cannot decode " + spec);
+        }
+        return cache.putAndAcquire(spec, bitmap);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.samplebarcodescanner.benchmark;
+
+import com.example.samplebarcodescanner.catalog.CatalogIndexWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Compiling a catalog CSV of {@code skus} entries into the index {@link CatalogLookupBenchmark}
+ * maps, as {@code :scanner-core:compileCatalog} does. Each operation is one
+ * complete build, written to the same file.
+ */
+@State(Scope.Thread)
+public class CatalogBuildBenchmark {
+    @Param({"100000", "1000000"})
+    public int skus;
+
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = File.createTempFile("catalog", ".idx");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public long build() throws IOException {
+        CatalogIndexWriter.write(new CatalogLookupBenchmark.CatalogCsv(skus), file);
+        return file.length();
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.samplebarcodescanner.benchmark;
+
+import com.example.samplebarcodescanner.catalog.CatalogIndex;
+import com.example.samplebarcodescanner.catalog.CatalogIndexWriter;
+import com.example.samplebarcodescanner.catalog.ProductCatalog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Product lookups for the barcode popup against a memory-mapped catalog of {@code skus} entries:
+ * listed and unlisted values straight from the index, and repeat lookups through the
+ * {@link ProductCatalog} cache. Each operation is one lookup.
+ */
+@State(Scope.Benchmark)
+public class CatalogLookupBenchmark {
+    private static final int LOOKUPS = 1024;
+
+    @Param({"10000", "1000000", "5000000"})
+    public int skus;
+
+    private final String[] listed = new String[LOOKUPS];
+    private final String[] unlisted = new String[LOOKUPS];
+    private File file;
+    private CatalogIndex index;
+    private ProductCatalog catalog;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = File.createTempFile("catalog", ".idx");
+        CatalogIndexWriter.write(new CatalogCsv(skus), file);
+        index = CatalogIndex.open(file);
+        catalog = new ProductCatalog(index, Runnable::run, LOOKUPS);
+        Random random = new Random(42);
+        for (int i = 0; i < LOOKUPS; i++) {
+            listed[i] = barcode(random.nextInt(skus));
+            unlisted[i] = barcode(skus + random.nextInt(skus));
+            catalog.lookup(listed[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        index.close();
+        file.delete();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void listed(Blackhole blackhole) {
+        for (int i = 0; i < LOOKUPS; i++) {
+            blackhole.consume(index.lookup(listed[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void unlisted(Blackhole blackhole) {
+        for (int i = 0; i < LOOKUPS; i++) {
+            blackhole.consume(index.lookup(unlisted[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void cached(Blackhole blackhole) {
+        for (int i = 0; i < LOOKUPS; i++) {
+            blackhole.consume(catalog.peek(listed[i]));
+        }
+    }
+
+    static String barcode(int i) {
+        return String.format(Locale.ROOT, "%013d", (i * 2_654_435_761L) % 10_000_000_000_000L);
+    }
+
+    /** Generates the catalog CSV row by row, so five million SKUs never sit in the heap as text. */
+    static final class CatalogCsv extends Reader {
+        private final int rows;
+        private int row = -1;
+        private String current = "barcode,name,brand,price\n";
+        private int position;
+
+        CatalogCsv(int rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            int read = 0;
+            while (read < length) {
+                if (position == current.length()) {
+                    if (++row >= rows) {
+                        return read == 0 ? -1 : read;
+                    }
+                    current = barcode(row) + ",Product " + row + ",Brand " + (row % 300) + "," + (row % 100) + ".99\n";
+                    position = 0;
+                }
+                int n = Math.min(length - read, current.length() - position);
+                current.getChars(position, position + n, buffer, offset + read);
+                position += n;
+                read += n;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.samplebarcodescanner.benchmark;
+
+import com.example.samplebarcodescanner.tracking.Detection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic detector output: a grid of labels on a shelf, seen by a camera that pans back and
+ * forth, with per-read jitter, missed reads and labels being replaced over time.
+ * <p>
+ * Every fifth label repeats its neighbour's value, as shelves with facings of the same product
+ * do, so value matching alone cannot identify tracks. Deterministic for a given seed.
+ */
+public final class DetectionStream {
+    public static final int FRAME_WIDTH = 1920;
+    public static final int FRAME_HEIGHT = 1440;
+    public static final long FRAME_NANOS = 33_333_333L;
+    private static final int BARCODE_FORMAT = 32; // Barcode.FORMAT_EAN_13
+
+    private final int labels;
+    private final int jitterPx;
+    private final float motionPx;
+    private final float churn;
+    private final float missRate;
+    private final Random random;
+    private final int columns;
+    private final float pitch;
+    private final int size;
+    private final String[] values;
+    private int nextValue;
+    private int frame;
+
+    private DetectionStream(Builder builder) {
+        labels = builder.labels;
+        jitterPx = builder.jitterPx;
+        motionPx = builder.motionPx;
+        churn = builder.churn;
+        missRate = builder.missRate;
+        random = new Random(builder.seed);
+        columns = (int) Math.ceil(Math.sqrt(labels * (double) FRAME_WIDTH / FRAME_HEIGHT));
+        int rows = (labels + columns - 1) / columns;
+        pitch = Math.min(FRAME_WIDTH / (float) (columns + 1), FRAME_HEIGHT / (float) (rows + 1));
+        size = Math.max(8, Math.round(pitch * 0.6f));
+        values = new String[labels];
+        for (int i = 0; i < labels; i++) {
+            values[i] = (i % 5 == 4) ? values[i - 1] : newValue();
+        }
+    }
+
+    public static Builder builder(int labels) {
+        return new Builder(labels);
+    }
+
+    public int getLabelCount() {
+        return labels;
+    }
+
+    /** Timestamp of the frame the next call to {@link #next()} returns. */
+    public long nextTimestampNanos() {
+        return frame * FRAME_NANOS;
+    }
+
+    /** Detections of the next frame, in detector order. */
+    public List<Detection> next() {
+        // Peak pan speed is motionPx per frame.
+        float panX = motionPx * 20 * (float) Math.sin(frame / 20.0);
+        float panY = motionPx * 10 * (float) Math.cos(frame / 27.0);
+        frame++;
+        List<Detection> detections = new ArrayList<>(labels);
+        for (int i = 0; i < labels; i++) {
+            if (churn > 0 && random.nextFloat() < churn) {
+                values[i] = newValue();
+            }
+            if (random.nextFloat() < missRate) {
+                continue;
+            }
+            int left = Math.round(pitch / 2 + (i % columns) * pitch + panX) + jitter();
+            int top = Math.round(pitch / 2 + (i / columns) * pitch + panY) + jitter();
+            detections.add(new Detection(values[i], BARCODE_FORMAT, left, top, left + size, top + size));
+        }
+        Collections.shuffle(detections, random);
+        return detections;
+    }
+
+    /** The next {@code count} frames, generated up front so benchmarks do not time generation. */
+    public List<List<Detection>> take(int count) {
+        List<List<Detection>> frames = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            frames.add(next());
+        }
+        return frames;
+    }
+
+    private int jitter() {
+        return jitterPx == 0 ? 0 : random.nextInt(2 * jitterPx + 1) - jitterPx;
+    }
+
+    private String newValue() {
+        // GS1 element strings, which are what long values look like on shelf labels.
+        int n = nextValue++;
+        return String.format("(01)0%013d(17)271231(10)LOT%05d", 4006381000000L + n, n % 100_000);
+    }
+
+    public static final class Builder {
+        private final int labels;
+        private int jitterPx = 3;
+        private float motionPx = 2f;
+        private float churn;
+        private float missRate = 0.05f;
+        private long seed = 1L;
+
+        private Builder(int labels) {
+            if (labels < 1 || labels > 500) {
+                throw new IllegalArgumentException("labels must be in [1, 500]: " + labels);
+            }
+            this.labels = labels;
+        }
+
+        /** Uniform per-read position noise, in px. */
+        public Builder jitter(int px) {
+            jitterPx = px;
+            return this;
+        }
+
+        /** Peak camera pan speed, in px per frame. */
+        public Builder motion(float pxPerFrame) {
+            motionPx = pxPerFrame;
+            return this;
+        }
+
+        /** Probability per label per frame that it is replaced by a new value. */
+        public Builder churn(float probability) {
+            churn = probability;
+            return this;
+        }
+
+        /** Probability per label per frame that the detector misses it. */
+        public Builder missRate(float probability) {
+            missRate = probability;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public DetectionStream build() {
+            return new DetectionStream(this);
+        }
+    }
+}
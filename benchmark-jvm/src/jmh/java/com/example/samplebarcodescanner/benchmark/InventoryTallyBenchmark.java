@@ -0,0 +1,94 @@
+package com.example.samplebarcodescanner.benchmark;
+
+import com.example.samplebarcodescanner.inventory.InventoryTally;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Stocktake counting with Zipfian read frequencies, as when an aisle holds many facings of a few
+ * products: reads into one shared tally, single-threaded and from four threads, and the sorted
+ * snapshot the UI polls. Each {@code count} operation is one read.
+ */
+@State(Scope.Benchmark)
+public class InventoryTallyBenchmark {
+    private static final int READS = 4096;
+
+    @Param({"1000", "100000"})
+    public int distinct;
+
+    @Param({"1.1"})
+    public double exponent;
+
+    private InventoryTally tally;
+    private String[] values;
+    private double[] cumulative;
+
+    /** Each thread's own draw of reads. */
+    @State(Scope.Thread)
+    public static class Reads {
+        String[] reads;
+
+        @Setup
+        public void setUp(InventoryTallyBenchmark benchmark) {
+            Random random = new Random(Thread.currentThread().getId());
+            reads = new String[READS];
+            for (int i = 0; i < READS; i++) {
+                int index = Arrays.binarySearch(benchmark.cumulative, random.nextDouble());
+                reads[i] = benchmark.values[Math.min(benchmark.distinct - 1, index < 0 ? -index - 1 : index)];
+            }
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        values = new String[distinct];
+        cumulative = new double[distinct];
+        double sum = 0;
+        for (int rank = 0; rank < distinct; rank++) {
+            values[rank] = String.format(Locale.ROOT, "40%011d", rank * 7919L);
+            sum += 1 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < distinct; rank++) {
+            cumulative[rank] /= sum;
+        }
+        tally = new InventoryTally();
+        for (String value : values) {
+            tally.add(value);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READS)
+    public void count(Reads reads) {
+        for (String read : reads.reads) {
+            tally.add(read);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    @OperationsPerInvocation(READS)
+    public void countFourThreads(Reads reads) {
+        for (String read : reads.reads) {
+            tally.add(read);
+        }
+    }
+
+    /** A snapshot after one new read, as taken while a sweep is counting. */
+    @Benchmark
+    public InventoryTally.Snapshot snapshot(Reads reads) {
+        tally.add(reads.reads[0]);
+        return tally.snapshot();
+    }
+}
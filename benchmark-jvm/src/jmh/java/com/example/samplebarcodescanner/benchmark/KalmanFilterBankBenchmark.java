@@ -0,0 +1,62 @@
+package com.example.samplebarcodescanner.benchmark;
+
+import com.example.samplebarcodescanner.tracking.KalmanFilterBank;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * One frame of filtering per operation: {@link KalmanFilterBank#predictAll} over every live slot,
+ * then a {@link KalmanFilterBank#correct} for each, as the tracker does when every track matches.
+ */
+@State(Scope.Thread)
+public class KalmanFilterBankBenchmark {
+    private static final float DT_SECONDS = DetectionStream.FRAME_NANOS / 1e9f;
+    private static final int NOISE = 1024;
+
+    @Param({"1", "50", "150", "500"})
+    public int tracks;
+
+    private KalmanFilterBank bank;
+    private int[] slots;
+    private float[] left;
+    private float[] top;
+    private final float[] noise = new float[NOISE];
+    private int frame;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        bank = new KalmanFilterBank();
+        slots = new int[tracks];
+        left = new float[tracks];
+        top = new float[tracks];
+        for (int i = 0; i < tracks; i++) {
+            left[i] = random.nextInt(1800);
+            top[i] = random.nextInt(1300);
+            slots[i] = bank.allocate(left[i], top[i], left[i] + 60, top[i] + 60);
+        }
+        for (int i = 0; i < NOISE; i++) {
+            noise[i] = (float) random.nextGaussian() * 3f;
+        }
+    }
+
+    @Benchmark
+    public float predictAndCorrect() {
+        bank.predictAll(DT_SECONDS);
+        int f = frame++;
+        float shift = 2f * f;
+        for (int i = 0; i < tracks; i++) {
+            float n = noise[(f + i) & (NOISE - 1)];
+            float l = left[i] + shift + n;
+            float t = top[i] + n;
+            bank.correct(slots[i], l, t, l + 60, t + 60);
+        }
+        return bank.getLeft(slots[0]);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.samplebarcodescanner.benchmark;
+
+import com.example.samplebarcodescanner.overlay.LabelColors;
+import com.example.samplebarcodescanner.overlay.TrackStateStore;
+import com.example.samplebarcodescanner.tracking.Detection;
+import com.example.samplebarcodescanner.tracking.ValueSymbolTable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+
+/**
+ * Per-label lookups the overlay and tracker do every frame: the track's render state (color and
+ * label width), the color derivation a miss pays for, and interning the decoded value. Each
+ * operation is one label.
+ */
+@State(Scope.Thread)
+public class LabelStateBenchmark {
+    private static final int LOOKUPS = 1024;
+
+    @Param({"50", "500"})
+    public int labels;
+
+    private final int[] trackIds = new int[LOOKUPS];
+    private final String[] values = new String[LOOKUPS];
+    private TrackStateStore<Object> states;
+    private ValueSymbolTable symbols;
+    private long now;
+
+    @Setup
+    public void setUp() {
+        List<Detection> detections = DetectionStream.builder(labels).missRate(0).build().next();
+        for (int i = 0; i < LOOKUPS; i++) {
+            int label = i % detections.size();
+            trackIds[i] = label;
+            // Copies, so equals() compares characters as it does for freshly decoded values.
+            values[i] = new String(detections.get(label).getValue().toCharArray());
+        }
+        states = new TrackStateStore<>(null);
+        symbols = new ValueSymbolTable();
+        for (int i = 0; i < LOOKUPS; i++) {
+            states.acquire(trackIds[i], values[i], 0);
+            symbols.intern(values[i], 32);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void acquireState(Blackhole blackhole) {
+        long time = ++now;
+        for (int i = 0; i < LOOKUPS; i++) {
+            blackhole.consume(states.getColor(states.acquire(trackIds[i], values[i], time)));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void deriveColor(Blackhole blackhole) {
+        for (int i = 0; i < LOOKUPS; i++) {
+            blackhole.consume(LabelColors.forValue(values[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void internValue(Blackhole blackhole) {
+        for (int i = 0; i < LOOKUPS; i++) {
+            blackhole.consume(symbols.intern(values[i], 32));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.samplebarcodescanner.benchmark;
+
+import com.example.samplebarcodescanner.metrics.LatencyHistogram;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.Random;
+
+/**
+ * Stage timing overhead. {@code record} is one {@link LatencyHistogram#record} into a histogram
+ * only this thread uses; {@code recordShared} is the same from four threads into one histogram,
+ * for the worst case of stages recorded from several threads at once. {@code percentile} is one
+ * p99 read from a populated histogram, of which the metrics HUD makes three per stage on every
+ * refresh.
+ */
+@State(Scope.Thread)
+public class LatencyHistogramBenchmark {
+    private static final int RECORDS = 1024;
+
+    /** Durations from 10 us to about 40 ms, as the stages see them. */
+    private final long[] durations = new long[RECORDS];
+    private LatencyHistogram histogram;
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        final LatencyHistogram histogram = new LatencyHistogram();
+    }
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(3);
+        for (int i = 0; i < RECORDS; i++) {
+            durations[i] = 10_000L << random.nextInt(12);
+            durations[i] += random.nextInt((int) durations[i]);
+        }
+        histogram = new LatencyHistogram();
+        for (long duration : durations) {
+            histogram.record(duration);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void record() {
+        for (int i = 0; i < RECORDS; i++) {
+            histogram.record(durations[i]);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    @OperationsPerInvocation(RECORDS)
+    public void recordShared(Shared shared) {
+        for (int i = 0; i < RECORDS; i++) {
+            shared.histogram.record(durations[i]);
+        }
+    }
+
+    @Benchmark
+    public long percentile() {
+        return histogram.getPercentileNanos(99);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.samplebarcodescanner.benchmark;
+
+import com.example.samplebarcodescanner.schedule.MotionGate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * One {@link MotionGate#shouldScan} per operation on a 1080p luminance plane in a direct buffer,
+ * as CameraX hands it over. {@code unchanged} repeats the reference frame, so every measure is
+ * computed and the frame is skipped; {@code changed} alternates two scenes, so every frame is
+ * scanned and {@link MotionGate#commit} adopts it. The budget is well under a millisecond.
+ */
+@State(Scope.Thread)
+public class MotionGateBenchmark {
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+    // Camera planes are often padded past the image width.
+    private static final int ROW_STRIDE = 1984;
+
+    private ByteBuffer[] scenes;
+    private MotionGate unchangedGate;
+    private MotionGate changedGate;
+    private int frame;
+
+    @Setup
+    public void setUp() {
+        scenes = new ByteBuffer[] {scene(1), scene(2)};
+        unchangedGate = new MotionGate.Builder().maxSkippedFrames(Integer.MAX_VALUE).build();
+        changedGate = new MotionGate.Builder().maxSkippedFrames(Integer.MAX_VALUE).build();
+        for (MotionGate gate : new MotionGate[] {unchangedGate, changedGate}) {
+            gate.onTracks(Collections.emptyList(), 0);
+            gate.shouldScan(scenes[0], ROW_STRIDE, WIDTH, HEIGHT);
+            gate.commit();
+        }
+    }
+
+    /** A textured shelf: smooth gradients plus fine detail. */
+    private static ByteBuffer scene(int seed) {
+        Random random = new Random(seed);
+        ByteBuffer plane = ByteBuffer.allocateDirect(ROW_STRIDE * HEIGHT);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int value = 40 + (x * 120 / WIDTH) + ((y / 90 + seed) % 2) * 50 + random.nextInt(16);
+                plane.put(y * ROW_STRIDE + x, (byte) value);
+            }
+        }
+        return plane;
+    }
+
+    @Benchmark
+    public boolean unchanged() {
+        boolean scan = unchangedGate.shouldScan(scenes[0], ROW_STRIDE, WIDTH, HEIGHT);
+        unchangedGate.commit();
+        return scan;
+    }
+
+    @Benchmark
+    public boolean changed() {
+        boolean scan = changedGate.shouldScan(scenes[++frame & 1], ROW_STRIDE, WIDTH, HEIGHT);
+        changedGate.commit();
+        return scan;
+    }
+}
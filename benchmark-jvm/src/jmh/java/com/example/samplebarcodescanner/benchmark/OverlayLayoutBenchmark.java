@@ -0,0 +1,75 @@
+package com.example.samplebarcodescanner.benchmark;
+
+import com.example.samplebarcodescanner.overlay.FrameSnapshot;
+import com.example.samplebarcodescanner.overlay.MotionExtrapolator;
+import com.example.samplebarcodescanner.overlay.OverlayLayout;
+import com.example.samplebarcodescanner.overlay.TrackStateStore;
+import com.example.samplebarcodescanner.pipeline.ScanPipeline;
+import com.example.samplebarcodescanner.tracking.AssignmentTracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * One {@link OverlayLayout#compute} per operation, at display rate between tracker snapshots:
+ * extrapolation, collision-free label placement, the touch index and dirty bounds for every
+ * track. Label widths are measured with a fixed-advance stand-in for {@code Paint.measureText},
+ * once per track as on device. The budget is 1 ms per layout at 200 labels.
+ * {@code findIcon} is one touch hit-test against the latest layout.
+ */
+@State(Scope.Thread)
+public class OverlayLayoutBenchmark {
+    private static final int SNAPSHOTS = 64;
+    private static final int VIEW_WIDTH = 1080;
+    private static final int VIEW_HEIGHT = 1440;
+    /** Display frames per tracker frame, as at 120 Hz with 30 fps analysis. */
+    private static final int FRAMES_PER_SNAPSHOT = 4;
+
+    @Param({"1", "50", "150", "200", "500"})
+    public int labels;
+
+    private FrameSnapshot[] snapshots;
+    private OverlayLayout layout;
+    private int frame;
+    private int touch;
+
+    @Setup
+    public void setUp() {
+        DetectionStream stream = DetectionStream.builder(labels).build();
+        ScanPipeline pipeline = new ScanPipeline.Builder(new AssignmentTracker()).build();
+        snapshots = new FrameSnapshot[SNAPSHOTS];
+        for (int i = 0; i < SNAPSHOTS * 2; i++) {
+            long timestamp = stream.nextTimestampNanos();
+            FrameSnapshot snapshot = pipeline.process(stream.next(), timestamp,
+                    DetectionStream.FRAME_WIDTH, DetectionStream.FRAME_HEIGHT);
+            // The first half only brings the tracker to steady state.
+            if (i >= SNAPSHOTS) {
+                snapshots[i - SNAPSHOTS] = snapshot;
+            }
+        }
+        layout = new OverlayLayout(new TrackStateStore<>(null), text -> text.length() * 18f,
+                new MotionExtrapolator(), 36f, 25f, 7f, 49f);
+        // Something to hit-test from the start.
+        compute();
+    }
+
+    @Benchmark
+    public boolean compute() {
+        int f = frame++;
+        int s = f / FRAMES_PER_SNAPSHOT;
+        FrameSnapshot snapshot = snapshots[s % SNAPSHOTS];
+        // Snapshot timestamps restart each cycle, so time is measured relative to the snapshot.
+        long time = snapshot.getTimestampNanos()
+                + (f % FRAMES_PER_SNAPSHOT) * DetectionStream.FRAME_NANOS / FRAMES_PER_SNAPSHOT;
+        return layout.compute(snapshot, time, VIEW_WIDTH, VIEW_HEIGHT);
+    }
+
+    @Benchmark
+    public int findIcon() {
+        int i = touch++ % Math.max(1, layout.size());
+        return layout.findIcon(layout.getCenterX(i) + 10, layout.getCenterY(i) - 10, 25);
+    }
+}
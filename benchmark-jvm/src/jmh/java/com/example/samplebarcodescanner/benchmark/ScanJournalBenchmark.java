@@ -0,0 +1,98 @@
+package com.example.samplebarcodescanner.benchmark;
+
+import com.example.samplebarcodescanner.journal.ScanJournal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Journal writes, one read per operation. {@code append} only queues a read, which is all the
+ * tracking thread pays. {@code durable} queues bursts of {@link Bursts#burst} reads and waits
+ * after each until the writer has it on storage, so its cost includes the group commit and its
+ * force; compare burst sizes to see how well forces are shared. Reads are released as the
+ * uploader would release them, so compaction runs throughout.
+ */
+@State(Scope.Thread)
+public class ScanJournalBenchmark {
+    private static final int VALUES = 4096;
+    private static final int READS = 1000;
+
+    private final String[] values = new String[VALUES];
+    private File directory;
+    private ScanJournal journal;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        for (int i = 0; i < VALUES; i++) {
+            values[i] = String.format(Locale.ROOT, "(01)0400638%07d(10)LOT%d", i, i % 97);
+        }
+        directory = Files.createTempDirectory("journal").toFile();
+        journal = ScanJournal.open(directory);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public long append() throws IOException, InterruptedException {
+        long sequence = appendOne();
+        if ((sequence & 4095) == 0) {
+            // Keep the queue from filling up: the writer drains it in the background.
+            journal.awaitDurable(sequence, 30, TimeUnit.SECONDS);
+            journal.discardBefore(sequence + 1);
+        }
+        return sequence;
+    }
+
+    @State(Scope.Thread)
+    public static class Bursts {
+        @Param({"1", "100", "1000"})
+        public int burst;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READS)
+    public long durable(Bursts bursts) throws IOException, InterruptedException {
+        int burst = bursts.burst;
+        long last = 0;
+        for (int i = 0; i < READS; i += burst) {
+            for (int j = 0; j < burst; j++) {
+                last = appendOne();
+            }
+            journal.awaitDurable(last, 30, TimeUnit.SECONDS);
+        }
+        journal.discardBefore(last + 1);
+        return last;
+    }
+
+    private long appendOne() {
+        int i = next++;
+        long sequence = journal.append(1_700_000_000_000L + i, i, 32, values[i & (VALUES - 1)]);
+        if (sequence == ScanJournal.REJECTED) {
+            throw new IllegalStateException("journal queue full");
+        }
+        return sequence;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.samplebarcodescanner.benchmark;
+
+import com.example.samplebarcodescanner.results.ScanResult;
+import com.example.samplebarcodescanner.results.ScanResultsHub;
+import com.example.samplebarcodescanner.tracking.AssignmentTracker;
+import com.example.samplebarcodescanner.tracking.Detection;
+import com.example.samplebarcodescanner.tracking.Track;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The tracking thread's side of result streaming: one frame of synthetic shelf tracks published
+ * to every subscriber per operation, tracker update included. {@code trackOnly} is the tracker
+ * alone, to subtract.
+ * <p>
+ * Each subscriber runs on its own thread and sums the track IDs it is sent, through a queue that
+ * drops the oldest delivery when full, so the score is frames per second the tracking thread can
+ * sustain however the subscribers keep up.
+ */
+@State(Scope.Thread)
+public class ScanResultsHubBenchmark {
+    private static final int FRAMES = 512;
+
+    @Param({"50", "150"})
+    public int labels;
+
+    @Param({"1", "4"})
+    public int subscribers;
+
+    /** {@code every}, {@code distinct} or {@code batched} (every read, 100 ms or 64 reads). */
+    @Param({"every", "distinct", "batched"})
+    public String policy;
+
+    private List<List<Detection>> frames;
+    private AssignmentTracker tracker;
+    private ScanResultsHub hub;
+    private final List<ExecutorService> executors = new ArrayList<>();
+    // Per subscriber, written only by its own thread.
+    private long[] sinks;
+    private int frame;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        frames = DetectionStream.builder(labels).churn(0.01f).build().take(FRAMES);
+        tracker = new AssignmentTracker();
+        for (int i = 0; i < FRAMES; i++) {
+            trackOnly();
+        }
+        hub = new ScanResultsHub();
+        sinks = new long[subscribers];
+        for (int i = 0; i < subscribers; i++) {
+            int sink = i;
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            executors.add(executor);
+            ScanResultsHub.Options.Builder options = new ScanResultsHub.Options.Builder(executor);
+            if (policy.equals("distinct")) {
+                options.mode(ScanResultsHub.Mode.DISTINCT_PER_TRACK).minHits(3);
+            } else if (policy.equals("batched")) {
+                options.batches(100, 64);
+            }
+            hub.subscribe(options.build(), results -> {
+                for (ScanResult result : results) {
+                    sinks[sink] += result.getTrackId();
+                }
+            });
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        hub.close();
+        for (ExecutorService executor : executors) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public List<Track> trackOnly() {
+        List<Detection> detections = frames.get(frame % FRAMES);
+        return tracker.update(detections, DetectionStream.FRAME_NANOS * frame++);
+    }
+
+    @Benchmark
+    public void publish() {
+        long timestampNanos = DetectionStream.FRAME_NANOS * frame;
+        hub.onTracks(trackOnly(), timestampNanos);
+    }
+}
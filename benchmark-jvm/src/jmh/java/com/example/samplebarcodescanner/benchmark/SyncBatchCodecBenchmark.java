@@ -0,0 +1,54 @@
+package com.example.samplebarcodescanner.benchmark;
+
+import com.example.samplebarcodescanner.journal.JournalEntry;
+import com.example.samplebarcodescanner.sync.SyncBatchCodec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * One upload batch per operation: {@code encode} is what the uploader thread does before every
+ * send, {@code decode} what the server does on receipt. The reads are a shelf sweep, consecutive
+ * reads a few hundred ms apart repeating 40 products, so the deflate stage sees realistic input.
+ * Divide by {@code reads} for the cost per read.
+ */
+@State(Scope.Thread)
+public class SyncBatchCodecBenchmark {
+    @Param({"50", "500"})
+    public int reads;
+
+    private List<JournalEntry> entries;
+    private byte[] batch;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        entries = new ArrayList<>(reads);
+        long timestamp = 1_700_000_000_000L;
+        for (int i = 0; i < reads; i++) {
+            timestamp += 50 + random.nextInt(400);
+            String value = String.format(Locale.ROOT, "(01)0400638%07d(10)LOT%d", random.nextInt(40) * 131, i / 100);
+            entries.add(new JournalEntry(1_000_000 + i, timestamp, 1000 + i / 3, 32, value));
+        }
+        batch = SyncBatchCodec.encode(entries);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return SyncBatchCodec.encode(entries);
+    }
+
+    @Benchmark
+    public List<JournalEntry> decode() throws IOException {
+        return SyncBatchCodec.decode(batch);
+    }
+}
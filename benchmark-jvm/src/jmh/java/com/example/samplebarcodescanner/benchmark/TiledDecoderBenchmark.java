@@ -0,0 +1,86 @@
+package com.example.samplebarcodescanner.benchmark;
+
+import com.example.samplebarcodescanner.batch.Tile;
+import com.example.samplebarcodescanner.batch.TiledDecoder;
+import com.example.samplebarcodescanner.tracking.Detection;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The tiled decoder's own cost for one 12 MP photo of a pallet manifest per operation: tile
+ * planning, forking tiles on the pool, and merging the reads of overlapping tiles. The detector
+ * is a stand-in that returns the labels wholly inside each tile at once, so the score excludes
+ * detection itself, which on device dwarfs it and is what {@code parallelism} spreads out.
+ */
+@State(Scope.Thread)
+public class TiledDecoderBenchmark {
+    private static final int WIDTH = 4000;
+    private static final int HEIGHT = 3000;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private TiledDecoder<List<Detection>> decoder;
+    private List<Detection> labels;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // A grid of 150x60 px labels with 40 px gaps.
+        labels = new ArrayList<>();
+        for (int top = 20; top + 60 <= HEIGHT; top += 100) {
+            for (int left = 20; left + 150 <= WIDTH; left += 190) {
+                labels.add(new Detection("L-" + left + "-" + top, 1, left, top, left + 150, top + 60));
+            }
+        }
+        decoder = new TiledDecoder.Builder<>(new LabelsInTile()).parallelism(parallelism).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        decoder.close();
+    }
+
+    @Benchmark
+    public int decode() throws InterruptedException {
+        return decoder.decode(labels).getDetections().size();
+    }
+
+    private static final class LabelsInTile implements TiledDecoder.TileSource<List<Detection>> {
+        @Override
+        public int width(List<Detection> image) {
+            return WIDTH;
+        }
+
+        @Override
+        public int height(List<Detection> image) {
+            return HEIGHT;
+        }
+
+        @Override
+        public List<Detection> decode(List<Detection> image, Tile tile) {
+            float scale = tile.getScale();
+            List<Detection> found = new ArrayList<>();
+            for (Detection label : image) {
+                if (label.getLeft() >= tile.getLeft() && label.getTop() >= tile.getTop()
+                        && label.getRight() <= tile.getLeft() + tile.getWidth()
+                        && label.getBottom() <= tile.getTop() + tile.getHeight()) {
+                    found.add(new Detection(label.getValue(), label.getFormat(),
+                            Math.round((label.getLeft() - tile.getLeft()) * scale),
+                            Math.round((label.getTop() - tile.getTop()) * scale),
+                            Math.round((label.getRight() - tile.getLeft()) * scale),
+                            Math.round((label.getBottom() - tile.getTop()) * scale)));
+                }
+            }
+            return found;
+        }
+    }
+}
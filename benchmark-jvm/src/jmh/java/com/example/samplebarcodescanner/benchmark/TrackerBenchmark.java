@@ -0,0 +1,53 @@
+package com.example.samplebarcodescanner.benchmark;
+
+import com.example.samplebarcodescanner.tracking.AssignmentTracker;
+import com.example.samplebarcodescanner.tracking.Detection;
+import com.example.samplebarcodescanner.tracking.Track;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * One {@link AssignmentTracker#update} per operation: gating, assignment, filter predict and
+ * correct, and track start/expiry, over a steady stream of synthetic shelf frames.
+ */
+@State(Scope.Thread)
+public class TrackerBenchmark {
+    private static final int FRAMES = 512;
+
+    @Param({"1", "50", "150", "500"})
+    public int labels;
+
+    /** Peak camera pan speed in px per frame. */
+    @Param({"2"})
+    public float motion;
+
+    /** Probability per label per frame that it is replaced. */
+    @Param({"0", "0.01"})
+    public float churn;
+
+    private List<List<Detection>> frames;
+    private AssignmentTracker tracker;
+    private int frame;
+
+    @Setup
+    public void setUp() {
+        frames = DetectionStream.builder(labels).motion(motion).churn(churn).build().take(FRAMES);
+        tracker = new AssignmentTracker();
+        // Reach steady state, so the measurement is not dominated by every track starting.
+        for (int i = 0; i < FRAMES; i++) {
+            update();
+        }
+    }
+
+    @Benchmark
+    public List<Track> update() {
+        List<Detection> detections = frames.get(frame % FRAMES);
+        return tracker.update(detections, DetectionStream.FRAME_NANOS * frame++);
+    }
+}
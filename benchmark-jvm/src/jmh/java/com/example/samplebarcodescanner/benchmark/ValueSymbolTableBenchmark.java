@@ -0,0 +1,155 @@
+package com.example.samplebarcodescanner.benchmark;
+
+import com.example.samplebarcodescanner.tracking.ValueSymbolTable;
+import com.example.samplebarcodescanner.util.IntIntMap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Per-read value bookkeeping, String-keyed against interned. Each operation is one read.
+ * <p>
+ * {@code *Read}: a fresh String from the detector is looked up once (hashed into a
+ * {@code HashMap<String, Integer>}, or interned), then compared with the value of each of
+ * {@link #CANDIDATES} tracks it is gated against, whose per-value state is fetched. The fresh
+ * String is built inside the operation in both, since its hash is not cached; {@code copyOnly}
+ * is that copy alone, to subtract.
+ * <p>
+ * {@code *TrackLookups}: only the candidate comparisons and state lookups, for a value already
+ * held from an earlier frame: the part of the work that interning turns into int operations.
+ */
+@State(Scope.Thread)
+public class ValueSymbolTableBenchmark {
+    private static final int READS = 256;
+    private static final int CANDIDATES = 4;
+    private static final int FORMAT = 256;
+
+    @Param({"10000", "100000"})
+    public int distinct;
+
+    private char[][] incoming;
+    // The read's value as an earlier frame left it on its track: an equal String, hash cached.
+    private String[] heldValues;
+    // Candidate tracks per read, as the values the tracks hold and as their interned IDs.
+    private String[] candidateValues;
+    private int[] candidateIds;
+    private Map<String, Integer> stringStates;
+    private ValueSymbolTable table;
+    private IntIntMap idStates;
+
+    @Setup
+    public void setUp() {
+        String[] values = new String[distinct];
+        stringStates = new HashMap<>();
+        table = new ValueSymbolTable(distinct);
+        idStates = new IntIntMap(distinct, -1);
+        int[] ids = new int[distinct];
+        for (int i = 0; i < distinct; i++) {
+            values[i] = String.format("(01)0%013d(17)271231(10)LOT%07d", 4006381000000L + i, i);
+            stringStates.put(values[i], i);
+            ids[i] = table.intern(values[i], FORMAT);
+            idStates.put(ids[i], i);
+        }
+
+        Random random = new Random(1);
+        incoming = new char[READS][];
+        heldValues = new String[READS];
+        candidateValues = new String[READS * CANDIDATES];
+        candidateIds = new int[READS * CANDIDATES];
+        for (int r = 0; r < READS; r++) {
+            int pick = random.nextInt(distinct);
+            incoming[r] = values[pick].toCharArray();
+            heldValues[r] = new String(incoming[r]);
+            heldValues[r].hashCode();
+            for (int c = 0; c < CANDIDATES; c++) {
+                // The matching track first, then nearby tracks with other values.
+                int value = c == 0 ? pick : random.nextInt(distinct);
+                candidateValues[r * CANDIDATES + c] = values[value];
+                candidateIds[r * CANDIDATES + c] = ids[value];
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READS)
+    public void copyOnly(Blackhole blackhole) {
+        for (int r = 0; r < READS; r++) {
+            blackhole.consume(new String(incoming[r]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READS)
+    public long stringKeyedRead() {
+        long sum = 0;
+        for (int r = 0; r < READS; r++) {
+            String value = new String(incoming[r]);
+            sum += stringStates.get(value);
+            for (int c = r * CANDIDATES, end = c + CANDIDATES; c < end; c++) {
+                String candidate = candidateValues[c];
+                if (value.equals(candidate)) {
+                    sum += stringStates.get(candidate);
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READS)
+    public long internedRead() {
+        long sum = 0;
+        for (int r = 0; r < READS; r++) {
+            int id = table.intern(new String(incoming[r]), FORMAT);
+            sum += idStates.get(id);
+            for (int c = r * CANDIDATES, end = c + CANDIDATES; c < end; c++) {
+                int candidate = candidateIds[c];
+                if (id == candidate) {
+                    sum += idStates.get(candidate);
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READS)
+    public long stringKeyedTrackLookups() {
+        long sum = 0;
+        for (int r = 0; r < READS; r++) {
+            String value = heldValues[r];
+            for (int c = r * CANDIDATES, end = c + CANDIDATES; c < end; c++) {
+                String candidate = candidateValues[c];
+                if (value.equals(candidate)) {
+                    sum += stringStates.get(candidate);
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READS)
+    public long internedTrackLookups() {
+        long sum = 0;
+        for (int r = 0; r < READS; r++) {
+            int id = candidateIds[r * CANDIDATES];
+            for (int c = r * CANDIDATES, end = c + CANDIDATES; c < end; c++) {
+                int candidate = candidateIds[c];
+                if (id == candidate) {
+                    sum += idStates.get(candidate);
+                }
+            }
+        }
+        return sum;
+    }
+}
@@ -1,17 +1,28 @@
 package com.example.benchmark;
 
+import android.os.SystemClock;
+
+import androidx.annotation.OptIn;
 import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.ExperimentalMetricApi;
 import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.Metric;
 import androidx.benchmark.macro.StartupMode;
 import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.TraceSectionMetric;
 import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.Until;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 /**
  * This is an example startup benchmark.
@@ -28,6 +39,10 @@ import java.util.Collections;
 @RunWith(AndroidJUnit4.class)
 public class ExampleStartupBenchmark {
 
+    private static final String PACKAGE_NAME = "com.example.samplebarcodescanner";
+    // Matches MainActivity.FIRST_DECODE_SECTION.
+    private static final String FIRST_DECODE_SECTION = "TimeToFirstDecode";
+
     @Rule
     public MacrobenchmarkRule mBenchmarkRule = new MacrobenchmarkRule();
 
@@ -45,4 +60,33 @@ public class ExampleStartupBenchmark {
                     return null;
                 });
     }
-}
\ No newline at end of file
+
+    /**
+     * Cold start, then tapping "GET STARTED" and waiting for the first frame through the
+     * detector: reports the launch time alongside the camera-start-to-first-decode section.
+     */
+    @Test
+    @OptIn(markerClass = ExperimentalMetricApi.class)
+    public void timeToFirstDecode() {
+        InstrumentationRegistry.getInstrumentation().getUiAutomation()
+                .executeShellCommand("pm grant " + PACKAGE_NAME + " android.permission.CAMERA");
+        List<Metric> metrics = Arrays.asList(
+                new StartupTimingMetric(),
+                new TraceSectionMetric(FIRST_DECODE_SECTION));
+        mBenchmarkRule.measureRepeated(
+                PACKAGE_NAME,
+                metrics,
+                CompilationMode.DEFAULT,
+                StartupMode.COLD,
+                5,
+                scope -> {
+                    scope.pressHome();
+                    scope.startActivityAndWait();
+                    scope.getDevice().wait(Until.findObject(By.text("GET STARTED")), 5_000).click();
+                    // The section closes with the first detector result; leave time for it.
+                    scope.getDevice().waitForIdle();
+                    SystemClock.sleep(3_000);
+                    return null;
+                });
+    }
+}
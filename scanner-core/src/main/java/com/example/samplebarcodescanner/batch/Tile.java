@@ -0,0 +1,93 @@
+package com.example.samplebarcodescanner.batch;
+
+import com.example.samplebarcodescanner.geometry.IntRect;
+
+/**
+ * One region of a still image to decode on its own, and the mapping from detections made on it
+ * back into image coordinates.
+ * <p>
+ * Detail tiles are decoded at full resolution ({@code scale} 1). An overview tile covers the whole
+ * image scaled down to tile size, for labels too large to fit in any detail tile.
+ */
+public final class Tile {
+    private final int index;
+    private final int left;
+    private final int top;
+    private final int width;
+    private final int height;
+    private final float scale;
+
+    /**
+     * @param left,top,width,height region of the image, in image pixels
+     * @param scale                 tile pixels per image pixel, at most 1
+     */
+    public Tile(int index, int left, int top, int width, int height, float scale) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("tile must not be empty: " + width + "x" + height);
+        }
+        if (!(scale > 0f && scale <= 1f)) {
+            throw new IllegalArgumentException("scale must be in (0, 1]: " + scale);
+        }
+        this.index = index;
+        this.left = left;
+        this.top = top;
+        this.width = width;
+        this.height = height;
+        this.scale = scale;
+    }
+
+    /** Position of this tile in its plan. */
+    public int getIndex() {
+        return index;
+    }
+
+    public int getLeft() {
+        return left;
+    }
+
+    public int getTop() {
+        return top;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public float getScale() {
+        return scale;
+    }
+
+    /** Whether this tile is decoded below full resolution. */
+    public boolean isOverview() {
+        return scale < 1f;
+    }
+
+    /** Width of the image to decode for this tile, in tile pixels. */
+    public int getOutputWidth() {
+        return Math.max(1, Math.round(width * scale));
+    }
+
+    /** Height of the image to decode for this tile, in tile pixels. */
+    public int getOutputHeight() {
+        return Math.max(1, Math.round(height * scale));
+    }
+
+    /** Maps a box detected on this tile, in tile pixels, into image pixels in place. */
+    public IntRect mapToImage(IntRect box) {
+        if (scale != 1f) {
+            box.set((int) Math.floor(box.left / scale), (int) Math.floor(box.top / scale),
+                    (int) Math.ceil(box.right / scale), (int) Math.ceil(box.bottom / scale));
+        }
+        return box.offset(left, top);
+    }
+
+    @Override
+    public String toString() {
+        return "Tile#" + index + "(" + left + ", " + top + " " + width + "x" + height
+                + (scale != 1f ? " @" + scale : "") + ")";
+    }
+}
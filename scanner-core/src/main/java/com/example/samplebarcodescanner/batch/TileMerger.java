@@ -0,0 +1,137 @@
+package com.example.samplebarcodescanner.batch;
+
+import com.example.samplebarcodescanner.geometry.IntRect;
+import com.example.samplebarcodescanner.tracking.Detection;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Combines per-tile detections into one result per label for the whole image.
+ * <p>
+ * A label in the overlap of two or more tiles is read by each of them, possibly clipped in some.
+ * Reads with the same value and format whose boxes, mapped into image coordinates, overlap are
+ * one label; chains of such reads are merged too, and the label's box is the union of theirs.
+ * An overview read is only kept when no detail tile read the label. Identical labels in different
+ * places keep separate results.
+ */
+public final class TileMerger {
+    private static final Comparator<Detection> READING_ORDER = (a, b) -> a.getTop() != b.getTop()
+            ? Integer.compare(a.getTop(), b.getTop())
+            : Integer.compare(a.getLeft(), b.getLeft());
+
+    private TileMerger() {
+    }
+
+    /**
+     * @param tiles    the plan that was decoded
+     * @param perTile  each tile's detections in tile pixels, indexed like {@code tiles}; null for
+     *                 a tile that failed
+     * @return merged detections in image pixels, top to bottom, then left to right
+     */
+    public static List<Detection> merge(List<Tile> tiles, List<List<Detection>> perTile) {
+        if (tiles.size() != perTile.size()) {
+            throw new IllegalArgumentException(perTile.size() + " results for " + tiles.size() + " tiles");
+        }
+        // Group reads by value first, so boxes are only compared within a group.
+        Map<String, List<Read>> byValue = new HashMap<>();
+        IntRect box = new IntRect();
+        for (int t = 0; t < tiles.size(); t++) {
+            List<Detection> detections = perTile.get(t);
+            if (detections == null) {
+                continue;
+            }
+            Tile tile = tiles.get(t);
+            for (Detection detection : detections) {
+                tile.mapToImage(detection.getBounds(box));
+                byValue.computeIfAbsent(detection.getFormat() + ":" + detection.getValue(), k -> new ArrayList<>())
+                        .add(new Read(detection, box, tile.getScale()));
+            }
+        }
+
+        List<Detection> merged = new ArrayList<>();
+        for (List<Read> reads : byValue.values()) {
+            mergeGroup(reads, merged);
+        }
+        merged.sort(READING_ORDER);
+        return merged;
+    }
+
+    private static void mergeGroup(List<Read> reads, List<Detection> out) {
+        int count = reads.size();
+        int[] parent = new int[count];
+        for (int i = 0; i < count; i++) {
+            parent[i] = i;
+        }
+        // Only full-resolution reads are chained: a coarse overview box could bridge two
+        // identical labels side by side.
+        for (int i = 0; i < count; i++) {
+            for (int j = i + 1; j < count; j++) {
+                if (reads.get(i).isDetail() && reads.get(j).isDetail()
+                        && reads.get(i).box.intersects(reads.get(j).box)) {
+                    parent[find(parent, i)] = find(parent, j);
+                }
+            }
+        }
+        for (int root = 0; root < count; root++) {
+            Read read = reads.get(root);
+            if (!read.isDetail()) {
+                if (!overlapsDetail(reads, read)) {
+                    out.add(read.toDetection(read.box));
+                }
+                continue;
+            }
+            if (find(parent, root) != root) {
+                continue;
+            }
+            IntRect union = new IntRect();
+            for (int i = 0; i < count; i++) {
+                if (find(parent, i) == root) {
+                    union.union(reads.get(i).box);
+                }
+            }
+            out.add(read.toDetection(union));
+        }
+    }
+
+    private static boolean overlapsDetail(List<Read> reads, Read overview) {
+        for (Read read : reads) {
+            if (read.isDetail() && read.box.intersects(overview.box)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static final class Read {
+        final Detection detection;
+        final IntRect box;
+        final float scale;
+
+        Read(Detection detection, IntRect box, float scale) {
+            this.detection = detection;
+            this.box = new IntRect().set(box);
+            this.scale = scale;
+        }
+
+        boolean isDetail() {
+            return scale == 1f;
+        }
+
+        Detection toDetection(IntRect bounds) {
+            return new Detection(detection.getValue(), detection.getFormat(),
+                    bounds.left, bounds.top, bounds.right, bounds.bottom);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.samplebarcodescanner.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a still image into overlapping full-resolution tiles for the detector.
+ * <p>
+ * Adjacent tiles overlap by at least {@code overlap} pixels, so any label no larger than that in
+ * either direction lies wholly inside at least one tile. Tiles are spread evenly, so none is a
+ * thin sliver at the image edge. Labels larger than the overlap are left to an optional overview
+ * tile covering the whole image at tile size.
+ */
+public final class TilePlanner {
+
+    private TilePlanner() {
+    }
+
+    /**
+     * @param tileSize largest tile edge, in image pixels
+     * @param overlap  least overlap between adjacent tiles; below {@code tileSize}
+     * @param overview whether to add an overview tile when the image needs more than one tile
+     */
+    public static List<Tile> plan(int width, int height, int tileSize, int overlap, boolean overview) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("image must not be empty: " + width + "x" + height);
+        }
+        if (tileSize <= 0 || overlap < 0 || overlap >= tileSize) {
+            throw new IllegalArgumentException("need 0 <= overlap < tileSize: " + overlap + ", " + tileSize);
+        }
+        int[] columns = starts(width, tileSize, overlap);
+        int[] rows = starts(height, tileSize, overlap);
+        int tileWidth = Math.min(width, tileSize);
+        int tileHeight = Math.min(height, tileSize);
+        List<Tile> tiles = new ArrayList<>(columns.length * rows.length + 1);
+        for (int top : rows) {
+            for (int left : columns) {
+                tiles.add(new Tile(tiles.size(), left, top, tileWidth, tileHeight, 1f));
+            }
+        }
+        if (overview && tiles.size() > 1) {
+            tiles.add(new Tile(tiles.size(), 0, 0, width, height, tileSize / (float) Math.max(width, height)));
+        }
+        return tiles;
+    }
+
+    /**
+     * Evenly spaced tile starts along one axis. With {@code n} tiles the step is at most
+     * {@code tileSize - overlap}, and integer division keeps every gap within that bound.
+     */
+    static int[] starts(int size, int tileSize, int overlap) {
+        if (size <= tileSize) {
+            return new int[]{0};
+        }
+        int stride = tileSize - overlap;
+        int count = (size - overlap + stride - 1) / stride;
+        int[] starts = new int[count];
+        for (int i = 0; i < count; i++) {
+            starts[i] = (int) ((long) i * (size - tileSize) / (count - 1));
+        }
+        return starts;
+    }
+}
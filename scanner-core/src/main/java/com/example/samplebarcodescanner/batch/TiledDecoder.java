@@ -0,0 +1,301 @@
+package com.example.samplebarcodescanner.batch;
+
+import com.example.samplebarcodescanner.tracking.Detection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Decodes still images tile by tile, in parallel, and merges the reads of each image.
+ * <p>
+ * Every image is split by {@link TilePlanner} and its tiles are forked on a work-stealing pool of
+ * {@code parallelism} threads, so idle threads take tiles from whichever image still has some and
+ * one slow image does not hold up the rest of the batch. At most {@code maxImagesInFlight} images
+ * are loaded at once, which bounds the memory held by full-resolution images. Tiles of one image
+ * are merged by {@link TileMerger}.
+ * <p>
+ * {@link #decodeAll} may be called from any thread but blocks; {@link #close()} stops the pool.
+ *
+ * @param <I> a loaded image
+ */
+public final class TiledDecoder<I> implements AutoCloseable {
+    public static final int DEFAULT_TILE_SIZE = 1024;
+    public static final int DEFAULT_OVERLAP = 256;
+    public static final int DEFAULT_MAX_IMAGES_IN_FLIGHT = 2;
+
+    /** Decodes tiles of loaded images; called concurrently from pool threads. */
+    public interface TileSource<I> {
+        int width(I image);
+
+        int height(I image);
+
+        /**
+         * Detects barcodes in {@code tile} of {@code image}, scaled by {@link Tile#getScale()}.
+         *
+         * @return boxes relative to the tile, in tile pixels
+         */
+        List<Detection> decode(I image, Tile tile) throws Exception;
+    }
+
+    /** Loads the images of a batch; called from pool threads. */
+    public interface Loader<S, I> {
+        I load(S source) throws Exception;
+
+        /** Called once every tile of {@code image} has been decoded. */
+        default void release(I image) {
+        }
+    }
+
+    /** Told about each image as soon as it is done, on a pool thread. */
+    public interface Listener<S> {
+        void onImageDecoded(Result<S> result);
+    }
+
+    /** What was read from one image. */
+    public static final class Result<S> {
+        private final S source;
+        private final List<Detection> detections;
+        private final int tileCount;
+        private final int failedTiles;
+        private final Exception error;
+        private final long elapsedNanos;
+
+        Result(S source, List<Detection> detections, int tileCount, int failedTiles, Exception error,
+               long elapsedNanos) {
+            this.source = source;
+            this.detections = detections;
+            this.tileCount = tileCount;
+            this.failedTiles = failedTiles;
+            this.error = error;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public S getSource() {
+            return source;
+        }
+
+        /** Merged reads in image pixels; partial if some tiles failed. */
+        public List<Detection> getDetections() {
+            return detections;
+        }
+
+        public int getTileCount() {
+            return tileCount;
+        }
+
+        public int getFailedTiles() {
+            return failedTiles;
+        }
+
+        /** Why the image could not be loaded, or the first tile failure; null if none. */
+        public Exception getError() {
+            return error;
+        }
+
+        /** Time from starting to load the image to its merged result. */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+
+    public static final class Builder<I> {
+        private final TileSource<I> source;
+        private int tileSize = DEFAULT_TILE_SIZE;
+        private int overlap = DEFAULT_OVERLAP;
+        private boolean overview = true;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private int maxImagesInFlight = DEFAULT_MAX_IMAGES_IN_FLIGHT;
+
+        public Builder(TileSource<I> source) {
+            this.source = source;
+        }
+
+        /** Largest tile edge, in image pixels. */
+        public Builder<I> tileSize(int px) {
+            tileSize = px;
+            return this;
+        }
+
+        /** Least overlap of adjacent tiles; the largest label detail tiles are sure to read whole. */
+        public Builder<I> overlap(int px) {
+            overlap = px;
+            return this;
+        }
+
+        /** Whether to also decode each multi-tile image scaled down to one tile. */
+        public Builder<I> overview(boolean enabled) {
+            overview = enabled;
+            return this;
+        }
+
+        public Builder<I> parallelism(int threads) {
+            parallelism = threads;
+            return this;
+        }
+
+        public Builder<I> maxImagesInFlight(int images) {
+            maxImagesInFlight = images;
+            return this;
+        }
+
+        public TiledDecoder<I> build() {
+            if (tileSize <= 0 || overlap < 0 || overlap >= tileSize) {
+                throw new IllegalArgumentException("need 0 <= overlap < tileSize: " + overlap + ", " + tileSize);
+            }
+            if (parallelism < 1 || maxImagesInFlight < 1) {
+                throw new IllegalArgumentException("parallelism and maxImagesInFlight must be at least 1");
+            }
+            return new TiledDecoder<>(this);
+        }
+    }
+
+    private final TileSource<I> source;
+    private final int tileSize;
+    private final int overlap;
+    private final boolean overview;
+    private final int maxImagesInFlight;
+    private final ForkJoinPool pool;
+
+    private TiledDecoder(Builder<I> builder) {
+        source = builder.source;
+        tileSize = builder.tileSize;
+        overlap = builder.overlap;
+        overview = builder.overview;
+        maxImagesInFlight = builder.maxImagesInFlight;
+        pool = new ForkJoinPool(builder.parallelism);
+    }
+
+    /** Decodes one image that is already loaded. */
+    public Result<I> decode(I image) throws InterruptedException {
+        return decodeAll(Collections.singletonList(image), loaded -> loaded, null).get(0);
+    }
+
+    /**
+     * Loads and decodes every source, returning their results in the same order.
+     *
+     * @param listener told about each image as it completes, or null
+     */
+    public <S> List<Result<S>> decodeAll(List<S> sources, Loader<S, I> loader, Listener<S> listener)
+            throws InterruptedException {
+        Semaphore slots = new Semaphore(maxImagesInFlight);
+        List<ForkJoinTask<Result<S>>> tasks = new ArrayList<>(sources.size());
+        try {
+            for (S s : sources) {
+                slots.acquire();
+                tasks.add(pool.submit(new ImageTask<>(s, loader, listener, slots)));
+            }
+            List<Result<S>> results = new ArrayList<>(tasks.size());
+            for (ForkJoinTask<Result<S>> task : tasks) {
+                results.add(task.join());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            for (ForkJoinTask<Result<S>> task : tasks) {
+                task.cancel(false);
+            }
+            throw e;
+        }
+    }
+
+    /** Stops the pool; images being decoded finish, queued ones are dropped. */
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    private final class ImageTask<S> extends RecursiveTask<Result<S>> {
+        private static final long serialVersionUID = 1L;
+
+        private final S source;
+        private final Loader<S, I> loader;
+        private final Listener<S> listener;
+        private final Semaphore slots;
+
+        ImageTask(S source, Loader<S, I> loader, Listener<S> listener, Semaphore slots) {
+            this.source = source;
+            this.loader = loader;
+            this.listener = listener;
+            this.slots = slots;
+        }
+
+        @Override
+        protected Result<S> compute() {
+            long start = System.nanoTime();
+            Result<S> result;
+            try {
+                result = decodeLoaded(start);
+            } finally {
+                slots.release();
+            }
+            if (listener != null) {
+                listener.onImageDecoded(result);
+            }
+            return result;
+        }
+
+        private Result<S> decodeLoaded(long start) {
+            I image;
+            try {
+                image = loader.load(source);
+            } catch (Exception e) {
+                return new Result<>(source, Collections.emptyList(), 0, 0, e, System.nanoTime() - start);
+            }
+            try {
+                List<Tile> tiles = TilePlanner.plan(TiledDecoder.this.source.width(image),
+                        TiledDecoder.this.source.height(image), tileSize, overlap, overview);
+                List<TileTask> tileTasks = new ArrayList<>(tiles.size());
+                for (Tile tile : tiles) {
+                    tileTasks.add(new TileTask(image, tile));
+                }
+                // Forks all but one; idle pool threads steal them.
+                ForkJoinTask.invokeAll(tileTasks);
+
+                List<List<Detection>> perTile = new ArrayList<>(tiles.size());
+                int failed = 0;
+                Exception error = null;
+                for (TileTask task : tileTasks) {
+                    perTile.add(task.detections);
+                    if (task.error != null) {
+                        failed++;
+                        if (error == null) {
+                            error = task.error;
+                        }
+                    }
+                }
+                return new Result<>(source, TileMerger.merge(tiles, perTile), tiles.size(), failed, error,
+                        System.nanoTime() - start);
+            } finally {
+                loader.release(image);
+            }
+        }
+    }
+
+    private final class TileTask extends RecursiveTask<Void> {
+        private static final long serialVersionUID = 1L;
+
+        private final I image;
+        private final Tile tile;
+        List<Detection> detections;
+        Exception error;
+
+        TileTask(I image, Tile tile) {
+            this.image = image;
+            this.tile = tile;
+        }
+
+        @Override
+        protected Void compute() {
+            try {
+                detections = source.decode(image, tile);
+            } catch (Exception e) {
+                error = e;
+            }
+            return null;
+        }
+    }
+}
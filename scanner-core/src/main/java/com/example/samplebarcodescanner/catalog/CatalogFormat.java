@@ -0,0 +1,79 @@
+package com.example.samplebarcodescanner.catalog;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Layout of a catalog index file.
+ * <pre>
+ * file    := MAGIC:int32 VERSION:int32 count:int32 bucketBits:int32
+ *            buckets:int32[2^bucketBits + 1] pad-to-8
+ *            hashes:int64[count] offsets:int32[count] data
+ * data    := record*
+ * record  := value:string name:string brand:string price:string
+ * string  := length:varint utf8[length]
+ * </pre>
+ * Entries are sorted by the 63-bit {@link #hash} of their value. {@code buckets[b]} is the first
+ * entry whose hash starts with the {@code bucketBits}-bit prefix {@code b}, so a lookup narrows to
+ * one bucket with two reads and binary-searches only the hashes inside it. {@code offsets[i]} is
+ * where entry {@code i}'s record starts, relative to the data section. Entries with equal hashes
+ * are adjacent and told apart by their stored value. Integers are big-endian; varints are LEB128.
+ */
+final class CatalogFormat {
+    static final int MAGIC = 0x53434931; // "SCI1"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    /** Target entries per bucket; keeps the in-bucket binary search to a few probes. */
+    static final int BUCKET_LOAD = 8;
+    static final int MAX_BUCKET_BITS = 24;
+
+    private CatalogFormat() {
+    }
+
+    /**
+     * Non-negative 63-bit hash of {@code value}'s UTF-16 code units, so the reader can hash a
+     * query without encoding it.
+     */
+    static long hash(CharSequence value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0, n = value.length(); i < n; i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h >>> 1;
+    }
+
+    static int bucketBits(int count) {
+        int bits = 0;
+        while (bits < MAX_BUCKET_BITS && (long) BUCKET_LOAD << (bits + 1) <= count) {
+            bits++;
+        }
+        return bits;
+    }
+
+    static int bucketOf(long hash, int bucketBits) {
+        return bucketBits == 0 ? 0 : (int) (hash >>> (63 - bucketBits));
+    }
+
+    static long hashesOffset(int bucketBits) {
+        long end = HEADER_SIZE + 4L * ((1 << bucketBits) + 1);
+        return (end + 7) & ~7L;
+    }
+
+    static int readVarInt(ByteBuffer in, int[] position) {
+        int pos = position[0];
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get(pos++);
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                position[0] = pos;
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+}
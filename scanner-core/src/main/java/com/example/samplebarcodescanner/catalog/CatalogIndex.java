@@ -0,0 +1,162 @@
+package com.example.samplebarcodescanner.catalog;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only product lookups against a memory-mapped {@link CatalogFormat} index, as written by
+ * {@link CatalogIndexWriter}.
+ * <p>
+ * Nothing is loaded into the heap up front: the file is mapped and the OS pages in the parts a
+ * lookup touches. A lookup hashes the value, reads two bucket bounds, binary-searches about
+ * {@link CatalogFormat#BUCKET_LOAD} hashes and decodes one record, so it costs a few cache misses
+ * once the pages are resident. The first lookup in a cold region may wait for storage, which is
+ * why {@link ProductCatalog} runs lookups off the UI thread.
+ * <p>
+ * Thread-safe: all reads are absolute and the mapping is never modified.
+ */
+public final class CatalogIndex implements Closeable {
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int bucketBits;
+    private final int hashesOffset;
+    private final int offsetsOffset;
+    private final int dataOffset;
+
+    private CatalogIndex(RandomAccessFile file, MappedByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        if (buffer.capacity() < CatalogFormat.HEADER_SIZE || buffer.getInt(0) != CatalogFormat.MAGIC) {
+            throw new IOException("not a catalog index");
+        }
+        if (buffer.getInt(4) != CatalogFormat.VERSION) {
+            throw new IOException("unsupported catalog index version " + buffer.getInt(4));
+        }
+        count = buffer.getInt(8);
+        bucketBits = buffer.getInt(12);
+        if (count < 0 || bucketBits < 0 || bucketBits > CatalogFormat.MAX_BUCKET_BITS) {
+            throw new IOException("corrupt catalog index header");
+        }
+        long hashes = CatalogFormat.hashesOffset(bucketBits);
+        long data = hashes + 12L * count;
+        if (data > buffer.capacity()) {
+            throw new IOException("catalog index is truncated");
+        }
+        hashesOffset = (int) hashes;
+        offsetsOffset = (int) (hashes + 8L * count);
+        dataOffset = (int) data;
+    }
+
+    public static CatalogIndex open(File path) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            long length = file.length();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("catalog index over 2 GB: " + path);
+            }
+            return new CatalogIndex(file, file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length));
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /** Number of products. */
+    public int size() {
+        return count;
+    }
+
+    /** The product listed under {@code value}, or null. */
+    public Product lookup(String value) {
+        int entry = find(value);
+        return entry < 0 ? null : decode(entry);
+    }
+
+    /** Whether {@code value} is listed, without decoding its record. */
+    public boolean contains(String value) {
+        return find(value) >= 0;
+    }
+
+    private int find(String value) {
+        long hash = CatalogFormat.hash(value);
+        int bucket = CatalogFormat.bucketOf(hash, bucketBits);
+        int lo = buffer.getInt(CatalogFormat.HEADER_SIZE + 4 * bucket);
+        int hi = buffer.getInt(CatalogFormat.HEADER_SIZE + 4 * (bucket + 1)) - 1;
+        // Leftmost entry with this hash; equal hashes are rare collisions and are checked in turn.
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (buffer.getLong(hashesOffset + 8 * mid) < hash) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        for (int i = lo; i < count && buffer.getLong(hashesOffset + 8 * i) == hash; i++) {
+            if (valueEquals(dataOffset + buffer.getInt(offsetsOffset + 4 * i), value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Compares the stored UTF-8 value at {@code pos} with {@code value} without decoding it. */
+    private boolean valueEquals(int pos, String value) {
+        int[] cursor = {pos};
+        int length = CatalogFormat.readVarInt(buffer, cursor);
+        int start = cursor[0];
+        if (length == value.length()) {
+            boolean ascii = true;
+            for (int i = 0; i < length && ascii; i++) {
+                byte b = buffer.get(start + i);
+                if (b < 0) {
+                    ascii = false;
+                } else if (b != value.charAt(i)) {
+                    return false;
+                }
+            }
+            if (ascii) {
+                return true;
+            }
+        } else if (length < value.length()) {
+            // UTF-8 never takes fewer bytes than UTF-16 code units.
+            return false;
+        }
+        return readString(start, length).equals(value);
+    }
+
+    private Product decode(int entry) {
+        int[] cursor = {dataOffset + buffer.getInt(offsetsOffset + 4 * entry)};
+        String value = readString(cursor);
+        String name = readString(cursor);
+        String brand = readString(cursor);
+        String price = readString(cursor);
+        return new Product(value, name, brand, price);
+    }
+
+    private String readString(int[] cursor) {
+        int length = CatalogFormat.readVarInt(buffer, cursor);
+        String s = readString(cursor[0], length);
+        cursor[0] += length;
+        return s;
+    }
+
+    private String readString(int pos, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(pos);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,296 @@
+package com.example.samplebarcodescanner.catalog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Build-time tool that compiles a CSV catalog into a {@link CatalogFormat} index for
+ * {@link CatalogIndex}.
+ * <p>
+ * The CSV needs a header row with a {@code barcode} column; {@code name}, {@code brand} and
+ * {@code price} columns are used if present, in any order, and other columns are ignored. Rows
+ * without a barcode are skipped; when a barcode repeats, its first row wins.
+ * <p>
+ * Records are streamed to a temporary file as they are parsed, so the heap only holds a hash and
+ * an offset per entry: about 12 bytes per SKU, 60 MB for five million.
+ * <pre>
+ * java -cp scanner-core.jar com.example.samplebarcodescanner.catalog.CatalogIndexWriter catalog.csv catalog.idx
+ * </pre>
+ */
+public final class CatalogIndexWriter {
+
+    /** What {@link #write} found in the CSV. */
+    public static final class Result {
+        public final int entries;
+        public final int duplicates;
+        public final int skipped;
+
+        Result(int entries, int duplicates, int skipped) {
+            this.entries = entries;
+            this.duplicates = duplicates;
+            this.skipped = skipped;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%,d entries, %,d duplicate barcodes, %,d rows without a barcode",
+                    entries, duplicates, skipped);
+        }
+    }
+
+    private CatalogIndexWriter() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: CatalogIndexWriter <catalog.csv> <catalog.idx>");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        try (Reader csv = new BufferedReader(new InputStreamReader(new FileInputStream(args[0]),
+                StandardCharsets.UTF_8), 1 << 16)) {
+            Result result = write(csv, new File(args[1]));
+            System.out.printf(Locale.ROOT, "%s: %s in %.1f s%n", args[1], result, (System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    /** Compiles {@code csv} into {@code out}, replacing it. */
+    public static Result write(Reader csv, File out) throws IOException {
+        File data = File.createTempFile("catalog", ".data", out.getAbsoluteFile().getParentFile());
+        try {
+            return write(csv, out, data);
+        } finally {
+            if (!data.delete() && data.exists()) {
+                data.deleteOnExit();
+            }
+        }
+    }
+
+    private static Result write(Reader csv, File out, File dataFile) throws IOException {
+        CsvReader reader = new CsvReader(csv);
+        List<String> row = new ArrayList<>();
+        if (!reader.next(row)) {
+            throw new IOException("catalog is empty");
+        }
+        int barcodeColumn = column(row, "barcode");
+        if (barcodeColumn < 0) {
+            throw new IOException("catalog header has no barcode column: " + row);
+        }
+        int nameColumn = column(row, "name");
+        int brandColumn = column(row, "brand");
+        int priceColumn = column(row, "price");
+
+        long[] hashes = new long[1024];
+        int[] offsets = new int[1024];
+        int count = 0;
+        int skipped = 0;
+        long dataSize = 0;
+        try (RecordOutput records = new RecordOutput(new FileOutputStream(dataFile))) {
+            while (reader.next(row)) {
+                String value = field(row, barcodeColumn).trim();
+                if (value.isEmpty()) {
+                    skipped++;
+                    continue;
+                }
+                if (dataSize > Integer.MAX_VALUE) {
+                    throw new IOException("catalog data exceeds 2 GB at line " + reader.getLine());
+                }
+                if (count == hashes.length) {
+                    hashes = Arrays.copyOf(hashes, count * 2);
+                    offsets = Arrays.copyOf(offsets, count * 2);
+                }
+                hashes[count] = CatalogFormat.hash(value);
+                offsets[count] = (int) dataSize;
+                count++;
+                dataSize += records.writeString(value) + records.writeString(field(row, nameColumn))
+                        + records.writeString(field(row, brandColumn)) + records.writeString(field(row, priceColumn));
+            }
+        }
+
+        // Sort by hash, then by offset so the first row of a repeated barcode sorts first.
+        sort(hashes, offsets, 0, count - 1);
+        int unique = dropDuplicates(hashes, offsets, count, dataFile);
+        writeIndex(out, hashes, offsets, unique, dataFile, dataSize);
+        return new Result(unique, count - unique, skipped);
+    }
+
+    private static int column(List<String> header, String name) {
+        for (int i = 0; i < header.size(); i++) {
+            if (header.get(i).trim().equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String field(List<String> row, int column) {
+        return column >= 0 && column < row.size() ? row.get(column) : "";
+    }
+
+    /** Removes every entry whose value equals an earlier one with the same hash. */
+    private static int dropDuplicates(long[] hashes, int[] offsets, int count, File dataFile) throws IOException {
+        int unique = 0;
+        try (RandomAccessFile data = new RandomAccessFile(dataFile, "r")) {
+            for (int i = 0; i < count; i++) {
+                boolean duplicate = false;
+                for (int j = unique - 1; j >= 0 && hashes[j] == hashes[i] && !duplicate; j--) {
+                    duplicate = readValue(data, offsets[j]).equals(readValue(data, offsets[i]));
+                }
+                if (!duplicate) {
+                    hashes[unique] = hashes[i];
+                    offsets[unique] = offsets[i];
+                    unique++;
+                }
+            }
+        }
+        return unique;
+    }
+
+    private static String readValue(RandomAccessFile data, int offset) throws IOException {
+        data.seek(offset);
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = data.readUnsignedByte();
+            length |= (b & 0x7f) << shift;
+            if (b < 0x80) {
+                break;
+            }
+        }
+        byte[] bytes = new byte[length];
+        data.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeIndex(File out, long[] hashes, int[] offsets, int count, File dataFile, long dataSize)
+            throws IOException {
+        int bucketBits = CatalogFormat.bucketBits(count);
+        long hashesOffset = CatalogFormat.hashesOffset(bucketBits);
+        long total = hashesOffset + 12L * count + dataSize;
+        if (total > Integer.MAX_VALUE) {
+            throw new IOException("catalog index would be " + total + " bytes; at most 2 GB can be mapped");
+        }
+        int[] buckets = new int[(1 << bucketBits) + 1];
+        for (int i = 0, b = 0; b < buckets.length; b++) {
+            while (i < count && CatalogFormat.bucketOf(hashes[i], bucketBits) < b) {
+                i++;
+            }
+            buckets[b] = i;
+        }
+        buckets[buckets.length - 1] = count;
+
+        File temp = new File(out.getPath() + ".tmp");
+        try (DataOutputStream index = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16));
+             InputStream data = new BufferedInputStream(new FileInputStream(dataFile), 1 << 16)) {
+            index.writeInt(CatalogFormat.MAGIC);
+            index.writeInt(CatalogFormat.VERSION);
+            index.writeInt(count);
+            index.writeInt(bucketBits);
+            for (int bucket : buckets) {
+                index.writeInt(bucket);
+            }
+            while (index.size() < hashesOffset) {
+                index.writeByte(0);
+            }
+            for (int i = 0; i < count; i++) {
+                index.writeLong(hashes[i]);
+            }
+            for (int i = 0; i < count; i++) {
+                index.writeInt(offsets[i]);
+            }
+            byte[] buffer = new byte[1 << 16];
+            for (int n; (n = data.read(buffer)) > 0; ) {
+                index.write(buffer, 0, n);
+            }
+        }
+        if (!temp.renameTo(out)) {
+            throw new IOException("cannot rename " + temp + " to " + out);
+        }
+    }
+
+    /** Sorts both arrays by hash, then offset. */
+    private static void sort(long[] hashes, int[] offsets, int lo, int hi) {
+        while (lo < hi) {
+            if (hi - lo < 16) {
+                for (int i = lo + 1; i <= hi; i++) {
+                    for (int j = i; j > lo && less(hashes, offsets, j, j - 1); j--) {
+                        swap(hashes, offsets, j, j - 1);
+                    }
+                }
+                return;
+            }
+            swap(hashes, offsets, lo + (hi - lo) / 2, hi);
+            int store = lo;
+            for (int i = lo; i < hi; i++) {
+                if (less(hashes, offsets, i, hi)) {
+                    swap(hashes, offsets, i, store++);
+                }
+            }
+            swap(hashes, offsets, store, hi);
+            // Recurse into the smaller half so the stack stays logarithmic.
+            if (store - lo < hi - store) {
+                sort(hashes, offsets, lo, store - 1);
+                lo = store + 1;
+            } else {
+                sort(hashes, offsets, store + 1, hi);
+                hi = store - 1;
+            }
+        }
+    }
+
+    private static boolean less(long[] hashes, int[] offsets, int a, int b) {
+        return hashes[a] < hashes[b] || (hashes[a] == hashes[b] && offsets[a] < offsets[b]);
+    }
+
+    private static void swap(long[] hashes, int[] offsets, int a, int b) {
+        long hash = hashes[a];
+        hashes[a] = hashes[b];
+        hashes[b] = hash;
+        int offset = offsets[a];
+        offsets[a] = offsets[b];
+        offsets[b] = offset;
+    }
+
+    /** Buffered record output that reports how many bytes each string took. */
+    private static final class RecordOutput implements AutoCloseable {
+        private final OutputStream out;
+
+        RecordOutput(OutputStream out) {
+            this.out = new BufferedOutputStream(out, 1 << 16);
+        }
+
+        int writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            int written = 0;
+            int length = bytes.length;
+            while ((length & ~0x7f) != 0) {
+                out.write((length & 0x7f) | 0x80);
+                length >>>= 7;
+                written++;
+            }
+            out.write(length);
+            out.write(bytes);
+            return written + 1 + bytes.length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.samplebarcodescanner.catalog;
+
+import com.example.samplebarcodescanner.pipeline.TrackStage;
+import com.example.samplebarcodescanner.tracking.Track;
+
+import java.util.List;
+
+/**
+ * Prefetches the product of every track on the frame it first appears, so the catalog has
+ * resolved it before the label can be tapped.
+ */
+public final class CatalogPrefetchStage implements TrackStage {
+    private final ProductCatalog catalog;
+
+    public CatalogPrefetchStage(ProductCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    @Override
+    public void onTracks(List<Track> tracks, long timestampNanos) {
+        for (int i = 0, n = tracks.size(); i < n; i++) {
+            Track track = tracks.get(i);
+            if (track.getHits() == 1 && track.getMissedFrames() == 0) {
+                catalog.prefetch(track.getValue());
+            }
+        }
+    }
+}
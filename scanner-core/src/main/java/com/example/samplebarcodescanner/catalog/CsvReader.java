@@ -0,0 +1,92 @@
+package com.example.samplebarcodescanner.catalog;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * Minimal RFC 4180 reader: comma-separated fields, optionally double-quoted, with doubled quotes
+ * as escapes and CRLF or LF line ends. Quoted fields may span lines.
+ */
+final class CsvReader {
+    private final Reader in;
+    private final StringBuilder field = new StringBuilder();
+    private int peeked = -2;
+    private long line = 1;
+
+    /** {@code in} should be buffered; it is read one character at a time. */
+    CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    /** Line the next record starts on, 1-based. */
+    long getLine() {
+        return line;
+    }
+
+    /** Reads the next record into {@code fields}. Returns false at end of input. */
+    boolean next(List<String> fields) throws IOException {
+        fields.clear();
+        int c = read();
+        if (c == -1) {
+            return false;
+        }
+        while (true) {
+            field.setLength(0);
+            if (c == '"') {
+                while (true) {
+                    c = read();
+                    if (c == -1) {
+                        throw new IOException("unterminated quoted field before line " + line);
+                    }
+                    if (c == '"') {
+                        if (peek() != '"') {
+                            c = read();
+                            break;
+                        }
+                        read();
+                    } else if (c == '\n') {
+                        line++;
+                    }
+                    field.append((char) c);
+                }
+            } else {
+                while (c != ',' && c != '\n' && c != '\r' && c != -1) {
+                    field.append((char) c);
+                    c = read();
+                }
+            }
+            fields.add(field.toString());
+            if (c == ',') {
+                c = read();
+                continue;
+            }
+            if (c == '\r' && peek() == '\n') {
+                read();
+                c = '\n';
+            }
+            if (c == '\n' || c == '\r') {
+                line++;
+            } else if (c != -1) {
+                throw new IOException("unexpected '" + (char) c + "' after quoted field on line " + line);
+            }
+            return true;
+        }
+    }
+
+    private int read() throws IOException {
+        if (peeked != -2) {
+            int c = peeked;
+            peeked = -2;
+            return c;
+        }
+        return in.read();
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) {
+            peeked = in.read();
+        }
+        return peeked;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.samplebarcodescanner.catalog;
+
+/**
+ * A catalog entry: what a scanned value resolves to.
+ */
+public final class Product {
+    private final String value;
+    private final String name;
+    private final String brand;
+    private final String price;
+
+    /** Empty strings for fields the catalog does not have; never null. */
+    public Product(String value, String name, String brand, String price) {
+        if (value == null || name == null || brand == null || price == null) {
+            throw new IllegalArgumentException("product fields must not be null");
+        }
+        this.value = value;
+        this.name = name;
+        this.brand = brand;
+        this.price = price;
+    }
+
+    /** The barcode value the product is listed under. */
+    public String getValue() {
+        return value;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getBrand() {
+        return brand;
+    }
+
+    /** Display price, as written in the catalog. */
+    public String getPrice() {
+        return price;
+    }
+
+    @Override
+    public String toString() {
+        return "Product(" + value + " " + name + ")";
+    }
+}
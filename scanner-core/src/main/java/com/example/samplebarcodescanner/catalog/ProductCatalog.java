@@ -0,0 +1,130 @@
+package com.example.samplebarcodescanner.catalog;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A {@link CatalogIndex} behind an LRU cache of recent results, with background prefetch.
+ * <p>
+ * The tracker {@link #prefetch prefetches} a value when its track first appears, so by the time
+ * the user taps the label its product is already in the cache and the popup can read it with
+ * {@link #peek} without touching storage on the UI thread. Values that are not in the catalog
+ * are cached too, so a shelf of unknown labels does not keep searching the index.
+ * <p>
+ * Thread-safe.
+ */
+public final class ProductCatalog {
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+
+    // Cached for values the catalog does not list; never handed out.
+    private static final Product MISSING = new Product("", "", "", "");
+
+    private final CatalogIndex index;
+    private final Executor prefetchExecutor;
+    private final LinkedHashMap<String, Product> cache;
+    private final Set<String> pending = new HashSet<>();
+
+    private long hits;
+    private long misses;
+
+    /**
+     * @param prefetchExecutor runs prefetch lookups; should be a background thread, since a cold
+     *                         lookup may page in from storage
+     */
+    public ProductCatalog(CatalogIndex index, Executor prefetchExecutor) {
+        this(index, prefetchExecutor, DEFAULT_CACHE_SIZE);
+    }
+
+    public ProductCatalog(CatalogIndex index, Executor prefetchExecutor, int cacheSize) {
+        if (cacheSize <= 0) {
+            throw new IllegalArgumentException("cacheSize must be positive: " + cacheSize);
+        }
+        this.index = index;
+        this.prefetchExecutor = prefetchExecutor;
+        cache = new LinkedHashMap<String, Product>(cacheSize * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Product> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /** The product for {@code value}, or null if it is not listed. May read storage. */
+    public Product lookup(String value) {
+        synchronized (cache) {
+            Product cached = cache.get(value);
+            if (cached != null) {
+                hits++;
+                return cached == MISSING ? null : cached;
+            }
+            misses++;
+        }
+        Product product = index.lookup(value);
+        synchronized (cache) {
+            cache.put(value, product != null ? product : MISSING);
+        }
+        return product;
+    }
+
+    /** The cached product for {@code value}, or null if it is unlisted or not resolved yet. Never reads storage. */
+    public Product peek(String value) {
+        synchronized (cache) {
+            Product cached = cache.get(value);
+            return cached == MISSING ? null : cached;
+        }
+    }
+
+    /** Whether {@code value} has been looked up and is still cached, listed or not. */
+    public boolean isResolved(String value) {
+        synchronized (cache) {
+            return cache.containsKey(value);
+        }
+    }
+
+    /** Resolves {@code value} into the cache on the prefetch executor, unless it already is. */
+    public void prefetch(String value) {
+        synchronized (cache) {
+            if (cache.containsKey(value) || !pending.add(value)) {
+                return;
+            }
+        }
+        try {
+            prefetchExecutor.execute(() -> {
+                try {
+                    lookup(value);
+                } finally {
+                    synchronized (cache) {
+                        pending.remove(value);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            synchronized (cache) {
+                pending.remove(value);
+            }
+        }
+    }
+
+    /** Number of products in the index. */
+    public int size() {
+        return index.size();
+    }
+
+    /** {@link #lookup} calls answered from the cache. */
+    public long getHitCount() {
+        synchronized (cache) {
+            return hits;
+        }
+    }
+
+    /** {@link #lookup} calls that searched the index. */
+    public long getMissCount() {
+        synchronized (cache) {
+            return misses;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.samplebarcodescanner.format;
+
+import com.example.samplebarcodescanner.tracking.Detection;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Narrows scanning to the formats actually being read.
+ * <p>
+ * Frames are scanned for every format of the profile until {@code warmupFrames} have been
+ * reported. From then on, a frame is scanned only for the formats read within the last
+ * {@code retainFrames} reported frames; when nothing has been read recently, it falls back to the
+ * whole profile. Every {@code probeInterval}-th frame is a probe scanned for the whole profile, so
+ * a newly appearing format is found and kept within one probe interval.
+ * <p>
+ * Thread-safe.
+ */
+public final class AutoFormatPolicy implements FormatPolicy {
+    public static final int DEFAULT_WARMUP_FRAMES = 15;
+    public static final int DEFAULT_RETAIN_FRAMES = 90;
+    public static final int DEFAULT_PROBE_INTERVAL = 30;
+
+    private static final int FORMAT_COUNT = Integer.bitCount(BarcodeFormats.ALL);
+    private static final long NEVER = Long.MIN_VALUE / 2;
+
+    public static final class Builder {
+        private final ScanProfile profile;
+        private int warmupFrames = DEFAULT_WARMUP_FRAMES;
+        private int retainFrames = DEFAULT_RETAIN_FRAMES;
+        private int probeInterval = DEFAULT_PROBE_INTERVAL;
+
+        /** @param profile formats that may be scanned for */
+        public Builder(ScanProfile profile) {
+            this.profile = profile;
+        }
+
+        /** Frames scanned for the whole profile before narrowing starts. */
+        public Builder warmupFrames(int frames) {
+            if (frames < 0) {
+                throw new IllegalArgumentException("warmupFrames must not be negative: " + frames);
+            }
+            warmupFrames = frames;
+            return this;
+        }
+
+        /** How many reported frames a format is kept for after it was last read. */
+        public Builder retainFrames(int frames) {
+            if (frames < 1) {
+                throw new IllegalArgumentException("retainFrames must be positive: " + frames);
+            }
+            retainFrames = frames;
+            return this;
+        }
+
+        /** Every this many frames is scanned for the whole profile. */
+        public Builder probeInterval(int frames) {
+            if (frames < 2) {
+                throw new IllegalArgumentException("probeInterval must be at least 2: " + frames);
+            }
+            probeInterval = frames;
+            return this;
+        }
+
+        public AutoFormatPolicy build() {
+            return new AutoFormatPolicy(this);
+        }
+    }
+
+    private final int candidates;
+    private final int warmupFrames;
+    private final int retainFrames;
+    private final int probeInterval;
+    // Per format bit: the reported frame it was last read in, and how often it has been read.
+    private final long[] lastRead = new long[FORMAT_COUNT];
+    private final long[] reads = new long[FORMAT_COUNT];
+
+    private long admitted;
+    private long reported;
+    private long probes;
+    private long narrowed;
+
+    private AutoFormatPolicy(Builder builder) {
+        candidates = builder.profile.getFormats();
+        warmupFrames = builder.warmupFrames;
+        retainFrames = builder.retainFrames;
+        probeInterval = builder.probeInterval;
+        Arrays.fill(lastRead, NEVER);
+    }
+
+    @Override
+    public synchronized int formatsForNextFrame() {
+        admitted++;
+        if (reported < warmupFrames) {
+            return candidates;
+        }
+        if (admitted % probeInterval == 0) {
+            probes++;
+            return candidates;
+        }
+        int formats = 0;
+        for (int rest = candidates; rest != 0; rest &= rest - 1) {
+            int bit = Integer.numberOfTrailingZeros(rest);
+            if (reported - lastRead[bit] < retainFrames) {
+                formats |= 1 << bit;
+            }
+        }
+        if (formats == 0 || formats == candidates) {
+            return candidates;
+        }
+        narrowed++;
+        return formats;
+    }
+
+    @Override
+    public synchronized void onFrameScanned(int formats, List<Detection> detections) {
+        reported++;
+        for (int i = 0, n = detections.size(); i < n; i++) {
+            int format = detections.get(i).getFormat();
+            if (BarcodeFormats.isSingle(format) && (candidates & format) != 0) {
+                int bit = Integer.numberOfTrailingZeros(format);
+                lastRead[bit] = reported;
+                reads[bit]++;
+            }
+        }
+    }
+
+    /** Reads of {@code format} so far: the policy's format histogram. */
+    public synchronized long getReadCount(int format) {
+        return BarcodeFormats.isSingle(format) ? reads[Integer.numberOfTrailingZeros(format)] : 0;
+    }
+
+    /** Frames scanned for the whole profile because they were probes. */
+    public synchronized long getProbeCount() {
+        return probes;
+    }
+
+    /** Frames scanned for fewer formats than the profile. */
+    public synchronized long getNarrowedCount() {
+        return narrowed;
+    }
+}
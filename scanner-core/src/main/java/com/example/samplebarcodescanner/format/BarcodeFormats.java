@@ -0,0 +1,105 @@
+package com.example.samplebarcodescanner.format;
+
+import java.util.StringJoiner;
+
+/**
+ * Barcode symbologies as single-bit flags, with the same values as ML Kit's
+ * {@code Barcode.FORMAT_*} constants, so masks pass straight to the detector options and
+ * {@link com.example.samplebarcodescanner.tracking.Detection#getFormat()} can be tested against them.
+ */
+public final class BarcodeFormats {
+    public static final int CODE_128 = 1;
+    public static final int CODE_39 = 1 << 1;
+    public static final int CODE_93 = 1 << 2;
+    public static final int CODABAR = 1 << 3;
+    public static final int DATA_MATRIX = 1 << 4;
+    public static final int EAN_13 = 1 << 5;
+    public static final int EAN_8 = 1 << 6;
+    public static final int ITF = 1 << 7;
+    public static final int QR_CODE = 1 << 8;
+    public static final int UPC_A = 1 << 9;
+    public static final int UPC_E = 1 << 10;
+    public static final int PDF417 = 1 << 11;
+    public static final int AZTEC = 1 << 12;
+
+    /** Every supported format. */
+    public static final int ALL = (1 << 13) - 1;
+
+    private static final String[] NAMES = {
+            "CODE_128", "CODE_39", "CODE_93", "CODABAR", "DATA_MATRIX", "EAN_13", "EAN_8", "ITF",
+            "QR_CODE", "UPC_A", "UPC_E", "PDF417", "AZTEC",
+    };
+
+    private static final int TWO_DIMENSIONAL = DATA_MATRIX | QR_CODE | PDF417 | AZTEC;
+
+    private BarcodeFormats() {
+    }
+
+    /** Whether {@code format} is a matrix or stacked code rather than a row of bars. */
+    public static boolean isTwoDimensional(int format) {
+        return (format & TWO_DIMENSIONAL) != 0 && (format & ~TWO_DIMENSIONAL) == 0;
+    }
+
+    /**
+     * Modules across a typical symbol of {@code format}: along the bars for linear codes and
+     * across the smaller side for 2D codes. Exact for EAN and UPC; an estimate for variable-length
+     * and variable-size symbologies, sized for short payloads.
+     */
+    public static int typicalModules(int format) {
+        switch (format) {
+            case EAN_13:
+            case UPC_A:
+                return 95;
+            case EAN_8:
+                return 67;
+            case UPC_E:
+                return 51;
+            case CODE_128:
+                return 13 * 11; // start, ~10 symbols, check and stop
+            case CODE_39:
+                return 12 * 13;
+            case CODE_93:
+                return 12 * 9;
+            case CODABAR:
+                return 12 * 10;
+            case ITF:
+                return 14 * 7;
+            case QR_CODE:
+                return 25; // version 2
+            case DATA_MATRIX:
+                return 16;
+            case AZTEC:
+                return 19;
+            case PDF417:
+                return 3 * 17; // rows are ~3 modules tall
+            default:
+                return 95;
+        }
+    }
+
+    /** Whether {@code format} is exactly one supported format. */
+    public static boolean isSingle(int format) {
+        return format > 0 && (format & ALL) == format && Integer.bitCount(format) == 1;
+    }
+
+    /** The formats in {@code mask} as separate flags, lowest first. */
+    public static int[] split(int mask) {
+        int[] formats = new int[Integer.bitCount(mask & ALL)];
+        for (int i = 0, rest = mask & ALL; rest != 0; i++, rest &= rest - 1) {
+            formats[i] = Integer.lowestOneBit(rest);
+        }
+        return formats;
+    }
+
+    /** E.g. {@code "EAN_13|CODE_128"}. */
+    public static String toString(int mask) {
+        if ((mask & ALL) == ALL) {
+            return "ALL";
+        }
+        StringJoiner names = new StringJoiner("|");
+        for (int format : split(mask)) {
+            names.add(NAMES[Integer.numberOfTrailingZeros(format)]);
+        }
+        return names.toString();
+    }
+}
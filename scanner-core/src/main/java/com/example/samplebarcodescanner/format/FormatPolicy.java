@@ -0,0 +1,32 @@
+package com.example.samplebarcodescanner.format;
+
+import com.example.samplebarcodescanner.tracking.Detection;
+
+import java.util.List;
+
+/**
+ * Chooses which barcode formats each analysis frame is scanned for. Both methods may be called
+ * from different threads, and results may be reported out of order.
+ */
+public interface FormatPolicy {
+
+    /** {@link BarcodeFormats} mask for the next admitted frame; never 0. */
+    int formatsForNextFrame();
+
+    /** Reports the formats a frame was scanned for and what it found. */
+    void onFrameScanned(int formats, List<Detection> detections);
+
+    /** Always scans for {@code profile}'s formats. */
+    static FormatPolicy fixed(ScanProfile profile) {
+        return new FormatPolicy() {
+            @Override
+            public int formatsForNextFrame() {
+                return profile.getFormats();
+            }
+
+            @Override
+            public void onFrameScanned(int formats, List<Detection> detections) {
+            }
+        };
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.samplebarcodescanner.format;
+
+/**
+ * A named set of barcode formats a site scans for. Restricting the detector to the formats in
+ * use saves it searching every frame for symbologies that never appear.
+ */
+public final class ScanProfile {
+    public static final ScanProfile ALL = new ScanProfile("all", BarcodeFormats.ALL);
+    /** Product barcodes and shelf-edge labels. */
+    public static final ScanProfile RETAIL = new ScanProfile("retail", BarcodeFormats.EAN_13 | BarcodeFormats.EAN_8
+            | BarcodeFormats.UPC_A | BarcodeFormats.UPC_E | BarcodeFormats.CODE_128);
+    /** Serialized packs and labels. */
+    public static final ScanProfile PHARMA = new ScanProfile("pharma", BarcodeFormats.DATA_MATRIX
+            | BarcodeFormats.QR_CODE | BarcodeFormats.CODE_128);
+    /** Shipping labels and cartons. */
+    public static final ScanProfile LOGISTICS = new ScanProfile("logistics", BarcodeFormats.CODE_128
+            | BarcodeFormats.ITF | BarcodeFormats.DATA_MATRIX | BarcodeFormats.QR_CODE | BarcodeFormats.PDF417);
+
+    private final String name;
+    private final int formats;
+
+    public ScanProfile(String name, int formats) {
+        if ((formats & BarcodeFormats.ALL) == 0 || (formats & ~BarcodeFormats.ALL) != 0) {
+            throw new IllegalArgumentException("not a format mask: " + formats);
+        }
+        this.name = name;
+        this.formats = formats;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** {@link BarcodeFormats} mask. */
+    public int getFormats() {
+        return formats;
+    }
+
+    public boolean contains(int format) {
+        return (formats & format) == format;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + BarcodeFormats.toString(formats) + ")";
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.samplebarcodescanner.geometry;
+
+/**
+ * A mutable integer rectangle, left and top inclusive, right and bottom exclusive: the engine's
+ * stand-in for {@code android.graphics.Rect}. Mutable so a caller can reuse one instance per frame
+ * instead of allocating a rectangle per detection.
+ */
+public final class IntRect {
+    public int left;
+    public int top;
+    public int right;
+    public int bottom;
+
+    public IntRect() {
+    }
+
+    public IntRect(int left, int top, int right, int bottom) {
+        set(left, top, right, bottom);
+    }
+
+    public IntRect set(int left, int top, int right, int bottom) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+        return this;
+    }
+
+    public IntRect set(IntRect other) {
+        return set(other.left, other.top, other.right, other.bottom);
+    }
+
+    public IntRect offset(int dx, int dy) {
+        left += dx;
+        top += dy;
+        right += dx;
+        bottom += dy;
+        return this;
+    }
+
+    public int width() {
+        return right - left;
+    }
+
+    public int height() {
+        return bottom - top;
+    }
+
+    public float centerX() {
+        return (left + right) * 0.5f;
+    }
+
+    public float centerY() {
+        return (top + bottom) * 0.5f;
+    }
+
+    public boolean isEmpty() {
+        return left >= right || top >= bottom;
+    }
+
+    public boolean contains(int x, int y) {
+        return x >= left && x < right && y >= top && y < bottom;
+    }
+
+    /** Whether the two rectangles share any area. Empty rectangles intersect nothing. */
+    public boolean intersects(IntRect other) {
+        return !isEmpty() && !other.isEmpty()
+                && left < other.right && other.left < right && top < other.bottom && other.top < bottom;
+    }
+
+    /** Grows this rectangle to also cover {@code other}. An empty {@code other} changes nothing. */
+    public IntRect union(IntRect other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return set(other);
+        }
+        return set(Math.min(left, other.left), Math.min(top, other.top),
+                Math.max(right, other.right), Math.max(bottom, other.bottom));
+    }
+
+    /** Copies into {@code rect} as {@code left, top, right, bottom}. */
+    public void toArray(int[] rect) {
+        rect[0] = left;
+        rect[1] = top;
+        rect[2] = right;
+        rect[3] = bottom;
+    }
+
+    /** Sets from {@code rect}, given as {@code left, top, right, bottom}. */
+    public IntRect setFromArray(int[] rect) {
+        return set(rect[0], rect[1], rect[2], rect[3]);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IntRect)) {
+            return false;
+        }
+        IntRect other = (IntRect) o;
+        return left == other.left && top == other.top && right == other.right && bottom == other.bottom;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((left * 31 + top) * 31 + right) * 31 + bottom;
+    }
+
+    @Override
+    public String toString() {
+        return "IntRect(" + left + ", " + top + " - " + right + ", " + bottom + ")";
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.samplebarcodescanner.image;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Loads values on a worker executor and delivers them on a delivery executor, running one load
+ * per key however many callers ask for it while it is in flight.
+ * <p>
+ * Requests can be cancelled until delivery; a load whose requests were all cancelled before it
+ * started is skipped. Thread-safe.
+ *
+ * @param <K> what to load
+ * @param <V> the loaded value
+ */
+public final class CoalescingLoader<K, V> {
+
+    /** Produces the value for a key; runs on the worker executor. */
+    public interface Source<K, V> {
+        V load(K key) throws Exception;
+    }
+
+    /** Receives a load's outcome on the delivery executor. */
+    public interface Callback<V> {
+        void onLoaded(V value);
+
+        default void onFailed(Exception error) {
+        }
+    }
+
+    /** A pending request. */
+    public interface Request {
+        /** Stops the callback from being called, if it has not been yet. */
+        void cancel();
+    }
+
+    private final class Load {
+        final K key;
+        final List<Waiter> waiters = new ArrayList<>();
+
+        Load(K key) {
+            this.key = key;
+        }
+    }
+
+    private final class Waiter implements Request {
+        final Load load;
+        final Callback<V> callback;
+
+        Waiter(Load load, Callback<V> callback) {
+            this.load = load;
+            this.callback = callback;
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (CoalescingLoader.this) {
+                load.waiters.remove(this);
+            }
+        }
+    }
+
+    private final Source<K, V> source;
+    private final Executor worker;
+    private final Executor delivery;
+    private final Consumer<V> onDelivered;
+    private final Map<K, Load> inFlight = new HashMap<>();
+    private long loads;
+    private long coalesced;
+
+    /**
+     * @param onDelivered called on the delivery executor once every request still waiting for a
+     *                    value has received it, e.g. to drop a reference the source took
+     */
+    public CoalescingLoader(Source<K, V> source, Executor worker, Executor delivery, Consumer<V> onDelivered) {
+        this.source = source;
+        this.worker = worker;
+        this.delivery = delivery;
+        this.onDelivered = onDelivered;
+    }
+
+    /** Loads {@code key}, joining a load already in flight for it. */
+    public Request load(K key, Callback<V> callback) {
+        Load load;
+        boolean start;
+        Waiter waiter;
+        synchronized (this) {
+            load = inFlight.get(key);
+            start = load == null;
+            if (start) {
+                load = new Load(key);
+                inFlight.put(key, load);
+                loads++;
+            } else {
+                coalesced++;
+            }
+            waiter = new Waiter(load, callback);
+            load.waiters.add(waiter);
+        }
+        if (start) {
+            Load started = load;
+            worker.execute(() -> run(started));
+        }
+        return waiter;
+    }
+
+    /** Loads started. */
+    public synchronized long getLoadCount() {
+        return loads;
+    }
+
+    /** Requests that joined a load already in flight. */
+    public synchronized long getCoalescedCount() {
+        return coalesced;
+    }
+
+    private void run(Load load) {
+        synchronized (this) {
+            if (load.waiters.isEmpty()) {
+                inFlight.remove(load.key);
+                return;
+            }
+        }
+        V value = null;
+        Exception error = null;
+        try {
+            value = source.load(load.key);
+        } catch (Exception e) {
+            error = e;
+        }
+        V result = value;
+        Exception failure = error;
+        delivery.execute(() -> deliver(load, result, failure));
+    }
+
+    private void deliver(Load load, V value, Exception error) {
+        List<Waiter> waiters;
+        synchronized (this) {
+            inFlight.remove(load.key);
+            waiters = new ArrayList<>(load.waiters);
+            load.waiters.clear();
+        }
+        try {
+            for (Waiter waiter : waiters) {
+                if (error != null) {
+                    waiter.callback.onFailed(error);
+                } else {
+                    waiter.callback.onLoaded(value);
+                }
+            }
+        } finally {
+            if (error == null) {
+                onDelivered.accept(value);
+            }
+        }
+    }
+}
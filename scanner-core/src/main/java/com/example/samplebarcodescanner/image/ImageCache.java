@@ -0,0 +1,249 @@
+package com.example.samplebarcodescanner.image;
+
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A size-bounded LRU cache of decoded images, backed by a pool of evicted images whose memory can
+ * be decoded into again.
+ * <p>
+ * Images are pinned while they are shown: {@link #acquire} and {@link #putAndAcquire} pin, and
+ * {@link #release} unpins. An image evicted while pinned stays out of the pool until its last
+ * release, so a decode never overwrites pixels that are still on screen. Unpinned evicted images
+ * go to the pool, where {@link #takeReusable} hands them out as decode targets; the pool is
+ * bounded too, and images it drops are passed to the {@link Recycler}.
+ * <p>
+ * Sizes come from a {@link Sizer}, so the cache can be exercised on the JVM with any value type.
+ * Thread-safe.
+ *
+ * @param <K> cache key, including the decoded size when one source is shown at several sizes
+ * @param <V> decoded image
+ */
+public final class ImageCache<K, V> {
+    /** A pooled image is reused for a decode needing at most this many times fewer bytes. */
+    public static final int MAX_REUSE_OVERSIZE = 2;
+
+    /** Memory an image occupies, in bytes; must not change while the image is cached or pooled. */
+    public interface Sizer<V> {
+        int sizeOf(V value);
+    }
+
+    /** Frees an image neither the cache nor the pool keeps. */
+    public interface Recycler<V> {
+        void recycle(V value);
+    }
+
+    private static final class Pin {
+        int count;
+        // Evicted or replaced while pinned; pooled on the last release.
+        boolean detached;
+    }
+
+    private final long maxCacheBytes;
+    private final long maxPoolBytes;
+    private final Sizer<V> sizer;
+    private final Recycler<V> recycler;
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final IdentityHashMap<V, Pin> pins = new IdentityHashMap<>();
+    private final TreeMap<Integer, ArrayDeque<V>> pool = new TreeMap<>();
+    // Pooled images, oldest first, for trimming the pool.
+    private final ArrayDeque<V> poolOrder = new ArrayDeque<>();
+
+    private long cacheBytes;
+    private long poolBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long reuses;
+
+    public ImageCache(long maxCacheBytes, long maxPoolBytes, Sizer<V> sizer, Recycler<V> recycler) {
+        if (maxCacheBytes < 0 || maxPoolBytes < 0) {
+            throw new IllegalArgumentException("limits must not be negative: " + maxCacheBytes + ", " + maxPoolBytes);
+        }
+        this.maxCacheBytes = maxCacheBytes;
+        this.maxPoolBytes = maxPoolBytes;
+        this.sizer = sizer;
+        this.recycler = recycler;
+    }
+
+    /** The cached image for {@code key}, pinned, or null. */
+    public synchronized V acquire(K key) {
+        V value = entries.get(key);
+        if (value == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        retain(value);
+        return value;
+    }
+
+    /**
+     * Caches {@code value} under {@code key}, replacing any previous image, and returns it pinned.
+     * An image larger than the whole cache is returned pinned but not cached.
+     */
+    public synchronized V putAndAcquire(K key, V value) {
+        retain(value);
+        int size = sizer.sizeOf(value);
+        if (size > maxCacheBytes) {
+            pins.get(value).detached = true;
+            return value;
+        }
+        V previous = entries.put(key, value);
+        if (previous == value) {
+            return value;
+        }
+        cacheBytes += size;
+        if (previous != null) {
+            cacheBytes -= sizer.sizeOf(previous);
+            detach(previous);
+        }
+        trimCache(maxCacheBytes);
+        return value;
+    }
+
+    /** Pins an image already pinned by the caller, for a second holder. */
+    public synchronized void retain(V value) {
+        Pin pin = pins.get(value);
+        if (pin == null) {
+            pin = new Pin();
+            pins.put(value, pin);
+        }
+        pin.count++;
+    }
+
+    /** Unpins an image from {@link #acquire}, {@link #putAndAcquire} or {@link #retain}. */
+    public synchronized void release(V value) {
+        Pin pin = pins.get(value);
+        if (pin == null) {
+            throw new IllegalStateException("image is not pinned");
+        }
+        if (--pin.count == 0) {
+            pins.remove(value);
+            if (pin.detached) {
+                offerReusable(value);
+            }
+        }
+    }
+
+    /**
+     * Removes and returns a pooled image of at least {@code minBytes} to decode into, or null if
+     * none is close enough in size.
+     */
+    public synchronized V takeReusable(int minBytes) {
+        Map.Entry<Integer, ArrayDeque<V>> bucket = pool.ceilingEntry(minBytes);
+        if (bucket == null || bucket.getKey() > (long) minBytes * MAX_REUSE_OVERSIZE) {
+            return null;
+        }
+        V value = bucket.getValue().pollLast();
+        if (bucket.getValue().isEmpty()) {
+            pool.remove(bucket.getKey());
+        }
+        for (Iterator<V> it = poolOrder.iterator(); it.hasNext(); ) {
+            if (it.next() == value) {
+                it.remove();
+                break;
+            }
+        }
+        poolBytes -= bucket.getKey();
+        reuses++;
+        return value;
+    }
+
+    /** Adds an unpinned, uncached image to the pool, e.g. a decode target that went unused. */
+    public synchronized void offerReusable(V value) {
+        int size = sizer.sizeOf(value);
+        if (size > maxPoolBytes) {
+            recycler.recycle(value);
+            return;
+        }
+        pool.computeIfAbsent(size, s -> new ArrayDeque<>()).addLast(value);
+        poolOrder.addLast(value);
+        poolBytes += size;
+        trimPool(maxPoolBytes);
+    }
+
+    /**
+     * Evicts least recently used images until the cache holds at most {@code cacheBytes} and the
+     * pool at most {@code poolBytes}, e.g. when the system is low on memory.
+     */
+    public synchronized void trim(long cacheBytes, long poolBytes) {
+        trimCache(cacheBytes);
+        trimPool(poolBytes);
+    }
+
+    /** Bytes of images in the cache, pinned or not. */
+    public synchronized long getCacheBytes() {
+        return cacheBytes;
+    }
+
+    /** Bytes of images waiting in the pool. */
+    public synchronized long getPoolBytes() {
+        return poolBytes;
+    }
+
+    /** Number of cached images. */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /** Decode targets handed out by {@link #takeReusable}. */
+    public synchronized long getReuseCount() {
+        return reuses;
+    }
+
+    private void trimCache(long limit) {
+        Iterator<V> it = entries.values().iterator();
+        while (cacheBytes > limit && it.hasNext()) {
+            V eldest = it.next();
+            it.remove();
+            cacheBytes -= sizer.sizeOf(eldest);
+            evictions++;
+            detach(eldest);
+        }
+    }
+
+    private void trimPool(long limit) {
+        while (poolBytes > limit) {
+            V oldest = poolOrder.pollFirst();
+            int size = sizer.sizeOf(oldest);
+            ArrayDeque<V> bucket = pool.get(size);
+            for (Iterator<V> it = bucket.iterator(); it.hasNext(); ) {
+                if (it.next() == oldest) {
+                    it.remove();
+                    break;
+                }
+            }
+            if (bucket.isEmpty()) {
+                pool.remove(size);
+            }
+            poolBytes -= size;
+            recycler.recycle(oldest);
+        }
+    }
+
+    private void detach(V value) {
+        Pin pin = pins.get(value);
+        if (pin != null) {
+            pin.detached = true;
+        } else {
+            offerReusable(value);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.samplebarcodescanner.image;
+
+/** Subsampling arithmetic for decoding images no larger than they are shown. */
+public final class SampleSize {
+    private SampleSize() {
+    }
+
+    /**
+     * The largest power-of-two subsampling factor that still decodes a {@code width} x
+     * {@code height} image to at least {@code targetWidth} x {@code targetHeight}, so the result
+     * can be center-cropped to the target without upscaling.
+     */
+    public static int compute(int width, int height, int targetWidth, int targetHeight) {
+        if (width <= 0 || height <= 0 || targetWidth <= 0 || targetHeight <= 0) {
+            throw new IllegalArgumentException("sizes must be positive: " + width + "x" + height
+                    + " to " + targetWidth + "x" + targetHeight);
+        }
+        int sample = 1;
+        while (width / (sample * 2) >= targetWidth && height / (sample * 2) >= targetHeight) {
+            sample *= 2;
+        }
+        return sample;
+    }
+
+    /** Pixels of one side after subsampling by {@code sample}, rounded up as decoders do. */
+    public static int sampledSize(int size, int sample) {
+        return (size + sample - 1) / sample;
+    }
+
+    /** Bytes a decode of {@code width} x {@code height} subsampled by {@code sample} needs. */
+    public static int decodedBytes(int width, int height, int sample, int bytesPerPixel) {
+        long bytes = (long) sampledSize(width, sample) * sampledSize(height, sample) * bytesPerPixel;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("decoded image too large: " + bytes + " bytes");
+        }
+        return (int) bytes;
+    }
+}
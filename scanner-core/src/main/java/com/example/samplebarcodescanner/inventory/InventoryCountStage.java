@@ -0,0 +1,153 @@
+package com.example.samplebarcodescanner.inventory;
+
+import com.example.samplebarcodescanner.pipeline.TrackStage;
+import com.example.samplebarcodescanner.tracking.Track;
+
+import java.util.List;
+
+/**
+ * Counts each physical label once into an {@link InventoryTally} as the camera sweeps past.
+ * <p>
+ * A track is counted on the frame it becomes confirmed, so the many frames a label stays in view
+ * add nothing. The tracker can still lose a label for a moment, through motion blur or
+ * occlusion, and start a new track for it; a new track with the same value that confirms within
+ * {@code reacquireNanos} of a lost one, close to where that one was last seen, is taken to be the
+ * same label and is not counted again. A track only counts as lost once the tracker has dropped
+ * it, and is forgotten if it is matched again first, so two identical labels side by side are
+ * still two.
+ * <p>
+ * Confined to the tracking thread; the tally may be read from anywhere.
+ */
+public final class InventoryCountStage implements TrackStage {
+    public static final int DEFAULT_CONFIRM_HITS = 3;
+    public static final long DEFAULT_REACQUIRE_NANOS = 1_000_000_000L;
+    // How far a lost label may have moved, in multiples of its larger side.
+    private static final float REACQUIRE_DISTANCE = 1.5f;
+    private static final int LOST_CAPACITY = 64;
+
+    private final InventoryTally tally;
+    private final int confirmHits;
+    private final long reacquireNanos;
+
+    // Recently unmatched counted tracks, as a ring: where and when each was last seen, and the
+    // last frame the tracker still reported it. Free slots have a null value.
+    private final int[] lostIds = new int[LOST_CAPACITY];
+    private final String[] lostValues = new String[LOST_CAPACITY];
+    private final float[] lostCenters = new float[LOST_CAPACITY * 2];
+    private final float[] lostSizes = new float[LOST_CAPACITY];
+    private final long[] lostAt = new long[LOST_CAPACITY];
+    private final long[] lostFrames = new long[LOST_CAPACITY];
+    private int lostNext;
+    private long frame;
+
+    private boolean counting = true;
+    private long reacquired;
+
+    public InventoryCountStage(InventoryTally tally) {
+        this(tally, DEFAULT_CONFIRM_HITS, DEFAULT_REACQUIRE_NANOS);
+    }
+
+    public InventoryCountStage(InventoryTally tally, int confirmHits, long reacquireNanos) {
+        if (confirmHits < 1) {
+            throw new IllegalArgumentException("confirmHits must be at least 1: " + confirmHits);
+        }
+        this.tally = tally;
+        this.confirmHits = confirmHits;
+        this.reacquireNanos = reacquireNanos;
+    }
+
+    /** Pauses or resumes counting; labels confirmed while paused are never counted. */
+    public void setCounting(boolean counting) {
+        this.counting = counting;
+    }
+
+    public boolean isCounting() {
+        return counting;
+    }
+
+    /** Confirmed tracks not counted because they were a lost label found again. */
+    public long getReacquiredCount() {
+        return reacquired;
+    }
+
+    @Override
+    public void onTracks(List<Track> tracks, long timestampNanos) {
+        frame++;
+        // Lost entries first, so a confirmation below only sees tracks dropped before this frame.
+        for (int i = 0, n = tracks.size(); i < n; i++) {
+            Track track = tracks.get(i);
+            if (track.getHits() < confirmHits) {
+                continue;
+            }
+            if (track.getMissedFrames() > 0) {
+                rememberLost(track);
+            } else {
+                forgetLost(track.getId());
+            }
+        }
+        for (int i = 0, n = tracks.size(); i < n; i++) {
+            Track track = tracks.get(i);
+            if (track.getMissedFrames() == 0 && track.getHits() == confirmHits && counting) {
+                // Hits only grow on matched frames, so this holds on exactly one of them.
+                if (takeLost(track, timestampNanos)) {
+                    reacquired++;
+                } else {
+                    tally.add(track.getValue());
+                }
+            }
+        }
+    }
+
+    private void rememberLost(Track track) {
+        int slot = findLost(track.getId());
+        if (slot < 0) {
+            slot = lostNext;
+            lostNext = (lostNext + 1) % LOST_CAPACITY;
+            lostIds[slot] = track.getId();
+            lostValues[slot] = track.getValue();
+        }
+        lostCenters[slot * 2] = (track.getLeft() + track.getRight()) * 0.5f;
+        lostCenters[slot * 2 + 1] = (track.getTop() + track.getBottom()) * 0.5f;
+        lostSizes[slot] = Math.max(track.getRight() - track.getLeft(), track.getBottom() - track.getTop());
+        // The track's last sighting, not this frame: it has been predicted, not seen, since.
+        lostAt[slot] = track.getLastSeenNanos();
+        lostFrames[slot] = frame;
+    }
+
+    private void forgetLost(int trackId) {
+        int slot = findLost(trackId);
+        if (slot >= 0) {
+            lostValues[slot] = null;
+        }
+    }
+
+    private int findLost(int trackId) {
+        for (int i = 0; i < LOST_CAPACITY; i++) {
+            if (lostValues[i] != null && lostIds[i] == trackId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Finds and forgets a lost track that {@code track} is a reacquisition of. */
+    private boolean takeLost(Track track, long timestampNanos) {
+        float cx = (track.getLeft() + track.getRight()) * 0.5f;
+        float cy = (track.getTop() + track.getBottom()) * 0.5f;
+        for (int i = 0; i < LOST_CAPACITY; i++) {
+            // Still reported this frame means the tracker has not dropped it yet.
+            if (lostValues[i] == null || lostFrames[i] == frame
+                    || timestampNanos - lostAt[i] > reacquireNanos || !lostValues[i].equals(track.getValue())) {
+                continue;
+            }
+            float reach = REACQUIRE_DISTANCE * Math.max(lostSizes[i], 1f);
+            float dx = cx - lostCenters[i * 2];
+            float dy = cy - lostCenters[i * 2 + 1];
+            if (dx * dx + dy * dy <= reach * reach) {
+                lostValues[i] = null;
+                return true;
+            }
+        }
+        return false;
+    }
+}
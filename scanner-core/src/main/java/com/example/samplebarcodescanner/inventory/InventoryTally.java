@@ -0,0 +1,195 @@
+package com.example.samplebarcodescanner.inventory;
+
+import com.example.samplebarcodescanner.util.Csv;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Units counted per barcode value during a stocktake.
+ * <p>
+ * Counting never takes a lock: values map to {@link LongAdder}s in a {@link ConcurrentHashMap},
+ * so repeat reads of a popular value from several threads increment separate cells instead of
+ * contending on one. Readers get a sorted {@link Snapshot}, rebuilt only when something was
+ * counted since the last one, or stream the whole tally with {@link #export} without copying it.
+ * <p>
+ * Thread-safe. Snapshots and exports taken while counting continues are consistent per value but
+ * not across values.
+ */
+public final class InventoryTally {
+
+    /** The tally at one moment, most counted value first. Immutable. */
+    public static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(new String[0], new long[0], 0, 0);
+
+        private final String[] values;
+        private final long[] counts;
+        private final long total;
+        // Modifications of the tally counted before this snapshot was taken.
+        private final long modifications;
+
+        Snapshot(String[] values, long[] counts, long total, long modifications) {
+            this.values = values;
+            this.counts = counts;
+            this.total = total;
+            this.modifications = modifications;
+        }
+
+        /** Number of distinct values. */
+        public int size() {
+            return values.length;
+        }
+
+        public String getValue(int index) {
+            return values[index];
+        }
+
+        public long getCount(int index) {
+            return counts[index];
+        }
+
+        /** Units counted over all values. */
+        public long getTotal() {
+            return total;
+        }
+    }
+
+    private final ConcurrentHashMap<String, LongAdder> counts = new ConcurrentHashMap<>();
+    private final LongAdder total = new LongAdder();
+    // Bumped by every add and clear, after the change; a snapshot is current while it is unchanged.
+    // Totals alone cannot tell, since a negative correction can bring them back.
+    private final LongAdder modifications = new LongAdder();
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    /** Counts one unit of {@code value}. */
+    public void add(String value) {
+        add(value, 1);
+    }
+
+    /** Counts {@code units} of {@code value}; negative units correct an over-count. */
+    public void add(String value, long units) {
+        LongAdder count = counts.get(value);
+        if (count == null) {
+            count = counts.computeIfAbsent(value, v -> new LongAdder());
+        }
+        count.add(units);
+        total.add(units);
+        modifications.increment();
+    }
+
+    /** Units counted for {@code value}. */
+    public long get(String value) {
+        LongAdder count = counts.get(value);
+        return count == null ? 0 : count.sum();
+    }
+
+    /** Number of distinct values counted. */
+    public int getDistinctCount() {
+        return counts.size();
+    }
+
+    public long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * The tally, most counted first and ties by value. Returns the previous snapshot when
+     * nothing has been counted since, so polling from the UI costs little while the count is idle.
+     */
+    public Snapshot snapshot() {
+        Snapshot last = snapshot;
+        // Read before the counts, so a change made while they are copied triggers the next rebuild.
+        long currentModifications = modifications.sum();
+        if (currentModifications == last.modifications) {
+            return last;
+        }
+        // Sized for values added meanwhile too; trimmed below.
+        int capacity = counts.size() + 16;
+        String[] values = new String[capacity];
+        long[] snapshotCounts = new long[capacity];
+        int size = 0;
+        long sum = 0;
+        for (Map.Entry<String, LongAdder> entry : counts.entrySet()) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+                snapshotCounts = Arrays.copyOf(snapshotCounts, size * 2);
+            }
+            values[size] = entry.getKey();
+            snapshotCounts[size] = entry.getValue().sum();
+            sum += snapshotCounts[size];
+            size++;
+        }
+        values = Arrays.copyOf(values, size);
+        snapshotCounts = Arrays.copyOf(snapshotCounts, size);
+        sort(values, snapshotCounts, 0, size - 1);
+        Snapshot next = new Snapshot(values, snapshotCounts, sum, currentModifications);
+        snapshot = next;
+        return next;
+    }
+
+    /**
+     * Writes the tally as CSV with a {@code barcode,count} header, one value per line, in no
+     * particular order. Streams straight from the live tally.
+     */
+    public void export(Appendable out) throws IOException {
+        out.append("barcode,count\n");
+        for (Map.Entry<String, LongAdder> entry : counts.entrySet()) {
+            Csv.appendField(out, entry.getKey());
+            out.append(',').append(Long.toString(entry.getValue().sum())).append('\n');
+        }
+    }
+
+    /** Forgets every count; counts made concurrently may survive. */
+    public void clear() {
+        counts.clear();
+        total.reset();
+        modifications.increment();
+        snapshot = Snapshot.EMPTY;
+    }
+
+    /** Sorts both arrays by count descending, then value. */
+    private static void sort(String[] values, long[] counts, int lo, int hi) {
+        while (lo < hi) {
+            if (hi - lo < 16) {
+                for (int i = lo + 1; i <= hi; i++) {
+                    for (int j = i; j > lo && before(values, counts, j, j - 1); j--) {
+                        swap(values, counts, j, j - 1);
+                    }
+                }
+                return;
+            }
+            swap(values, counts, lo + (hi - lo) / 2, hi);
+            int store = lo;
+            for (int i = lo; i < hi; i++) {
+                if (before(values, counts, i, hi)) {
+                    swap(values, counts, i, store++);
+                }
+            }
+            swap(values, counts, store, hi);
+            // Recurse into the smaller half so the stack stays logarithmic.
+            if (store - lo < hi - store) {
+                sort(values, counts, lo, store - 1);
+                lo = store + 1;
+            } else {
+                sort(values, counts, store + 1, hi);
+                hi = store - 1;
+            }
+        }
+    }
+
+    private static boolean before(String[] values, long[] counts, int a, int b) {
+        return counts[a] > counts[b] || (counts[a] == counts[b] && values[a].compareTo(values[b]) < 0);
+    }
+
+    private static void swap(String[] values, long[] counts, int a, int b) {
+        String value = values[a];
+        values[a] = values[b];
+        values[b] = value;
+        long count = counts[a];
+        counts[a] = counts[b];
+        counts[b] = count;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.samplebarcodescanner.journal;
+
+import com.example.samplebarcodescanner.pipeline.TrackStage;
+import com.example.samplebarcodescanner.tracking.Track;
+
+import java.util.List;
+
+/**
+ * Journals each track once, on the frame it becomes confirmed: matched in {@code confirmHits}
+ * frames. Single glimpses never reach the journal, and a label that stays in view is recorded
+ * once rather than once per frame.
+ */
+public final class ConfirmedReadStage implements TrackStage {
+    public static final int DEFAULT_CONFIRM_HITS = 3;
+
+    /** Wall-clock source for journal timestamps; injectable so tests control time. */
+    public interface WallClock {
+        WallClock SYSTEM = System::currentTimeMillis;
+
+        long currentTimeMillis();
+    }
+
+    private final ScanJournal journal;
+    private final int confirmHits;
+    private final WallClock wallClock;
+    private long rejectedCount;
+
+    public ConfirmedReadStage(ScanJournal journal) {
+        this(journal, DEFAULT_CONFIRM_HITS, WallClock.SYSTEM);
+    }
+
+    public ConfirmedReadStage(ScanJournal journal, int confirmHits, WallClock wallClock) {
+        if (confirmHits < 1) {
+            throw new IllegalArgumentException("confirmHits must be at least 1: " + confirmHits);
+        }
+        this.journal = journal;
+        this.confirmHits = confirmHits;
+        this.wallClock = wallClock;
+    }
+
+    @Override
+    public void onTracks(List<Track> tracks, long timestampNanos) {
+        long now = -1;
+        for (int i = 0, n = tracks.size(); i < n; i++) {
+            Track track = tracks.get(i);
+            // Hits only grow on matched frames, so this holds on exactly one of them.
+            if (track.getHits() != confirmHits || track.getMissedFrames() != 0) {
+                continue;
+            }
+            if (now < 0) {
+                now = wallClock.currentTimeMillis();
+            }
+            if (journal.append(now, track.getId(), track.getFormat(), track.getValue()) == ScanJournal.REJECTED) {
+                rejectedCount++;
+            }
+        }
+    }
+
+    /** Confirmed reads the journal could not queue. */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+}
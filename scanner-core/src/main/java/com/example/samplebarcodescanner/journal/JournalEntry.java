@@ -0,0 +1,52 @@
+package com.example.samplebarcodescanner.journal;
+
+/**
+ * One confirmed barcode read, as stored in a {@link ScanJournal}.
+ */
+public final class JournalEntry {
+    private final long sequence;
+    private final long timestampMillis;
+    private final int trackId;
+    private final int format;
+    private final String value;
+
+    /**
+     * @param sequence        position in the journal, assigned by {@link ScanJournal#append}
+     * @param timestampMillis wall-clock time of the read, in ms since the epoch
+     */
+    public JournalEntry(long sequence, long timestampMillis, int trackId, int format, String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value == null");
+        }
+        this.sequence = sequence;
+        this.timestampMillis = timestampMillis;
+        this.trackId = trackId;
+        this.format = format;
+        this.value = value;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public int getTrackId() {
+        return trackId;
+    }
+
+    public int getFormat() {
+        return format;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "JournalEntry(#" + sequence + " track " + trackId + " " + value + ")";
+    }
+}
@@ -0,0 +1,322 @@
+package com.example.samplebarcodescanner.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+/**
+ * One memory-mapped file of a {@link ScanJournal}.
+ * <pre>
+ * segment := MAGIC:int32 VERSION:int32 record* zero*
+ * record  := length:int32 crc:int32 payload[length]
+ * payload := sequence:int64 timestampMillis:int64 trackId:int32 format:int32 utf8[length - 24]
+ * </pre>
+ * The CRC-32 covers the payload. A segment is created at its full size, so the file is
+ * zero-filled past the last record and a zero length marks the end. Sequences strictly increase
+ * within a segment. Reading stops at the first record that is cut off, fails its checksum or does
+ * not advance the sequence: that is where a write was torn by a crash, and everything after it is
+ * discarded. Integers are big-endian.
+ * <p>
+ * The file is named after the first sequence it was created for, zero-padded so names sort in
+ * journal order. Compaction keeps that name when it rewrites the segment, even though the
+ * rewritten file may start at a later sequence.
+ * <p>
+ * Only the journal's writer thread appends. Readers on other threads work on duplicates of the
+ * mapping and only look at records the writer has made durable.
+ */
+final class JournalSegment {
+    static final int MAGIC = 0x534A4E31; // "SJN1"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_HEADER_SIZE = 8;
+    static final int FIXED_PAYLOAD_SIZE = 24;
+    static final String SUFFIX = ".seg";
+    static final String TEMP_SUFFIX = ".tmp";
+
+    final File file;
+    private final RandomAccessFile raf;
+    private final MappedByteBuffer buffer;
+    private final CRC32 crc = new CRC32();
+    private byte[] scratch = new byte[256];
+    private int position;
+    private long firstSequence = -1;
+    private volatile long lastSequence = -1;
+    private int count;
+    private boolean tornTail;
+
+    private JournalSegment(File file, RandomAccessFile raf, MappedByteBuffer buffer) {
+        this.file = file;
+        this.raf = raf;
+        this.buffer = buffer;
+    }
+
+    static File fileFor(File directory, long baseSequence) {
+        return new File(directory, String.format(Locale.ROOT, "%020d", baseSequence) + SUFFIX);
+    }
+
+    /** Space one record with a {@code valueBytes}-byte value takes in a segment. */
+    static int recordSize(int valueBytes) {
+        return RECORD_HEADER_SIZE + FIXED_PAYLOAD_SIZE + valueBytes;
+    }
+
+    /** Creates an empty writable segment of exactly {@code size} bytes. */
+    static JournalSegment create(File file, int size) throws IOException {
+        if (!file.createNewFile()) {
+            throw new IOException("segment already exists: " + file);
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(size);
+            JournalSegment segment = new JournalSegment(file, raf,
+                    raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size));
+            segment.buffer.putInt(0, MAGIC);
+            segment.buffer.putInt(4, VERSION);
+            segment.position = HEADER_SIZE;
+            return segment;
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Maps an existing segment and finds its last intact record. A writable segment also has
+     * everything after that record zeroed, so a torn write can never be mistaken for a record
+     * once new records are appended in front of it.
+     */
+    static JournalSegment open(File file, boolean writable) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, writable ? "rw" : "r");
+        try {
+            long length = raf.length();
+            if (length < HEADER_SIZE || length > Integer.MAX_VALUE) {
+                throw new IOException("not a journal segment: " + file + " (" + length + " bytes)");
+            }
+            JournalSegment segment = new JournalSegment(file, raf, raf.getChannel().map(
+                    writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, length));
+            if (segment.buffer.getInt(0) != MAGIC || segment.buffer.getInt(4) != VERSION) {
+                throw new IOException("not a journal segment: " + file);
+            }
+            segment.recover(writable);
+            return segment;
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    private void recover(boolean writable) {
+        int pos = HEADER_SIZE;
+        int end;
+        long previous = Long.MIN_VALUE;
+        while ((end = recordEnd(buffer, pos, previous)) > 0) {
+            previous = buffer.getLong(pos + RECORD_HEADER_SIZE);
+            if (firstSequence < 0) {
+                firstSequence = previous;
+            }
+            count++;
+            pos = end;
+        }
+        position = pos;
+        lastSequence = firstSequence < 0 ? -1 : previous;
+        int limit = buffer.capacity();
+        for (int i = pos; i < limit && !tornTail; i++) {
+            tornTail = buffer.get(i) != 0;
+        }
+        if (writable && tornTail) {
+            for (int i = pos; i < limit; i++) {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.force();
+        }
+    }
+
+    /**
+     * End of the record at {@code pos}, or -1 if there is none or it is not intact and in
+     * sequence after {@code previous}.
+     */
+    private int recordEnd(ByteBuffer in, int pos, long previous) {
+        int limit = in.capacity();
+        if (pos + RECORD_HEADER_SIZE + FIXED_PAYLOAD_SIZE > limit) {
+            return -1;
+        }
+        int length = in.getInt(pos);
+        if (length < FIXED_PAYLOAD_SIZE || length > limit - pos - RECORD_HEADER_SIZE) {
+            return -1;
+        }
+        int payload = pos + RECORD_HEADER_SIZE;
+        if (in.getLong(payload) <= previous || checksum(in, payload, length) != in.getInt(pos + 4)) {
+            return -1;
+        }
+        return payload + length;
+    }
+
+    private int checksum(ByteBuffer in, int offset, int length) {
+        // CRC32.update(ByteBuffer) needs API 26, so go through a reusable array.
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        ByteBuffer view = in.duplicate();
+        view.position(offset);
+        view.get(scratch, 0, length);
+        crc.reset();
+        crc.update(scratch, 0, length);
+        return (int) crc.getValue();
+    }
+
+    /** Appends a record, or returns false if it does not fit. Writer thread only. */
+    boolean append(long sequence, long timestampMillis, int trackId, int format, byte[] value) {
+        int length = FIXED_PAYLOAD_SIZE + value.length;
+        if (position + RECORD_HEADER_SIZE + length > buffer.capacity()) {
+            return false;
+        }
+        int payload = position + RECORD_HEADER_SIZE;
+        buffer.putLong(payload, sequence);
+        buffer.putLong(payload + 8, timestampMillis);
+        buffer.putInt(payload + 16, trackId);
+        buffer.putInt(payload + 20, format);
+        ByteBuffer view = buffer.duplicate();
+        view.position(payload + FIXED_PAYLOAD_SIZE);
+        view.put(value);
+        buffer.putInt(position + 4, checksum(buffer, payload, length));
+        // The length goes last: until it is written, the record reads as the end of the segment.
+        buffer.putInt(position, length);
+        position = payload + length;
+        if (firstSequence < 0) {
+            firstSequence = sequence;
+        }
+        lastSequence = sequence;
+        count++;
+        return true;
+    }
+
+    /**
+     * Copies every record with a sequence of at least {@code fromSequence} from {@code source},
+     * returning how many. The caller has checked they fit.
+     */
+    int copyFrom(JournalSegment source, long fromSequence) {
+        ByteBuffer in = source.buffer.duplicate();
+        int copied = 0;
+        for (int pos = HEADER_SIZE, end = source.position; pos < end; ) {
+            int recordEnd = pos + RECORD_HEADER_SIZE + in.getInt(pos);
+            long sequence = in.getLong(pos + RECORD_HEADER_SIZE);
+            if (sequence >= fromSequence) {
+                in.limit(recordEnd);
+                in.position(pos);
+                ByteBuffer out = buffer.duplicate();
+                out.position(position);
+                out.put(in);
+                in.limit(in.capacity());
+                position += recordEnd - pos;
+                if (firstSequence < 0) {
+                    firstSequence = sequence;
+                }
+                lastSequence = sequence;
+                count++;
+                copied++;
+            }
+            pos = recordEnd;
+        }
+        return copied;
+    }
+
+    /** Bytes {@link #copyFrom} would copy for {@code fromSequence}. */
+    int bytesFrom(long fromSequence) {
+        int bytes = 0;
+        for (int pos = HEADER_SIZE; pos < position; ) {
+            int recordEnd = pos + RECORD_HEADER_SIZE + buffer.getInt(pos);
+            if (buffer.getLong(pos + RECORD_HEADER_SIZE) >= fromSequence) {
+                bytes += recordEnd - pos;
+            }
+            pos = recordEnd;
+        }
+        return bytes;
+    }
+
+    /**
+     * Adds records with sequences in {@code [fromSequence, toSequence]} to {@code out}, up to
+     * {@code max} of them. Returns how many were added. Safe from any thread for records the
+     * writer has made durable.
+     */
+    int read(long fromSequence, long toSequence, int max, List<JournalEntry> out) {
+        if (max <= 0 || lastSequence < fromSequence || firstSequence > toSequence) {
+            return 0;
+        }
+        ByteBuffer in = buffer.duplicate();
+        int added = 0;
+        int pos = HEADER_SIZE;
+        while (added < max && pos + RECORD_HEADER_SIZE <= in.capacity()) {
+            int length = in.getInt(pos);
+            if (length == 0) {
+                break;
+            }
+            int payload = pos + RECORD_HEADER_SIZE;
+            long sequence = in.getLong(payload);
+            if (sequence > toSequence) {
+                break;
+            }
+            if (sequence >= fromSequence) {
+                byte[] value = new byte[length - FIXED_PAYLOAD_SIZE];
+                in.position(payload + FIXED_PAYLOAD_SIZE);
+                in.get(value);
+                out.add(new JournalEntry(sequence, in.getLong(payload + 8), in.getInt(payload + 16),
+                        in.getInt(payload + 20), new String(value, StandardCharsets.UTF_8)));
+                added++;
+            }
+            pos = payload + length;
+        }
+        return added;
+    }
+
+    /** Flushes appended records to storage. */
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Forces the segment, cuts the file down to its records and remaps it read-only. Returns the
+     * sealed segment; this one must not be used afterwards.
+     */
+    JournalSegment seal() throws IOException {
+        buffer.force();
+        raf.setLength(position);
+        raf.close();
+        return open(file, false);
+    }
+
+    void close() throws IOException {
+        raf.close();
+    }
+
+    /** Whether recovery found bytes after the last intact record. */
+    boolean hadTornTail() {
+        return tornTail;
+    }
+
+    long getFirstSequence() {
+        return firstSequence;
+    }
+
+    long getLastSequence() {
+        return lastSequence;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    /** Bytes used by the header and records. */
+    int getPosition() {
+        return position;
+    }
+
+    int getCapacity() {
+        return buffer.capacity();
+    }
+}
@@ -0,0 +1,517 @@
+package com.example.samplebarcodescanner.journal;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Append-only, crash-safe log of confirmed barcode reads, stored as memory-mapped
+ * {@link JournalSegment}s in one directory.
+ * <p>
+ * {@link #append} never blocks and never touches storage: it assigns the next sequence number and
+ * queues the read for a dedicated writer thread. The writer drains everything queued, writes it
+ * into the active segment and forces the segment once for the whole batch (group commit), so under
+ * load one fsync covers many reads. {@link #awaitDurable} waits for a sequence to be on storage.
+ * <p>
+ * When the active segment is full, the writer seals it (cuts the file to its records) and starts a
+ * new one. Reads that are no longer needed, for example once they have been uploaded, are
+ * released with {@link #discardBefore}; the writer records the discard point, then deletes sealed
+ * segments that hold nothing newer and rewrites the oldest ones, merged where they fit, without
+ * the discarded reads.
+ * <p>
+ * {@link #open} recovers whatever a crash left: a torn final record is dropped, a half-finished
+ * compaction is completed, and appending resumes after the last intact read. Recovery and
+ * segment creation do file I/O, so open the journal off the main thread.
+ * <p>
+ * {@link #append}, {@link #read} and {@link #awaitDurable} are safe from any thread.
+ */
+public final class ScanJournal implements Closeable {
+    public static final int DEFAULT_SEGMENT_SIZE = 4 << 20;
+    public static final int DEFAULT_QUEUE_CAPACITY = 16384;
+    /** Returned by {@link #append} when the queue is full and the read was dropped. */
+    public static final long REJECTED = -1;
+
+    private static final long IDLE_POLL_MILLIS = 100;
+    private static final String DISCARD_FILE = "discard";
+
+    private final File directory;
+    private final int segmentSize;
+    private final int maxValueBytes;
+    private final ArrayBlockingQueue<JournalEntry> queue;
+    private final Thread writer;
+
+    private final Object appendLock = new Object();
+    private long nextSequence; // guarded by appendLock
+
+    private final Object durableLock = new Object();
+    private volatile long durableSequence;
+    private volatile IOException failure;
+    private volatile boolean closed;
+    private volatile long discardBefore;
+    // Writer thread only.
+    private long persistedDiscardBefore;
+    private long compactedDiscardBefore = -1;
+    private boolean sealedChanged;
+
+    // Guards the segment list. Readers hold it while they read; the writer takes it exclusively
+    // only to add, replace or drop segments.
+    private final ReentrantReadWriteLock segmentsLock = new ReentrantReadWriteLock();
+    private final List<JournalSegment> sealed = new ArrayList<>();
+    private JournalSegment active;
+
+    private volatile long commitCount;
+    private volatile long writtenCount;
+    private volatile long rejectedCount;
+    private volatile long compactionCount;
+    private final boolean recoveredTornTail;
+
+    private ScanJournal(Builder builder) throws IOException {
+        directory = builder.directory;
+        segmentSize = builder.segmentSize;
+        maxValueBytes = segmentSize - JournalSegment.HEADER_SIZE - JournalSegment.recordSize(0);
+        queue = new ArrayBlockingQueue<>(builder.queueCapacity);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("cannot create " + directory);
+        }
+        recoveredTornTail = recover();
+        writer = new Thread(this::writeLoop, "scan-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public static Builder builder(File directory) {
+        return new Builder(directory);
+    }
+
+    /** Opens the journal in {@code directory} with default settings, creating it if needed. */
+    public static ScanJournal open(File directory) throws IOException {
+        return builder(directory).open();
+    }
+
+    /** Loads existing segments, finishes interrupted compactions and picks the active segment. */
+    private boolean recover() throws IOException {
+        File[] temps = directory.listFiles((dir, name) -> name.endsWith(JournalSegment.TEMP_SUFFIX));
+        for (File temp : temps != null ? temps : new File[0]) {
+            delete(temp);
+        }
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(JournalSegment.SUFFIX));
+        if (files == null) {
+            throw new IOException("cannot list " + directory);
+        }
+        Arrays.sort(files);
+
+        boolean torn = false;
+        long last = 0;
+        for (int i = 0; i < files.length; i++) {
+            boolean newest = i == files.length - 1;
+            JournalSegment segment = JournalSegment.open(files[i], newest);
+            if (segment.getCount() > 0 && segment.getLastSequence() <= last) {
+                // Compaction merged this segment into an earlier one but crashed before
+                // deleting it.
+                segment.close();
+                delete(files[i]);
+                continue;
+            }
+            torn |= segment.hadTornTail();
+            if (segment.getCount() > 0) {
+                last = segment.getLastSequence();
+            }
+            if (newest) {
+                active = segment;
+            } else {
+                sealed.add(segment);
+            }
+        }
+        nextSequence = last + 1;
+        durableSequence = last;
+        File discardFile = new File(directory, DISCARD_FILE);
+        if (discardFile.exists()) {
+            try (DataInputStream in = new DataInputStream(new FileInputStream(discardFile))) {
+                discardBefore = persistedDiscardBefore = in.readLong();
+            }
+        }
+        if (active == null) {
+            active = JournalSegment.create(JournalSegment.fileFor(directory, nextSequence), segmentSize);
+        }
+        return torn;
+    }
+
+    /**
+     * Queues one read and returns its sequence number, or {@link #REJECTED} if the writer has
+     * fallen so far behind that the queue is full. Never blocks on I/O.
+     *
+     * @throws IllegalStateException if the journal is closed or its writer failed
+     */
+    public long append(long timestampMillis, int trackId, int format, String value) {
+        if (value.length() * 3 > maxValueBytes
+                && value.getBytes(StandardCharsets.UTF_8).length > maxValueBytes) {
+            throw new IllegalArgumentException("value longer than a segment: " + value.length() + " chars");
+        }
+        synchronized (appendLock) {
+            if (closed) {
+                throw new IllegalStateException("journal is closed");
+            }
+            if (failure != null) {
+                throw new IllegalStateException("journal writer failed", failure);
+            }
+            long sequence = nextSequence;
+            if (!queue.offer(new JournalEntry(sequence, timestampMillis, trackId, format, value))) {
+                rejectedCount++;
+                return REJECTED;
+            }
+            nextSequence++;
+            return sequence;
+        }
+    }
+
+    /**
+     * Waits until every read up to {@code sequence} is on storage. Returns false on timeout.
+     *
+     * @throws IOException if the writer failed before getting there
+     */
+    public boolean awaitDurable(long sequence, long timeout, TimeUnit unit) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (durableLock) {
+            while (durableSequence < sequence) {
+                if (failure != null) {
+                    throw new IOException("journal writer failed", failure);
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(durableLock, remaining);
+            }
+        }
+        return true;
+    }
+
+    /** Highest sequence on storage; every read up to it is durable. 0 if there is none. */
+    public long getDurableSequence() {
+        return durableSequence;
+    }
+
+    /**
+     * Adds durable reads with a sequence of at least {@code fromSequence} to {@code out}, oldest
+     * first, up to {@code max} of them. Returns how many were added; fewer than {@code max} means
+     * there are no more for now.
+     */
+    public int read(long fromSequence, int max, List<JournalEntry> out) {
+        long to = durableSequence;
+        long from = Math.max(fromSequence, discardBefore);
+        int added = 0;
+        segmentsLock.readLock().lock();
+        try {
+            for (int i = 0; i < sealed.size() && added < max; i++) {
+                added += sealed.get(i).read(from, to, max - added, out);
+            }
+            if (added < max) {
+                added += active.read(from, to, max - added, out);
+            }
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+        return added;
+    }
+
+    /**
+     * Releases every read before {@code sequence}: it is no longer returned by {@link #read} and
+     * its storage is reclaimed by later compactions. Never moves backwards. The writer persists
+     * the new discard point within one idle poll; a crash before that makes the released reads
+     * readable again after {@link #open}, never the reverse.
+     */
+    public void discardBefore(long sequence) {
+        synchronized (appendLock) {
+            if (sequence > discardBefore) {
+                discardBefore = sequence;
+            }
+        }
+    }
+
+    /** Batches forced to storage. */
+    public long getCommitCount() {
+        return commitCount;
+    }
+
+    /** Reads written by the writer thread. */
+    public long getWrittenCount() {
+        return writtenCount;
+    }
+
+    /** Reads dropped by {@link #append} because the queue was full. */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /** Times the writer rewrote or dropped sealed segments. */
+    public long getCompactionCount() {
+        return compactionCount;
+    }
+
+    /** Whether {@link #open} found and dropped a torn record. */
+    public boolean recoveredTornTail() {
+        return recoveredTornTail;
+    }
+
+    /** Sealed segments plus the active one. */
+    public int getSegmentCount() {
+        segmentsLock.readLock().lock();
+        try {
+            return sealed.size() + 1;
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stops accepting reads, waits for the writer to make everything queued durable and closes
+     * the segments. The active segment stays at full size and is reopened as active.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        segmentsLock.writeLock().lock();
+        try {
+            for (JournalSegment segment : sealed) {
+                segment.close();
+            }
+            active.close();
+        } finally {
+            segmentsLock.writeLock().unlock();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw new IOException("journal writer failed", failure);
+        }
+    }
+
+    private void writeLoop() {
+        List<JournalEntry> batch = new ArrayList<>();
+        try {
+            while (true) {
+                JournalEntry first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (closed && queue.isEmpty()) {
+                        if (discardBefore != persistedDiscardBefore) {
+                            persistDiscardBefore(discardBefore);
+                        }
+                        return;
+                    }
+                    compact();
+                    continue;
+                }
+                // Everything that queued up during the last force goes into this commit.
+                batch.add(first);
+                queue.drainTo(batch);
+                commit(batch);
+                batch.clear();
+                compact();
+            }
+        } catch (IOException | RuntimeException e) {
+            failure = e instanceof IOException ? (IOException) e : new IOException(e);
+            synchronized (durableLock) {
+                durableLock.notifyAll();
+            }
+        } catch (InterruptedException e) {
+            failure = new IOException("journal writer interrupted", e);
+            synchronized (durableLock) {
+                durableLock.notifyAll();
+            }
+        }
+    }
+
+    private void commit(List<JournalEntry> batch) throws IOException {
+        for (int i = 0, n = batch.size(); i < n; i++) {
+            JournalEntry entry = batch.get(i);
+            byte[] value = entry.getValue().getBytes(StandardCharsets.UTF_8);
+            while (!active.append(entry.getSequence(), entry.getTimestampMillis(), entry.getTrackId(),
+                    entry.getFormat(), value)) {
+                rotate(entry.getSequence());
+            }
+        }
+        active.force();
+        writtenCount += batch.size();
+        commitCount++;
+        synchronized (durableLock) {
+            durableSequence = batch.get(batch.size() - 1).getSequence();
+            durableLock.notifyAll();
+        }
+    }
+
+    /** Seals the active segment and starts a new one for {@code sequence}. */
+    private void rotate(long sequence) throws IOException {
+        JournalSegment next = JournalSegment.create(JournalSegment.fileFor(directory, sequence), segmentSize);
+        // Forced outside the lock, so seal() has nothing left to write while readers wait.
+        active.force();
+        segmentsLock.writeLock().lock();
+        try {
+            // Sealing truncates the file under the old mapping, which readers scan up to its
+            // capacity, so no reader may be inside the segment meanwhile.
+            sealed.add(active.seal());
+            active = next;
+            sealedChanged = true;
+        } finally {
+            segmentsLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops sealed segments with nothing at or after the discard point. Then merges the oldest
+     * sealed segments into one, without their discarded reads, if at least two fit or the oldest
+     * alone would shrink by half.
+     */
+    private void compact() throws IOException {
+        long watermark = discardBefore;
+        if (watermark != persistedDiscardBefore) {
+            persistDiscardBefore(watermark);
+        }
+        if (watermark == compactedDiscardBefore && !sealedChanged) {
+            return;
+        }
+        compactedDiscardBefore = watermark;
+        sealedChanged = false;
+        while (!sealed.isEmpty() && sealed.get(0).getLastSequence() < watermark) {
+            JournalSegment dropped = sealed.get(0);
+            segmentsLock.writeLock().lock();
+            try {
+                sealed.remove(0);
+            } finally {
+                segmentsLock.writeLock().unlock();
+            }
+            dropped.close();
+            delete(dropped.file);
+            compactionCount++;
+        }
+
+        int run = 0;
+        int bytes = JournalSegment.HEADER_SIZE;
+        while (run < sealed.size()) {
+            int kept = sealed.get(run).bytesFrom(watermark);
+            if (bytes + kept > segmentSize) {
+                break;
+            }
+            bytes += kept;
+            run++;
+        }
+        if (run == 0 || (run == 1 && bytes > sealed.get(0).getPosition() / 2)) {
+            return;
+        }
+
+        // Write the merged segment beside the first input, then rename it over that input. A crash
+        // before the rename leaves a temp file that recovery deletes; a crash after it leaves
+        // inputs whose reads the merged segment already holds, which recovery also deletes.
+        JournalSegment first = sealed.get(0);
+        File temp = new File(directory, first.file.getName() + JournalSegment.TEMP_SUFFIX);
+        JournalSegment merged = JournalSegment.create(temp, bytes);
+        for (int i = 0; i < run; i++) {
+            merged.copyFrom(sealed.get(i), watermark);
+        }
+        merged.force();
+        merged.close();
+        if (!temp.renameTo(first.file)) {
+            delete(temp);
+            throw new IOException("cannot rename " + temp + " to " + first.file);
+        }
+        JournalSegment reopened = JournalSegment.open(first.file, false);
+        List<JournalSegment> inputs = new ArrayList<>(sealed.subList(0, run));
+        segmentsLock.writeLock().lock();
+        try {
+            sealed.subList(0, run).clear();
+            if (reopened.getCount() > 0) {
+                sealed.add(0, reopened);
+            }
+        } finally {
+            segmentsLock.writeLock().unlock();
+        }
+        for (int i = 0; i < inputs.size(); i++) {
+            inputs.get(i).close();
+            if (i > 0) {
+                delete(inputs.get(i).file);
+            }
+        }
+        if (reopened.getCount() == 0) {
+            reopened.close();
+            delete(first.file);
+        }
+        compactionCount++;
+        // The merged segment may now fit together with the next one.
+        sealedChanged = true;
+    }
+
+    /** Replaces the discard file atomically, so it always holds a complete discard point. */
+    private void persistDiscardBefore(long sequence) throws IOException {
+        File temp = new File(directory, DISCARD_FILE + JournalSegment.TEMP_SUFFIX);
+        try (RandomAccessFile out = new RandomAccessFile(temp, "rw")) {
+            out.setLength(0);
+            out.writeLong(sequence);
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(new File(directory, DISCARD_FILE))) {
+            throw new IOException("cannot rename " + temp);
+        }
+        persistedDiscardBefore = sequence;
+    }
+
+    private static void delete(File file) throws IOException {
+        if (!file.delete() && file.exists()) {
+            throw new IOException("cannot delete " + file);
+        }
+    }
+
+    public static final class Builder {
+        private final File directory;
+        private int segmentSize = DEFAULT_SEGMENT_SIZE;
+        private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+        private Builder(File directory) {
+            this.directory = directory;
+        }
+
+        /** Size each segment is created at, in bytes. Also bounds the longest value. */
+        public Builder segmentSize(int bytes) {
+            if (bytes < 4096) {
+                throw new IllegalArgumentException("segment size must be at least 4096: " + bytes);
+            }
+            segmentSize = bytes;
+            return this;
+        }
+
+        /** Reads that may wait for the writer before {@link #append} starts rejecting them. */
+        public Builder queueCapacity(int capacity) {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("queue capacity must be positive: " + capacity);
+            }
+            queueCapacity = capacity;
+            return this;
+        }
+
+        public ScanJournal open() throws IOException {
+            return new ScanJournal(this);
+        }
+    }
+}
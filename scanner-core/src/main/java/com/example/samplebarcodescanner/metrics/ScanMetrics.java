@@ -0,0 +1,145 @@
+package com.example.samplebarcodescanner.metrics;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency and frame counters of the live scan path, from frame arrival to the overlay drawing
+ * its result:
+ * <pre>
+ * arrival ─QUEUE─▶ detector start ─DETECT─▶ detector done ─TRACK─▶ tracking done ─DRAW─▶ drawn
+ *    └───────────────────────────────── TOTAL ──────────────────────────────────────────┘
+ * </pre>
+ * Stages and counters are identified by the {@code STAGE_} and {@code COUNTER_} constants.
+ * Recording is lock-free and allocation-free, so it can stay on in production; any thread may
+ * record and read. {@link #writeJson} dumps everything for offline comparison.
+ */
+public final class ScanMetrics {
+    /** Frame admitted to detector start: crop copies and scanner lookup. */
+    public static final int STAGE_QUEUE = 0;
+    /** Detector start to its results arriving on the tracking thread. */
+    public static final int STAGE_DETECT = 1;
+    /** Detector results to the snapshot being published: tracking and the track stages. */
+    public static final int STAGE_TRACK = 2;
+    /** Snapshot published to the overlay drawing it. */
+    public static final int STAGE_DRAW = 3;
+    /** Frame admitted to the overlay drawing its result. */
+    public static final int STAGE_TOTAL = 4;
+    static final int STAGE_COUNT = 5;
+
+    /** Frames delivered by the camera. */
+    public static final int COUNTER_ARRIVED = 0;
+    /** Frames sent to the detector. */
+    public static final int COUNTER_SCANNED = 1;
+    /** Frames refused by the scan scheduler for pacing or in-flight limits. */
+    public static final int COUNTER_DROPPED = 2;
+    /** Frames the motion gate found unchanged, answered with the previous results. */
+    public static final int COUNTER_SKIPPED = 3;
+    /** Frames closed unscanned because they were unusable or failed. */
+    public static final int COUNTER_CLOSED = 4;
+    static final int COUNTER_COUNT = 5;
+
+    private static final String[] STAGE_NAMES = {"queue", "detect", "track", "draw", "total"};
+    private static final String[] COUNTER_NAMES = {"arrived", "scanned", "dropped", "skipped", "closed"};
+
+    private final LatencyHistogram[] stages = new LatencyHistogram[STAGE_COUNT];
+    private final AtomicLongArray counters = new AtomicLongArray(COUNTER_COUNT);
+    private final long startedNanos;
+
+    public ScanMetrics(long nowNanos) {
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            stages[i] = new LatencyHistogram();
+        }
+        startedNanos = nowNanos;
+    }
+
+    /** Records that {@code stage} took from {@code startNanos} to {@code endNanos}. */
+    public void record(int stage, long startNanos, long endNanos) {
+        stages[stage].record(endNanos - startNanos);
+    }
+
+    public void increment(int counter) {
+        counters.incrementAndGet(counter);
+    }
+
+    public LatencyHistogram getStage(int stage) {
+        return stages[stage];
+    }
+
+    public long getCount(int counter) {
+        return counters.get(counter);
+    }
+
+    public static String stageName(int stage) {
+        return STAGE_NAMES[stage];
+    }
+
+    public static String counterName(int counter) {
+        return COUNTER_NAMES[counter];
+    }
+
+    public void reset() {
+        for (LatencyHistogram stage : stages) {
+            stage.reset();
+        }
+        for (int i = 0; i < COUNTER_COUNT; i++) {
+            counters.set(i, 0);
+        }
+    }
+
+    /** A few lines for an on-screen HUD: percentiles per stage in milliseconds, then counters. */
+    public String summary() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            LatencyHistogram stage = stages[i];
+            text.append(String.format(Locale.ROOT, "%-6s p50 %5.1f  p95 %5.1f  p99 %5.1f ms%n", STAGE_NAMES[i],
+                    stage.getPercentileNanos(50) / 1e6, stage.getPercentileNanos(95) / 1e6,
+                    stage.getPercentileNanos(99) / 1e6));
+        }
+        for (int i = 0; i < COUNTER_COUNT; i++) {
+            text.append(i == 0 ? "" : "  ").append(COUNTER_NAMES[i]).append(' ').append(counters.get(i));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Writes everything as one compact JSON object: uptime, counters, and per stage the count,
+     * mean, max, p50/p95/p99 and the non-empty buckets as {@code [upperBoundNanos, count]} pairs.
+     */
+    public void writeJson(Appendable out, long nowNanos) throws IOException {
+        out.append("{\"uptimeNanos\":").append(Long.toString(nowNanos - startedNanos)).append(",\"counters\":{");
+        for (int i = 0; i < COUNTER_COUNT; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append('"').append(COUNTER_NAMES[i]).append("\":").append(Long.toString(counters.get(i)));
+        }
+        out.append("},\"stages\":{");
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            LatencyHistogram stage = stages[i];
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append('"').append(STAGE_NAMES[i]).append("\":{\"count\":").append(Long.toString(stage.getCount()))
+                    .append(",\"meanNanos\":").append(Long.toString(stage.getMeanNanos()))
+                    .append(",\"maxNanos\":").append(Long.toString(stage.getMaxNanos()))
+                    .append(",\"p50Nanos\":").append(Long.toString(stage.getPercentileNanos(50)))
+                    .append(",\"p95Nanos\":").append(Long.toString(stage.getPercentileNanos(95)))
+                    .append(",\"p99Nanos\":").append(Long.toString(stage.getPercentileNanos(99)))
+                    .append(",\"buckets\":[");
+            boolean first = true;
+            for (int b = 0; b < LatencyHistogram.BUCKET_COUNT; b++) {
+                long count = stage.getBucketCount(b);
+                if (count == 0) {
+                    continue;
+                }
+                out.append(first ? "[" : ",[").append(Long.toString(LatencyHistogram.bucketUpperBound(b)))
+                        .append(',').append(Long.toString(count)).append(']');
+                first = false;
+            }
+            out.append("]}");
+        }
+        out.append("}}\n");
+    }
+}
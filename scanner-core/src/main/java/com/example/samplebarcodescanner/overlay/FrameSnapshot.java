@@ -0,0 +1,160 @@
+package com.example.samplebarcodescanner.overlay;
+
+import java.util.Arrays;
+
+/**
+ * Immutable view of every track after one tracking step: what the overlay draws.
+ * <p>
+ * Per-track data is held in parallel arrays indexed {@code 0..size()-1}. Boxes are in upright
+ * analysis-frame pixels; {@link #getFrameWidth()} and {@link #getFrameHeight()} give the frame
+ * they refer to. Instances are built once by the tracking stage and never modified, so they can
+ * be read from any thread without synchronization.
+ */
+public final class FrameSnapshot {
+    public static final FrameSnapshot EMPTY = new Builder(0).build(0, 0, 0, 0);
+
+    private final long sequence;
+    private final long timestampNanos;
+    private final int frameWidth;
+    private final int frameHeight;
+    private final int size;
+    private final int[] trackIds;
+    private final String[] values;
+    private final int[] boxes;
+    private final float[] velocities;
+
+    private FrameSnapshot(Builder builder, long sequence, long timestampNanos, int frameWidth, int frameHeight) {
+        this.sequence = sequence;
+        this.timestampNanos = timestampNanos;
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.size = builder.size;
+        this.trackIds = builder.trackIds;
+        this.values = builder.values;
+        this.boxes = builder.boxes;
+        this.velocities = builder.velocities;
+    }
+
+    /** Monotonically increasing per publisher; later snapshots have larger sequences. */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /** Capture time of the frame the snapshot was tracked from, on the {@code System.nanoTime} clock. */
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    public int getFrameWidth() {
+        return frameWidth;
+    }
+
+    public int getFrameHeight() {
+        return frameHeight;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getTrackId(int index) {
+        return trackIds[index];
+    }
+
+    public String getValue(int index) {
+        return values[index];
+    }
+
+    public int getLeft(int index) {
+        return boxes[index * 4];
+    }
+
+    public int getTop(int index) {
+        return boxes[index * 4 + 1];
+    }
+
+    public int getRight(int index) {
+        return boxes[index * 4 + 2];
+    }
+
+    public int getBottom(int index) {
+        return boxes[index * 4 + 3];
+    }
+
+    /** Estimated horizontal velocity of the box centre, in frame px/s. */
+    public float getVelocityX(int index) {
+        return velocities[index * 2];
+    }
+
+    /** Estimated vertical velocity of the box centre, in frame px/s. */
+    public float getVelocityY(int index) {
+        return velocities[index * 2 + 1];
+    }
+
+    /** Index of the track with the given ID, or -1. */
+    public int indexOf(int trackId) {
+        for (int i = 0; i < size; i++) {
+            if (trackIds[i] == trackId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Collects tracks for one snapshot. A builder is single-use: its arrays are handed to the
+     * snapshot by {@link #build}.
+     */
+    public static final class Builder {
+        private int size;
+        private int[] trackIds;
+        private String[] values;
+        private int[] boxes;
+        private float[] velocities;
+        private boolean built;
+
+        public Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 0);
+            trackIds = new int[capacity];
+            values = new String[capacity];
+            boxes = new int[capacity * 4];
+            velocities = new float[capacity * 2];
+        }
+
+        public Builder add(int trackId, String value, int left, int top, int right, int bottom,
+                           float velocityX, float velocityY) {
+            if (built) {
+                throw new IllegalStateException("snapshot already built");
+            }
+            if (size == trackIds.length) {
+                grow();
+            }
+            trackIds[size] = trackId;
+            values[size] = value;
+            boxes[size * 4] = left;
+            boxes[size * 4 + 1] = top;
+            boxes[size * 4 + 2] = right;
+            boxes[size * 4 + 3] = bottom;
+            velocities[size * 2] = velocityX;
+            velocities[size * 2 + 1] = velocityY;
+            size++;
+            return this;
+        }
+
+        public FrameSnapshot build(long sequence, long timestampNanos, int frameWidth, int frameHeight) {
+            if (built) {
+                throw new IllegalStateException("snapshot already built");
+            }
+            built = true;
+            return new FrameSnapshot(this, sequence, timestampNanos, frameWidth, frameHeight);
+        }
+
+        private void grow() {
+            int capacity = Math.max(4, size * 2);
+            trackIds = Arrays.copyOf(trackIds, capacity);
+            values = Arrays.copyOf(values, capacity);
+            boxes = Arrays.copyOf(boxes, capacity * 4);
+            velocities = Arrays.copyOf(velocities, capacity * 2);
+        }
+    }
+}
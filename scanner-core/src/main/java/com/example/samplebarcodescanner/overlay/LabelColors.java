@@ -0,0 +1,54 @@
+package com.example.samplebarcodescanner.overlay;
+
+/**
+ * Deterministic label colors. A value always maps to the same color, so a label whose state was
+ * evicted, or that is seen again in a later session, comes back looking the same.
+ */
+public final class LabelColors {
+    private static final float MIN_SATURATION = 0.65f;
+    private static final float MIN_BRIGHTNESS = 0.75f;
+
+    private LabelColors() {
+    }
+
+    /** Opaque ARGB color for {@code value}, bright and saturated enough to read over a camera feed. */
+    public static int forValue(String value) {
+        int hash = mix(value.hashCode());
+        float hue = (hash >>> 16) * (360f / 65536f);
+        float saturation = MIN_SATURATION + ((hash >>> 8) & 0xff) * ((1f - MIN_SATURATION) / 255f);
+        float brightness = MIN_BRIGHTNESS + (hash & 0xff) * ((1f - MIN_BRIGHTNESS) / 255f);
+        return hsvToArgb(hue, saturation, brightness);
+    }
+
+    /** Same conversion as {@code android.graphics.Color.HSVToColor}, without the Android dependency. */
+    static int hsvToArgb(float hue, float saturation, float brightness) {
+        float h = (hue % 360f) / 60f;
+        int sector = (int) h;
+        float fraction = h - sector;
+        float p = brightness * (1f - saturation);
+        float q = brightness * (1f - saturation * fraction);
+        float t = brightness * (1f - saturation * (1f - fraction));
+        float r;
+        float g;
+        float b;
+        switch (sector) {
+            case 0: r = brightness; g = t; b = p; break;
+            case 1: r = q; g = brightness; b = p; break;
+            case 2: r = p; g = brightness; b = t; break;
+            case 3: r = p; g = q; b = brightness; break;
+            case 4: r = t; g = p; b = brightness; break;
+            default: r = brightness; g = p; b = q; break;
+        }
+        return 0xff000000 | (Math.round(r * 255) << 16) | (Math.round(g * 255) << 8) | Math.round(b * 255);
+    }
+
+    /** Murmur3 finalizer, so values with similar strings still get well-spread colors. */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
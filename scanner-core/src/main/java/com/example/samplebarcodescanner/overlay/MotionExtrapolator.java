@@ -0,0 +1,82 @@
+package com.example.samplebarcodescanner.overlay;
+
+/**
+ * Predicts where tracked boxes are between detector frames from their estimated velocity.
+ * <p>
+ * For {@code holdNanos} after a snapshot's timestamp a box moves linearly along its velocity.
+ * After that the velocity decays exponentially with time constant {@code decayNanos}, so a label
+ * whose detections stop arriving glides to a halt instead of drifting off indefinitely. The total
+ * lead is therefore bounded by {@code hold + decay}.
+ */
+public final class MotionExtrapolator {
+    /** Roughly two detector frames at the slow end of what devices deliver. */
+    public static final long DEFAULT_HOLD_NANOS = 150_000_000L;
+    public static final long DEFAULT_DECAY_NANOS = 100_000_000L;
+    /** Speeds below this many frame px/s are treated as stationary. */
+    private static final float MIN_SPEED = 2f;
+    /** Once the remaining lead is this small the overlay no longer needs per-vsync redraws. */
+    private static final float SETTLED_FRACTION = 0.02f;
+
+    private final float holdSeconds;
+    private final float decaySeconds;
+    private final long settleNanos;
+
+    public MotionExtrapolator() {
+        this(DEFAULT_HOLD_NANOS, DEFAULT_DECAY_NANOS);
+    }
+
+    public MotionExtrapolator(long holdNanos, long decayNanos) {
+        if (holdNanos < 0 || decayNanos <= 0) {
+            throw new IllegalArgumentException("hold must be >= 0 and decay > 0");
+        }
+        this.holdSeconds = holdNanos / 1e9f;
+        this.decaySeconds = decayNanos / 1e9f;
+        // exp(-t / decay) falls below SETTLED_FRACTION after decay * ln(1 / SETTLED_FRACTION).
+        this.settleNanos = holdNanos + (long) (decayNanos * Math.log(1 / SETTLED_FRACTION));
+    }
+
+    /**
+     * Seconds of motion to apply at {@code elapsedNanos} after the snapshot: the integral of the
+     * decaying velocity weight over that time.
+     */
+    public float leadSeconds(long elapsedNanos) {
+        if (elapsedNanos <= 0) {
+            return 0f;
+        }
+        float t = elapsedNanos / 1e9f;
+        if (t <= holdSeconds) {
+            return t;
+        }
+        return holdSeconds + decaySeconds * (1f - (float) Math.exp(-(t - holdSeconds) / decaySeconds));
+    }
+
+    /**
+     * Writes the box of {@code snapshot[index]} predicted for {@code timeNanos} into {@code box}
+     * as {@code left, top, right, bottom} in frame pixels.
+     */
+    public void extrapolate(FrameSnapshot snapshot, int index, long timeNanos, float[] box) {
+        float lead = leadSeconds(timeNanos - snapshot.getTimestampNanos());
+        float dx = snapshot.getVelocityX(index) * lead;
+        float dy = snapshot.getVelocityY(index) * lead;
+        box[0] = snapshot.getLeft(index) + dx;
+        box[1] = snapshot.getTop(index) + dy;
+        box[2] = snapshot.getRight(index) + dx;
+        box[3] = snapshot.getBottom(index) + dy;
+    }
+
+    /**
+     * Whether drawing {@code snapshot} at {@code timeNanos} or later would look the same as now,
+     * i.e. nothing in it is moving or all motion has decayed.
+     */
+    public boolean isSettled(FrameSnapshot snapshot, long timeNanos) {
+        if (timeNanos - snapshot.getTimestampNanos() >= settleNanos) {
+            return true;
+        }
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (Math.abs(snapshot.getVelocityX(i)) >= MIN_SPEED || Math.abs(snapshot.getVelocityY(i)) >= MIN_SPEED) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
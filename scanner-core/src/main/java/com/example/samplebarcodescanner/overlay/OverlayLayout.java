@@ -0,0 +1,386 @@
+package com.example.samplebarcodescanner.overlay;
+
+import java.util.Arrays;
+
+/**
+ * Screen-space geometry of every box, label and icon the overlay draws for one display frame.
+ * <p>
+ * {@link #compute} turns a {@link FrameSnapshot} into flat float arrays that the draw pass reads
+ * directly, so drawing needs no measuring, no arithmetic beyond reads and no allocation. Colors
+ * and label widths come from a {@link TrackStateStore}, so each track's label is measured once;
+ * entries for tracks that stopped appearing expire from the store after each pass. The
+ * previous frame's geometry is kept so {@link #getDirtyLeft()} and friends can report the union
+ * of everything that was or will be drawn, for partial invalidation; when nothing moved the
+ * dirty region is empty. Arrays grow to the largest snapshot seen and are then reused.
+ * <p>
+ * Labels are placed so they do not overlap: each goes in the first free spot around its box,
+ * below, above or beside it, checked against the labels already placed through a {@link RectGrid}.
+ * Placement is incremental. Labels placed last frame are placed first and keep their spot while
+ * it stays free, and a label that moved no more than the move threshold stays where it was
+ * drawn, so labels neither swap sides nor jitter as boxes shift by a pixel. The same pass indexes
+ * the icons for {@link #findIcon}.
+ * Not thread-safe.
+ */
+public final class OverlayLayout {
+    /** Label placements around a box, in order of preference. */
+    public static final int PLACE_BELOW = 0;
+    public static final int PLACE_ABOVE = 1;
+    public static final int PLACE_BELOW_RIGHT = 2;
+    public static final int PLACE_ABOVE_RIGHT = 3;
+    public static final int PLACE_BELOW_FAR = 4;
+    public static final int PLACE_ABOVE_FAR = 5;
+    private static final int PLACEMENTS = 6;
+    public static final float DEFAULT_MOVE_THRESHOLD_PX = 2f;
+    // About one label's height, so a placement check touches a handful of cells.
+    private static final float GRID_CELL_PX = 64f;
+
+    private final TrackStateStore<?> states;
+    private final TextMeasurer measurer;
+    private MotionExtrapolator extrapolator;
+    private final float textSize;
+    private final float padding;
+    private final float strokeWidth;
+    private final float iconExtent;
+    private final float[] predicted = new float[4];
+    private final RectGrid placedLabels = new RectGrid(GRID_CELL_PX);
+    private final RectGrid icons = new RectGrid(GRID_CELL_PX);
+    private float moveThreshold = DEFAULT_MOVE_THRESHOLD_PX;
+
+    private int count;
+    private int[] trackIds = new int[0];
+    private String[] labels = new String[0];
+    private int[] colors = new int[0];
+    private float[] labelWidths = new float[0];
+    private float[] boxes = new float[0];
+    private float[] labelRects = new float[0];
+    private float[] textOrigins = new float[0];
+    private float[] previousBoxes = new float[0];
+    private float[] previousLabelRects = new float[0];
+    private int previousCount;
+
+    private float dirtyLeft;
+    private float dirtyTop;
+    private float dirtyRight;
+    private float dirtyBottom;
+
+    /**
+     * @param states       per-track colors and label widths; entries are acquired and expired here
+     * @param measurer     measures label text the first time a track is laid out
+     * @param extrapolator predicts boxes between snapshots, or null to draw them where tracked
+     * @param textSize     label text size, in px
+     * @param padding      label padding, in px
+     * @param strokeWidth  widest stroke drawn around a box, in px
+     * @param iconExtent   width and height of the centre icon including its border, in px
+     */
+    public OverlayLayout(TrackStateStore<?> states, TextMeasurer measurer, MotionExtrapolator extrapolator,
+                         float textSize, float padding, float strokeWidth, float iconExtent) {
+        this.states = states;
+        this.measurer = measurer;
+        this.extrapolator = extrapolator;
+        this.textSize = textSize;
+        this.padding = padding;
+        this.strokeWidth = strokeWidth;
+        this.iconExtent = iconExtent;
+    }
+
+    /**
+     * Lays out {@code snapshot} for display time {@code timeNanos} on a view of the given size.
+     *
+     * @return whether anything differs from the previous layout
+     */
+    public boolean compute(FrameSnapshot snapshot, long timeNanos, int viewWidth, int viewHeight) {
+        swapBuffers();
+        int size = snapshot.getFrameWidth() > 0 && snapshot.getFrameHeight() > 0 ? snapshot.size() : 0;
+        ensureCapacity(size);
+        count = size;
+        float scaleX = size > 0 ? viewWidth / (float) snapshot.getFrameWidth() : 0f;
+        float scaleY = size > 0 ? viewHeight / (float) snapshot.getFrameHeight() : 0f;
+
+        for (int i = 0; i < size; i++) {
+            if (extrapolator != null) {
+                extrapolator.extrapolate(snapshot, i, timeNanos, predicted);
+            } else {
+                predicted[0] = snapshot.getLeft(i);
+                predicted[1] = snapshot.getTop(i);
+                predicted[2] = snapshot.getRight(i);
+                predicted[3] = snapshot.getBottom(i);
+            }
+            int b = i * 4;
+            float left = predicted[0] * scaleX;
+            float bottom = predicted[3] * scaleY;
+            boxes[b] = left;
+            boxes[b + 1] = predicted[1] * scaleY;
+            boxes[b + 2] = predicted[2] * scaleX;
+            boxes[b + 3] = bottom;
+
+            int trackId = snapshot.getTrackId(i);
+            String label = snapshot.getValue(i);
+            int slot = states.acquire(trackId, label, timeNanos);
+            float labelWidth = states.getLabelWidth(slot);
+            if (Float.isNaN(labelWidth)) {
+                labelWidth = measurer.measure(label);
+                states.setLabelWidth(slot, labelWidth);
+            }
+            trackIds[i] = trackId;
+            labels[i] = label;
+            colors[i] = states.getColor(slot);
+            labelWidths[i] = labelWidth + padding * 2;
+        }
+        placeLabels(viewWidth, viewHeight);
+        states.expire(timeNanos);
+        return computeDirtyRegion();
+    }
+
+    /**
+     * Places every label, those placed last frame first so a new label never displaces a settled
+     * one, and indexes labels and icons.
+     */
+    private void placeLabels(int viewWidth, int viewHeight) {
+        placedLabels.reset(viewWidth, viewHeight);
+        icons.reset(viewWidth, viewHeight);
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < count; i++) {
+                int slot = states.find(trackIds[i]);
+                boolean settled = slot >= 0 && states.getLabelPlacement(slot) >= 0;
+                if (settled == (pass == 0)) {
+                    placeLabel(i, slot, viewWidth, viewHeight);
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            float centerX = getCenterX(i);
+            float centerY = getCenterY(i);
+            icons.insert(i, centerX, centerY, centerX, centerY);
+        }
+    }
+
+    private void placeLabel(int i, int slot, int viewWidth, int viewHeight) {
+        int previous = slot >= 0 ? states.getLabelPlacement(slot) : -1;
+        int chosen = -1;
+        if (previous >= 0 && isFree(i, previous, viewWidth, viewHeight)) {
+            chosen = previous;
+        }
+        for (int placement = 0; chosen < 0 && placement < PLACEMENTS; placement++) {
+            if (placement != previous && isFree(i, placement, viewWidth, viewHeight)) {
+                chosen = placement;
+            }
+        }
+        if (chosen < 0) {
+            // Crowded all round: stay put, overlapping, rather than hop between taken spots.
+            chosen = previous >= 0 ? previous : PLACE_BELOW;
+        }
+        float left = placementLeft(i, chosen);
+        float top = placementTop(i, chosen);
+        if (chosen == previous && Math.abs(left - states.getLabelLeft(slot)) <= moveThreshold
+                && Math.abs(top - states.getLabelTop(slot)) <= moveThreshold) {
+            left = states.getLabelLeft(slot);
+            top = states.getLabelTop(slot);
+        }
+        if (slot >= 0) {
+            states.setLabelPlacement(slot, chosen, left, top);
+        }
+
+        int b = i * 4;
+        labelRects[b] = left;
+        labelRects[b + 1] = top;
+        labelRects[b + 2] = left + labelWidths[i];
+        labelRects[b + 3] = top + textSize + padding / 2;
+        textOrigins[i * 2] = left + padding;
+        textOrigins[i * 2 + 1] = top + padding * 3 / 2 + textSize;
+        placedLabels.insert(i, left, top, left + labelWidths[i], top + labelExtent());
+    }
+
+    /** Whether {@code placement} keeps label {@code i} on screen and clear of placed labels. */
+    private boolean isFree(int i, int placement, int viewWidth, int viewHeight) {
+        float left = placementLeft(i, placement);
+        float top = placementTop(i, placement);
+        float right = left + labelWidths[i];
+        float bottom = top + labelExtent();
+        return left >= 0 && top >= 0 && right <= viewWidth && bottom <= viewHeight
+                && !placedLabels.intersectsAny(left, top, right, bottom);
+    }
+
+    private float placementLeft(int i, int placement) {
+        int b = i * 4;
+        return placement == PLACE_BELOW_RIGHT || placement == PLACE_ABOVE_RIGHT
+                ? boxes[b + 2] - labelWidths[i] : boxes[b];
+    }
+
+    private float placementTop(int i, int placement) {
+        int b = i * 4;
+        float gap = padding / 2;
+        switch (placement) {
+            case PLACE_ABOVE:
+            case PLACE_ABOVE_RIGHT:
+                return boxes[b + 1] - gap - labelExtent();
+            case PLACE_BELOW_FAR:
+                return boxes[b + 3] + gap + labelExtent();
+            case PLACE_ABOVE_FAR:
+                return boxes[b + 1] - gap - labelExtent() * 2;
+            default:
+                return boxes[b + 3] + gap;
+        }
+    }
+
+    /** Height a label covers on screen: its background, and its text's descent below it. */
+    private float labelExtent() {
+        return textSize + padding * 2;
+    }
+
+    /**
+     * Sets how far a label's spot may drift, in px on either axis, before the label is moved to
+     * follow it; 0 moves it on every change.
+     */
+    public void setMoveThreshold(float px) {
+        moveThreshold = px;
+    }
+
+    /**
+     * Index of the item whose icon centre is within {@code reach} px of the point on both axes,
+     * or -1; the first such item if icons overlap.
+     */
+    public int findIcon(float x, float y, float reach) {
+        return count > 0 ? icons.find(x, y, reach) : -1;
+    }
+
+    /** Sets the extrapolator used by later {@link #compute} calls; null draws boxes where tracked. */
+    public void setExtrapolator(MotionExtrapolator extrapolator) {
+        this.extrapolator = extrapolator;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getTrackId(int index) {
+        return trackIds[index];
+    }
+
+    public String getLabel(int index) {
+        return labels[index];
+    }
+
+    public int getColor(int index) {
+        return colors[index];
+    }
+
+    /** Box of {@code index} as {@code left, top, right, bottom} at offset {@code index * 4}. */
+    public float[] boxes() {
+        return boxes;
+    }
+
+    /** Label background of {@code index} as {@code left, top, right, bottom} at offset {@code index * 4}. */
+    public float[] labelRects() {
+        return labelRects;
+    }
+
+    /** Text baseline origin of {@code index} as {@code x, y} at offset {@code index * 2}. */
+    public float[] textOrigins() {
+        return textOrigins;
+    }
+
+    public float getCenterX(int index) {
+        return (boxes[index * 4] + boxes[index * 4 + 2]) / 2;
+    }
+
+    public float getCenterY(int index) {
+        return (boxes[index * 4 + 1] + boxes[index * 4 + 3]) / 2;
+    }
+
+    public boolean isDirtyEmpty() {
+        return dirtyRight <= dirtyLeft || dirtyBottom <= dirtyTop;
+    }
+
+    public float getDirtyLeft() {
+        return dirtyLeft;
+    }
+
+    public float getDirtyTop() {
+        return dirtyTop;
+    }
+
+    public float getDirtyRight() {
+        return dirtyRight;
+    }
+
+    public float getDirtyBottom() {
+        return dirtyBottom;
+    }
+
+    private boolean computeDirtyRegion() {
+        dirtyLeft = Float.MAX_VALUE;
+        dirtyTop = Float.MAX_VALUE;
+        dirtyRight = -Float.MAX_VALUE;
+        dirtyBottom = -Float.MAX_VALUE;
+        if (count == previousCount
+                && equalPrefix(boxes, previousBoxes, count * 4)
+                && equalPrefix(labelRects, previousLabelRects, count * 4)) {
+            dirtyLeft = dirtyTop = dirtyRight = dirtyBottom = 0;
+            return false;
+        }
+        for (int i = 0; i < previousCount; i++) {
+            includeItem(previousBoxes, previousLabelRects, i);
+        }
+        for (int i = 0; i < count; i++) {
+            includeItem(boxes, labelRects, i);
+        }
+        return true;
+    }
+
+    private void includeItem(float[] itemBoxes, float[] itemLabels, int i) {
+        int b = i * 4;
+        float halfStroke = strokeWidth / 2;
+        float halfIcon = iconExtent / 2;
+        float centerX = (itemBoxes[b] + itemBoxes[b + 2]) / 2;
+        float centerY = (itemBoxes[b + 1] + itemBoxes[b + 3]) / 2;
+        include(itemBoxes[b] - halfStroke, itemBoxes[b + 1] - halfStroke,
+                itemBoxes[b + 2] + halfStroke, itemBoxes[b + 3] + halfStroke);
+        include(itemLabels[b], itemLabels[b + 1], itemLabels[b + 2],
+                Math.max(itemLabels[b + 3], itemLabels[b + 1] + labelExtent()));
+        include(centerX - halfIcon, centerY - halfIcon, centerX + halfIcon, centerY + halfIcon);
+    }
+
+    private void include(float left, float top, float right, float bottom) {
+        dirtyLeft = Math.min(dirtyLeft, left);
+        dirtyTop = Math.min(dirtyTop, top);
+        dirtyRight = Math.max(dirtyRight, right);
+        dirtyBottom = Math.max(dirtyBottom, bottom);
+    }
+
+    private void swapBuffers() {
+        float[] swap = previousBoxes;
+        previousBoxes = boxes;
+        boxes = swap;
+        swap = previousLabelRects;
+        previousLabelRects = labelRects;
+        labelRects = swap;
+        previousCount = count;
+    }
+
+    private void ensureCapacity(int size) {
+        if (labels.length >= size && boxes.length >= size * 4) {
+            return;
+        }
+        int capacity = Math.max(size, labels.length * 2);
+        trackIds = Arrays.copyOf(trackIds, capacity);
+        labels = Arrays.copyOf(labels, capacity);
+        colors = Arrays.copyOf(colors, capacity);
+        labelWidths = Arrays.copyOf(labelWidths, capacity);
+        textOrigins = Arrays.copyOf(textOrigins, capacity * 2);
+        boxes = Arrays.copyOf(boxes, capacity * 4);
+        labelRects = Arrays.copyOf(labelRects, capacity * 4);
+        if (previousBoxes.length < capacity * 4) {
+            previousBoxes = Arrays.copyOf(previousBoxes, capacity * 4);
+            previousLabelRects = Arrays.copyOf(previousLabelRects, capacity * 4);
+        }
+    }
+
+    private static boolean equalPrefix(float[] a, float[] b, int length) {
+        for (int i = 0; i < length; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.samplebarcodescanner.overlay;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the view, rebuilt every layout pass, that finds rectangles near a point or
+ * overlapping another rectangle without looking at the rest.
+ * <p>
+ * Each item is registered in every cell its rectangle touches, so a query only walks the cells it
+ * covers. Coordinates outside the view are clamped into the edge cells, which keeps items that
+ * hang off screen findable. Storage is primitive arrays reused across {@link #reset} calls.
+ * Not thread-safe.
+ */
+final class RectGrid {
+    private static final int NONE = -1;
+
+    private final float cellSize;
+    private int columns;
+    private int rows;
+    private int[] cellHeads = new int[0];
+    private int[] entryItems = new int[256];
+    private int[] entryNext = new int[256];
+    private int entryCount;
+    private float[] rects = new float[64 * 4];
+
+    RectGrid(float cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("cellSize must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+    }
+
+    /** Empties the grid and sizes it for a view of {@code width} by {@code height} px. */
+    void reset(int width, int height) {
+        columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        int cells = columns * rows;
+        if (cellHeads.length < cells) {
+            cellHeads = new int[cells];
+        }
+        Arrays.fill(cellHeads, 0, cells, NONE);
+        entryCount = 0;
+    }
+
+    /** Registers {@code item}, a non-negative index, with the given rectangle. */
+    void insert(int item, float left, float top, float right, float bottom) {
+        if (rects.length < (item + 1) * 4) {
+            rects = Arrays.copyOf(rects, Math.max((item + 1) * 4, rects.length * 2));
+        }
+        int r = item * 4;
+        rects[r] = left;
+        rects[r + 1] = top;
+        rects[r + 2] = right;
+        rects[r + 3] = bottom;
+        int maxX = column(right);
+        int maxY = row(bottom);
+        for (int cy = row(top); cy <= maxY; cy++) {
+            for (int cx = column(left); cx <= maxX; cx++) {
+                addEntry(cy * columns + cx, item);
+            }
+        }
+    }
+
+    /** Whether any item's rectangle overlaps the given one by more than an edge. */
+    boolean intersectsAny(float left, float top, float right, float bottom) {
+        int maxX = column(right);
+        int maxY = row(bottom);
+        for (int cy = row(top); cy <= maxY; cy++) {
+            for (int cx = column(left); cx <= maxX; cx++) {
+                for (int e = cellHeads[cy * columns + cx]; e != NONE; e = entryNext[e]) {
+                    int r = entryItems[e] * 4;
+                    if (rects[r] < right && left < rects[r + 2] && rects[r + 1] < bottom && top < rects[r + 3]) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lowest-numbered item whose rectangle lies within {@code reach} of the point on both axes,
+     * or -1; with point items, the one whose centre is in the {@code 2 * reach} square around it.
+     */
+    int find(float x, float y, float reach) {
+        int found = NONE;
+        int maxX = column(x + reach);
+        int maxY = row(y + reach);
+        for (int cy = row(y - reach); cy <= maxY; cy++) {
+            for (int cx = column(x - reach); cx <= maxX; cx++) {
+                for (int e = cellHeads[cy * columns + cx]; e != NONE; e = entryNext[e]) {
+                    int item = entryItems[e];
+                    int r = item * 4;
+                    if ((found == NONE || item < found)
+                            && x + reach >= rects[r] && x - reach <= rects[r + 2]
+                            && y + reach >= rects[r + 1] && y - reach <= rects[r + 3]) {
+                        found = item;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private void addEntry(int cell, int item) {
+        if (entryCount == entryItems.length) {
+            entryItems = Arrays.copyOf(entryItems, entryCount * 2);
+            entryNext = Arrays.copyOf(entryNext, entryCount * 2);
+        }
+        entryItems[entryCount] = item;
+        entryNext[entryCount] = cellHeads[cell];
+        cellHeads[cell] = entryCount;
+        entryCount++;
+    }
+
+    private int column(float x) {
+        return clamp((int) Math.floor(x / cellSize), columns);
+    }
+
+    private int row(float y) {
+        return clamp((int) Math.floor(y / cellSize), rows);
+    }
+
+    private static int clamp(int cell, int count) {
+        return cell < 0 ? 0 : Math.min(cell, count - 1);
+    }
+}
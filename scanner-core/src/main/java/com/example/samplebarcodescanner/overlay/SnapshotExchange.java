@@ -0,0 +1,34 @@
+package com.example.samplebarcodescanner.overlay;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free handoff of the latest {@link FrameSnapshot} from the tracking thread to readers.
+ * <p>
+ * There is exactly one writer. Readers never block it and never see a partially built
+ * snapshot: publication is a single reference write, and snapshots are immutable. Readers that
+ * fall behind simply skip intermediate snapshots.
+ */
+public final class SnapshotExchange {
+    private final AtomicReference<FrameSnapshot> latest = new AtomicReference<>(FrameSnapshot.EMPTY);
+    private long lastPublishedSequence = Long.MIN_VALUE;
+
+    /**
+     * Makes {@code snapshot} the latest. Must only be called from the single writer thread.
+     *
+     * @throws IllegalArgumentException if its sequence does not advance
+     */
+    public void publish(FrameSnapshot snapshot) {
+        if (snapshot.getSequence() <= lastPublishedSequence) {
+            throw new IllegalArgumentException("sequence " + snapshot.getSequence()
+                    + " does not advance past " + lastPublishedSequence);
+        }
+        lastPublishedSequence = snapshot.getSequence();
+        latest.set(snapshot);
+    }
+
+    /** The most recently published snapshot, or {@link FrameSnapshot#EMPTY}. Safe from any thread. */
+    public FrameSnapshot latest() {
+        return latest.get();
+    }
+}
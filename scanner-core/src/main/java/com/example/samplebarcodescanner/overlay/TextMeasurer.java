@@ -0,0 +1,8 @@
+package com.example.samplebarcodescanner.overlay;
+
+/**
+ * Measures the advance width of label text, e.g. {@code Paint::measureText}.
+ */
+public interface TextMeasurer {
+    float measure(String text);
+}
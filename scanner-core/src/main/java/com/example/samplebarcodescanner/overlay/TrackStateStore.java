@@ -0,0 +1,315 @@
+package com.example.samplebarcodescanner.overlay;
+
+import com.example.samplebarcodescanner.util.IntIntMap;
+
+/**
+ * Bounded per-track render state: color, measured label width, label placement and popup,
+ * keyed by track ID.
+ * <p>
+ * Entries live in fixed parallel arrays with an {@link IntIntMap} index and an intrusive LRU list,
+ * so lookups never allocate and the store never grows past its capacity. An entry is evicted
+ * when it has not been touched for the TTL ({@link #expire}) or when a new track needs room and
+ * it is the least recently used. The {@link EvictionListener} is told about every eviction, so
+ * the owner can dismiss the popup that belonged to a track that is gone.
+ * <p>
+ * {@link #acquire} and {@link #find} return a slot that is valid until the next call that can
+ * evict: {@link #acquire}, {@link #expire}, {@link #remove} or {@link #clear}. Not thread-safe.
+ *
+ * @param <P> popup type
+ */
+public final class TrackStateStore<P> {
+    public static final int DEFAULT_CAPACITY = 512;
+    public static final long DEFAULT_TTL_NANOS = 10_000_000_000L;
+
+    /** Notified when an entry leaves the store for any reason. */
+    public interface EvictionListener<P> {
+        void onEvicted(int trackId, String value, P popup);
+    }
+
+    private static final int NONE = -1;
+
+    private final int capacity;
+    private final long ttlNanos;
+    private final EvictionListener<P> listener;
+
+    private final int[] trackIds;
+    private final String[] values;
+    private final int[] colors;
+    private final float[] labelWidths;
+    private final int[] labelPlacements;
+    private final float[] labelLefts;
+    private final float[] labelTops;
+    private final Object[] popups;
+    private final float[] popupXs;
+    private final float[] popupYs;
+    private final long[] lastAccessNanos;
+    // Intrusive LRU list, most recent at head. Free slots are chained through next.
+    private final int[] prev;
+    private final int[] next;
+    private int head = NONE;
+    private int tail = NONE;
+    private int freeHead;
+    private int size;
+
+    // Track ID to slot; sized for capacity so it never grows.
+    private final IntIntMap index;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public TrackStateStore(EvictionListener<P> listener) {
+        this(DEFAULT_CAPACITY, DEFAULT_TTL_NANOS, listener);
+    }
+
+    /**
+     * @param capacity maximum entries; should exceed the most tracks ever on screen at once
+     * @param ttlNanos how long an untouched entry survives {@link #expire}
+     * @param listener told about evictions, or null
+     */
+    public TrackStateStore(int capacity, long ttlNanos, EvictionListener<P> listener) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        if (ttlNanos <= 0) {
+            throw new IllegalArgumentException("ttlNanos must be positive: " + ttlNanos);
+        }
+        this.capacity = capacity;
+        this.ttlNanos = ttlNanos;
+        this.listener = listener;
+        trackIds = new int[capacity];
+        values = new String[capacity];
+        colors = new int[capacity];
+        labelWidths = new float[capacity];
+        labelPlacements = new int[capacity];
+        labelLefts = new float[capacity];
+        labelTops = new float[capacity];
+        popups = new Object[capacity];
+        popupXs = new float[capacity];
+        popupYs = new float[capacity];
+        lastAccessNanos = new long[capacity];
+        prev = new int[capacity];
+        next = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            next[i] = i + 1 < capacity ? i + 1 : NONE;
+        }
+        index = new IntIntMap(capacity, NONE);
+    }
+
+    /**
+     * Returns the slot for {@code trackId}, creating it if needed, and marks it used at
+     * {@code nowNanos}. A new entry gets {@link LabelColors#forValue} and an unmeasured, unplaced
+     * label.
+     */
+    public int acquire(int trackId, String value, long nowNanos) {
+        int slot = find(trackId);
+        if (slot != NONE && values[slot].equals(value)) {
+            hits++;
+        } else {
+            if (slot != NONE) {
+                evict(slot);
+            }
+            misses++;
+            slot = allocate(trackId, value);
+        }
+        lastAccessNanos[slot] = nowNanos;
+        moveToHead(slot);
+        return slot;
+    }
+
+    /** Slot for {@code trackId}, or -1. Does not count as a use. */
+    public int find(int trackId) {
+        return index.get(trackId);
+    }
+
+    /** Evicts every entry not touched since {@code nowNanos - ttl}. Returns how many were evicted. */
+    public int expire(long nowNanos) {
+        int expired = 0;
+        while (tail != NONE && nowNanos - lastAccessNanos[tail] > ttlNanos) {
+            evict(tail);
+            expired++;
+        }
+        return expired;
+    }
+
+    /** Evicts {@code trackId} if present. */
+    public boolean remove(int trackId) {
+        int slot = find(trackId);
+        if (slot == NONE) {
+            return false;
+        }
+        evict(slot);
+        return true;
+    }
+
+    public void clear() {
+        while (tail != NONE) {
+            evict(tail);
+        }
+    }
+
+    public int getTrackId(int slot) {
+        return trackIds[slot];
+    }
+
+    public String getValue(int slot) {
+        return values[slot];
+    }
+
+    public int getColor(int slot) {
+        return colors[slot];
+    }
+
+    /** Measured label width in px, or NaN if not measured yet. */
+    public float getLabelWidth(int slot) {
+        return labelWidths[slot];
+    }
+
+    public void setLabelWidth(int slot, float width) {
+        labelWidths[slot] = width;
+    }
+
+    /** Where the label was last placed, as an {@link OverlayLayout} placement, or -1 if never. */
+    public int getLabelPlacement(int slot) {
+        return labelPlacements[slot];
+    }
+
+    public float getLabelLeft(int slot) {
+        return labelLefts[slot];
+    }
+
+    public float getLabelTop(int slot) {
+        return labelTops[slot];
+    }
+
+    public void setLabelPlacement(int slot, int placement, float left, float top) {
+        labelPlacements[slot] = placement;
+        labelLefts[slot] = left;
+        labelTops[slot] = top;
+    }
+
+    @SuppressWarnings("unchecked")
+    public P getPopup(int slot) {
+        return (P) popups[slot];
+    }
+
+    /** Sets the open popup, shown at ({@code x}, {@code y}), or null once it is dismissed. */
+    public void setPopup(int slot, P popup, float x, float y) {
+        popups[slot] = popup;
+        popupXs[slot] = x;
+        popupYs[slot] = y;
+    }
+
+    public void setPopup(int slot, P popup) {
+        setPopup(slot, popup, Float.NaN, Float.NaN);
+    }
+
+    /**
+     * Records that the popup should follow its track to ({@code x}, {@code y}) if that is more
+     * than {@code thresholdPx} from where it was last moved on either axis.
+     *
+     * @return whether the popup should be moved
+     */
+    public boolean movePopup(int slot, float x, float y, float thresholdPx) {
+        if (Math.abs(x - popupXs[slot]) <= thresholdPx && Math.abs(y - popupYs[slot]) <= thresholdPx) {
+            return false;
+        }
+        popupXs[slot] = x;
+        popupYs[slot] = y;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /** {@link #acquire} calls that found live state for the track. */
+    public long getHitCount() {
+        return hits;
+    }
+
+    /** {@link #acquire} calls that had to create state. */
+    public long getMissCount() {
+        return misses;
+    }
+
+    /** Entries removed by TTL, LRU pressure, {@link #remove} or {@link #clear}. */
+    public long getEvictionCount() {
+        return evictions;
+    }
+
+    private int allocate(int trackId, String value) {
+        if (freeHead == NONE) {
+            evict(tail);
+        }
+        int slot = freeHead;
+        freeHead = next[slot];
+        trackIds[slot] = trackId;
+        values[slot] = value;
+        colors[slot] = LabelColors.forValue(value);
+        labelWidths[slot] = Float.NaN;
+        labelPlacements[slot] = NONE;
+        popups[slot] = null;
+        prev[slot] = NONE;
+        next[slot] = NONE;
+        index.put(trackId, slot);
+        size++;
+        return slot;
+    }
+
+    private void evict(int slot) {
+        int trackId = trackIds[slot];
+        String value = values[slot];
+        P popup = getPopup(slot);
+        unlink(slot);
+        index.remove(trackId);
+        values[slot] = null;
+        popups[slot] = null;
+        next[slot] = freeHead;
+        freeHead = slot;
+        size--;
+        evictions++;
+        if (listener != null) {
+            listener.onEvicted(trackId, value, popup);
+        }
+    }
+
+    private void moveToHead(int slot) {
+        if (head == slot) {
+            return;
+        }
+        if (prev[slot] != NONE) {
+            unlink(slot);
+        }
+        prev[slot] = NONE;
+        next[slot] = head;
+        if (head != NONE) {
+            prev[head] = slot;
+        }
+        head = slot;
+        if (tail == NONE) {
+            tail = slot;
+        }
+    }
+
+    private void unlink(int slot) {
+        int before = prev[slot];
+        int after = next[slot];
+        if (before != NONE) {
+            next[before] = after;
+        } else if (head == slot) {
+            head = after;
+        }
+        if (after != NONE) {
+            prev[after] = before;
+        } else if (tail == slot) {
+            tail = before;
+        }
+        prev[slot] = NONE;
+        next[slot] = NONE;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.samplebarcodescanner.pipeline;
+
+import com.example.samplebarcodescanner.tracking.Detection;
+
+import java.util.List;
+
+/**
+ * A {@link ScanPipeline} step that runs on a frame's detections before they reach the tracker,
+ * for example to drop formats that are not wanted or to merge duplicate reads from overlapping
+ * crops.
+ */
+public interface DetectionStage {
+
+    /**
+     * Filters or rewrites {@code detections} in place. The list is the pipeline's own working
+     * copy, so stages may remove, replace and reorder entries freely.
+     */
+    void process(List<Detection> detections, long timestampNanos);
+}
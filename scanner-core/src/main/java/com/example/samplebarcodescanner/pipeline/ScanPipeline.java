@@ -0,0 +1,129 @@
+package com.example.samplebarcodescanner.pipeline;
+
+import com.example.samplebarcodescanner.overlay.FrameSnapshot;
+import com.example.samplebarcodescanner.tracking.BarcodeTracker;
+import com.example.samplebarcodescanner.tracking.Detection;
+import com.example.samplebarcodescanner.tracking.Track;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The scan engine: one frame of detections in, one {@link FrameSnapshot} of tracks out.
+ * <p>
+ * Each {@link #process} call runs the {@link DetectionStage}s in the order they were added, feeds
+ * the result to the {@link BarcodeTracker}, runs the {@link TrackStage}s on the tracks it returns
+ * and packs them into an immutable snapshot with the next sequence number. {@link #coast} stands
+ * in for a frame that was not run through the detector: it only moves the tracks along their
+ * velocity. It knows nothing about cameras, detectors or views: the app feeds it from ML Kit and
+ * publishes the snapshot to the overlay, and the replay driver feeds it from a recording.
+ * <p>
+ * Confined to one thread, like the tracker it drives.
+ */
+public final class ScanPipeline {
+    private final BarcodeTracker tracker;
+    private final DetectionStage[] detectionStages;
+    private final TrackStage[] trackStages;
+    private final ArrayList<Detection> working = new ArrayList<>();
+    private long sequence;
+    private long lastProcessedNanos;
+
+    private ScanPipeline(Builder builder) {
+        tracker = builder.tracker;
+        detectionStages = builder.detectionStages.toArray(new DetectionStage[0]);
+        trackStages = builder.trackStages.toArray(new TrackStage[0]);
+    }
+
+    /**
+     * Runs one frame through the pipeline.
+     *
+     * @param detections             detector output in upright frame coordinates; not modified
+     * @param timestampNanos         when the frame was captured or admitted
+     * @param frameWidth,frameHeight upright size of the frame, carried on the snapshot
+     */
+    public FrameSnapshot process(List<Detection> detections, long timestampNanos, int frameWidth, int frameHeight) {
+        List<Detection> input = detections;
+        if (detectionStages.length > 0) {
+            working.clear();
+            working.addAll(detections);
+            for (DetectionStage stage : detectionStages) {
+                stage.process(working, timestampNanos);
+            }
+            input = working;
+        }
+
+        List<Track> tracks = tracker.update(input, timestampNanos);
+        lastProcessedNanos = timestampNanos;
+        working.clear();
+        for (TrackStage stage : trackStages) {
+            stage.onTracks(tracks, timestampNanos);
+        }
+        return snapshot(tracks, 0, timestampNanos, frameWidth, frameHeight);
+    }
+
+    /**
+     * Snapshot for a frame that was not scanned, such as one the motion gate skipped: the tracks
+     * of the last {@link #process} call, moved along their velocity to {@code timestampNanos}.
+     * The tracker and the track stages do not see the frame, so nothing is matched, confirmed or
+     * missed by it.
+     */
+    public FrameSnapshot coast(long timestampNanos, int frameWidth, int frameHeight) {
+        List<Track> tracks = tracker.getTracks();
+        float elapsedSeconds = Math.max(0, timestampNanos - lastProcessedNanos) / 1e9f;
+        return snapshot(tracks, elapsedSeconds, timestampNanos, frameWidth, frameHeight);
+    }
+
+    private FrameSnapshot snapshot(List<Track> tracks, float elapsedSeconds, long timestampNanos,
+                                   int frameWidth, int frameHeight) {
+        FrameSnapshot.Builder snapshot = new FrameSnapshot.Builder(tracks.size());
+        for (int i = 0, count = tracks.size(); i < count; i++) {
+            Track track = tracks.get(i);
+            int dx = Math.round(track.getVelocityX() * elapsedSeconds);
+            int dy = Math.round(track.getVelocityY() * elapsedSeconds);
+            snapshot.add(track.getId(), track.getValue(),
+                    track.getLeft() + dx, track.getTop() + dy, track.getRight() + dx, track.getBottom() + dy,
+                    track.getVelocityX(), track.getVelocityY());
+        }
+        return snapshot.build(++sequence, timestampNanos, frameWidth, frameHeight);
+    }
+
+    /** Tracks from the last {@link #process} call; valid until the next one. */
+    public List<Track> getTracks() {
+        return tracker.getTracks();
+    }
+
+    /**
+     * Drops all tracks, as between unrelated scan sessions. Snapshot sequence numbers keep
+     * increasing, so a consumer that saw the old session still accepts the new one.
+     */
+    public void reset() {
+        tracker.reset();
+    }
+
+    public static final class Builder {
+        private final BarcodeTracker tracker;
+        private final List<DetectionStage> detectionStages = new ArrayList<>();
+        private final List<TrackStage> trackStages = new ArrayList<>();
+
+        public Builder(BarcodeTracker tracker) {
+            if (tracker == null) {
+                throw new IllegalArgumentException("tracker == null");
+            }
+            this.tracker = tracker;
+        }
+
+        public Builder addDetectionStage(DetectionStage stage) {
+            detectionStages.add(stage);
+            return this;
+        }
+
+        public Builder addTrackStage(TrackStage stage) {
+            trackStages.add(stage);
+            return this;
+        }
+
+        public ScanPipeline build() {
+            return new ScanPipeline(this);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.samplebarcodescanner.pipeline;
+
+import com.example.samplebarcodescanner.tracking.Track;
+
+import java.util.List;
+
+/**
+ * A {@link ScanPipeline} step that observes the live tracks after each tracker update, for
+ * example to plan where the next frame should be scanned.
+ */
+public interface TrackStage {
+
+    /**
+     * Called with the tracks the tracker just returned. The list and its tracks are only valid
+     * during the call and must not be modified.
+     */
+    void onTracks(List<Track> tracks, long timestampNanos);
+}
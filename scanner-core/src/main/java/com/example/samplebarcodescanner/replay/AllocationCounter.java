@@ -0,0 +1,13 @@
+package com.example.samplebarcodescanner.replay;
+
+/**
+ * Reports bytes allocated so far by the calling thread, e.g. from
+ * {@code com.sun.management.ThreadMXBean}, so replays can measure allocation per frame.
+ */
+public interface AllocationCounter {
+    /** For runtimes that cannot report allocation. */
+    AllocationCounter NONE = () -> -1L;
+
+    /** Bytes allocated by the current thread since it started, or -1 if unknown. */
+    long currentThreadAllocatedBytes();
+}
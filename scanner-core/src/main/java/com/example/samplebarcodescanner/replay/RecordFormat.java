@@ -0,0 +1,69 @@
+package com.example.samplebarcodescanner.replay;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Layout of a scan recording.
+ * <pre>
+ * file   := MAGIC:int32 VERSION:int32 frame*
+ * frame  := FRAME_TAG:byte length:varint payload[length]
+ * payload:= timestampDelta:zigzag-varlong frameWidth:varint frameHeight:varint rotation:varint
+ *           count:varint detection[count]
+ *           lumaLength:varint [lumaWidth:varint lumaHeight:varint luma[lumaLength]]
+ * detection := symbol:varint [format:varint valueLength:varint utf8[valueLength]]
+ *              left:zigzag top:zigzag right:zigzag bottom:zigzag
+ * </pre>
+ * Symbols are numbered in order of first use; a detection whose symbol equals the next unused
+ * number defines it inline, any other refers back. Timestamps are deltas from the previous
+ * frame. Integers are big-endian; varints are LEB128. The length prefix lets a reader skip
+ * frames and detect a torn final record.
+ */
+final class RecordFormat {
+    static final int MAGIC = 0x53435231; // "SCR1"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final byte FRAME_TAG = 'F';
+
+    private RecordFormat() {
+    }
+
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed varlong");
+    }
+}
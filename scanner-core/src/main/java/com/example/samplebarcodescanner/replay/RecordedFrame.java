@@ -0,0 +1,73 @@
+package com.example.samplebarcodescanner.replay;
+
+import com.example.samplebarcodescanner.tracking.Detection;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * One frame read back from a {@link ScanRecording}.
+ */
+public final class RecordedFrame {
+    private final long timestampNanos;
+    private final int frameWidth;
+    private final int frameHeight;
+    private final int rotation;
+    private final List<Detection> detections;
+    private final ByteBuffer luma;
+    private final int lumaWidth;
+    private final int lumaHeight;
+
+    RecordedFrame(long timestampNanos, int frameWidth, int frameHeight, int rotation,
+                  List<Detection> detections, ByteBuffer luma, int lumaWidth, int lumaHeight) {
+        this.timestampNanos = timestampNanos;
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.rotation = rotation;
+        this.detections = detections;
+        this.luma = luma;
+        this.lumaWidth = lumaWidth;
+        this.lumaHeight = lumaHeight;
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    /** Upright width of the analysed frame, which detection boxes refer to. */
+    public int getFrameWidth() {
+        return frameWidth;
+    }
+
+    public int getFrameHeight() {
+        return frameHeight;
+    }
+
+    public int getRotation() {
+        return rotation;
+    }
+
+    public List<Detection> getDetections() {
+        return detections;
+    }
+
+    public boolean hasLuma() {
+        return luma != null;
+    }
+
+    /**
+     * Read-only view of the tightly packed sensor-orientation Y plane, backed by the mapped file,
+     * or null if the frame was recorded without one.
+     */
+    public ByteBuffer getLuma() {
+        return luma == null ? null : luma.duplicate();
+    }
+
+    public int getLumaWidth() {
+        return lumaWidth;
+    }
+
+    public int getLumaHeight() {
+        return lumaHeight;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.samplebarcodescanner.replay;
+
+import com.example.samplebarcodescanner.overlay.FrameSnapshot;
+import com.example.samplebarcodescanner.overlay.OverlayLayout;
+import com.example.samplebarcodescanner.pipeline.ScanPipeline;
+import com.example.samplebarcodescanner.schedule.Clock;
+import com.example.samplebarcodescanner.tracking.Track;
+
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Feeds a {@link ScanRecording} through a {@link ScanPipeline} and the overlay layout without a camera,
+ * detector or display, and measures what each frame costs.
+ * <p>
+ * For every recorded frame the driver runs {@link ScanPipeline#process} to get the
+ * {@link FrameSnapshot} the overlay would receive and lays it out with {@link OverlayLayout}, the
+ * same steps {@code MainActivity} and {@code BarcodeOverlayView} run on a device. Only those
+ * steps are timed and counted for allocation; decoding the recording and pacing are not. Frames
+ * are replayed with their recorded timestamps either way, so tracking behaves as it did live.
+ * Not thread-safe.
+ */
+public final class ReplayDriver {
+    public enum Pacing {
+        /** Wait between frames as long as the recording did. */
+        RECORDED,
+        /** Replay frames back to back. */
+        MAXIMUM
+    }
+
+    private final ScanPipeline pipeline;
+    private final OverlayLayout layout;
+    private final int viewWidth;
+    private final int viewHeight;
+    private final Clock clock;
+    private final AllocationCounter allocations;
+
+    /**
+     * @param layout                overlay layout to run per frame, or null to replay tracking only
+     * @param viewWidth,viewHeight  size of the view the layout targets
+     */
+    public ReplayDriver(ScanPipeline pipeline, OverlayLayout layout, int viewWidth, int viewHeight,
+                        Clock clock, AllocationCounter allocations) {
+        this.pipeline = pipeline;
+        this.layout = layout;
+        this.viewWidth = viewWidth;
+        this.viewHeight = viewHeight;
+        this.clock = clock;
+        this.allocations = allocations;
+    }
+
+    /**
+     * Replays the recording {@code warmUpPasses} times unmeasured, so the JIT has compiled the hot
+     * paths, then once more measured. The pipeline is reset before every pass.
+     */
+    public ReplayReport run(ScanRecording recording, Pacing pacing, int warmUpPasses) {
+        for (int pass = 0; pass < warmUpPasses; pass++) {
+            replay(recording, Pacing.MAXIMUM, null, null);
+        }
+        int frames = recording.getFrameCount();
+        long[] latencyNanos = new long[frames];
+        long[] allocatedBytes = new long[frames];
+        long start = clock.nanoTime();
+        int[] totals = replay(recording, pacing, latencyNanos, allocatedBytes);
+        return new ReplayReport(latencyNanos, allocatedBytes, totals[0], totals[1], clock.nanoTime() - start);
+    }
+
+    /** Returns the detection count and the number of tracks started. */
+    private int[] replay(ScanRecording recording, Pacing pacing, long[] latencyNanos, long[] allocatedBytes) {
+        pipeline.reset();
+        int detections = 0;
+        int tracksStarted = 0;
+        long startNanos = clock.nanoTime();
+        long firstTimestamp = recording.getFrameCount() > 0 ? recording.getTimestampNanos(0) : 0;
+
+        for (int i = 0, n = recording.getFrameCount(); i < n; i++) {
+            RecordedFrame frame = recording.frame(i);
+            if (pacing == Pacing.RECORDED) {
+                long due = startNanos + (frame.getTimestampNanos() - firstTimestamp);
+                for (long wait; (wait = due - clock.nanoTime()) > 0; ) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+
+            long allocatedBefore = allocations.currentThreadAllocatedBytes();
+            long before = clock.nanoTime();
+            FrameSnapshot snapshot = pipeline.process(frame.getDetections(), frame.getTimestampNanos(),
+                    frame.getFrameWidth(), frame.getFrameHeight());
+            if (layout != null) {
+                layout.compute(snapshot, frame.getTimestampNanos(), viewWidth, viewHeight);
+            }
+            long after = clock.nanoTime();
+            long allocatedAfter = allocations.currentThreadAllocatedBytes();
+
+            List<Track> tracks = pipeline.getTracks();
+            for (int t = 0, count = tracks.size(); t < count; t++) {
+                Track track = tracks.get(t);
+                if (track.getHits() == 1 && track.getMissedFrames() == 0) {
+                    tracksStarted++;
+                }
+            }
+            detections += frame.getDetections().size();
+            if (latencyNanos != null) {
+                latencyNanos[i] = after - before;
+                allocatedBytes[i] = allocatedBefore >= 0 && allocatedAfter >= 0 ? allocatedAfter - allocatedBefore : -1;
+            }
+        }
+        return new int[]{detections, tracksStarted};
+    }
+}
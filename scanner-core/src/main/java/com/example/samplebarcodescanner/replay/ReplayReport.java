@@ -0,0 +1,105 @@
+package com.example.samplebarcodescanner.replay;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Per-frame cost of one {@link ReplayDriver} run.
+ */
+public final class ReplayReport {
+    private final long[] latencyNanos;
+    private final long[] allocatedBytes;
+    private final long[] sortedLatencyNanos;
+    private final int detectionCount;
+    private final int tracksStarted;
+    private final long wallNanos;
+
+    ReplayReport(long[] latencyNanos, long[] allocatedBytes, int detectionCount, int tracksStarted, long wallNanos) {
+        this.latencyNanos = latencyNanos;
+        this.allocatedBytes = allocatedBytes;
+        this.sortedLatencyNanos = latencyNanos.clone();
+        Arrays.sort(sortedLatencyNanos);
+        this.detectionCount = detectionCount;
+        this.tracksStarted = tracksStarted;
+        this.wallNanos = wallNanos;
+    }
+
+    public int getFrameCount() {
+        return latencyNanos.length;
+    }
+
+    public int getDetectionCount() {
+        return detectionCount;
+    }
+
+    /** Tracks created during the run. More than the labels in the scene means identity switches. */
+    public int getTracksStarted() {
+        return tracksStarted;
+    }
+
+    /** Wall time of the run, including pacing waits and decoding. */
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /** Tracking and layout time of frame {@code index}. */
+    public long getLatencyNanos(int index) {
+        return latencyNanos[index];
+    }
+
+    /** Latency at percentile {@code p} in [0, 100], nearest-rank. */
+    public long getLatencyPercentileNanos(double p) {
+        if (sortedLatencyNanos.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(p / 100.0 * sortedLatencyNanos.length);
+        return sortedLatencyNanos[Math.min(Math.max(rank - 1, 0), sortedLatencyNanos.length - 1)];
+    }
+
+    public long getMeanLatencyNanos() {
+        long total = 0;
+        for (long latency : latencyNanos) {
+            total += latency;
+        }
+        return latencyNanos.length == 0 ? 0 : total / latencyNanos.length;
+    }
+
+    public boolean isAllocationMeasured() {
+        return allocatedBytes.length == 0 || allocatedBytes[0] >= 0;
+    }
+
+    /** Bytes allocated by tracking and layout for frame {@code index}, or -1 if not measured. */
+    public long getAllocatedBytes(int index) {
+        return allocatedBytes[index];
+    }
+
+    public long getMaxAllocatedBytesPerFrame() {
+        long max = allocatedBytes.length == 0 ? 0 : -1;
+        for (long bytes : allocatedBytes) {
+            max = Math.max(max, bytes);
+        }
+        return max;
+    }
+
+    public long getMeanAllocatedBytesPerFrame() {
+        if (!isAllocationMeasured()) {
+            return -1;
+        }
+        long total = 0;
+        for (long bytes : allocatedBytes) {
+            total += bytes;
+        }
+        return allocatedBytes.length == 0 ? 0 : total / allocatedBytes.length;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "%d frames, %d detections, %d tracks started, latency p50 %.1f us p95 %.1f us p99 %.1f us max %.1f us, "
+                        + "alloc mean %d B/frame max %d B/frame",
+                getFrameCount(), detectionCount, tracksStarted,
+                getLatencyPercentileNanos(50) / 1000.0, getLatencyPercentileNanos(95) / 1000.0,
+                getLatencyPercentileNanos(99) / 1000.0, getLatencyPercentileNanos(100) / 1000.0,
+                getMeanAllocatedBytesPerFrame(), getMaxAllocatedBytesPerFrame());
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.samplebarcodescanner.replay;
+
+import com.example.samplebarcodescanner.tracking.Detection;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes analysis frames and their detector results in the {@link RecordFormat} layout, for
+ * offline replay with {@link ScanRecording} and {@link ReplayDriver}.
+ * <p>
+ * Each distinct value is written once and referred to by number afterwards, and coordinates and
+ * timestamps are varint-encoded, so a recording without luma costs a few bytes per detection.
+ * Frames are written whole, so a recording cut off mid-write loses at most its last frame.
+ * Not thread-safe.
+ */
+public final class ScanRecorder implements Closeable, Flushable {
+    private final DataOutputStream out;
+    private final Map<String, Integer> symbols = new HashMap<>();
+    private byte[] record = new byte[4096];
+    private int recordLength;
+    private long previousTimestampNanos;
+    private long frameCount;
+
+    /** Writes the file header to {@code out}, which the recorder then owns and buffers. */
+    public ScanRecorder(OutputStream out) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        this.out.writeInt(RecordFormat.MAGIC);
+        this.out.writeInt(RecordFormat.VERSION);
+    }
+
+    /**
+     * Appends one frame.
+     *
+     * @param frameWidth,frameHeight upright size of the analysed frame; detection boxes are in it
+     * @param rotation               degrees the sensor image is rotated to be upright
+     * @param luma                   tightly packed sensor-orientation Y plane, or null
+     * @param lumaWidth,lumaHeight   size of {@code luma}; ignored if it is null
+     */
+    public void recordFrame(long timestampNanos, int frameWidth, int frameHeight, int rotation,
+                            List<Detection> detections, byte[] luma, int lumaWidth, int lumaHeight)
+            throws IOException {
+        if (luma != null && luma.length != lumaWidth * lumaHeight) {
+            throw new IllegalArgumentException("luma is " + luma.length + " bytes, expected "
+                    + lumaWidth + "x" + lumaHeight);
+        }
+        recordLength = 0;
+        writeVarLong(RecordFormat.zigzag(timestampNanos - previousTimestampNanos));
+        previousTimestampNanos = timestampNanos;
+        writeVarInt(frameWidth);
+        writeVarInt(frameHeight);
+        writeVarInt(rotation);
+        writeVarInt(detections.size());
+        for (int i = 0, n = detections.size(); i < n; i++) {
+            writeDetection(detections.get(i));
+        }
+        if (luma == null) {
+            writeVarInt(0);
+        } else {
+            writeVarInt(luma.length);
+            writeVarInt(lumaWidth);
+            writeVarInt(lumaHeight);
+        }
+
+        out.writeByte(RecordFormat.FRAME_TAG);
+        writeVarIntTo(out, recordLength + (luma != null ? luma.length : 0));
+        out.write(record, 0, recordLength);
+        if (luma != null) {
+            out.write(luma);
+        }
+        frameCount++;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeDetection(Detection detection) {
+        String key = detection.getFormat() + ":" + detection.getValue();
+        Integer symbol = symbols.get(key);
+        if (symbol == null) {
+            symbol = symbols.size();
+            symbols.put(key, symbol);
+            writeVarInt(symbol);
+            writeVarInt(detection.getFormat());
+            byte[] utf8 = detection.getValue().getBytes(StandardCharsets.UTF_8);
+            writeVarInt(utf8.length);
+            writeBytes(utf8);
+        } else {
+            writeVarInt(symbol);
+        }
+        writeVarInt(RecordFormat.zigzag(detection.getLeft()));
+        writeVarInt(RecordFormat.zigzag(detection.getTop()));
+        writeVarInt(RecordFormat.zigzag(detection.getRight()));
+        writeVarInt(RecordFormat.zigzag(detection.getBottom()));
+    }
+
+    private void writeVarInt(int value) {
+        while ((value & ~0x7f) != 0) {
+            put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        put((byte) value);
+    }
+
+    private static void writeVarIntTo(OutputStream stream, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            stream.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        stream.write(value);
+    }
+
+    private void writeVarLong(long value) {
+        while ((value & ~0x7fL) != 0) {
+            put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        put((byte) value);
+    }
+
+    private void writeBytes(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, record, recordLength, bytes.length);
+        recordLength += bytes.length;
+    }
+
+    private void put(byte b) {
+        ensure(1);
+        record[recordLength++] = b;
+    }
+
+    private void ensure(int extra) {
+        if (recordLength + extra > record.length) {
+            record = Arrays.copyOf(record, Math.max(record.length * 2, recordLength + extra));
+        }
+    }
+}
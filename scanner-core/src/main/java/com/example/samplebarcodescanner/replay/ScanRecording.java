@@ -0,0 +1,220 @@
+package com.example.samplebarcodescanner.replay;
+
+import com.example.samplebarcodescanner.tracking.Detection;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Memory-mapped reader for files written by {@link ScanRecorder}.
+ * <p>
+ * Opening makes one pass over the file to index frame offsets and decode the value table, after
+ * which any frame can be read in any order. Luma planes are not copied: they are views of the
+ * mapping. A final frame cut off mid-write is ignored and reported by {@link #isTruncated()}.
+ * Recordings are limited to 2 GiB. Frames may be read from any thread once the recording is open.
+ */
+public final class ScanRecording implements Closeable {
+    private final FileChannel channel;
+    private final ByteBuffer mapped;
+    private final int[] frameOffsets;
+    private final long[] timestamps;
+    private final String[] symbolValues;
+    private final int[] symbolFormats;
+    // File offset just past the symbol number where each value is defined inline.
+    private final int[] symbolDefinitions;
+    private final boolean truncated;
+
+    private ScanRecording(FileChannel channel, ByteBuffer mapped, int[] frameOffsets, long[] timestamps,
+                          String[] symbolValues, int[] symbolFormats, int[] symbolDefinitions,
+                          boolean truncated) {
+        this.channel = channel;
+        this.mapped = mapped;
+        this.frameOffsets = frameOffsets;
+        this.timestamps = timestamps;
+        this.symbolValues = symbolValues;
+        this.symbolFormats = symbolFormats;
+        this.symbolDefinitions = symbolDefinitions;
+        this.truncated = truncated;
+    }
+
+    public static ScanRecording open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("recording larger than 2 GiB: " + path);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < RecordFormat.HEADER_SIZE || mapped.getInt(0) != RecordFormat.MAGIC) {
+                throw new IOException("not a scan recording: " + path);
+            }
+            int version = mapped.getInt(4);
+            if (version != RecordFormat.VERSION) {
+                throw new IOException("unsupported recording version " + version + ": " + path);
+            }
+            return index(channel, mapped);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static ScanRecording index(FileChannel channel, ByteBuffer mapped) throws IOException {
+        ByteBuffer in = mapped.duplicate();
+        in.position(RecordFormat.HEADER_SIZE);
+        int[] offsets = new int[256];
+        long[] timestamps = new long[256];
+        List<String> values = new ArrayList<>();
+        int[] formats = new int[64];
+        int[] definitions = new int[64];
+        int frames = 0;
+        long timestamp = 0;
+        boolean truncated = false;
+
+        while (in.hasRemaining()) {
+            int recordStart = in.position();
+            int payloadStart;
+            int payloadLength;
+            try {
+                if (in.get() != RecordFormat.FRAME_TAG) {
+                    throw new IOException("corrupt recording: bad tag at offset " + recordStart);
+                }
+                payloadLength = RecordFormat.readVarInt(in);
+                payloadStart = in.position();
+            } catch (BufferUnderflowException e) {
+                truncated = true;
+                break;
+            }
+            if (payloadLength < 0 || payloadLength > in.remaining()) {
+                truncated = true;
+                break;
+            }
+
+            ByteBuffer payload = in.duplicate();
+            payload.limit(payloadStart + payloadLength);
+            try {
+                timestamp += RecordFormat.unzigzag(RecordFormat.readVarLong(payload));
+                RecordFormat.readVarInt(payload); // frame width
+                RecordFormat.readVarInt(payload); // frame height
+                RecordFormat.readVarInt(payload); // rotation
+                int count = RecordFormat.readVarInt(payload);
+                for (int d = 0; d < count; d++) {
+                    int symbol = RecordFormat.readVarInt(payload);
+                    if (symbol == values.size()) {
+                        if (symbol == formats.length) {
+                            formats = Arrays.copyOf(formats, symbol * 2);
+                            definitions = Arrays.copyOf(definitions, symbol * 2);
+                        }
+                        definitions[symbol] = payload.position();
+                        formats[symbol] = RecordFormat.readVarInt(payload);
+                        values.add(readUtf8(payload));
+                    } else if (symbol > values.size()) {
+                        throw new IOException("corrupt recording: undefined value " + symbol
+                                + " at offset " + recordStart);
+                    }
+                    for (int k = 0; k < 4; k++) {
+                        RecordFormat.readVarInt(payload);
+                    }
+                }
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                throw new IOException("corrupt recording: frame at offset " + recordStart, e);
+            }
+
+            if (frames == offsets.length) {
+                offsets = Arrays.copyOf(offsets, frames * 2);
+                timestamps = Arrays.copyOf(timestamps, frames * 2);
+            }
+            offsets[frames] = recordStart;
+            timestamps[frames] = timestamp;
+            frames++;
+            in.position(payloadStart + payloadLength);
+        }
+        return new ScanRecording(channel, mapped, Arrays.copyOf(offsets, frames), Arrays.copyOf(timestamps, frames),
+                values.toArray(new String[0]), Arrays.copyOf(formats, values.size()),
+                Arrays.copyOf(definitions, values.size()), truncated);
+    }
+
+    public int getFrameCount() {
+        return frameOffsets.length;
+    }
+
+    public long getTimestampNanos(int index) {
+        return timestamps[index];
+    }
+
+    /** Number of distinct value and format pairs in the recording. */
+    public int getValueCount() {
+        return symbolValues.length;
+    }
+
+    /** Whether the file ended part-way through a frame, which was then ignored. */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /** Decodes frame {@code index}. Allocates its detection list; luma is a view of the mapping. */
+    public RecordedFrame frame(int index) {
+        ByteBuffer in = mapped.duplicate();
+        in.position(frameOffsets[index] + 1);
+        int payloadLength = RecordFormat.readVarInt(in);
+        int payloadEnd = in.position() + payloadLength;
+        RecordFormat.readVarLong(in); // timestamp delta, resolved while indexing
+        int frameWidth = RecordFormat.readVarInt(in);
+        int frameHeight = RecordFormat.readVarInt(in);
+        int rotation = RecordFormat.readVarInt(in);
+        int count = RecordFormat.readVarInt(in);
+        List<Detection> detections = new ArrayList<>(count);
+        for (int d = 0; d < count; d++) {
+            int symbol = RecordFormat.readVarInt(in);
+            if (symbolDefinitions[symbol] == in.position()) {
+                RecordFormat.readVarInt(in); // format
+                int valueLength = RecordFormat.readVarInt(in);
+                in.position(in.position() + valueLength);
+            }
+            int left = RecordFormat.unzigzag(RecordFormat.readVarInt(in));
+            int top = RecordFormat.unzigzag(RecordFormat.readVarInt(in));
+            int right = RecordFormat.unzigzag(RecordFormat.readVarInt(in));
+            int bottom = RecordFormat.unzigzag(RecordFormat.readVarInt(in));
+            detections.add(new Detection(symbolValues[symbol], symbolFormats[symbol], left, top, right, bottom));
+        }
+        int lumaLength = RecordFormat.readVarInt(in);
+        ByteBuffer luma = null;
+        int lumaWidth = 0;
+        int lumaHeight = 0;
+        if (lumaLength > 0) {
+            lumaWidth = RecordFormat.readVarInt(in);
+            lumaHeight = RecordFormat.readVarInt(in);
+            luma = in.duplicate();
+            luma.limit(in.position() + lumaLength);
+            luma = luma.slice().asReadOnlyBuffer();
+        }
+        if (in.position() + lumaLength != payloadEnd) {
+            throw new IllegalStateException("frame " + index + " does not match its length");
+        }
+        return new RecordedFrame(timestamps[index], frameWidth, frameHeight, rotation,
+                Collections.unmodifiableList(detections), luma, lumaWidth, lumaHeight);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static String readUtf8(ByteBuffer in) {
+        int length = RecordFormat.readVarInt(in);
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
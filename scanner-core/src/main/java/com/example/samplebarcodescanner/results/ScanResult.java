@@ -0,0 +1,81 @@
+package com.example.samplebarcodescanner.results;
+
+import com.example.samplebarcodescanner.tracking.Track;
+
+/**
+ * One read of a tracked barcode, as delivered to {@link ScanResultsHub} subscribers: an immutable
+ * copy of the track on the frame it was matched, safe to keep and pass between threads.
+ */
+public final class ScanResult {
+    private final int trackId;
+    private final String value;
+    private final int format;
+    private final int left;
+    private final int top;
+    private final int right;
+    private final int bottom;
+    private final int hits;
+    private final long timestampNanos;
+
+    public ScanResult(int trackId, String value, int format, int left, int top, int right, int bottom,
+                      int hits, long timestampNanos) {
+        this.trackId = trackId;
+        this.value = value;
+        this.format = format;
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+        this.hits = hits;
+        this.timestampNanos = timestampNanos;
+    }
+
+    static ScanResult of(Track track, long timestampNanos) {
+        return new ScanResult(track.getId(), track.getValue(), track.getFormat(), track.getLeft(), track.getTop(),
+                track.getRight(), track.getBottom(), track.getHits(), timestampNanos);
+    }
+
+    /** The track this read belongs to; reads of one physical label share it while it stays tracked. */
+    public int getTrackId() {
+        return trackId;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public int getFormat() {
+        return format;
+    }
+
+    public int getLeft() {
+        return left;
+    }
+
+    public int getTop() {
+        return top;
+    }
+
+    public int getRight() {
+        return right;
+    }
+
+    public int getBottom() {
+        return bottom;
+    }
+
+    /** Frames the track had been matched in, this one included. */
+    public int getHits() {
+        return hits;
+    }
+
+    /** When the frame was captured or admitted, on the {@code System.nanoTime} clock. */
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "ScanResult{track=" + trackId + ", value=" + value + ", format=" + format + ", hits=" + hits + "}";
+    }
+}
@@ -0,0 +1,395 @@
+package com.example.samplebarcodescanner.results;
+
+import com.example.samplebarcodescanner.pipeline.TrackStage;
+import com.example.samplebarcodescanner.tracking.Track;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams scan results to integrations, such as ERP pushes or label printers, as a
+ * {@link TrackStage} of the scan pipeline.
+ * <p>
+ * Each subscriber picks what it is sent: every read, that is every frame a track is matched, or
+ * one read per track; either one delivery per frame or windowed batches closed every N ms or K
+ * reads. Deliveries run on the subscriber's own executor through a bounded queue, and a full
+ * queue applies the subscriber's {@link Overflow} policy, so a slow or failing subscriber costs
+ * the tracking thread one queue offer and never blocks it. A listener that throws is counted and
+ * keeps receiving.
+ * <p>
+ * {@link #onTracks}, {@link #flush} and {@link #close} are confined to the tracking thread;
+ * subscribing and cancelling are safe from any thread.
+ */
+public final class ScanResultsHub implements TrackStage, AutoCloseable {
+    // Initial size of a batch window's list; windows of many reads grow it.
+    private static final int WINDOW_INITIAL_CAPACITY = 16;
+
+    /** Receives results on the executor it was subscribed with, one delivery at a time. */
+    public interface Listener {
+        /** Called with a non-empty, unmodifiable list in frame order. */
+        void onResults(List<ScanResult> results);
+    }
+
+    /** Which reads a subscriber is sent. */
+    public enum Mode {
+        /** Every frame a confirmed track is matched in. */
+        EVERY_READ,
+        /** Each track once, on the frame it becomes confirmed. */
+        DISTINCT_PER_TRACK
+    }
+
+    /** What a full delivery queue does with one more delivery. */
+    public enum Overflow {
+        /** Discards the oldest queued delivery to make room. */
+        DROP_OLDEST,
+        /** Discards the new delivery. */
+        DROP_NEWEST,
+        /** Cancels the subscription, discarding everything queued. */
+        CANCEL
+    }
+
+    /** How one subscriber is fed. */
+    public static final class Options {
+        public static final int DEFAULT_CAPACITY = 64;
+
+        private final Executor executor;
+        private final Mode mode;
+        private final int minHits;
+        private final long windowNanos;
+        private final int maxReads;
+        private final int capacity;
+        private final Overflow overflow;
+
+        private Options(Builder builder) {
+            executor = builder.executor;
+            mode = builder.mode;
+            minHits = builder.minHits;
+            windowNanos = builder.windowNanos;
+            maxReads = builder.maxReads;
+            capacity = builder.capacity;
+            overflow = builder.overflow;
+        }
+
+        public Mode getMode() {
+            return mode;
+        }
+
+        boolean isBatched() {
+            return windowNanos > 0;
+        }
+
+        public static final class Builder {
+            private final Executor executor;
+            private Mode mode = Mode.EVERY_READ;
+            private int minHits = 1;
+            private long windowNanos;
+            private int maxReads;
+            private int capacity = DEFAULT_CAPACITY;
+            private Overflow overflow = Overflow.DROP_OLDEST;
+
+            /** @param executor runs the listener; deliveries to one subscriber never overlap */
+            public Builder(Executor executor) {
+                if (executor == null) {
+                    throw new IllegalArgumentException("executor == null");
+                }
+                this.executor = executor;
+            }
+
+            public Builder mode(Mode mode) {
+                this.mode = mode;
+                return this;
+            }
+
+            /** Frames a track must be matched in before its reads are sent; 1 sends glimpses too. */
+            public Builder minHits(int hits) {
+                minHits = hits;
+                return this;
+            }
+
+            /**
+             * Collects reads into batches, each delivered once it holds {@code maxReads} reads or
+             * {@code windowMillis} after its first read, whichever comes first. Windows close on
+             * frame timestamps, so a window still open when frames stop waits for
+             * {@link ScanResultsHub#flush}.
+             */
+            public Builder batches(long windowMillis, int maxReads) {
+                if (windowMillis < 1 || maxReads < 1) {
+                    throw new IllegalArgumentException("window " + windowMillis + " ms, " + maxReads + " reads");
+                }
+                this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+                this.maxReads = maxReads;
+                return this;
+            }
+
+            /** Deliveries that may wait for the listener before {@link #overflow} applies. */
+            public Builder capacity(int deliveries) {
+                capacity = deliveries;
+                return this;
+            }
+
+            public Builder overflow(Overflow overflow) {
+                this.overflow = overflow;
+                return this;
+            }
+
+            public Options build() {
+                if (mode == null || overflow == null) {
+                    throw new IllegalArgumentException("mode and overflow are required");
+                }
+                if (minHits < 1) {
+                    throw new IllegalArgumentException("minHits must be at least 1: " + minHits);
+                }
+                if (capacity < 1) {
+                    throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+                }
+                return new Options(this);
+            }
+        }
+    }
+
+    /** A subscriber's handle: its delivery counters, and the way to stop it. */
+    public final class Subscription {
+        private final Options options;
+        private final Listener listener;
+        // Tracking thread only: the open batch window.
+        private ArrayList<ScanResult> window;
+        private long windowStartNanos;
+        // Guarded by queue.
+        private final ArrayDeque<List<ScanResult>> queue = new ArrayDeque<>();
+        private boolean draining;
+        private volatile boolean cancelled;
+        private volatile RuntimeException lastError;
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final Runnable drain = this::drain;
+
+        private Subscription(Options options, Listener listener) {
+            this.options = options;
+            this.listener = listener;
+        }
+
+        /**
+         * Stops deliveries: nothing queued is delivered after this returns, apart from a delivery
+         * already under way. Safe from any thread, including the listener's.
+         */
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            synchronized (queue) {
+                discardQueued();
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /** Reads the listener returned from. */
+        public long getDeliveredCount() {
+            return delivered.get();
+        }
+
+        /** Reads discarded by the overflow policy, cancellation or a rejecting executor. */
+        public long getDroppedCount() {
+            return dropped.get();
+        }
+
+        /** Reads in deliveries the listener threw from. */
+        public long getFailedCount() {
+            return failed.get();
+        }
+
+        /** What the listener last threw, or null. */
+        public RuntimeException getLastError() {
+            return lastError;
+        }
+
+        /** Deliveries waiting for the listener. */
+        public int getQueuedCount() {
+            synchronized (queue) {
+                return queue.size();
+            }
+        }
+
+        /** Tracking thread: takes this frame's reads. */
+        void onFrame(List<ScanResult> reads, long timestampNanos) {
+            List<ScanResult> selected = null;
+            for (int i = 0, n = reads.size(); i < n; i++) {
+                ScanResult read = reads.get(i);
+                boolean wanted = options.mode == Mode.DISTINCT_PER_TRACK
+                        // Hits only grow on matched frames, so this holds on exactly one of them.
+                        ? read.getHits() == options.minHits
+                        : read.getHits() >= options.minHits;
+                if (!wanted) {
+                    continue;
+                }
+                if (!options.isBatched()) {
+                    if (selected == null) {
+                        selected = new ArrayList<>(n - i);
+                    }
+                    selected.add(read);
+                    continue;
+                }
+                if (window == null) {
+                    window = new ArrayList<>(Math.min(options.maxReads, WINDOW_INITIAL_CAPACITY));
+                    windowStartNanos = timestampNanos;
+                }
+                window.add(read);
+                if (window.size() >= options.maxReads) {
+                    flushWindow();
+                }
+            }
+            if (selected != null) {
+                offer(selected);
+            } else if (window != null && timestampNanos - windowStartNanos >= options.windowNanos) {
+                flushWindow();
+            }
+        }
+
+        /** Tracking thread: queues the open window, if any. */
+        void flushWindow() {
+            if (window != null) {
+                List<ScanResult> batch = window;
+                window = null;
+                offer(batch);
+            }
+        }
+
+        private void offer(List<ScanResult> delivery) {
+            synchronized (queue) {
+                if (cancelled) {
+                    dropped.addAndGet(delivery.size());
+                    return;
+                }
+                if (queue.size() >= options.capacity) {
+                    switch (options.overflow) {
+                        case DROP_OLDEST:
+                            dropped.addAndGet(queue.poll().size());
+                            break;
+                        case DROP_NEWEST:
+                            dropped.addAndGet(delivery.size());
+                            return;
+                        case CANCEL:
+                            dropped.addAndGet(delivery.size());
+                            cancelled = true;
+                            discardQueued();
+                            subscriptions.remove(this);
+                            return;
+                    }
+                }
+                queue.add(delivery);
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            try {
+                options.executor.execute(drain);
+            } catch (RejectedExecutionException e) {
+                // The subscriber's executor is shut down: nothing will ever drain this queue.
+                lastError = e;
+                cancel();
+            }
+        }
+
+        /** Subscriber's executor: delivers until the queue is empty. */
+        private void drain() {
+            while (true) {
+                List<ScanResult> delivery;
+                synchronized (queue) {
+                    delivery = cancelled ? null : queue.poll();
+                    if (delivery == null) {
+                        draining = false;
+                        return;
+                    }
+                }
+                try {
+                    listener.onResults(Collections.unmodifiableList(delivery));
+                    delivered.addAndGet(delivery.size());
+                } catch (RuntimeException e) {
+                    failed.addAndGet(delivery.size());
+                    lastError = e;
+                }
+            }
+        }
+
+        /** Called holding {@code queue}. */
+        private void discardQueued() {
+            for (List<ScanResult> delivery : queue) {
+                dropped.addAndGet(delivery.size());
+            }
+            queue.clear();
+        }
+    }
+
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    // Tracking thread only.
+    private final ArrayList<ScanResult> frameReads = new ArrayList<>();
+    private volatile boolean closed;
+
+    /**
+     * Starts sending results to {@code listener}, from the next frame on.
+     *
+     * @throws IllegalStateException if the hub is closed
+     */
+    public Subscription subscribe(Options options, Listener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener == null");
+        }
+        if (closed) {
+            throw new IllegalStateException("closed");
+        }
+        Subscription subscription = new Subscription(options, listener);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    @Override
+    public void onTracks(List<Track> tracks, long timestampNanos) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        frameReads.clear();
+        for (int i = 0, n = tracks.size(); i < n; i++) {
+            Track track = tracks.get(i);
+            if (track.getMissedFrames() == 0) {
+                frameReads.add(ScanResult.of(track, timestampNanos));
+            }
+        }
+        // Subscribers keep their own lists, so this one can be reused next frame.
+        for (Subscription subscription : subscriptions) {
+            subscription.onFrame(frameReads, timestampNanos);
+        }
+        frameReads.clear();
+    }
+
+    /** Queues every open batch window now, as at the end of a scan session. */
+    public void flush() {
+        for (Subscription subscription : subscriptions) {
+            subscription.flushWindow();
+        }
+    }
+
+    /**
+     * Flushes open windows and stops taking subscribers; what is queued is still delivered, then
+     * subscribers hear nothing more.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        flush();
+        subscriptions.clear();
+    }
+}
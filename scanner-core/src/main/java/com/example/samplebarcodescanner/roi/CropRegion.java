@@ -0,0 +1,80 @@
+package com.example.samplebarcodescanner.roi;
+
+import com.example.samplebarcodescanner.geometry.IntRect;
+
+/**
+ * A sensor-space crop of one analysis frame, and the mapping from detections made on that crop
+ * back into the upright coordinates of the full frame.
+ */
+public final class CropRegion {
+    private final int left;
+    private final int top;
+    private final int width;
+    private final int height;
+    private final int frameWidth;
+    private final int frameHeight;
+    private final int rotationDegrees;
+
+    /**
+     * @param left,top,width,height crop in sensor pixels; all four must be even so the crop
+     *                              lines up with the 2x2 subsampled chroma planes
+     */
+    public CropRegion(int left, int top, int width, int height, int frameWidth, int frameHeight, int rotationDegrees) {
+        if (((left | top | width | height) & 1) != 0) {
+            throw new IllegalArgumentException("crop must be even-aligned: " + left + "," + top + " " + width + "x" + height);
+        }
+        if (left < 0 || top < 0 || width <= 0 || height <= 0 || left + width > frameWidth || top + height > frameHeight) {
+            throw new IllegalArgumentException("crop outside " + frameWidth + "x" + frameHeight + " frame");
+        }
+        this.left = left;
+        this.top = top;
+        this.width = width;
+        this.height = height;
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.rotationDegrees = rotationDegrees;
+    }
+
+    public int getLeft() {
+        return left;
+    }
+
+    public int getTop() {
+        return top;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /** Size in bytes of this crop as an NV21 image. */
+    public int nv21Size() {
+        return width * height * 3 / 2;
+    }
+
+    /**
+     * Maps a box reported for the crop (upright crop coordinates, as returned by the detector
+     * when given the crop and the frame's rotation) into upright full-frame coordinates.
+     *
+     * @param rect {@code left, top, right, bottom}; updated in place
+     */
+    public void mapToFrame(int[] rect) {
+        RoiGeometry.uprightToSensor(rect, width, height, rotationDegrees);
+        rect[0] += left;
+        rect[1] += top;
+        rect[2] += left;
+        rect[3] += top;
+        RoiGeometry.sensorToUpright(rect, frameWidth, frameHeight, rotationDegrees);
+    }
+
+    /** {@link #mapToFrame(int[])} for an {@link IntRect}, through the caller's scratch array. */
+    public void mapToFrame(IntRect rect, int[] scratch) {
+        rect.toArray(scratch);
+        mapToFrame(scratch);
+        rect.setFromArray(scratch);
+    }
+}
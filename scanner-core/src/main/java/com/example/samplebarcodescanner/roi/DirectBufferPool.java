@@ -0,0 +1,61 @@
+package com.example.samplebarcodescanner.roi;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Recycles direct byte buffers for crop images so steady-state ROI scanning does not allocate.
+ * <p>
+ * Buffers are bucketed by power-of-two capacity. At most {@code maxPooledPerSize} idle buffers
+ * are kept per bucket; extra releases are left to the garbage collector. Thread-safe.
+ */
+public final class DirectBufferPool {
+    private static final int MIN_SHIFT = 12; // 4 KiB
+    private static final int MAX_SHIFT = 24; // 16 MiB
+
+    private final int maxPooledPerSize;
+    private final ArrayDeque<ByteBuffer>[] buckets;
+    private int allocations;
+
+    @SuppressWarnings("unchecked")
+    public DirectBufferPool(int maxPooledPerSize) {
+        this.maxPooledPerSize = maxPooledPerSize;
+        this.buckets = (ArrayDeque<ByteBuffer>[]) new ArrayDeque<?>[MAX_SHIFT - MIN_SHIFT + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+    }
+
+    /** Returns a cleared direct buffer with at least {@code minCapacity} bytes. */
+    public synchronized ByteBuffer acquire(int minCapacity) {
+        int bucket = bucketFor(minCapacity);
+        ByteBuffer buffer = bucket < 0 ? null : buckets[bucket].pollFirst();
+        if (buffer == null) {
+            int capacity = bucket < 0 ? minCapacity : 1 << (bucket + MIN_SHIFT);
+            buffer = ByteBuffer.allocateDirect(capacity);
+            allocations++;
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    public synchronized void release(ByteBuffer buffer) {
+        int bucket = bucketFor(buffer.capacity());
+        if (bucket < 0 || buffer.capacity() != 1 << (bucket + MIN_SHIFT)) {
+            return; // not one of ours
+        }
+        if (buckets[bucket].size() < maxPooledPerSize) {
+            buckets[bucket].addFirst(buffer);
+        }
+    }
+
+    /** Number of buffers this pool has allocated so far. */
+    public synchronized int getAllocationCount() {
+        return allocations;
+    }
+
+    private static int bucketFor(int capacity) {
+        int shift = Math.max(MIN_SHIFT, 32 - Integer.numberOfLeadingZeros(Math.max(1, capacity - 1)));
+        return shift > MAX_SHIFT ? -1 : shift - MIN_SHIFT;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.samplebarcodescanner.roi;
+
+/**
+ * Maps rectangles between the sensor buffer and the upright image ML Kit reports results in.
+ * <p>
+ * {@code rotationDegrees} is the clockwise rotation that turns the sensor buffer upright, as
+ * given by {@code ImageInfo.getRotationDegrees()}. Rectangles are {@code int[4]} arrays of
+ * {@code left, top, right, bottom} and are transformed in place.
+ */
+public final class RoiGeometry {
+    private RoiGeometry() {
+    }
+
+    /** Width of the upright image for a {@code sensorWidth x sensorHeight} buffer. */
+    public static int uprightWidth(int sensorWidth, int sensorHeight, int rotationDegrees) {
+        return isTransposed(rotationDegrees) ? sensorHeight : sensorWidth;
+    }
+
+    /** Height of the upright image for a {@code sensorWidth x sensorHeight} buffer. */
+    public static int uprightHeight(int sensorWidth, int sensorHeight, int rotationDegrees) {
+        return isTransposed(rotationDegrees) ? sensorWidth : sensorHeight;
+    }
+
+    /** Converts an upright-space rectangle to sensor space. */
+    public static void uprightToSensor(int[] rect, int sensorWidth, int sensorHeight, int rotationDegrees) {
+        int l = rect[0];
+        int t = rect[1];
+        int r = rect[2];
+        int b = rect[3];
+        switch (normalize(rotationDegrees)) {
+            case 0:
+                return;
+            case 90:
+                set(rect, t, sensorHeight - r, b, sensorHeight - l);
+                return;
+            case 180:
+                set(rect, sensorWidth - r, sensorHeight - b, sensorWidth - l, sensorHeight - t);
+                return;
+            default:
+                set(rect, sensorWidth - b, l, sensorWidth - t, r);
+        }
+    }
+
+    /** Converts a sensor-space rectangle to upright space. */
+    public static void sensorToUpright(int[] rect, int sensorWidth, int sensorHeight, int rotationDegrees) {
+        int l = rect[0];
+        int t = rect[1];
+        int r = rect[2];
+        int b = rect[3];
+        switch (normalize(rotationDegrees)) {
+            case 0:
+                return;
+            case 90:
+                set(rect, sensorHeight - b, l, sensorHeight - t, r);
+                return;
+            case 180:
+                set(rect, sensorWidth - r, sensorHeight - b, sensorWidth - l, sensorHeight - t);
+                return;
+            default:
+                set(rect, t, sensorWidth - r, b, sensorWidth - l);
+        }
+    }
+
+    private static boolean isTransposed(int rotationDegrees) {
+        int rotation = normalize(rotationDegrees);
+        return rotation == 90 || rotation == 270;
+    }
+
+    private static int normalize(int rotationDegrees) {
+        int rotation = ((rotationDegrees % 360) + 360) % 360;
+        if (rotation % 90 != 0) {
+            throw new IllegalArgumentException("rotation must be a multiple of 90: " + rotationDegrees);
+        }
+        return rotation;
+    }
+
+    private static void set(int[] rect, int left, int top, int right, int bottom) {
+        rect[0] = left;
+        rect[1] = top;
+        rect[2] = right;
+        rect[3] = bottom;
+    }
+}
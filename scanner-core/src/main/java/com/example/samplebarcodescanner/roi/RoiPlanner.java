@@ -0,0 +1,168 @@
+package com.example.samplebarcodescanner.roi;
+
+import com.example.samplebarcodescanner.tracking.Track;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides, per analysis frame, whether to scan the whole frame or only padded regions around
+ * the barcodes already being tracked.
+ * <p>
+ * The tracking stage reports its tracks through {@link #onTracksUpdated}; the analyzer asks for
+ * a plan with {@link #nextPlan}. A full-frame scan is returned every {@code fullScanInterval}
+ * frames so new labels are picked up, and immediately after any track goes unmatched, when
+ * nothing is tracked, when the regions would not fit in {@code maxRegions} crops, or when they
+ * would cover so much of the frame that cropping no longer pays off.
+ * <p>
+ * The two methods may be called from different threads.
+ */
+public final class RoiPlanner {
+    public static final int DEFAULT_FULL_SCAN_INTERVAL = 8;
+    public static final int DEFAULT_MAX_REGIONS = 6;
+    public static final float DEFAULT_MAX_COVERAGE = 0.5f;
+
+    private static final float PADDING_SCALE = 0.5f;
+    private static final int MIN_PADDING_PX = 24;
+    // How far ahead of the last detection a moving label is expected to be, in seconds.
+    private static final float LOOKAHEAD_SECONDS = 0.15f;
+
+    private final int fullScanInterval;
+    private final int maxRegions;
+    private final float maxCoverage;
+
+    private final AtomicInteger frameCounter = new AtomicInteger();
+    private final AtomicBoolean fullScanRequested = new AtomicBoolean(true);
+    // Upright-space regions as flat left, top, right, bottom quads; replaced, never mutated.
+    private volatile int[] regions = new int[0];
+
+    public RoiPlanner() {
+        this(DEFAULT_FULL_SCAN_INTERVAL, DEFAULT_MAX_REGIONS, DEFAULT_MAX_COVERAGE);
+    }
+
+    public RoiPlanner(int fullScanInterval, int maxRegions, float maxCoverage) {
+        if (fullScanInterval < 1) {
+            throw new IllegalArgumentException("fullScanInterval must be >= 1: " + fullScanInterval);
+        }
+        this.fullScanInterval = fullScanInterval;
+        this.maxRegions = maxRegions;
+        this.maxCoverage = maxCoverage;
+    }
+
+    /** Forces the next plan to be a full-frame scan. */
+    public void requestFullScan() {
+        fullScanRequested.set(true);
+    }
+
+    /**
+     * Rebuilds the scan regions from the current tracks, in upright frame coordinates. A track
+     * that missed this frame triggers a full-frame scan on the next plan.
+     */
+    public void onTracksUpdated(List<Track> tracks) {
+        int count = tracks.size();
+        int[] padded = new int[count * 4];
+        boolean lost = false;
+        for (int i = 0; i < count; i++) {
+            Track track = tracks.get(i);
+            if (track.getMissedFrames() > 0) {
+                lost = true;
+            }
+            int width = track.getRight() - track.getLeft();
+            int height = track.getBottom() - track.getTop();
+            int padding = Math.max(MIN_PADDING_PX, (int) (PADDING_SCALE * Math.max(width, height)));
+            int leadX = (int) (track.getVelocityX() * LOOKAHEAD_SECONDS);
+            int leadY = (int) (track.getVelocityY() * LOOKAHEAD_SECONDS);
+            padded[i * 4] = track.getLeft() - padding + Math.min(0, leadX);
+            padded[i * 4 + 1] = track.getTop() - padding + Math.min(0, leadY);
+            padded[i * 4 + 2] = track.getRight() + padding + Math.max(0, leadX);
+            padded[i * 4 + 3] = track.getBottom() + padding + Math.max(0, leadY);
+        }
+        regions = mergeOverlapping(padded, count);
+        if (lost || count == 0) {
+            fullScanRequested.set(true);
+        }
+    }
+
+    /**
+     * Plans the scan of the next analysis frame.
+     *
+     * @return an empty list to scan the full frame, otherwise the crops to scan
+     */
+    public List<CropRegion> nextPlan(int sensorWidth, int sensorHeight, int rotationDegrees) {
+        return nextPlan(sensorWidth, sensorHeight, rotationDegrees, 1f);
+    }
+
+    /**
+     * Plans the scan of a frame whose resolution differs from the one tracks are reported in:
+     * a track at {@code x} is at {@code x * trackToFrame} in this frame.
+     *
+     * @return an empty list to scan the full frame, otherwise the crops to scan
+     */
+    public List<CropRegion> nextPlan(int sensorWidth, int sensorHeight, int rotationDegrees, float trackToFrame) {
+        int frame = frameCounter.getAndIncrement();
+        boolean requested = fullScanRequested.getAndSet(false);
+        int[] current = regions;
+        int count = current.length / 4;
+        if (requested || frame % fullScanInterval == 0 || count == 0 || count > maxRegions) {
+            return Collections.emptyList();
+        }
+
+        List<CropRegion> crops = new ArrayList<>(count);
+        long area = 0;
+        int[] rect = new int[4];
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < 4; j++) {
+                rect[j] = trackToFrame == 1f ? current[i * 4 + j] : Math.round(current[i * 4 + j] * trackToFrame);
+            }
+            RoiGeometry.uprightToSensor(rect, sensorWidth, sensorHeight, rotationDegrees);
+            // Clamp to the frame and widen to even coordinates for the chroma planes.
+            int left = Math.max(0, rect[0]) & ~1;
+            int top = Math.max(0, rect[1]) & ~1;
+            int right = Math.min(sensorWidth, (rect[2] + 1) & ~1);
+            int bottom = Math.min(sensorHeight, (rect[3] + 1) & ~1);
+            if (right - left < 2 || bottom - top < 2) {
+                continue;
+            }
+            area += (long) (right - left) * (bottom - top);
+            crops.add(new CropRegion(left, top, (right - left) & ~1, (bottom - top) & ~1,
+                    sensorWidth, sensorHeight, rotationDegrees));
+        }
+        if (crops.isEmpty() || area > maxCoverage * sensorWidth * sensorHeight) {
+            return Collections.emptyList();
+        }
+        return crops;
+    }
+
+    /** Repeatedly unions overlapping rectangles until none overlap. */
+    static int[] mergeOverlapping(int[] rects, int count) {
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            for (int i = 0; i < count && !merged; i++) {
+                for (int j = i + 1; j < count; j++) {
+                    if (overlaps(rects, i, j)) {
+                        rects[i * 4] = Math.min(rects[i * 4], rects[j * 4]);
+                        rects[i * 4 + 1] = Math.min(rects[i * 4 + 1], rects[j * 4 + 1]);
+                        rects[i * 4 + 2] = Math.max(rects[i * 4 + 2], rects[j * 4 + 2]);
+                        rects[i * 4 + 3] = Math.max(rects[i * 4 + 3], rects[j * 4 + 3]);
+                        count--;
+                        System.arraycopy(rects, count * 4, rects, j * 4, 4);
+                        merged = true;
+                        break;
+                    }
+                }
+            }
+        }
+        int[] result = new int[count * 4];
+        System.arraycopy(rects, 0, result, 0, count * 4);
+        return result;
+    }
+
+    private static boolean overlaps(int[] rects, int i, int j) {
+        return rects[i * 4] < rects[j * 4 + 2] && rects[j * 4] < rects[i * 4 + 2]
+                && rects[i * 4 + 1] < rects[j * 4 + 3] && rects[j * 4 + 1] < rects[i * 4 + 3];
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.samplebarcodescanner.roi;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Copies a rectangular crop out of YUV_420_888 planes into a packed NV21 buffer.
+ * <p>
+ * Works directly on the plane buffers handed out by the camera, honouring their row and pixel
+ * strides, and writes into a caller-supplied buffer so crops can be served from a
+ * {@link DirectBufferPool}. Source buffers are read with bulk transfers where the layout allows
+ * it; their position and limit are restored before returning.
+ */
+public final class YuvCropper {
+    private YuvCropper() {
+    }
+
+    /**
+     * @param y            luma plane
+     * @param yRowStride   bytes between luma rows
+     * @param u            Cb plane
+     * @param v            Cr plane
+     * @param uvRowStride  bytes between chroma rows
+     * @param uvPixelStride bytes between adjacent chroma samples (1 planar, 2 semi-planar)
+     * @param crop         region to copy; must be even-aligned
+     * @param out          destination with at least {@link CropRegion#nv21Size()} remaining bytes
+     *                     from position 0; rewound to position 0 on return
+     */
+    public static void cropToNv21(ByteBuffer y, int yRowStride,
+                                  ByteBuffer u, ByteBuffer v, int uvRowStride, int uvPixelStride,
+                                  CropRegion crop, ByteBuffer out) {
+        int width = crop.getWidth();
+        int height = crop.getHeight();
+        if (out.capacity() < crop.nv21Size()) {
+            throw new IllegalArgumentException("output buffer too small: " + out.capacity() + " < " + crop.nv21Size());
+        }
+        out.clear();
+
+        int yPosition = y.position();
+        int yLimit = y.limit();
+        try {
+            for (int row = 0; row < height; row++) {
+                int start = (crop.getTop() + row) * yRowStride + crop.getLeft();
+                y.limit(start + width);
+                y.position(start);
+                out.put(y);
+            }
+        } finally {
+            y.limit(yLimit);
+            y.position(yPosition);
+        }
+
+        // NV21 chroma is interleaved V, U at half resolution in both directions.
+        int chromaLeft = crop.getLeft() / 2;
+        int chromaTop = crop.getTop() / 2;
+        int chromaWidth = width / 2;
+        int chromaHeight = height / 2;
+        int offset = width * height;
+        for (int row = 0; row < chromaHeight; row++) {
+            int rowStart = (chromaTop + row) * uvRowStride + chromaLeft * uvPixelStride;
+            for (int col = 0; col < chromaWidth; col++) {
+                int index = rowStart + col * uvPixelStride;
+                out.put(offset++, v.get(index));
+                out.put(offset++, u.get(index));
+            }
+        }
+        out.limit(crop.nv21Size());
+        out.position(0);
+    }
+}
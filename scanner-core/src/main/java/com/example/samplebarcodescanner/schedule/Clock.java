@@ -0,0 +1,10 @@
+package com.example.samplebarcodescanner.schedule;
+
+/**
+ * Monotonic time source, injectable so scheduling can be tested deterministically.
+ */
+public interface Clock {
+    Clock SYSTEM = System::nanoTime;
+
+    long nanoTime();
+}
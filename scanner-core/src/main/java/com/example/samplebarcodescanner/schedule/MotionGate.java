@@ -0,0 +1,252 @@
+package com.example.samplebarcodescanner.schedule;
+
+import com.example.samplebarcodescanner.pipeline.TrackStage;
+import com.example.samplebarcodescanner.tracking.Track;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Skips detection on frames that show the same scene as the last scanned one.
+ * <p>
+ * {@link #shouldScan} samples the luminance plane on a fixed grid and compares it with the
+ * samples of the last frame it let through, in two ways:
+ * <ul>
+ * <li>per-sample differences, whose mean catches global motion and whose share of large
+ *     differences catches a small object moving in a still scene;</li>
+ * <li>a luminance histogram, whose distance catches exposure and lighting changes.</li>
+ * </ul>
+ * A frame is skipped only when every measure is under its threshold and the tracks reported
+ * through {@link #onTracks} are stable: none missed the last frame and none is moving. Every
+ * {@code maxSkippedFrames}-th frame is scanned regardless, so slow drift is picked up.
+ * <p>
+ * A frame {@link #shouldScan} lets through only becomes the reference once {@link #commit} says
+ * it reached the detector. A frame the scheduler then drops leaves the old reference in place,
+ * so the change it showed is still seen on the next frame.
+ * <p>
+ * Comparing with the last scanned frame rather than the previous one means gradual change
+ * accumulates until it is scanned. Sampling costs one read per grid point and allocates nothing.
+ * <p>
+ * {@link #shouldScan} and {@link #commit} are called from one thread, {@link #onTracks} and
+ * {@link #reset} from any other.
+ */
+public final class MotionGate implements TrackStage {
+    public static final int DEFAULT_GRID_COLUMNS = 64;
+    public static final int DEFAULT_GRID_ROWS = 48;
+    public static final float DEFAULT_MEAN_DIFFERENCE = 4f;
+    public static final int DEFAULT_CHANGED_DIFFERENCE = 32;
+    public static final float DEFAULT_MAX_CHANGED_FRACTION = 0.01f;
+    public static final float DEFAULT_MAX_HISTOGRAM_DISTANCE = 0.08f;
+    public static final int DEFAULT_MAX_SKIPPED_FRAMES = 15;
+    // Tracks slower than this, in pixels per second, are resting.
+    public static final float DEFAULT_STABLE_SPEED = 40f;
+
+    private static final int HISTOGRAM_BINS = 32;
+
+    public static final class Builder {
+        private int gridColumns = DEFAULT_GRID_COLUMNS;
+        private int gridRows = DEFAULT_GRID_ROWS;
+        private float meanDifference = DEFAULT_MEAN_DIFFERENCE;
+        private int changedDifference = DEFAULT_CHANGED_DIFFERENCE;
+        private float maxChangedFraction = DEFAULT_MAX_CHANGED_FRACTION;
+        private float maxHistogramDistance = DEFAULT_MAX_HISTOGRAM_DISTANCE;
+        private int maxSkippedFrames = DEFAULT_MAX_SKIPPED_FRAMES;
+        private float stableSpeed = DEFAULT_STABLE_SPEED;
+
+        /** Sampling grid; more points catch smaller changes at a proportional cost. */
+        public Builder grid(int columns, int rows) {
+            if (columns < 2 || rows < 2) {
+                throw new IllegalArgumentException("grid must be at least 2x2: " + columns + "x" + rows);
+            }
+            gridColumns = columns;
+            gridRows = rows;
+            return this;
+        }
+
+        /** Mean absolute sample difference, in luminance levels, above which the scene changed. */
+        public Builder meanDifference(float levels) {
+            meanDifference = levels;
+            return this;
+        }
+
+        /**
+         * A sample differing by more than {@code levels} has changed; more than {@code fraction}
+         * of changed samples means the scene changed.
+         */
+        public Builder changedSamples(int levels, float fraction) {
+            changedDifference = levels;
+            maxChangedFraction = fraction;
+            return this;
+        }
+
+        /** Histogram distance, from 0 for identical to 1 for disjoint, above which the scene changed. */
+        public Builder maxHistogramDistance(float distance) {
+            maxHistogramDistance = distance;
+            return this;
+        }
+
+        public Builder maxSkippedFrames(int frames) {
+            if (frames < 0) {
+                throw new IllegalArgumentException("maxSkippedFrames must not be negative: " + frames);
+            }
+            maxSkippedFrames = frames;
+            return this;
+        }
+
+        public Builder stableSpeed(float pixelsPerSecond) {
+            stableSpeed = pixelsPerSecond;
+            return this;
+        }
+
+        public MotionGate build() {
+            return new MotionGate(this);
+        }
+    }
+
+    private final int gridColumns;
+    private final int gridRows;
+    private final float meanDifference;
+    private final int changedDifference;
+    private final int maxChanged;
+    private final float maxHistogramDistance;
+    private final int maxSkippedFrames;
+    private final float stableSpeedSquared;
+
+    // Samples and histogram of the last scanned frame, and scratch for the current one.
+    private final byte[] reference;
+    private final byte[] samples;
+    private final int[] referenceHistogram = new int[HISTOGRAM_BINS];
+    private final int[] histogram = new int[HISTOGRAM_BINS];
+    private volatile boolean hasReference;
+    // Whether the last shouldScan said to scan, so commit may adopt its samples.
+    private boolean pending;
+    private int referenceWidth;
+    private int referenceHeight;
+    private int sampledWidth;
+    private int sampledHeight;
+    private int skipped;
+    private volatile boolean tracksStable;
+
+    private long scanned;
+    private long skippedTotal;
+
+    public MotionGate() {
+        this(new Builder());
+    }
+
+    private MotionGate(Builder builder) {
+        gridColumns = builder.gridColumns;
+        gridRows = builder.gridRows;
+        meanDifference = builder.meanDifference;
+        changedDifference = builder.changedDifference;
+        maxChanged = (int) (builder.maxChangedFraction * gridColumns * gridRows);
+        maxHistogramDistance = builder.maxHistogramDistance;
+        maxSkippedFrames = builder.maxSkippedFrames;
+        stableSpeedSquared = builder.stableSpeed * builder.stableSpeed;
+        reference = new byte[gridColumns * gridRows];
+        samples = new byte[gridColumns * gridRows];
+    }
+
+    /**
+     * Samples a frame's luminance plane and decides whether it needs detection. The buffer's
+     * position and limit are left untouched. When it returns true, call {@link #commit} once the
+     * frame is actually handed to the detector.
+     *
+     * @param rowStride bytes between the starts of consecutive rows
+     */
+    public boolean shouldScan(ByteBuffer luma, int rowStride, int width, int height) {
+        sample(luma, rowStride, width, height);
+        pending = !hasReference || width != referenceWidth || height != referenceHeight
+                || !tracksStable || skipped >= maxSkippedFrames || sceneChanged();
+        if (pending) {
+            sampledWidth = width;
+            sampledHeight = height;
+        } else {
+            skipped++;
+            skippedTotal++;
+        }
+        return pending;
+    }
+
+    /**
+     * Makes the frame {@link #shouldScan} last let through the one later frames are compared
+     * with. Does nothing if it said to skip.
+     */
+    public void commit() {
+        if (!pending) {
+            return;
+        }
+        pending = false;
+        System.arraycopy(samples, 0, reference, 0, samples.length);
+        System.arraycopy(histogram, 0, referenceHistogram, 0, HISTOGRAM_BINS);
+        referenceWidth = sampledWidth;
+        referenceHeight = sampledHeight;
+        hasReference = true;
+        skipped = 0;
+        scanned++;
+    }
+
+    /** Makes the next frame be scanned, e.g. after the camera was reconfigured. */
+    public void reset() {
+        hasReference = false;
+    }
+
+    /** Track stage: records whether every track is matched and resting. */
+    @Override
+    public void onTracks(List<Track> tracks, long timestampNanos) {
+        boolean stable = true;
+        for (int i = 0, n = tracks.size(); i < n && stable; i++) {
+            Track track = tracks.get(i);
+            float vx = track.getVelocityX();
+            float vy = track.getVelocityY();
+            stable = track.getMissedFrames() == 0 && vx * vx + vy * vy <= stableSpeedSquared;
+        }
+        tracksStable = stable;
+    }
+
+    public long getScannedCount() {
+        return scanned;
+    }
+
+    public long getSkippedCount() {
+        return skippedTotal;
+    }
+
+    private void sample(ByteBuffer luma, int rowStride, int width, int height) {
+        Arrays.fill(histogram, 0);
+        int base = luma.position();
+        int i = 0;
+        for (int row = 0; row < gridRows; row++) {
+            // Grid points at the centres of equal cells.
+            int y = (int) ((row * 2L + 1) * height / (gridRows * 2L));
+            int rowStart = base + y * rowStride;
+            for (int column = 0; column < gridColumns; column++) {
+                int x = (int) ((column * 2L + 1) * width / (gridColumns * 2L));
+                byte value = luma.get(rowStart + x);
+                samples[i++] = value;
+                histogram[(value & 0xff) >>> 3]++;
+            }
+        }
+    }
+
+    private boolean sceneChanged() {
+        int total = 0;
+        int changed = 0;
+        for (int i = 0; i < samples.length; i++) {
+            int difference = Math.abs((samples[i] & 0xff) - (reference[i] & 0xff));
+            total += difference;
+            if (difference > changedDifference) {
+                changed++;
+            }
+        }
+        if (total > meanDifference * samples.length || changed > maxChanged) {
+            return true;
+        }
+        int distance = 0;
+        for (int bin = 0; bin < HISTOGRAM_BINS; bin++) {
+            distance += Math.abs(histogram[bin] - referenceHistogram[bin]);
+        }
+        return distance > maxHistogramDistance * 2 * samples.length;
+    }
+}
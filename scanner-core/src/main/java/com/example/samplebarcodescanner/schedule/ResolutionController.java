@@ -0,0 +1,243 @@
+package com.example.samplebarcodescanner.schedule;
+
+import com.example.samplebarcodescanner.format.BarcodeFormats;
+import com.example.samplebarcodescanner.tracking.Detection;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Picks the analysis resolution from how many pixels each barcode module covers.
+ * <p>
+ * Levels form a ladder of analysis streams, identified by their long edge in pixels. Every
+ * analysed frame reports its detections; the smallest module among them, as a fraction of the
+ * frame's long edge, is what the controller tracks, so frames still arriving at the previous
+ * resolution after a switch are judged correctly.
+ * <ul>
+ * <li>It steps up as soon as the smallest module has been under {@code minModulePx} for
+ *     {@code confirmFrames} frames, or after {@code idleFrames} frames without any read, in case
+ *     the labels in view are too small to decode at all.</li>
+ * <li>It steps down only once every one of the last {@code windowFrames} frames with reads would
+ *     still show modules of at least {@code comfortModulePx} at the lower level.</li>
+ * </ul>
+ * {@code comfortModulePx} well above {@code minModulePx} is the hysteresis. After a switch, no
+ * further switch happens for {@code cooldownFrames} frames while the new stream settles.
+ * <p>
+ * Not thread-safe; report frames from one thread. {@link #getLevel()} may be read from any thread.
+ */
+public final class ResolutionController {
+    public static final float DEFAULT_MIN_MODULE_PX = 1.5f;
+    public static final float DEFAULT_COMFORT_MODULE_PX = 3f;
+    public static final int DEFAULT_CONFIRM_FRAMES = 3;
+    public static final int DEFAULT_WINDOW_FRAMES = 30;
+    public static final int DEFAULT_COOLDOWN_FRAMES = 30;
+    public static final int DEFAULT_IDLE_FRAMES = 90;
+
+    public static final class Builder {
+        private final int[] longEdges;
+        private int initialLevel;
+        private float minModulePx = DEFAULT_MIN_MODULE_PX;
+        private float comfortModulePx = DEFAULT_COMFORT_MODULE_PX;
+        private int confirmFrames = DEFAULT_CONFIRM_FRAMES;
+        private int windowFrames = DEFAULT_WINDOW_FRAMES;
+        private int cooldownFrames = DEFAULT_COOLDOWN_FRAMES;
+        private int idleFrames = DEFAULT_IDLE_FRAMES;
+
+        /** @param longEdges long edge in pixels of each level, ascending; starts at the highest */
+        public Builder(int... longEdges) {
+            if (longEdges.length == 0) {
+                throw new IllegalArgumentException("need at least one level");
+            }
+            for (int i = 0; i < longEdges.length; i++) {
+                if (longEdges[i] <= 0 || (i > 0 && longEdges[i] <= longEdges[i - 1])) {
+                    throw new IllegalArgumentException("long edges must be positive and ascending: "
+                            + Arrays.toString(longEdges));
+                }
+            }
+            this.longEdges = longEdges.clone();
+            initialLevel = longEdges.length - 1;
+        }
+
+        public Builder initialLevel(int level) {
+            if (level < 0 || level >= longEdges.length) {
+                throw new IllegalArgumentException("no level " + level);
+            }
+            initialLevel = level;
+            return this;
+        }
+
+        /** Module size below which reads become unreliable. */
+        public Builder minModulePx(float px) {
+            minModulePx = px;
+            return this;
+        }
+
+        /** Module size a lower level must still provide before stepping down to it. */
+        public Builder comfortModulePx(float px) {
+            comfortModulePx = px;
+            return this;
+        }
+
+        public Builder confirmFrames(int frames) {
+            confirmFrames = frames;
+            return this;
+        }
+
+        public Builder windowFrames(int frames) {
+            windowFrames = frames;
+            return this;
+        }
+
+        public Builder cooldownFrames(int frames) {
+            cooldownFrames = frames;
+            return this;
+        }
+
+        public Builder idleFrames(int frames) {
+            idleFrames = frames;
+            return this;
+        }
+
+        public ResolutionController build() {
+            if (!(minModulePx > 0) || comfortModulePx < minModulePx) {
+                throw new IllegalArgumentException("need 0 < minModulePx <= comfortModulePx: "
+                        + minModulePx + ", " + comfortModulePx);
+            }
+            if (confirmFrames < 1 || windowFrames < confirmFrames || cooldownFrames < 0 || idleFrames < 1) {
+                throw new IllegalArgumentException("need 1 <= confirmFrames <= windowFrames, cooldownFrames >= 0"
+                        + " and idleFrames >= 1");
+            }
+            return new ResolutionController(this);
+        }
+    }
+
+    private final int[] longEdges;
+    private final float minModulePx;
+    private final float comfortModulePx;
+    private final int confirmFrames;
+    private final int cooldownFrames;
+    private final int idleFrames;
+    // Smallest module per frame with reads, as a fraction of the frame's long edge; a ring.
+    private final float[] window;
+
+    private volatile int level;
+    private int windowCount;
+    private int windowHead;
+    private int cooldown;
+    private int framesWithoutReads;
+    private long stepsUp;
+    private long stepsDown;
+
+    private ResolutionController(Builder builder) {
+        longEdges = builder.longEdges;
+        minModulePx = builder.minModulePx;
+        comfortModulePx = builder.comfortModulePx;
+        confirmFrames = builder.confirmFrames;
+        cooldownFrames = builder.cooldownFrames;
+        idleFrames = builder.idleFrames;
+        window = new float[builder.windowFrames];
+        level = builder.initialLevel;
+    }
+
+    /** Index into the ladder of the resolution to analyse at. */
+    public int getLevel() {
+        return level;
+    }
+
+    public int getLongEdge(int level) {
+        return longEdges[level];
+    }
+
+    public int getLevelCount() {
+        return longEdges.length;
+    }
+
+    public long getStepUpCount() {
+        return stepsUp;
+    }
+
+    public long getStepDownCount() {
+        return stepsDown;
+    }
+
+    /**
+     * Reports one analysed frame; {@code detections} are in the frame's upright pixel
+     * coordinates. Returns the level to analyse at from now on.
+     */
+    public int onFrame(List<Detection> detections, int frameWidth, int frameHeight) {
+        float smallest = smallestModuleFraction(detections, Math.max(frameWidth, frameHeight));
+        if (cooldown > 0) {
+            cooldown--;
+            return level;
+        }
+        if (Float.isNaN(smallest)) {
+            if (++framesWithoutReads >= idleFrames && level < longEdges.length - 1) {
+                step(+1);
+            }
+            return level;
+        }
+        framesWithoutReads = 0;
+        window[windowHead] = smallest;
+        windowHead = (windowHead + 1) % window.length;
+        windowCount = Math.min(windowCount + 1, window.length);
+
+        int current = longEdges[level];
+        if (level < longEdges.length - 1 && windowCount >= confirmFrames
+                && largestOfNewest(confirmFrames) * current < minModulePx) {
+            step(+1);
+        } else if (level > 0 && windowCount == window.length
+                && smallestOfNewest(window.length) * longEdges[level - 1] >= comfortModulePx) {
+            step(-1);
+        }
+        return level;
+    }
+
+    private float largestOfNewest(int frames) {
+        float largest = 0;
+        for (int i = 1; i <= frames; i++) {
+            largest = Math.max(largest, window[(windowHead - i + window.length) % window.length]);
+        }
+        return largest;
+    }
+
+    private float smallestOfNewest(int frames) {
+        float smallest = Float.MAX_VALUE;
+        for (int i = 1; i <= frames; i++) {
+            smallest = Math.min(smallest, window[(windowHead - i + window.length) % window.length]);
+        }
+        return smallest;
+    }
+
+    /** Smallest module in the frame as a fraction of its long edge; NaN without usable detections. */
+    private static float smallestModuleFraction(List<Detection> detections, int longEdge) {
+        float smallest = Float.NaN;
+        for (int i = 0, n = detections.size(); i < n; i++) {
+            Detection detection = detections.get(i);
+            int width = detection.getRight() - detection.getLeft();
+            int height = detection.getBottom() - detection.getTop();
+            int format = detection.getFormat();
+            int span = BarcodeFormats.isTwoDimensional(format) ? Math.min(width, height) : Math.max(width, height);
+            if (span <= 0) {
+                continue;
+            }
+            float fraction = span / (float) BarcodeFormats.typicalModules(format) / longEdge;
+            if (!(fraction >= smallest)) {
+                smallest = fraction;
+            }
+        }
+        return smallest;
+    }
+
+    private void step(int direction) {
+        level += direction;
+        if (direction > 0) {
+            stepsUp++;
+        } else {
+            stepsDown++;
+        }
+        windowCount = 0;
+        windowHead = 0;
+        framesWithoutReads = 0;
+        cooldown = cooldownFrames;
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.samplebarcodescanner.schedule;
+
+/**
+ * Admission control for analysis frames.
+ * <p>
+ * Bounds how many frames may be inside the detector at once and paces admissions to a target
+ * interval that adapts to measured detector latency and device temperature. The interval is
+ * driven by an exponentially weighted latency average: it grows multiplicatively while latency
+ * exceeds the budget, up to a small multiple of that latency, and decays back towards full rate
+ * once frames are comfortably cheap.
+ * Thermal status imposes a minimum interval on top of that, so a hot device is throttled even
+ * when individual frames are fast.
+ * <p>
+ * {@link #tryBeginFrame()} is called by the analyzer and {@link #endFrame(long)} from detector
+ * callbacks; both are thread-safe.
+ */
+public final class ScanScheduler {
+    public static final int DEFAULT_MAX_IN_FLIGHT = 2;
+    public static final long DEFAULT_LATENCY_BUDGET_NANOS = 60_000_000L;
+    private static final long MAX_INTERVAL_NANOS = 1_000_000_000L;
+    private static final long INTERVAL_STEP_NANOS = 5_000_000L;
+    // Thermal status is a binder call on Android; it changes over seconds, not frames.
+    private static final long THERMAL_POLL_NANOS = 1_000_000_000L;
+    private static final float LATENCY_SMOOTHING = 0.2f;
+    private static final float BACKOFF = 1.25f;
+    private static final float RECOVERY = 0.8f;
+    private static final float CHEAP_FRACTION = 0.6f;
+    // Spacing frames further apart than this multiple of their latency only adds lag.
+    private static final float MAX_LATENCY_MULTIPLE = 2f;
+
+    private final int maxInFlight;
+    private final long latencyBudgetNanos;
+    private final Clock clock;
+    private final ThermalSource thermalSource;
+
+    private int inFlight;
+    private long lastAdmitNanos = Long.MIN_VALUE;
+    private long latencyIntervalNanos;
+    private float latencyEwmaNanos = -1f;
+    private int thermalStatus;
+    private long lastThermalPollNanos = Long.MIN_VALUE;
+    private long admitted;
+    private long throttled;
+
+    public ScanScheduler(Clock clock, ThermalSource thermalSource) {
+        this(DEFAULT_MAX_IN_FLIGHT, DEFAULT_LATENCY_BUDGET_NANOS, clock, thermalSource);
+    }
+
+    /**
+     * @param maxInFlight        frames allowed inside the detector at once
+     * @param latencyBudgetNanos detector latency above which the analysis rate is reduced
+     */
+    public ScanScheduler(int maxInFlight, long latencyBudgetNanos, Clock clock, ThermalSource thermalSource) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be >= 1: " + maxInFlight);
+        }
+        this.maxInFlight = maxInFlight;
+        this.latencyBudgetNanos = latencyBudgetNanos;
+        this.clock = clock;
+        this.thermalSource = thermalSource;
+    }
+
+    /**
+     * Decides whether to analyse the frame that just arrived.
+     *
+     * @return the frame's start time, to be passed to {@link #endFrame}, or -1 if the frame
+     * should be dropped
+     */
+    public synchronized long tryBeginFrame() {
+        long now = clock.nanoTime();
+        if (lastThermalPollNanos == Long.MIN_VALUE || now - lastThermalPollNanos >= THERMAL_POLL_NANOS) {
+            thermalStatus = thermalSource.getThermalStatus();
+            lastThermalPollNanos = now;
+        }
+        if (inFlight >= maxInFlight
+                || (lastAdmitNanos != Long.MIN_VALUE && now - lastAdmitNanos < getTargetIntervalNanos())) {
+            throttled++;
+            return -1;
+        }
+        inFlight++;
+        admitted++;
+        lastAdmitNanos = now;
+        return now;
+    }
+
+    /** Records that an admitted frame has finished detection. */
+    public synchronized void endFrame(long startNanos) {
+        if (inFlight == 0) {
+            throw new IllegalStateException("endFrame without matching tryBeginFrame");
+        }
+        inFlight--;
+        long latency = clock.nanoTime() - startNanos;
+        latencyEwmaNanos = latencyEwmaNanos < 0
+                ? latency
+                : latencyEwmaNanos + LATENCY_SMOOTHING * (latency - latencyEwmaNanos);
+
+        if (latencyEwmaNanos > latencyBudgetNanos) {
+            long ceiling = Math.min(MAX_INTERVAL_NANOS, (long) (latencyEwmaNanos * MAX_LATENCY_MULTIPLE));
+            latencyIntervalNanos = Math.min(ceiling, (long) (latencyIntervalNanos * BACKOFF) + INTERVAL_STEP_NANOS);
+        } else if (latencyEwmaNanos < latencyBudgetNanos * CHEAP_FRACTION) {
+            latencyIntervalNanos = (long) (latencyIntervalNanos * RECOVERY);
+            if (latencyIntervalNanos < INTERVAL_STEP_NANOS) {
+                latencyIntervalNanos = 0;
+            }
+        }
+    }
+
+    /** Minimum spacing between admitted frames; 0 means every frame the camera delivers. */
+    public synchronized long getTargetIntervalNanos() {
+        return Math.max(latencyIntervalNanos, thermalFloorNanos(thermalStatus));
+    }
+
+    /** Target analysis rate in frames per second, or {@code Float.POSITIVE_INFINITY} at full rate. */
+    public synchronized float getTargetRate() {
+        long interval = getTargetIntervalNanos();
+        return interval == 0 ? Float.POSITIVE_INFINITY : 1e9f / interval;
+    }
+
+    public synchronized float getLatencyEwmaMillis() {
+        return Math.max(0f, latencyEwmaNanos) / 1e6f;
+    }
+
+    public synchronized int getThermalStatus() {
+        return thermalStatus;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized long getAdmittedCount() {
+        return admitted;
+    }
+
+    public synchronized long getThrottledCount() {
+        return throttled;
+    }
+
+    private static long thermalFloorNanos(int status) {
+        switch (status) {
+            case ThermalSource.STATUS_NONE:
+                return 0;
+            case ThermalSource.STATUS_LIGHT:
+                return 1_000_000_000L / 20;
+            case ThermalSource.STATUS_MODERATE:
+                return 1_000_000_000L / 10;
+            case ThermalSource.STATUS_SEVERE:
+                return 1_000_000_000L / 4;
+            default:
+                return MAX_INTERVAL_NANOS;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.samplebarcodescanner.schedule;
+
+/**
+ * Reports the device thermal status using the {@code PowerManager.THERMAL_STATUS_*} scale.
+ */
+public interface ThermalSource {
+    int STATUS_NONE = 0;
+    int STATUS_LIGHT = 1;
+    int STATUS_MODERATE = 2;
+    int STATUS_SEVERE = 3;
+    int STATUS_CRITICAL = 4;
+    int STATUS_EMERGENCY = 5;
+    int STATUS_SHUTDOWN = 6;
+
+    /** For devices that cannot report thermal status. */
+    ThermalSource NONE = () -> STATUS_NONE;
+
+    int getThermalStatus();
+}
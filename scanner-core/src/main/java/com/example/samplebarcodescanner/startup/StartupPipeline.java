@@ -0,0 +1,169 @@
+package com.example.samplebarcodescanner.startup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Initialisation taken off the launch path: each task runs once, in the background, either as
+ * soon as the pipeline starts or once the app is idle after its first frame.
+ * <p>
+ * A task is still available on demand: {@link Task#get()} runs it on the calling thread if it
+ * has not started yet, or waits for it if it is running, so nothing depends on the background
+ * having got to it first. A task that fails yields null and keeps its error for logging.
+ * <p>
+ * Register tasks, then call {@link #start} once, from one thread; tasks may be read from any.
+ */
+public final class StartupPipeline {
+
+    /** Deferred work and, once it has run, its result. */
+    public static final class Task<T> {
+        private final String name;
+        private final boolean idle;
+        private final FutureTask<T> future;
+        private volatile long startNanos;
+        private volatile long endNanos;
+        private volatile String thread;
+
+        private Task(String name, boolean idle, Callable<T> work) {
+            this.name = name;
+            this.idle = idle;
+            this.future = new FutureTask<>(() -> {
+                startNanos = System.nanoTime();
+                thread = Thread.currentThread().getName();
+                try {
+                    return work.call();
+                } finally {
+                    endNanos = System.nanoTime();
+                }
+            });
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /** Whether the task waits for the app to be idle rather than starting right away. */
+        public boolean isIdle() {
+            return idle;
+        }
+
+        /** The result, running the task here first if nothing has yet; null if it failed. */
+        public T get() {
+            future.run();
+            try {
+                return future.get();
+            } catch (ExecutionException e) {
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+
+        /** The result if the task has completed successfully, otherwise null; never blocks. */
+        public T getIfDone() {
+            return future.isDone() && getError() == null ? get() : null;
+        }
+
+        public boolean isDone() {
+            return future.isDone();
+        }
+
+        /** Why the task failed, or null if it has not failed (yet). */
+        public Throwable getError() {
+            if (!future.isDone()) {
+                return null;
+            }
+            try {
+                future.get();
+                return null;
+            } catch (ExecutionException e) {
+                return e.getCause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+
+        /** How long the task ran, or 0 if it has not finished. */
+        public long getElapsedNanos() {
+            return future.isDone() ? endNanos - startNanos : 0;
+        }
+
+        /** When the task started, on the {@code System.nanoTime} clock, or 0 if it has not. */
+        public long getStartNanos() {
+            return startNanos;
+        }
+
+        /** Name of the thread that ran the task, or null if it has not started. */
+        public String getThread() {
+            return thread;
+        }
+
+        void run() {
+            future.run();
+        }
+
+        @Override
+        public String toString() {
+            return name + (isDone() ? " " + getElapsedNanos() / 1000 + " us on " + thread : " pending");
+        }
+    }
+
+    private final List<Task<?>> tasks = new ArrayList<>();
+    private boolean started;
+
+    /** Registers work to start in the background as soon as the pipeline starts. */
+    public <T> Task<T> background(String name, Callable<T> work) {
+        return add(new Task<>(name, false, work));
+    }
+
+    /** Registers work to start in the background once the app is idle. */
+    public <T> Task<T> idle(String name, Callable<T> work) {
+        return add(new Task<>(name, true, work));
+    }
+
+    /**
+     * Hands every task to {@code background}, the idle ones only once {@code whenIdle} runs.
+     *
+     * @param whenIdle runs what it is given once the app is idle, on any thread
+     */
+    public void start(Executor background, Executor whenIdle) {
+        if (started) {
+            throw new IllegalStateException("already started");
+        }
+        started = true;
+        List<Task<?>> deferred = new ArrayList<>();
+        for (Task<?> task : tasks) {
+            if (task.isIdle()) {
+                deferred.add(task);
+            } else {
+                background.execute(task::run);
+            }
+        }
+        if (!deferred.isEmpty()) {
+            whenIdle.execute(() -> {
+                for (Task<?> task : deferred) {
+                    background.execute(task::run);
+                }
+            });
+        }
+    }
+
+    public List<Task<?>> getTasks() {
+        return Collections.unmodifiableList(tasks);
+    }
+
+    private <T> Task<T> add(Task<T> task) {
+        if (started) {
+            throw new IllegalStateException("register tasks before starting: " + task.getName());
+        }
+        tasks.add(task);
+        return task;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.samplebarcodescanner.sync;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Posts each batch to one URL as {@code application/octet-stream}, with the batch ID in an
+ * {@code Idempotency-Key} header.
+ * <p>
+ * 2xx and 409 (already stored under that key) are success. 408, 429 and 5xx are retried, as is
+ * any connection failure; every other status rejects the batch.
+ */
+public final class HttpSyncTransport implements SyncTransport {
+    public static final String IDEMPOTENCY_HEADER = "Idempotency-Key";
+    public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 10_000;
+    public static final int DEFAULT_READ_TIMEOUT_MILLIS = 30_000;
+
+    private final URL url;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+
+    public HttpSyncTransport(URL url) {
+        this(url, DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS);
+    }
+
+    public HttpSyncTransport(URL url, int connectTimeoutMillis, int readTimeoutMillis) {
+        if (connectTimeoutMillis < 0 || readTimeoutMillis < 0) {
+            throw new IllegalArgumentException("timeouts must not be negative");
+        }
+        this.url = url;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    @Override
+    public void send(String batchId, byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        int status;
+        try {
+            connection.setRequestMethod("POST");
+            connection.setConnectTimeout(connectTimeoutMillis);
+            connection.setReadTimeout(readTimeoutMillis);
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(body.length);
+            connection.setRequestProperty("Content-Type", "application/octet-stream");
+            connection.setRequestProperty(IDEMPOTENCY_HEADER, batchId);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+            status = connection.getResponseCode();
+            drain(status < 400 ? connection.getInputStream() : connection.getErrorStream());
+        } catch (IOException e) {
+            connection.disconnect();
+            throw e;
+        }
+        if (status / 100 == 2 || status == HttpURLConnection.HTTP_CONFLICT) {
+            return;
+        }
+        String message = "HTTP " + status + " for batch " + batchId;
+        if (status / 100 == 5 || status == HttpURLConnection.HTTP_CLIENT_TIMEOUT || status == 429) {
+            throw new IOException(message);
+        }
+        throw new SyncRejectedException(message);
+    }
+
+    // Reading the response to the end lets the connection be reused for the next batch.
+    private static void drain(InputStream in) throws IOException {
+        if (in == null) {
+            return;
+        }
+        try (InputStream stream = in) {
+            byte[] buffer = new byte[512];
+            while (stream.read(buffer) != -1) {
+                // Discard.
+            }
+        }
+    }
+}
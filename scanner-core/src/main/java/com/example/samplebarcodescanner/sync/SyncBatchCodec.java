@@ -0,0 +1,219 @@
+package com.example.samplebarcodescanner.sync;
+
+import com.example.samplebarcodescanner.journal.JournalEntry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Wire format of an upload batch: confirmed reads, delta- and varint-encoded, then deflated.
+ * <pre>
+ * batch   := MAGIC:int32 VERSION:int8 zlib(body)
+ * body    := count:varint firstSequence:varint firstTimestampMillis:varint record*
+ * record  := sequenceDelta:varint timestampDelta:zigzag trackId:zigzag format:varint value
+ * value   := 0:varint length:varint utf8[length]   first time the value appears in the batch
+ *          | index:varint                           same as the index-th new value, from 1
+ * </pre>
+ * Deltas are from the previous record; the first record's are zero. A shelf sweep reads long
+ * runs of consecutive sequences a few hundred ms apart and repeats values, so most records take
+ * four or five bytes before compression. Integers in the header are big-endian.
+ */
+public final class SyncBatchCodec {
+    static final int MAGIC = 0x53594E31; // "SYN1"
+    static final int VERSION = 1;
+    private static final int HEADER_SIZE = 5;
+    // Reject bodies that claim absurd sizes rather than allocating for them.
+    private static final int MAX_INFLATED_BYTES = 64 << 20;
+
+    private SyncBatchCodec() {
+    }
+
+    /** Encodes {@code entries}, which must be in sequence order. */
+    public static byte[] encode(List<JournalEntry> entries) {
+        Body body = new Body(64 + entries.size() * 8);
+        body.writeVarint(entries.size());
+        if (!entries.isEmpty()) {
+            body.writeVarint(entries.get(0).getSequence());
+            body.writeVarint(entries.get(0).getTimestampMillis());
+        }
+        Map<String, Integer> values = new HashMap<>();
+        long previousSequence = entries.isEmpty() ? 0 : entries.get(0).getSequence();
+        long previousTimestamp = entries.isEmpty() ? 0 : entries.get(0).getTimestampMillis();
+        for (int i = 0, n = entries.size(); i < n; i++) {
+            JournalEntry entry = entries.get(i);
+            long sequenceDelta = entry.getSequence() - previousSequence;
+            if (sequenceDelta < 0) {
+                throw new IllegalArgumentException("entries out of sequence order at " + entry.getSequence());
+            }
+            body.writeVarint(sequenceDelta);
+            body.writeVarint(zigzag(entry.getTimestampMillis() - previousTimestamp));
+            body.writeVarint(zigzag(entry.getTrackId()));
+            body.writeVarint(entry.getFormat() & 0xFFFFFFFFL);
+            Integer index = values.get(entry.getValue());
+            if (index != null) {
+                body.writeVarint(index);
+            } else {
+                values.put(entry.getValue(), values.size() + 1);
+                byte[] utf8 = entry.getValue().getBytes(StandardCharsets.UTF_8);
+                body.writeVarint(0);
+                body.writeVarint(utf8.length);
+                body.write(utf8, 0, utf8.length);
+            }
+            previousSequence = entry.getSequence();
+            previousTimestamp = entry.getTimestampMillis();
+        }
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(body.buffer(), 0, body.size());
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(HEADER_SIZE + body.size() / 2 + 64);
+            out.write(MAGIC >>> 24);
+            out.write(MAGIC >>> 16);
+            out.write(MAGIC >>> 8);
+            out.write(MAGIC);
+            out.write(VERSION);
+            byte[] chunk = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /** Decodes a batch made by {@link #encode}. */
+    public static List<JournalEntry> decode(byte[] batch) throws IOException {
+        if (batch.length < HEADER_SIZE) {
+            throw new IOException("batch too short: " + batch.length + " bytes");
+        }
+        int magic = (batch[0] & 0xFF) << 24 | (batch[1] & 0xFF) << 16 | (batch[2] & 0xFF) << 8 | (batch[3] & 0xFF);
+        if (magic != MAGIC || batch[4] != VERSION) {
+            throw new IOException("not a sync batch");
+        }
+        Reader in = new Reader(inflate(batch, HEADER_SIZE));
+        int count = (int) in.readVarint();
+        if (count < 0 || count > in.remaining()) {
+            throw new IOException("bad record count " + count);
+        }
+        List<JournalEntry> entries = new ArrayList<>(count);
+        List<String> values = new ArrayList<>();
+        long sequence = count > 0 ? in.readVarint() : 0;
+        long timestamp = count > 0 ? in.readVarint() : 0;
+        for (int i = 0; i < count; i++) {
+            sequence += in.readVarint();
+            timestamp += unzigzag(in.readVarint());
+            int trackId = (int) unzigzag(in.readVarint());
+            int format = (int) in.readVarint();
+            int index = (int) in.readVarint();
+            String value;
+            if (index == 0) {
+                value = in.readUtf8((int) in.readVarint());
+                values.add(value);
+            } else if (index <= values.size()) {
+                value = values.get(index - 1);
+            } else {
+                throw new IOException("bad value index " + index);
+            }
+            entries.add(new JournalEntry(sequence, timestamp, trackId, format, value));
+        }
+        return entries;
+    }
+
+    private static byte[] inflate(byte[] batch, int offset) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(batch, offset, batch.length - offset);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(batch.length * 4);
+            byte[] chunk = new byte[4096];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(chunk);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("truncated batch");
+                }
+                out.write(chunk, 0, n);
+                if (out.size() > MAX_INFLATED_BYTES) {
+                    throw new IOException("batch inflates past " + MAX_INFLATED_BYTES + " bytes");
+                }
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("corrupt batch", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /** Growable body buffer with varint writes. */
+    private static final class Body extends ByteArrayOutputStream {
+        Body(int capacity) {
+            super(capacity);
+        }
+
+        void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] bytes;
+        private int position;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int remaining() {
+            return bytes.length - position;
+        }
+
+        long readVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= bytes.length) {
+                    throw new IOException("truncated batch body");
+                }
+                byte b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException("varint too long");
+        }
+
+        String readUtf8(int length) throws IOException {
+            if (length < 0 || length > remaining()) {
+                throw new IOException("bad value length " + length);
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
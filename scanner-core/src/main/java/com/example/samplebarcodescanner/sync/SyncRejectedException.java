@@ -0,0 +1,12 @@
+package com.example.samplebarcodescanner.sync;
+
+import java.io.IOException;
+
+/** Thrown by a {@link SyncTransport} when the server refuses a batch for good; it is not retried. */
+public class SyncRejectedException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public SyncRejectedException(String message) {
+        super(message);
+    }
+}
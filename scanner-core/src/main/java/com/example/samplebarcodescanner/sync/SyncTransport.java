@@ -0,0 +1,14 @@
+package com.example.samplebarcodescanner.sync;
+
+import java.io.IOException;
+
+/**
+ * Delivers one encoded batch to the server. Called from the uploader's thread only.
+ * <p>
+ * A batch is retried with the same {@code batchId} until it is accepted, so the receiving end
+ * must treat a repeated ID as already stored. Throw {@link SyncRejectedException} when the batch
+ * can never be accepted; any other {@link IOException} is retried after a backoff.
+ */
+public interface SyncTransport {
+    void send(String batchId, byte[] body) throws IOException;
+}
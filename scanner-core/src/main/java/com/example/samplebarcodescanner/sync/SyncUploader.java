@@ -0,0 +1,356 @@
+package com.example.samplebarcodescanner.sync;
+
+import com.example.samplebarcodescanner.journal.JournalEntry;
+import com.example.samplebarcodescanner.journal.ScanJournal;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uploads the reads in a {@link ScanJournal} in batches and releases them from the journal once
+ * the server has them. The journal is the outbound queue: a read is on storage before it is ever
+ * sent, and stays there until its batch is acknowledged, so nothing is lost to a crash, a kill or
+ * an outage.
+ * <p>
+ * A dedicated thread cuts a batch when {@code maxReads} reads are waiting, or when the oldest
+ * waiting read has waited {@code maxDelayMillis}, encodes it with {@link SyncBatchCodec} and hands
+ * it to the {@link SyncTransport}. A failed send is retried with the same batch ID after an
+ * exponential, jittered backoff, for as long as it takes; a {@link SyncRejectedException} drops
+ * the batch instead, and counts it.
+ * <p>
+ * The batch ID is made of a random ID for this installation and the batch's first and last
+ * sequence. Before the first attempt, the range is written to {@code stateFile}, so a batch that
+ * was in flight when the process died is sent again after {@link Builder#start} with the same
+ * reads under the same ID, and the server can drop the duplicate.
+ * <p>
+ * Close the uploader before the journal.
+ */
+public final class SyncUploader implements Closeable {
+    public static final int DEFAULT_MAX_READS = 500;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 30_000;
+    public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 1_000;
+    public static final long DEFAULT_MAX_BACKOFF_MILLIS = 5 * 60_000;
+    public static final float DEFAULT_JITTER = 0.5f;
+
+    private static final int STATE_VERSION = 1;
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final long NONE = 0;
+    private static final long IDLE_POLL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /** Called on the uploader's thread; must not throw. */
+    public interface Listener {
+        default void onUploaded(String batchId, int reads, int bytes) {
+        }
+
+        /** {@code attempt} counts from 0. Rejections are reported here too, and not retried. */
+        default void onFailed(String batchId, int attempt, IOException error) {
+        }
+    }
+
+    private final ScanJournal journal;
+    private final SyncTransport transport;
+    private final File stateFile;
+    private final int maxReads;
+    private final long maxDelayNanos;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final float jitter;
+    private final Listener listener;
+    private final long sourceId;
+    private final Thread thread;
+
+    // Uploader thread only.
+    private final Random random = new Random();
+    private long inFlightFirst;
+    private long inFlightLast;
+
+    private volatile long next;
+    private volatile boolean closed;
+    private volatile IOException failure;
+    private volatile IOException lastError;
+    private volatile long uploadedReadCount;
+    private volatile long uploadedBatchCount;
+    private volatile long failedAttemptCount;
+    private volatile long rejectedBatchCount;
+    private volatile long sentBytes;
+
+    private SyncUploader(Builder builder) throws IOException {
+        journal = builder.journal;
+        transport = builder.transport;
+        stateFile = builder.stateFile;
+        maxReads = builder.maxReads;
+        maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(builder.maxDelayMillis);
+        initialBackoffMillis = builder.initialBackoffMillis;
+        maxBackoffMillis = builder.maxBackoffMillis;
+        jitter = builder.jitter;
+        listener = builder.listener;
+
+        File temp = new File(stateFile.getPath() + TEMP_SUFFIX);
+        if (temp.exists() && !temp.delete()) {
+            throw new IOException("cannot delete " + temp);
+        }
+        if (stateFile.exists()) {
+            try (DataInputStream in = new DataInputStream(new FileInputStream(stateFile))) {
+                int version = in.readInt();
+                if (version != STATE_VERSION) {
+                    throw new IOException("unknown sync state version " + version + " in " + stateFile);
+                }
+                sourceId = in.readLong();
+                next = in.readLong();
+                inFlightFirst = in.readLong();
+                inFlightLast = in.readLong();
+            }
+        } else {
+            sourceId = new SecureRandom().nextLong() & Long.MAX_VALUE;
+            next = 1;
+            inFlightFirst = inFlightLast = NONE;
+        }
+        thread = new Thread(this::uploadLoop, "scan-sync");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public static Builder builder(ScanJournal journal, SyncTransport transport, File stateFile) {
+        return new Builder(journal, transport, stateFile);
+    }
+
+    private void uploadLoop() {
+        List<JournalEntry> batch = new ArrayList<>(maxReads);
+        try {
+            if (inFlightFirst != NONE) {
+                journal.read(inFlightFirst, (int) (inFlightLast - inFlightFirst + 1), batch);
+                if (!batch.isEmpty()) {
+                    upload(batch);
+                }
+            }
+            boolean waiting = false;
+            long waitingSince = 0;
+            while (!closed) {
+                batch.clear();
+                long durable = journal.getDurableSequence();
+                journal.read(next, maxReads, batch);
+                if (batch.isEmpty()) {
+                    journal.awaitDurable(Math.max(next, durable + 1), IDLE_POLL_NANOS, TimeUnit.NANOSECONDS);
+                    continue;
+                }
+                if (batch.size() < maxReads) {
+                    long now = System.nanoTime();
+                    if (!waiting) {
+                        waiting = true;
+                        waitingSince = now;
+                    }
+                    long left = maxDelayNanos - (now - waitingSince);
+                    if (left > 0) {
+                        // Wake when the batch fills up, or to send it as it is.
+                        journal.awaitDurable(batch.get(0).getSequence() + maxReads - 1,
+                                Math.min(left, IDLE_POLL_NANOS), TimeUnit.NANOSECONDS);
+                        continue;
+                    }
+                }
+                waiting = false;
+                upload(batch);
+            }
+        } catch (InterruptedException e) {
+            // Closed.
+        } catch (IOException | RuntimeException e) {
+            failure = e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+    }
+
+    /** Sends {@code batch} until it is accepted or rejected, then releases it from the journal. */
+    private void upload(List<JournalEntry> batch) throws IOException, InterruptedException {
+        long first = batch.get(0).getSequence();
+        long last = batch.get(batch.size() - 1).getSequence();
+        String batchId = batchId(sourceId, first, last);
+        byte[] body = SyncBatchCodec.encode(batch);
+        if (inFlightFirst != first || inFlightLast != last) {
+            inFlightFirst = first;
+            inFlightLast = last;
+            persistState();
+        }
+        for (int attempt = 0; ; attempt++) {
+            try {
+                transport.send(batchId, body);
+                uploadedReadCount += batch.size();
+                uploadedBatchCount++;
+                sentBytes += body.length;
+                listener.onUploaded(batchId, batch.size(), body.length);
+                break;
+            } catch (SyncRejectedException e) {
+                rejectedBatchCount++;
+                lastError = e;
+                listener.onFailed(batchId, attempt, e);
+                break;
+            } catch (IOException e) {
+                failedAttemptCount++;
+                lastError = e;
+                listener.onFailed(batchId, attempt, e);
+                Thread.sleep(backoffMillis(attempt));
+            }
+        }
+        next = last + 1;
+        inFlightFirst = inFlightLast = NONE;
+        persistState();
+        journal.discardBefore(next);
+    }
+
+    static String batchId(long sourceId, long first, long last) {
+        return Long.toHexString(sourceId) + "-" + first + "-" + last;
+    }
+
+    private long backoffMillis(int attempt) {
+        long delay = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt, 30));
+        if (jitter > 0) {
+            delay -= (long) (delay * jitter * random.nextDouble());
+        }
+        return delay;
+    }
+
+    private void persistState() throws IOException {
+        File temp = new File(stateFile.getPath() + TEMP_SUFFIX);
+        try (RandomAccessFile out = new RandomAccessFile(temp, "rw")) {
+            out.setLength(0);
+            out.writeInt(STATE_VERSION);
+            out.writeLong(sourceId);
+            out.writeLong(next);
+            out.writeLong(inFlightFirst);
+            out.writeLong(inFlightLast);
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(stateFile)) {
+            throw new IOException("cannot rename " + temp);
+        }
+    }
+
+    /** Sequence of the first read not yet uploaded or rejected. */
+    public long getNextSequence() {
+        return next;
+    }
+
+    public long getUploadedReadCount() {
+        return uploadedReadCount;
+    }
+
+    public long getUploadedBatchCount() {
+        return uploadedBatchCount;
+    }
+
+    /** Sends that failed and were retried. */
+    public long getFailedAttemptCount() {
+        return failedAttemptCount;
+    }
+
+    /** Batches the server refused and that were dropped. */
+    public long getRejectedBatchCount() {
+        return rejectedBatchCount;
+    }
+
+    /** Encoded bytes of the accepted batches. */
+    public long getSentBytes() {
+        return sentBytes;
+    }
+
+    /** Most recent error from the transport, or null. */
+    public IOException getLastError() {
+        return lastError;
+    }
+
+    /** Why the uploader stopped on its own (journal or state file failure), or null. */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Stops uploading. A backoff or wait is cut short, but a send in progress is not; it runs to
+     * its transport's timeout. Reads not yet acknowledged stay in the journal for the next start.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static final class Builder {
+        private final ScanJournal journal;
+        private final SyncTransport transport;
+        private final File stateFile;
+        private int maxReads = DEFAULT_MAX_READS;
+        private long maxDelayMillis = DEFAULT_MAX_DELAY_MILLIS;
+        private long initialBackoffMillis = DEFAULT_INITIAL_BACKOFF_MILLIS;
+        private long maxBackoffMillis = DEFAULT_MAX_BACKOFF_MILLIS;
+        private float jitter = DEFAULT_JITTER;
+        private Listener listener = new Listener() {
+        };
+
+        private Builder(ScanJournal journal, SyncTransport transport, File stateFile) {
+            this.journal = journal;
+            this.transport = transport;
+            this.stateFile = stateFile;
+        }
+
+        /** A batch is sent once it holds {@code maxReads}, or its oldest read is {@code maxDelayMillis} old. */
+        public Builder batches(long maxDelayMillis, int maxReads) {
+            if (maxDelayMillis < 0) {
+                throw new IllegalArgumentException("max delay must not be negative: " + maxDelayMillis);
+            }
+            if (maxReads < 1) {
+                throw new IllegalArgumentException("max reads must be positive: " + maxReads);
+            }
+            this.maxDelayMillis = maxDelayMillis;
+            this.maxReads = maxReads;
+            return this;
+        }
+
+        /** Wait before retry {@code n} is {@code initialMillis * 2^n}, at most {@code maxMillis}. */
+        public Builder backoff(long initialMillis, long maxMillis) {
+            if (initialMillis < 1 || maxMillis < initialMillis) {
+                throw new IllegalArgumentException("bad backoff: " + initialMillis + ".." + maxMillis);
+            }
+            initialBackoffMillis = initialMillis;
+            maxBackoffMillis = maxMillis;
+            return this;
+        }
+
+        /**
+         * Fraction, from 0 to 1, by which each backoff is shortened at random, so devices that lost
+         * the same network do not all retry at once.
+         */
+        public Builder jitter(float jitter) {
+            if (!(jitter >= 0 && jitter <= 1)) {
+                throw new IllegalArgumentException("jitter must be in [0, 1]: " + jitter);
+            }
+            this.jitter = jitter;
+            return this;
+        }
+
+        public Builder listener(Listener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /** Loads or creates the state file and starts the uploader thread. */
+        public SyncUploader start() throws IOException {
+            return new SyncUploader(this);
+        }
+    }
+}
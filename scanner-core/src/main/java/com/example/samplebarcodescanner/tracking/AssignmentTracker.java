@@ -0,0 +1,390 @@
+package com.example.samplebarcodescanner.tracking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link BarcodeTracker} that matches detections to tracks with a global minimum-cost assignment.
+ * <p>
+ * Each frame, tracks are registered in a {@link SpatialHashGrid} under a gate proportional to
+ * their size, so a detection is only scored against nearby tracks carrying the same value. Values
+ * are compared as IDs from a {@link ValueSymbolTable}, interned once per detection. The
+ * cost of a pair combines IoU overlap and normalised centroid distance. Candidate pairs are split
+ * into connected components and each component is solved independently with
+ * {@link AssignmentSolver}; on a shelf of mostly distinct labels nearly every component is a
+ * single pair and never reaches the solver.
+ * <p>
+ * Track boxes are smoothed by a shared {@link KalmanFilterBank}. Matching is done against each
+ * track's predicted position for the current timestamp, and unmatched tracks coast on that
+ * prediction for up to {@code maxMissedFrames} frames before they are dropped, with a gate that
+ * widens while they are missing. Not thread-safe.
+ */
+public class AssignmentTracker implements BarcodeTracker {
+    public static final int DEFAULT_MAX_MISSED_FRAMES = 5;
+    public static final float DEFAULT_MIN_GATE_PX = 40f;
+    public static final float DEFAULT_GATE_SCALE = 1.0f;
+    private static final float DEFAULT_CELL_SIZE = 128f;
+    // Large enough to never be preferred over a real pair (costs are at most 2), small enough to
+    // keep the solver's potentials precise.
+    private static final float FORBIDDEN = 1e6f;
+
+    private final int maxMissedFrames;
+    private final float minGatePx;
+    private final float gateScale;
+    private final SpatialHashGrid grid;
+    private final AssignmentSolver solver = new AssignmentSolver();
+    private final KalmanFilterBank filters = new KalmanFilterBank();
+    private final ValueSymbolTable symbols;
+    private long lastTimestampNanos = Long.MIN_VALUE;
+
+    private final ArrayList<Track> tracks = new ArrayList<>();
+    private final List<Track> tracksView = Collections.unmodifiableList(tracks);
+    private int nextTrackId = 1;
+
+    // Per-frame scratch, grown on demand and reused.
+    private int[] detectionValueIds = new int[64];
+    private int[] edgeTrack = new int[64];
+    private int[] edgeDetection = new int[64];
+    private float[] edgeCost = new float[64];
+    private int edgeCount;
+    private int[] lastDetectionForTrack = new int[64];
+    private int[] parent = new int[128];
+    private int[] trackMatch = new int[64];
+    private int[] detectionMatch = new int[64];
+    private int[] componentEdgeCount = new int[128];
+    private int[] componentStart = new int[129];
+    private int[] sortedEdges = new int[64];
+    private int[] localIndex = filled(128, -1);
+    private int[] localTracks = new int[16];
+    private int[] localDetections = new int[16];
+    private float[] localCost = new float[256];
+    private int[] localAssignment = new int[16];
+
+    public AssignmentTracker() {
+        this(DEFAULT_MAX_MISSED_FRAMES, DEFAULT_MIN_GATE_PX, DEFAULT_GATE_SCALE);
+    }
+
+    /**
+     * @param maxMissedFrames frames a track may go unmatched before it is dropped
+     * @param minGatePx       smallest centroid distance, in pixels, at which a pair is considered
+     * @param gateScale       gate radius as a multiple of the track's box diagonal
+     */
+    public AssignmentTracker(int maxMissedFrames, float minGatePx, float gateScale) {
+        this(maxMissedFrames, minGatePx, gateScale, new ValueSymbolTable());
+    }
+
+    /**
+     * @param symbols interns detection values; detections that carry a value ID must have been
+     *                interned in this table
+     */
+    public AssignmentTracker(int maxMissedFrames, float minGatePx, float gateScale, ValueSymbolTable symbols) {
+        if (maxMissedFrames < 0) {
+            throw new IllegalArgumentException("maxMissedFrames must be >= 0: " + maxMissedFrames);
+        }
+        this.maxMissedFrames = maxMissedFrames;
+        this.minGatePx = minGatePx;
+        this.gateScale = gateScale;
+        this.grid = new SpatialHashGrid(DEFAULT_CELL_SIZE);
+        this.symbols = symbols;
+    }
+
+    @Override
+    public List<Track> update(List<Detection> detections, long timestampNanos) {
+        int trackCount = tracks.size();
+        int detectionCount = detections.size();
+        ensureCapacity(trackCount, detectionCount);
+
+        if (lastTimestampNanos != Long.MIN_VALUE) {
+            filters.predictAll((timestampNanos - lastTimestampNanos) / 1e9f);
+        }
+        lastTimestampNanos = timestampNanos;
+        for (int i = 0; i < trackCount; i++) {
+            Track track = tracks.get(i);
+            track.syncFrom(filters);
+            // Keep values of live tracks from being evicted while they coast.
+            symbols.touch(track.valueId);
+        }
+        for (int j = 0; j < detectionCount; j++) {
+            Detection detection = detections.get(j);
+            int valueId = detection.getValueId();
+            detectionValueIds[j] = valueId != ValueSymbolTable.NO_ID
+                    ? valueId : symbols.intern(detection.getValue(), detection.getFormat());
+        }
+
+        collectCandidates(detections);
+        Arrays.fill(trackMatch, 0, trackCount, -1);
+        Arrays.fill(detectionMatch, 0, detectionCount, -1);
+        assign(trackCount, detectionCount);
+
+        for (int i = 0; i < trackCount; i++) {
+            Track track = tracks.get(i);
+            int j = trackMatch[i];
+            if (j >= 0) {
+                Detection detection = detections.get(j);
+                filters.correct(track.filterSlot, detection.getLeft(), detection.getTop(),
+                        detection.getRight(), detection.getBottom());
+                track.syncFrom(filters);
+                track.hits++;
+                track.missedFrames = 0;
+                track.lastSeenNanos = timestampNanos;
+            } else {
+                track.missedFrames++;
+            }
+        }
+        removeExpiredTracks();
+        for (int j = 0; j < detectionCount; j++) {
+            if (detectionMatch[j] < 0) {
+                Detection detection = detections.get(j);
+                int slot = filters.allocate(detection.getLeft(), detection.getTop(),
+                        detection.getRight(), detection.getBottom());
+                tracks.add(new Track(nextTrackId++, detectionValueIds[j], detection, slot, timestampNanos));
+            }
+        }
+        return tracksView;
+    }
+
+    @Override
+    public List<Track> getTracks() {
+        return tracksView;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0, n = tracks.size(); i < n; i++) {
+            filters.release(tracks.get(i).filterSlot);
+        }
+        tracks.clear();
+        lastTimestampNanos = Long.MIN_VALUE;
+    }
+
+    /** Number of scored track/detection pairs in the last frame, after grid pruning. */
+    int getLastCandidateCount() {
+        return edgeCount;
+    }
+
+    private void collectCandidates(List<Detection> detections) {
+        int trackCount = tracks.size();
+        grid.clear();
+        for (int i = 0; i < trackCount; i++) {
+            Track track = tracks.get(i);
+            float gate = gateRadius(track);
+            grid.insert(i, track.centerX() - gate, track.centerY() - gate,
+                    track.centerX() + gate, track.centerY() + gate);
+        }
+        Arrays.fill(lastDetectionForTrack, 0, trackCount, -1);
+
+        edgeCount = 0;
+        for (int j = 0, n = detections.size(); j < n; j++) {
+            Detection detection = detections.get(j);
+            float cx = detection.centerX();
+            float cy = detection.centerY();
+            for (int e = grid.firstEntry(cx, cy); e >= 0; e = grid.nextEntry(e)) {
+                int i = grid.itemAt(e);
+                if (lastDetectionForTrack[i] == j) {
+                    continue; // same track reached through a colliding bucket
+                }
+                lastDetectionForTrack[i] = j;
+                Track track = tracks.get(i);
+                if (track.valueId != detectionValueIds[j]) {
+                    continue;
+                }
+                float cost = pairCost(track, detection);
+                if (cost < FORBIDDEN) {
+                    addEdge(i, j, cost);
+                }
+            }
+        }
+    }
+
+    private float gateRadius(Track track) {
+        return Math.max(minGatePx, gateScale * track.diagonal()) * (1 + track.missedFrames);
+    }
+
+    private float pairCost(Track track, Detection detection) {
+        float dx = track.centerX() - detection.centerX();
+        float dy = track.centerY() - detection.centerY();
+        float distance = (float) Math.sqrt(dx * dx + dy * dy);
+        float gate = gateRadius(track);
+        float iou = iou(track, detection);
+        if (iou <= 0f && distance > gate) {
+            return FORBIDDEN;
+        }
+        return (1f - iou) + distance / gate;
+    }
+
+    static float iou(Track track, Detection detection) {
+        int ix = Math.min(track.right, detection.getRight()) - Math.max(track.left, detection.getLeft());
+        int iy = Math.min(track.bottom, detection.getBottom()) - Math.max(track.top, detection.getTop());
+        if (ix <= 0 || iy <= 0) {
+            return 0f;
+        }
+        float intersection = (float) ix * iy;
+        float areaA = (float) (track.right - track.left) * (track.bottom - track.top);
+        float areaB = (float) (detection.getRight() - detection.getLeft()) * (detection.getBottom() - detection.getTop());
+        return intersection / (areaA + areaB - intersection);
+    }
+
+    private void addEdge(int track, int detection, float cost) {
+        if (edgeCount == edgeTrack.length) {
+            int size = edgeCount * 2;
+            edgeTrack = Arrays.copyOf(edgeTrack, size);
+            edgeDetection = Arrays.copyOf(edgeDetection, size);
+            edgeCost = Arrays.copyOf(edgeCost, size);
+            sortedEdges = new int[size];
+        }
+        edgeTrack[edgeCount] = track;
+        edgeDetection[edgeCount] = detection;
+        edgeCost[edgeCount] = cost;
+        edgeCount++;
+    }
+
+    /**
+     * Groups candidate edges into connected components over the bipartite track/detection graph
+     * and solves each component on its own.
+     */
+    private void assign(int trackCount, int detectionCount) {
+        int nodes = trackCount + detectionCount;
+        for (int k = 0; k < nodes; k++) {
+            parent[k] = k;
+        }
+        for (int e = 0; e < edgeCount; e++) {
+            union(edgeTrack[e], trackCount + edgeDetection[e]);
+        }
+
+        // Counting sort of edges by component root.
+        Arrays.fill(componentEdgeCount, 0, nodes, 0);
+        for (int e = 0; e < edgeCount; e++) {
+            componentEdgeCount[find(edgeTrack[e])]++;
+        }
+        componentStart[0] = 0;
+        for (int k = 0; k < nodes; k++) {
+            componentStart[k + 1] = componentStart[k] + componentEdgeCount[k];
+        }
+        for (int e = 0; e < edgeCount; e++) {
+            int root = find(edgeTrack[e]);
+            sortedEdges[componentStart[root + 1] - componentEdgeCount[root]] = e;
+            componentEdgeCount[root]--;
+        }
+
+        for (int root = 0; root < nodes; root++) {
+            int from = componentStart[root];
+            int to = componentStart[root + 1];
+            if (to - from == 1) {
+                int e = sortedEdges[from];
+                trackMatch[edgeTrack[e]] = edgeDetection[e];
+                detectionMatch[edgeDetection[e]] = edgeTrack[e];
+            } else if (to > from) {
+                solveComponent(from, to, trackCount);
+            }
+        }
+    }
+
+    private void solveComponent(int from, int to, int trackCount) {
+        int rows = 0;
+        int cols = 0;
+        for (int k = from; k < to; k++) {
+            int e = sortedEdges[k];
+            int trackNode = edgeTrack[e];
+            int detectionNode = trackCount + edgeDetection[e];
+            if (localIndex[trackNode] < 0) {
+                localTracks = grow(localTracks, rows + 1);
+                localTracks[rows] = edgeTrack[e];
+                localIndex[trackNode] = rows++;
+            }
+            if (localIndex[detectionNode] < 0) {
+                localDetections = grow(localDetections, cols + 1);
+                localDetections[cols] = edgeDetection[e];
+                localIndex[detectionNode] = cols++;
+            }
+        }
+        if (localCost.length < rows * cols) {
+            localCost = new float[Integer.highestOneBit(rows * cols) << 1];
+        }
+        Arrays.fill(localCost, 0, rows * cols, FORBIDDEN);
+        for (int k = from; k < to; k++) {
+            int e = sortedEdges[k];
+            int r = localIndex[edgeTrack[e]];
+            int c = localIndex[trackCount + edgeDetection[e]];
+            localCost[r * cols + c] = edgeCost[e];
+        }
+        localAssignment = grow(localAssignment, rows);
+        solver.solve(localCost, rows, cols, localAssignment);
+        for (int r = 0; r < rows; r++) {
+            int c = localAssignment[r];
+            if (c >= 0 && localCost[r * cols + c] < FORBIDDEN) {
+                trackMatch[localTracks[r]] = localDetections[c];
+                detectionMatch[localDetections[c]] = localTracks[r];
+            }
+        }
+        for (int r = 0; r < rows; r++) {
+            localIndex[localTracks[r]] = -1;
+        }
+        for (int c = 0; c < cols; c++) {
+            localIndex[trackCount + localDetections[c]] = -1;
+        }
+    }
+
+    private void removeExpiredTracks() {
+        int kept = 0;
+        for (int i = 0, n = tracks.size(); i < n; i++) {
+            Track track = tracks.get(i);
+            if (track.missedFrames <= maxMissedFrames) {
+                tracks.set(kept++, track);
+            } else {
+                filters.release(track.filterSlot);
+            }
+        }
+        for (int i = tracks.size() - 1; i >= kept; i--) {
+            tracks.remove(i);
+        }
+    }
+
+    private int find(int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA != rootB) {
+            parent[rootB] = rootA;
+        }
+    }
+
+    private void ensureCapacity(int trackCount, int detectionCount) {
+        int nodes = trackCount + detectionCount;
+        if (parent.length < nodes) {
+            int size = Integer.highestOneBit(nodes) << 1;
+            parent = new int[size];
+            componentEdgeCount = new int[size];
+            componentStart = new int[size + 1];
+            localIndex = filled(size, -1);
+        }
+        if (trackMatch.length < trackCount) {
+            int size = Integer.highestOneBit(trackCount) << 1;
+            trackMatch = new int[size];
+            lastDetectionForTrack = new int[size];
+        }
+        if (detectionMatch.length < detectionCount) {
+            int size = Integer.highestOneBit(detectionCount) << 1;
+            detectionMatch = new int[size];
+            detectionValueIds = new int[size];
+        }
+    }
+
+    private static int[] filled(int size, int value) {
+        int[] array = new int[size];
+        Arrays.fill(array, value);
+        return array;
+    }
+
+    private static int[] grow(int[] array, int required) {
+        return array.length >= required ? array : Arrays.copyOf(array, Integer.highestOneBit(required) << 1);
+    }
+}
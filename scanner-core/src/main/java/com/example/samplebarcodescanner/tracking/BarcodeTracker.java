@@ -0,0 +1,23 @@
+package com.example.samplebarcodescanner.tracking;
+
+import java.util.List;
+
+/**
+ * Associates per-frame barcode detections with persistent tracks.
+ */
+public interface BarcodeTracker {
+
+    /**
+     * Feeds one frame of detections and returns the live tracks, including tracks that were not
+     * matched this frame but are still within their missed-frame budget.
+     * <p>
+     * The returned list and its tracks are only valid until the next call.
+     */
+    List<Track> update(List<Detection> detections, long timestampNanos);
+
+    /** Returns the tracks produced by the last {@link #update} call. */
+    List<Track> getTracks();
+
+    /** Drops all tracks. Track IDs are not reused. */
+    void reset();
+}
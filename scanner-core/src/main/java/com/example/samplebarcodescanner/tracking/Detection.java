@@ -0,0 +1,79 @@
+package com.example.samplebarcodescanner.tracking;
+
+import com.example.samplebarcodescanner.geometry.IntRect;
+
+/**
+ * A single barcode read from one analysis frame, in analysis-image pixel coordinates.
+ */
+public final class Detection {
+    private final int valueId;
+    private final String value;
+    private final int format;
+    private final int left;
+    private final int top;
+    private final int right;
+    private final int bottom;
+
+    public Detection(String value, int format, int left, int top, int right, int bottom) {
+        this(ValueSymbolTable.NO_ID, value, format, left, top, right, bottom);
+    }
+
+    /**
+     * @param valueId {@code value} and {@code format} interned in the tracker's
+     *                {@link ValueSymbolTable}, or {@link ValueSymbolTable#NO_ID} to let the
+     *                tracker intern it
+     */
+    public Detection(int valueId, String value, int format, int left, int top, int right, int bottom) {
+        if (value == null) {
+            throw new IllegalArgumentException("value == null");
+        }
+        this.valueId = valueId;
+        this.value = value;
+        this.format = format;
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    public int getValueId() {
+        return valueId;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public int getFormat() {
+        return format;
+    }
+
+    public int getLeft() {
+        return left;
+    }
+
+    public int getTop() {
+        return top;
+    }
+
+    public int getRight() {
+        return right;
+    }
+
+    public int getBottom() {
+        return bottom;
+    }
+
+    /** Copies the box into {@code out} and returns it. */
+    public IntRect getBounds(IntRect out) {
+        return out.set(left, top, right, bottom);
+    }
+
+    float centerX() {
+        return (left + right) * 0.5f;
+    }
+
+    float centerY() {
+        return (top + bottom) * 0.5f;
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.samplebarcodescanner.tracking;
+
+import java.util.Arrays;
+
+/**
+ * Constant-velocity Kalman filters for every live track, stored as a struct of primitive arrays.
+ * <p>
+ * Each track occupies one slot. A slot filters its box edges (left, top, right, bottom) as four
+ * independent position/velocity axes, each with its own 2x2 covariance. Because the axes are
+ * uncorrelated, the filter reduces to a handful of scalar operations per axis and all slots can
+ * be predicted in a single pass over contiguous arrays.
+ * <p>
+ * Slots are recycled through a free list. The arrays only grow when more slots are live than
+ * ever before, so {@link #predictAll}, {@link #correct} and the getters never allocate once the
+ * bank has reached its working size. Not thread-safe.
+ */
+public final class KalmanFilterBank {
+    /** Axes per slot: left, top, right, bottom. */
+    static final int AXES = 4;
+
+    public static final float DEFAULT_PROCESS_NOISE = 5000f;
+    public static final float DEFAULT_MEASUREMENT_NOISE = 9f;
+    private static final float INITIAL_VELOCITY_VARIANCE = 1_000_000f;
+
+    private final float processNoise;
+    private final float measurementNoise;
+
+    // Indexed by slot * AXES + axis.
+    private float[] position;
+    private float[] velocity;
+    private float[] p00;
+    private float[] p01;
+    private float[] p11;
+
+    private boolean[] live;
+    private int[] freeSlots;
+    private int freeCount;
+    private int highWater;
+
+    public KalmanFilterBank() {
+        this(16, DEFAULT_PROCESS_NOISE, DEFAULT_MEASUREMENT_NOISE);
+    }
+
+    /**
+     * @param initialCapacity  slots to allocate up front
+     * @param processNoise     white-noise acceleration density, in px²/s³
+     * @param measurementNoise detector edge variance, in px²
+     */
+    public KalmanFilterBank(int initialCapacity, float processNoise, float measurementNoise) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("initialCapacity must be positive: " + initialCapacity);
+        }
+        this.processNoise = processNoise;
+        this.measurementNoise = measurementNoise;
+        resize(initialCapacity);
+    }
+
+    /** Starts a filter at the given box with zero velocity and returns its slot. */
+    public int allocate(float left, float top, float right, float bottom) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (highWater == live.length) {
+                resize(live.length * 2);
+            }
+            slot = highWater++;
+        }
+        live[slot] = true;
+        int base = slot * AXES;
+        reset(base, left);
+        reset(base + 1, top);
+        reset(base + 2, right);
+        reset(base + 3, bottom);
+        return slot;
+    }
+
+    public void release(int slot) {
+        checkLive(slot);
+        live[slot] = false;
+        freeSlots[freeCount++] = slot;
+    }
+
+    /** Advances every live filter by {@code dtSeconds} under the constant-velocity model. */
+    public void predictAll(float dtSeconds) {
+        if (dtSeconds <= 0f) {
+            return;
+        }
+        float dt2 = dtSeconds * dtSeconds;
+        float q00 = processNoise * dt2 * dtSeconds / 3f;
+        float q01 = processNoise * dt2 / 2f;
+        float q11 = processNoise * dtSeconds;
+        for (int slot = 0; slot < highWater; slot++) {
+            if (!live[slot]) {
+                continue;
+            }
+            for (int i = slot * AXES, end = i + AXES; i < end; i++) {
+                position[i] += velocity[i] * dtSeconds;
+                float c11 = p11[i];
+                p00[i] += dtSeconds * (2f * p01[i] + dtSeconds * c11) + q00;
+                p01[i] += dtSeconds * c11 + q01;
+                p11[i] = c11 + q11;
+            }
+        }
+    }
+
+    /** Folds a measured box into the slot's estimate. Call after {@link #predictAll}. */
+    public void correct(int slot, float left, float top, float right, float bottom) {
+        checkLive(slot);
+        int base = slot * AXES;
+        correctAxis(base, left);
+        correctAxis(base + 1, top);
+        correctAxis(base + 2, right);
+        correctAxis(base + 3, bottom);
+    }
+
+    public float getLeft(int slot) {
+        return position[slot * AXES];
+    }
+
+    public float getTop(int slot) {
+        return position[slot * AXES + 1];
+    }
+
+    public float getRight(int slot) {
+        return position[slot * AXES + 2];
+    }
+
+    public float getBottom(int slot) {
+        return position[slot * AXES + 3];
+    }
+
+    /** Horizontal velocity of the box centre, in px/s. */
+    public float getVelocityX(int slot) {
+        int base = slot * AXES;
+        return (velocity[base] + velocity[base + 2]) * 0.5f;
+    }
+
+    /** Vertical velocity of the box centre, in px/s. */
+    public float getVelocityY(int slot) {
+        int base = slot * AXES;
+        return (velocity[base + 1] + velocity[base + 3]) * 0.5f;
+    }
+
+    /** Velocity of a single edge, in px/s. {@code axis} is 0..3 for left, top, right, bottom. */
+    public float getEdgeVelocity(int slot, int axis) {
+        return velocity[slot * AXES + axis];
+    }
+
+    /** Position variance of a single edge, in px². */
+    public float getEdgeVariance(int slot, int axis) {
+        return p00[slot * AXES + axis];
+    }
+
+    public int getLiveCount() {
+        return highWater - freeCount;
+    }
+
+    private void reset(int i, float value) {
+        position[i] = value;
+        velocity[i] = 0f;
+        p00[i] = measurementNoise;
+        p01[i] = 0f;
+        p11[i] = INITIAL_VELOCITY_VARIANCE;
+    }
+
+    private void correctAxis(int i, float measured) {
+        float c00 = p00[i];
+        float c01 = p01[i];
+        float s = c00 + measurementNoise;
+        float k0 = c00 / s;
+        float k1 = c01 / s;
+        float innovation = measured - position[i];
+        position[i] += k0 * innovation;
+        velocity[i] += k1 * innovation;
+        p00[i] = (1f - k0) * c00;
+        p01[i] = (1f - k0) * c01;
+        p11[i] -= k1 * c01;
+    }
+
+    private void checkLive(int slot) {
+        if (slot < 0 || slot >= highWater || !live[slot]) {
+            throw new IllegalArgumentException("slot " + slot + " is not live");
+        }
+    }
+
+    private void resize(int capacity) {
+        int values = capacity * AXES;
+        position = position == null ? new float[values] : Arrays.copyOf(position, values);
+        velocity = velocity == null ? new float[values] : Arrays.copyOf(velocity, values);
+        p00 = p00 == null ? new float[values] : Arrays.copyOf(p00, values);
+        p01 = p01 == null ? new float[values] : Arrays.copyOf(p01, values);
+        p11 = p11 == null ? new float[values] : Arrays.copyOf(p11, values);
+        live = live == null ? new boolean[capacity] : Arrays.copyOf(live, capacity);
+        freeSlots = freeSlots == null ? new int[capacity] : Arrays.copyOf(freeSlots, capacity);
+    }
+}
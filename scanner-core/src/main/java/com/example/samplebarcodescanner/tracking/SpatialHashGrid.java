@@ -0,0 +1,94 @@
+package com.example.samplebarcodescanner.tracking;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over image space used to prune track/detection candidate pairs.
+ * <p>
+ * Items are inserted with an axis-aligned extent and registered in every cell that extent
+ * touches; a point query then only has to look at a single cell. Cells are hashed into a
+ * bucket table so the grid does not need to know the frame size up front. Hash collisions can
+ * return extra items, so callers must still apply their own distance gate.
+ * <p>
+ * All storage is primitive arrays that are reused across {@link #clear()} calls.
+ */
+final class SpatialHashGrid {
+    private final float cellSize;
+    private int[] bucketHeads;
+    private int bucketMask;
+    private int[] entryItems = new int[256];
+    private int[] entryNext = new int[256];
+    private int entryCount;
+
+    SpatialHashGrid(float cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("cellSize must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+        allocateBuckets(256);
+    }
+
+    void clear() {
+        // Grow between frames rather than rehashing mid-frame: entries do not remember their
+        // cell, and a frame with long chains is still correct, only slower.
+        if (entryCount > bucketHeads.length) {
+            allocateBuckets(Integer.highestOneBit(entryCount) << 1);
+        } else {
+            Arrays.fill(bucketHeads, -1);
+        }
+        entryCount = 0;
+    }
+
+    /** Registers {@code item} in every cell overlapping the given extent. */
+    void insert(int item, float left, float top, float right, float bottom) {
+        int minX = cell(left);
+        int minY = cell(top);
+        int maxX = cell(right);
+        int maxY = cell(bottom);
+        for (int cy = minY; cy <= maxY; cy++) {
+            for (int cx = minX; cx <= maxX; cx++) {
+                addEntry(bucket(cx, cy), item);
+            }
+        }
+    }
+
+    /** Index of the first entry in the bucket containing the point, or -1. */
+    int firstEntry(float x, float y) {
+        return bucketHeads[bucket(cell(x), cell(y))];
+    }
+
+    int nextEntry(int entry) {
+        return entryNext[entry];
+    }
+
+    int itemAt(int entry) {
+        return entryItems[entry];
+    }
+
+    private void addEntry(int bucket, int item) {
+        if (entryCount == entryItems.length) {
+            entryItems = Arrays.copyOf(entryItems, entryCount * 2);
+            entryNext = Arrays.copyOf(entryNext, entryCount * 2);
+        }
+        entryItems[entryCount] = item;
+        entryNext[entryCount] = bucketHeads[bucket];
+        bucketHeads[bucket] = entryCount;
+        entryCount++;
+    }
+
+    private void allocateBuckets(int size) {
+        bucketHeads = new int[size];
+        bucketMask = size - 1;
+        Arrays.fill(bucketHeads, -1);
+    }
+
+    private int cell(float coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private int bucket(int cx, int cy) {
+        int h = cx * 73856093 ^ cy * 19349663;
+        h ^= h >>> 16;
+        return h & bucketMask;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.samplebarcodescanner.tracking;
+
+import com.example.samplebarcodescanner.geometry.IntRect;
+
+/**
+ * A barcode followed across frames by a {@link BarcodeTracker}.
+ * <p>
+ * Instances are owned and mutated by the tracker; callers should treat them as read-only and
+ * must not hold on to them past the next {@link BarcodeTracker#update} call.
+ */
+public final class Track {
+    private final int id;
+    final int valueId;
+    private final String value;
+    private final int format;
+    final int filterSlot;
+    int left;
+    int top;
+    int right;
+    int bottom;
+    int hits;
+    int missedFrames;
+    long lastSeenNanos;
+    float velocityX;
+    float velocityY;
+
+    Track(int id, int valueId, Detection detection, int filterSlot, long timestampNanos) {
+        this.id = id;
+        this.valueId = valueId;
+        this.value = detection.getValue();
+        this.format = detection.getFormat();
+        this.filterSlot = filterSlot;
+        this.hits = 1;
+        this.lastSeenNanos = timestampNanos;
+        left = detection.getLeft();
+        top = detection.getTop();
+        right = detection.getRight();
+        bottom = detection.getBottom();
+    }
+
+    /** Copies the filtered box and velocity for this track's slot. */
+    void syncFrom(KalmanFilterBank filters) {
+        left = Math.round(filters.getLeft(filterSlot));
+        top = Math.round(filters.getTop(filterSlot));
+        right = Math.round(filters.getRight(filterSlot));
+        bottom = Math.round(filters.getBottom(filterSlot));
+        velocityX = filters.getVelocityX(filterSlot);
+        velocityY = filters.getVelocityY(filterSlot);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /** Value and format interned in the tracker's {@link ValueSymbolTable}. */
+    public int getValueId() {
+        return valueId;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public int getFormat() {
+        return format;
+    }
+
+    public int getLeft() {
+        return left;
+    }
+
+    public int getTop() {
+        return top;
+    }
+
+    public int getRight() {
+        return right;
+    }
+
+    public int getBottom() {
+        return bottom;
+    }
+
+    /** Copies the filtered box into {@code out} and returns it. */
+    public IntRect getBounds(IntRect out) {
+        return out.set(left, top, right, bottom);
+    }
+
+    /** Number of frames in which this track was matched to a detection. */
+    public int getHits() {
+        return hits;
+    }
+
+    /** Consecutive frames since the last matching detection; 0 if matched this frame. */
+    public int getMissedFrames() {
+        return missedFrames;
+    }
+
+    public long getLastSeenNanos() {
+        return lastSeenNanos;
+    }
+
+    /** Estimated horizontal velocity of the box centre, in px/s. */
+    public float getVelocityX() {
+        return velocityX;
+    }
+
+    /** Estimated vertical velocity of the box centre, in px/s. */
+    public float getVelocityY() {
+        return velocityY;
+    }
+
+    float centerX() {
+        return (left + right) * 0.5f;
+    }
+
+    float centerY() {
+        return (top + bottom) * 0.5f;
+    }
+
+    float diagonal() {
+        float w = right - left;
+        float h = bottom - top;
+        return (float) Math.sqrt(w * w + h * h);
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.samplebarcodescanner.tracking;
+
+/**
+ * Interns barcode values and their format into compact {@code int} IDs.
+ * <p>
+ * A raw value is hashed and compared once, when it is interned; everything downstream compares
+ * and keys on the ID. An ID is {@code generation << slotBits | slot}: the slot is a dense index
+ * in {@code [0, capacity)} that callers may use to index their own arrays ({@link #slotOf}), and
+ * the generation changes whenever the slot is reused, so an ID held past its entry's eviction
+ * differs from the IDs of whatever replaces it. The generation has {@code 31 - slotBits} bits and
+ * wraps: after 2^(31 - slotBits) reuses of one slot (2^19 at the default capacity) an ID comes
+ * round again, so IDs are meant to be held for a while, not forever.
+ * <p>
+ * The table holds at most {@code capacity} entries. When full, it evicts with the CLOCK
+ * approximation of LRU: entries looked up again or {@link #touch touched} since the hand last
+ * passed get a second chance, so values seen once are evicted before values seen repeatedly.
+ * Lookups never allocate. Not thread-safe.
+ */
+public final class ValueSymbolTable {
+    public static final int DEFAULT_CAPACITY = 4096;
+    /** Never returned by {@link #intern}; marks a detection that has not been interned. */
+    public static final int NO_ID = -1;
+
+    private final int capacity;
+    private final int slotBits;
+    private final int slotMask;
+    private final int generationMask;
+
+    private final String[] values;
+    private final int[] formats;
+    private final int[] hashes;
+    private final int[] generations;
+    private final boolean[] referenced;
+    private int size;
+    private int hand;
+
+    // Holds slot + 1; 0 marks an empty bucket.
+    private final int[] index;
+    private final int mask;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public ValueSymbolTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /** @param capacity most values held at once, at most 2^30 */
+    public ValueSymbolTable(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be in [1, 2^30]: " + capacity);
+        }
+        this.capacity = capacity;
+        slotBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(capacity - 1));
+        slotMask = (1 << slotBits) - 1;
+        generationMask = (1 << (31 - slotBits)) - 1;
+        values = new String[capacity];
+        formats = new int[capacity];
+        hashes = new int[capacity];
+        generations = new int[capacity];
+        referenced = new boolean[capacity];
+        index = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+        mask = index.length - 1;
+    }
+
+    /** Returns the ID for {@code value} in {@code format}, adding it if it is not held. */
+    public int intern(String value, int format) {
+        int hash = hash(value, format);
+        int i = hash & mask;
+        for (int entry; (entry = index[i]) != 0; i = (i + 1) & mask) {
+            int slot = entry - 1;
+            if (hashes[slot] == hash && formats[slot] == format && values[slot].equals(value)) {
+                hits++;
+                referenced[slot] = true;
+                return idOf(slot);
+            }
+        }
+        misses++;
+        int slot = size < capacity ? size++ : evict();
+        values[slot] = value;
+        formats[slot] = format;
+        hashes[slot] = hash;
+        referenced[slot] = false;
+        // The eviction may have shifted entries, so probe again for a free bucket.
+        i = hash & mask;
+        while (index[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        index[i] = slot + 1;
+        return idOf(slot);
+    }
+
+    /** Marks {@code id} as recently used, so the next eviction sweep passes it over. */
+    public void touch(int id) {
+        if (isLive(id)) {
+            referenced[id & slotMask] = true;
+        }
+    }
+
+    /** Whether {@code id} still names the entry it was issued for. */
+    public boolean isLive(int id) {
+        if (id < 0) {
+            return false;
+        }
+        int slot = id & slotMask;
+        return slot < size && generations[slot] == id >>> slotBits;
+    }
+
+    /** Value of a live {@code id}, or null if it has been evicted. */
+    public String valueOf(int id) {
+        return isLive(id) ? values[id & slotMask] : null;
+    }
+
+    /** Format of a live {@code id}. */
+    public int formatOf(int id) {
+        if (!isLive(id)) {
+            throw new IllegalArgumentException("id " + id + " is not live");
+        }
+        return formats[id & slotMask];
+    }
+
+    /** Dense index of {@code id}, in {@code [0, capacity)}. Shared by IDs that reused the slot. */
+    public int slotOf(int id) {
+        return id & slotMask;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public long getHitCount() {
+        return hits;
+    }
+
+    public long getMissCount() {
+        return misses;
+    }
+
+    public long getEvictionCount() {
+        return evictions;
+    }
+
+    private int idOf(int slot) {
+        return generations[slot] << slotBits | slot;
+    }
+
+    /** Advances the clock hand to an unreferenced slot, frees it and returns it. */
+    private int evict() {
+        while (referenced[hand]) {
+            referenced[hand] = false;
+            hand = hand + 1 == capacity ? 0 : hand + 1;
+        }
+        int slot = hand;
+        hand = hand + 1 == capacity ? 0 : hand + 1;
+        removeIndex(slot);
+        values[slot] = null;
+        // Wraps after 2^(31 - slotBits) reuses; see the class comment.
+        generations[slot] = (generations[slot] + 1) & generationMask;
+        evictions++;
+        return slot;
+    }
+
+    /** Linear-probing delete with backward shift, so lookups never need tombstones. */
+    private void removeIndex(int slot) {
+        int i = hashes[slot] & mask;
+        while (index[i] != slot + 1) {
+            i = (i + 1) & mask;
+        }
+        int gap = i;
+        for (int j = (gap + 1) & mask; index[j] != 0; j = (j + 1) & mask) {
+            int home = hashes[index[j] - 1] & mask;
+            // Move the entry back into the gap unless its home lies cyclically in (gap, j].
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                index[gap] = index[j];
+                gap = j;
+            }
+        }
+        index[gap] = 0;
+    }
+
+    private static int hash(String value, int format) {
+        int h = value.hashCode() * 31 + format;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+}
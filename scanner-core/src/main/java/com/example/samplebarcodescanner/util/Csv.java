@@ -0,0 +1,32 @@
+package com.example.samplebarcodescanner.util;
+
+import java.io.IOException;
+
+/** Writing side of the CSV exports: fields as RFC 4180 expects them. */
+public final class Csv {
+
+    private Csv() {
+    }
+
+    /** Quotes a CSV field when it needs it, doubling embedded quotes. */
+    public static void appendField(Appendable out, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+}
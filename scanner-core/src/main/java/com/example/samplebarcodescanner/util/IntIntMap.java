@@ -0,0 +1,139 @@
+package com.example.samplebarcodescanner.util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from {@code int} to {@code int}, without boxing.
+ * <p>
+ * Linear probing over power-of-two parallel arrays, with backward-shift deletion so there are no
+ * tombstones to clean up. Lookups never allocate; {@link #put} only allocates when the table has
+ * to grow past its load factor of one half. Absent keys read as the {@code missingValue} given
+ * at construction. Not thread-safe.
+ */
+public final class IntIntMap {
+    private final int missingValue;
+    private int[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int mask;
+    private int size;
+
+    /**
+     * @param expectedSize entries the map should hold without growing
+     * @param missingValue returned by {@link #get} and {@link #remove} for absent keys
+     */
+    public IntIntMap(int expectedSize, int missingValue) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("expectedSize must be >= 0: " + expectedSize);
+        }
+        this.missingValue = missingValue;
+        allocate(Math.max(8, Integer.highestOneBit(Math.max(1, expectedSize) * 2 - 1) << 1));
+    }
+
+    public int get(int key) {
+        for (int i = bucket(key); used[i]; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return missingValue;
+    }
+
+    public boolean containsKey(int key) {
+        for (int i = bucket(key); used[i]; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Maps {@code key} to {@code value} and returns the previous value, or the missing value. */
+    public int put(int key, int value) {
+        int i = bucket(key);
+        for (; used[i]; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                int previous = values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+        used[i] = true;
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        return missingValue;
+    }
+
+    /** Removes {@code key} and returns its value, or the missing value if it was absent. */
+    public int remove(int key) {
+        int i = bucket(key);
+        for (; used[i]; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                int previous = values[i];
+                shiftBack(i);
+                size--;
+                return previous;
+            }
+        }
+        return missingValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private void shiftBack(int gap) {
+        for (int j = (gap + 1) & mask; used[j]; j = (j + 1) & mask) {
+            int home = bucket(keys[j]);
+            // Move the entry back into the gap unless its home lies cyclically in (gap, j].
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        used[gap] = false;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int j = bucket(oldKeys[i]);
+                while (used[j]) {
+                    j = (j + 1) & mask;
+                }
+                used[j] = true;
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    private int bucket(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
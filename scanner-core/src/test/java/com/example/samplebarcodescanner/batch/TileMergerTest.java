@@ -0,0 +1,109 @@
+package com.example.samplebarcodescanner.batch;
+
+import com.example.samplebarcodescanner.tracking.Detection;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TileMergerTest {
+    private static final int EAN_13 = 32;
+    private static final int QR_CODE = 256;
+
+    // Two detail tiles overlapping on x in [700, 1000), and a half-scale overview.
+    private final Tile left = new Tile(0, 0, 0, 1000, 1000, 1f);
+    private final Tile right = new Tile(1, 700, 0, 1000, 1000, 1f);
+    private final Tile overview = new Tile(2, 0, 0, 1700, 1000, 0.5f);
+    private final List<Tile> tiles = Arrays.asList(left, right, overview);
+
+    private static Detection read(String value, int left, int top, int right, int bottom) {
+        return new Detection(value, EAN_13, left, top, right, bottom);
+    }
+
+    private static String box(Detection detection) {
+        return detection.getValue() + "@" + detection.getLeft() + "," + detection.getTop()
+                + "-" + detection.getRight() + "," + detection.getBottom();
+    }
+
+    @Test
+    public void labelInTheOverlapIsMergedIntoItsWholeBox() {
+        List<Detection> merged = TileMerger.merge(tiles, Arrays.asList(
+                // Whole in both tiles.
+                List.of(read("123", 750, 100, 900, 160)),
+                List.of(read("123", 50, 100, 200, 160)),
+                Collections.emptyList()));
+
+        assertEquals(1, merged.size());
+        assertEquals("123@750,100-900,160", box(merged.get(0)));
+    }
+
+    @Test
+    public void clippedReadsAreUnited() {
+        List<Detection> merged = TileMerger.merge(tiles, Arrays.asList(
+                // A label at x 900..1100, clipped by the left tile's edge.
+                List.of(read("123", 900, 100, 1000, 160)),
+                List.of(read("123", 200, 100, 400, 160)),
+                Collections.emptyList()));
+
+        assertEquals(1, merged.size());
+        assertEquals("123@900,100-1100,160", box(merged.get(0)));
+    }
+
+    @Test
+    public void identicalLabelsInDifferentPlacesStaySeparate() {
+        List<Detection> merged = TileMerger.merge(tiles, Arrays.asList(
+                List.of(read("123", 100, 100, 250, 160), read("123", 250, 100, 400, 160)),
+                List.of(read("123", 100, 500, 250, 560)),
+                // The overview sees the first two touching; it must not bridge them.
+                List.of(read("123", 50, 50, 201, 80))));
+
+        assertEquals(Arrays.asList("123@100,100-250,160", "123@250,100-400,160", "123@800,500-950,560"),
+                Arrays.asList(box(merged.get(0)), box(merged.get(1)), box(merged.get(2))));
+    }
+
+    @Test
+    public void differentValuesInOnePlaceAreKept() {
+        List<Detection> merged = TileMerger.merge(tiles, Arrays.asList(
+                List.of(read("123", 100, 100, 250, 160), new Detection("123", QR_CODE, 100, 100, 250, 160)),
+                List.of(read("456", 100, 100, 250, 160)),
+                Collections.emptyList()));
+
+        assertEquals(3, merged.size());
+    }
+
+    @Test
+    public void overviewReadIsOnlyKeptForLabelsNoDetailTileRead() {
+        List<Detection> merged = TileMerger.merge(tiles, Arrays.asList(
+                List.of(read("small", 100, 100, 250, 160)),
+                Collections.emptyList(),
+                // Half scale: "small" again, and a label too large for any detail tile.
+                List.of(read("small", 50, 50, 125, 80), read("large", 100, 200, 700, 450))));
+
+        assertEquals(Arrays.asList("small@100,100-250,160", "large@200,400-1400,900"),
+                Arrays.asList(box(merged.get(0)), box(merged.get(1))));
+    }
+
+    @Test
+    public void failedTilesAreSkipped() {
+        List<Detection> merged = TileMerger.merge(tiles, Arrays.asList(
+                null, List.of(read("123", 50, 100, 200, 160)), null));
+
+        assertEquals(1, merged.size());
+        assertEquals("123@750,100-900,160", box(merged.get(0)));
+    }
+
+    @Test
+    public void resultsAreInReadingOrder() {
+        List<Detection> merged = TileMerger.merge(tiles, Arrays.asList(
+                List.of(read("c", 500, 600, 600, 650), read("b", 500, 100, 600, 150)),
+                List.of(read("a", 0, 100, 100, 150)),
+                Collections.emptyList()));
+
+        assertEquals(Arrays.asList("b", "a", "c"),
+                Arrays.asList(merged.get(0).getValue(), merged.get(1).getValue(), merged.get(2).getValue()));
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.samplebarcodescanner.batch;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TilePlannerTest {
+
+    @Test
+    public void imageWithinTileSizeIsOneTile() {
+        List<Tile> tiles = TilePlanner.plan(800, 600, 1024, 256, true);
+
+        assertEquals(1, tiles.size());
+        Tile tile = tiles.get(0);
+        assertEquals(0, tile.getLeft());
+        assertEquals(800, tile.getWidth());
+        assertEquals(600, tile.getHeight());
+        assertFalse(tile.isOverview());
+    }
+
+    @Test
+    public void tilesCoverTheImageWithAtLeastTheOverlap() {
+        int[] sizes = {1025, 1800, 3000, 4000, 8000};
+        for (int size : sizes) {
+            int[] starts = TilePlanner.starts(size, 1024, 256);
+            assertEquals(0, starts[0]);
+            assertEquals(size - 1024, starts[starts.length - 1]);
+            for (int i = 1; i < starts.length; i++) {
+                assertTrue("overlap at " + size, starts[i] - starts[i - 1] <= 1024 - 256);
+                assertTrue("no duplicate tiles at " + size, starts[i] > starts[i - 1]);
+            }
+        }
+    }
+
+    @Test
+    public void everyLabelUpToTheOverlapFitsWhollyInOneTile() {
+        Random random = new Random(20);
+        for (int n = 0; n < 2000; n++) {
+            int width = 1100 + random.nextInt(6000);
+            int height = 1100 + random.nextInt(4000);
+            List<Tile> tiles = TilePlanner.plan(width, height, 1024, 256, false);
+            int labelWidth = 1 + random.nextInt(256);
+            int labelHeight = 1 + random.nextInt(256);
+            int left = random.nextInt(width - labelWidth + 1);
+            int top = random.nextInt(height - labelHeight + 1);
+
+            boolean contained = false;
+            for (Tile tile : tiles) {
+                contained |= left >= tile.getLeft() && top >= tile.getTop()
+                        && left + labelWidth <= tile.getLeft() + tile.getWidth()
+                        && top + labelHeight <= tile.getTop() + tile.getHeight();
+            }
+            assertTrue(labelWidth + "x" + labelHeight + " at " + left + "," + top + " in " + width + "x" + height,
+                    contained);
+        }
+    }
+
+    @Test
+    public void overviewCoversTheImageAtTileSize() {
+        List<Tile> tiles = TilePlanner.plan(4000, 3000, 1024, 256, true);
+
+        // 5 columns by 4 rows, then the overview.
+        assertEquals(21, tiles.size());
+        Tile overview = tiles.get(20);
+        assertTrue(overview.isOverview());
+        assertEquals(20, overview.getIndex());
+        assertEquals(4000, overview.getWidth());
+        assertEquals(1024, overview.getOutputWidth());
+        assertEquals(768, overview.getOutputHeight());
+        for (Tile tile : tiles.subList(0, 20)) {
+            assertEquals(1024, tile.getWidth());
+            assertEquals(1024, tile.getHeight());
+            assertTrue(tile.getLeft() + tile.getWidth() <= 4000);
+            assertTrue(tile.getTop() + tile.getHeight() <= 3000);
+        }
+    }
+
+    @Test
+    public void tilesAreClampedToANarrowImage() {
+        List<Tile> tiles = TilePlanner.plan(600, 3000, 1024, 256, false);
+
+        assertEquals(4, tiles.size());
+        for (Tile tile : tiles) {
+            assertEquals(0, tile.getLeft());
+            assertEquals(600, tile.getWidth());
+        }
+    }
+
+    @Test
+    public void rejectsOverlapNotBelowTileSize() {
+        try {
+            TilePlanner.plan(4000, 3000, 512, 512, false);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.samplebarcodescanner.batch;
+
+import com.example.samplebarcodescanner.tracking.Detection;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TiledDecoderTest {
+    private static final int CODE_128 = 1;
+
+    /** A photographed sheet: label boxes in image pixels. */
+    private static final class Sheet {
+        final int width;
+        final int height;
+        final List<Detection> labels = new ArrayList<>();
+
+        Sheet(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        /** A grid of small labels, like a pallet manifest, at 150x60 px with 40 px gaps. */
+        static Sheet manifest(String name, int width, int height) {
+            Sheet sheet = new Sheet(width, height);
+            for (int top = 20; top + 60 <= height; top += 100) {
+                for (int left = 20; left + 150 <= width; left += 190) {
+                    sheet.labels.add(new Detection(name + "-" + left + "-" + top, CODE_128,
+                            left, top, left + 150, top + 60));
+                }
+            }
+            return sheet;
+        }
+    }
+
+    /**
+     * Reads a label when it is wholly inside the tile and, at the tile's scale, still at least
+     * {@code minWidth} tile pixels wide, as a detector needs enough pixels per module.
+     */
+    private static final class SyntheticDetector implements TiledDecoder.TileSource<Sheet> {
+        final int minWidth;
+        final AtomicInteger tiles = new AtomicInteger();
+        final AtomicInteger decoding = new AtomicInteger();
+        final AtomicInteger mostDecoding = new AtomicInteger();
+        final Set<Integer> failing = new HashSet<>();
+        volatile long tileNanos;
+
+        SyntheticDetector(int minWidth) {
+            this.minWidth = minWidth;
+        }
+
+        @Override
+        public int width(Sheet image) {
+            return image.width;
+        }
+
+        @Override
+        public int height(Sheet image) {
+            return image.height;
+        }
+
+        @Override
+        public List<Detection> decode(Sheet image, Tile tile) throws Exception {
+            tiles.incrementAndGet();
+            mostDecoding.accumulateAndGet(decoding.incrementAndGet(), Math::max);
+            try {
+                if (tileNanos > 0) {
+                    Thread.sleep(tileNanos / 1_000_000, (int) (tileNanos % 1_000_000));
+                }
+            } finally {
+                decoding.decrementAndGet();
+            }
+            if (failing.contains(tile.getIndex())) {
+                throw new IOException("tile " + tile.getIndex());
+            }
+            float scale = tile.getScale();
+            List<Detection> found = new ArrayList<>();
+            for (Detection label : image.labels) {
+                boolean inside = label.getLeft() >= tile.getLeft() && label.getTop() >= tile.getTop()
+                        && label.getRight() <= tile.getLeft() + tile.getWidth()
+                        && label.getBottom() <= tile.getTop() + tile.getHeight();
+                if (inside && (label.getRight() - label.getLeft()) * scale >= minWidth) {
+                    found.add(new Detection(label.getValue(), label.getFormat(),
+                            Math.round((label.getLeft() - tile.getLeft()) * scale),
+                            Math.round((label.getTop() - tile.getTop()) * scale),
+                            Math.round((label.getRight() - tile.getLeft()) * scale),
+                            Math.round((label.getBottom() - tile.getTop()) * scale)));
+                }
+            }
+            return found;
+        }
+    }
+
+    private TiledDecoder<Sheet> decoder;
+
+    @After
+    public void closeDecoder() {
+        if (decoder != null) {
+            decoder.close();
+        }
+    }
+
+    private static Set<String> values(List<Detection> detections) {
+        Set<String> values = new HashSet<>();
+        for (Detection detection : detections) {
+            values.add(detection.getValue());
+        }
+        return values;
+    }
+
+    @Test
+    public void readsEveryLabelOfADenseSheetOnceWithItsBox() throws Exception {
+        Sheet sheet = Sheet.manifest("m", 4000, 3000);
+        Detection large = new Detection("large", CODE_128, 1000, 2950, 3200, 2990);
+        sheet.labels.add(large);
+        decoder = new TiledDecoder.Builder<>(new SyntheticDetector(100)).parallelism(4).build();
+
+        TiledDecoder.Result<Sheet> result = decoder.decode(sheet);
+
+        assertNull(result.getError());
+        assertEquals(21, result.getTileCount());
+        assertEquals(sheet.labels.size(), result.getDetections().size());
+        assertEquals(values(sheet.labels), values(result.getDetections()));
+        for (Detection detection : result.getDetections()) {
+            if (detection.getValue().equals("large")) {
+                // Only the overview reads it, to within one overview pixel.
+                assertEquals(large.getLeft(), detection.getLeft(), 4);
+                assertEquals(large.getRight(), detection.getRight(), 4);
+            } else {
+                assertEquals(150, detection.getRight() - detection.getLeft());
+                assertEquals(60, detection.getBottom() - detection.getTop());
+            }
+        }
+    }
+
+    @Test
+    public void wholeFrameAtStreamResolutionMissesTheDenseLabels() throws Exception {
+        Sheet sheet = Sheet.manifest("m", 4000, 3000);
+        // The whole sheet scaled to a 1920 px long edge, as the live stream sees it.
+        List<Detection> streamed = new SyntheticDetector(100).decode(sheet, new Tile(0, 0, 0, 4000, 3000, 0.48f));
+        decoder = new TiledDecoder.Builder<>(new SyntheticDetector(100)).build();
+        TiledDecoder.Result<Sheet> tiled = decoder.decode(sheet);
+
+        assertEquals(0, streamed.size());
+        assertEquals(sheet.labels.size(), tiled.getDetections().size());
+    }
+
+    @Test
+    public void failedTilesAreReportedAndTheRestMerged() throws Exception {
+        Sheet sheet = Sheet.manifest("m", 4000, 3000);
+        SyntheticDetector detector = new SyntheticDetector(100);
+        detector.failing.add(0);
+        detector.failing.add(7);
+        decoder = new TiledDecoder.Builder<>(detector).overview(false).build();
+
+        TiledDecoder.Result<Sheet> result = decoder.decode(sheet);
+
+        assertEquals(2, result.getFailedTiles());
+        assertTrue(result.getError() instanceof IOException);
+        // Labels of the failed tiles that also lie wholly in a neighbour are still read.
+        assertTrue(result.getDetections().size() > sheet.labels.size() * 8 / 10);
+        assertTrue(result.getDetections().size() < sheet.labels.size());
+    }
+
+    @Test
+    public void batchResultsAreInOrderAndLoadFailuresDoNotStopIt() throws Exception {
+        List<String> names = List.of("a", "b", "missing", "c");
+        List<String> notified = new CopyOnWriteArrayList<>();
+        decoder = new TiledDecoder.Builder<>(new SyntheticDetector(100)).build();
+
+        List<TiledDecoder.Result<String>> results = decoder.decodeAll(names, name -> {
+            if (name.equals("missing")) {
+                throw new IOException(name);
+            }
+            return Sheet.manifest(name, 2500, 1500);
+        }, result -> notified.add(result.getSource()));
+
+        assertEquals(names.size(), results.size());
+        for (int i = 0; i < names.size(); i++) {
+            assertEquals(names.get(i), results.get(i).getSource());
+        }
+        assertTrue(results.get(2).getError() instanceof IOException);
+        assertEquals(Collections.emptyList(), results.get(2).getDetections());
+        assertEquals(Sheet.manifest("c", 2500, 1500).labels.size(), results.get(3).getDetections().size());
+        assertEquals(new HashSet<>(names), new HashSet<>(notified));
+    }
+
+    @Test
+    public void loadedImagesAreBounded() throws Exception {
+        AtomicInteger loaded = new AtomicInteger();
+        AtomicInteger mostLoaded = new AtomicInteger();
+        SyntheticDetector detector = new SyntheticDetector(100);
+        detector.tileNanos = 1_000_000;
+        decoder = new TiledDecoder.Builder<>(detector).parallelism(4).maxImagesInFlight(2).build();
+        List<Integer> sources = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            sources.add(i);
+        }
+
+        decoder.decodeAll(sources, new TiledDecoder.Loader<Integer, Sheet>() {
+            @Override
+            public Sheet load(Integer source) {
+                mostLoaded.accumulateAndGet(loaded.incrementAndGet(), Math::max);
+                return Sheet.manifest("s" + source, 3000, 2000);
+            }
+
+            @Override
+            public void release(Sheet image) {
+                loaded.decrementAndGet();
+            }
+        }, null);
+
+        assertEquals(0, loaded.get());
+        assertTrue(mostLoaded.get() <= 2);
+        assertEquals(12 * 13, detector.tiles.get());
+    }
+
+    @Test
+    public void tilesDecodeInParallelUpToTheParallelism() throws Exception {
+        List<Sheet> sheets = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            sheets.add(Sheet.manifest("s" + i, 4000, 3000));
+        }
+        SyntheticDetector detector = new SyntheticDetector(100);
+        // Stands in for the detector's time per tile, so tiles overlap.
+        detector.tileNanos = 5_000_000;
+        decoder = new TiledDecoder.Builder<>(detector).parallelism(4).build();
+
+        decoder.decodeAll(sheets, sheet -> sheet, null);
+
+        assertEquals(4 * 21, detector.tiles.get());
+        assertTrue("at most " + detector.mostDecoding.get() + " at once", detector.mostDecoding.get() > 1);
+        assertTrue(detector.mostDecoding.get() <= 4);
+    }
+}
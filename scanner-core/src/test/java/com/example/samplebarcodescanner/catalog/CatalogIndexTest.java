@@ -0,0 +1,107 @@
+package com.example.samplebarcodescanner.catalog;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CatalogIndexTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CatalogIndex build(String csv) throws IOException {
+        File file = folder.newFile();
+        CatalogIndexWriter.write(new StringReader(csv), file);
+        return CatalogIndex.open(file);
+    }
+
+    @Test
+    public void resolvesListedValuesAndNothingElse() throws IOException {
+        try (CatalogIndex index = build("price,barcode,name,ignored,brand\n"
+                + "1.99,4006381333931,Pencil,x,Stabilo\n"
+                + "0.49,5000112637922,\"Cola, 330 ml\",x,\"The \"\"Cola\"\" Co\"\n"
+                + "3.20,9780201379624,Book\r\n")) {
+            assertEquals(3, index.size());
+
+            Product cola = index.lookup("5000112637922");
+            assertEquals("5000112637922", cola.getValue());
+            assertEquals("Cola, 330 ml", cola.getName());
+            assertEquals("The \"Cola\" Co", cola.getBrand());
+            assertEquals("0.49", cola.getPrice());
+            assertEquals("Book", index.lookup("9780201379624").getName());
+            assertEquals("", index.lookup("9780201379624").getBrand());
+
+            assertNull(index.lookup("4006381333932"));
+            assertNull(index.lookup(""));
+            assertFalse(index.contains("400638133393"));
+            assertTrue(index.contains("4006381333931"));
+        }
+    }
+
+    @Test
+    public void firstRowOfARepeatedBarcodeWinsAndBlankBarcodesAreSkipped() throws IOException {
+        File file = folder.newFile();
+        CatalogIndexWriter.Result result = CatalogIndexWriter.write(new StringReader(
+                "barcode,name\nA,first\n,orphan\nB,other\nA,second\n  ,blank\n"), file);
+        assertEquals(2, result.entries);
+        assertEquals(1, result.duplicates);
+        assertEquals(2, result.skipped);
+        try (CatalogIndex index = CatalogIndex.open(file)) {
+            assertEquals("first", index.lookup("A").getName());
+        }
+    }
+
+    @Test
+    public void nonAsciiValuesRoundTrip() throws IOException {
+        try (CatalogIndex index = build("barcode,name\nÄ-42,Umlaut\nÅ,Ring\n📦,Box\n")) {
+            assertEquals("Umlaut", index.lookup("Ä-42").getName());
+            assertEquals("Box", index.lookup("📦").getName());
+            assertNull(index.lookup("A-42"));
+        }
+    }
+
+    @Test
+    public void emptyCatalogHasNoEntries() throws IOException {
+        try (CatalogIndex index = build("barcode,name\n")) {
+            assertEquals(0, index.size());
+            assertNull(index.lookup("1"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void headerNeedsABarcodeColumn() throws IOException {
+        build("sku,name\n1,x\n");
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsFilesThatAreNotIndexes() throws IOException {
+        File file = folder.newFile();
+        java.nio.file.Files.write(file.toPath(), new byte[64]);
+        CatalogIndex.open(file);
+    }
+
+    @Test
+    public void largeCatalogFindsListedValuesAndNoOthers() throws IOException {
+        int skus = 100_000;
+        File file = folder.newFile();
+        CatalogIndexWriter.write(new SyntheticCatalog(skus), file);
+
+        Random random = new Random(7);
+        try (CatalogIndex index = CatalogIndex.open(file)) {
+            assertEquals(skus, index.size());
+            for (int i = 0; i < 4096; i++) {
+                String hit = SyntheticCatalog.barcode(random.nextInt(skus));
+                String miss = SyntheticCatalog.barcode(skus + random.nextInt(skus));
+                assertEquals(hit, index.lookup(hit).getValue());
+                assertNull(index.lookup(miss));
+                assertFalse(index.contains(miss));
+            }
+        }
+    }
+}
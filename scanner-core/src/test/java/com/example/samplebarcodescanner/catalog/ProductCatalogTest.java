@@ -0,0 +1,85 @@
+package com.example.samplebarcodescanner.catalog;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ProductCatalogTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CatalogIndex index;
+    private final List<Runnable> queued = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        File file = folder.newFile();
+        CatalogIndexWriter.write(new StringReader("barcode,name\nA,Apple\nB,Banana\nC,Cherry\n"), file);
+        index = CatalogIndex.open(file);
+    }
+
+    private void runQueued() {
+        List<Runnable> tasks = new ArrayList<>(queued);
+        queued.clear();
+        tasks.forEach(Runnable::run);
+    }
+
+    @Test
+    public void prefetchResolvesInTheBackgroundOnce() {
+        ProductCatalog catalog = new ProductCatalog(index, queued::add);
+        catalog.prefetch("A");
+        catalog.prefetch("A");
+        assertEquals(1, queued.size());
+        assertFalse(catalog.isResolved("A"));
+        assertNull(catalog.peek("A"));
+
+        runQueued();
+        assertTrue(catalog.isResolved("A"));
+        assertEquals("Apple", catalog.peek("A").getName());
+
+        catalog.prefetch("A");
+        assertTrue("already cached", queued.isEmpty());
+    }
+
+    @Test
+    public void unlistedValuesAreCachedAsResolved() {
+        ProductCatalog catalog = new ProductCatalog(index, Runnable::run);
+        assertNull(catalog.lookup("Z"));
+        assertTrue(catalog.isResolved("Z"));
+        assertNull(catalog.peek("Z"));
+        assertNull(catalog.lookup("Z"));
+        assertEquals(1, catalog.getHitCount());
+        assertEquals(1, catalog.getMissCount());
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvicted() {
+        ProductCatalog catalog = new ProductCatalog(index, Runnable::run, 2);
+        catalog.lookup("A");
+        catalog.lookup("B");
+        catalog.lookup("A");
+        catalog.lookup("C");
+        assertTrue(catalog.isResolved("A"));
+        assertFalse(catalog.isResolved("B"));
+        assertTrue(catalog.isResolved("C"));
+    }
+
+    @Test
+    public void rejectedPrefetchCanBeRetried() {
+        ProductCatalog catalog = new ProductCatalog(index, task -> {
+            throw new java.util.concurrent.RejectedExecutionException();
+        });
+        catalog.prefetch("A");
+        assertFalse(catalog.isResolved("A"));
+        assertEquals("Apple", catalog.lookup("A").getName());
+    }
+}
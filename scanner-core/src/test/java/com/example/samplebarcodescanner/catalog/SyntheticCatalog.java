@@ -0,0 +1,45 @@
+package com.example.samplebarcodescanner.catalog;
+
+import java.io.Reader;
+import java.util.Locale;
+
+/** Streams a generated CSV catalog, so large catalogs never exist as one string. */
+final class SyntheticCatalog extends Reader {
+    private final int rows;
+    private int row = -1;
+    private String current = "barcode,name,brand,price\n";
+    private int position;
+
+    SyntheticCatalog(int rows) {
+        this.rows = rows;
+    }
+
+    /** Barcode of row {@code i}: GTIN-13s spread over the whole number range. */
+    static String barcode(int i) {
+        return String.format(Locale.ROOT, "%013d", (i * 2_654_435_761L) % 10_000_000_000_000L);
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) {
+        int read = 0;
+        while (read < length) {
+            if (position == current.length()) {
+                if (++row >= rows) {
+                    return read == 0 ? -1 : read;
+                }
+                current = barcode(row) + ",\"Product " + row + ", 500 g\",Brand " + (row % 300)
+                        + "," + (row % 100) + ".99\n";
+                position = 0;
+            }
+            int n = Math.min(length - read, current.length() - position);
+            current.getChars(position, position + n, buffer, offset + read);
+            position += n;
+            read += n;
+        }
+        return read;
+    }
+
+    @Override
+    public void close() {
+    }
+}
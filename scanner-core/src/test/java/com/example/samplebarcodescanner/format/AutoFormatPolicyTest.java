@@ -0,0 +1,113 @@
+package com.example.samplebarcodescanner.format;
+
+import com.example.samplebarcodescanner.tracking.Detection;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AutoFormatPolicyTest {
+    private static List<Detection> reads(int... formats) {
+        List<Detection> detections = new ArrayList<>();
+        for (int format : formats) {
+            detections.add(new Detection("v" + detections.size(), format, 0, 0, 10, 10));
+        }
+        return detections;
+    }
+
+    /** Asks for a frame's formats and reports {@code found} from it; returns the formats. */
+    private static int frame(FormatPolicy policy, int... found) {
+        int formats = policy.formatsForNextFrame();
+        List<Detection> detections = new ArrayList<>();
+        for (Detection detection : reads(found)) {
+            if ((formats & detection.getFormat()) != 0) {
+                detections.add(detection);
+            }
+        }
+        policy.onFrameScanned(formats, detections);
+        return formats;
+    }
+
+    @Test
+    public void narrowsToReadFormatsAfterWarmup() {
+        AutoFormatPolicy policy = new AutoFormatPolicy.Builder(ScanProfile.RETAIL)
+                .warmupFrames(3).probeInterval(1000).build();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(ScanProfile.RETAIL.getFormats(), frame(policy, BarcodeFormats.EAN_13, BarcodeFormats.CODE_128));
+        }
+        assertEquals(BarcodeFormats.EAN_13 | BarcodeFormats.CODE_128, frame(policy, BarcodeFormats.EAN_13));
+        assertEquals(1, policy.getNarrowedCount());
+        assertEquals(4, policy.getReadCount(BarcodeFormats.EAN_13));
+        assertEquals(3, policy.getReadCount(BarcodeFormats.CODE_128));
+    }
+
+    @Test
+    public void dropsFormatsNotReadWithinTheRetainWindow() {
+        AutoFormatPolicy policy = new AutoFormatPolicy.Builder(ScanProfile.RETAIL)
+                .warmupFrames(1).retainFrames(5).probeInterval(1000).build();
+        frame(policy, BarcodeFormats.EAN_13, BarcodeFormats.CODE_128);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(BarcodeFormats.EAN_13 | BarcodeFormats.CODE_128, frame(policy, BarcodeFormats.EAN_13));
+        }
+        assertEquals(BarcodeFormats.EAN_13, frame(policy, BarcodeFormats.EAN_13));
+    }
+
+    @Test
+    public void probesWidenToANewFormat() {
+        AutoFormatPolicy policy = new AutoFormatPolicy.Builder(ScanProfile.PHARMA)
+                .warmupFrames(1).probeInterval(4).build();
+        frame(policy, BarcodeFormats.DATA_MATRIX);
+        // A QR code comes into view; narrowed frames cannot see it until the probe does.
+        assertEquals(BarcodeFormats.DATA_MATRIX, frame(policy, BarcodeFormats.DATA_MATRIX, BarcodeFormats.QR_CODE));
+        assertEquals(BarcodeFormats.DATA_MATRIX, frame(policy, BarcodeFormats.DATA_MATRIX, BarcodeFormats.QR_CODE));
+        assertEquals(ScanProfile.PHARMA.getFormats(), frame(policy, BarcodeFormats.DATA_MATRIX, BarcodeFormats.QR_CODE));
+        assertEquals(1, policy.getProbeCount());
+        assertEquals(BarcodeFormats.DATA_MATRIX | BarcodeFormats.QR_CODE,
+                frame(policy, BarcodeFormats.DATA_MATRIX, BarcodeFormats.QR_CODE));
+    }
+
+    @Test
+    public void scansTheWholeProfileWhenNothingWasReadRecently() {
+        AutoFormatPolicy policy = new AutoFormatPolicy.Builder(ScanProfile.ALL)
+                .warmupFrames(0).retainFrames(2).probeInterval(1000).build();
+        assertEquals(BarcodeFormats.ALL, frame(policy));
+        frame(policy, BarcodeFormats.QR_CODE);
+        assertEquals(BarcodeFormats.QR_CODE, frame(policy));
+        frame(policy);
+        assertEquals(BarcodeFormats.ALL, frame(policy));
+    }
+
+    @Test
+    public void ignoresFormatsOutsideTheProfile() {
+        AutoFormatPolicy policy = new AutoFormatPolicy.Builder(ScanProfile.RETAIL).warmupFrames(0).build();
+        policy.onFrameScanned(BarcodeFormats.ALL, reads(BarcodeFormats.AZTEC, -1, 0));
+        assertEquals(0, policy.getReadCount(BarcodeFormats.AZTEC));
+        assertEquals(ScanProfile.RETAIL.getFormats(), policy.formatsForNextFrame());
+    }
+
+    @Test
+    public void fixedPolicyNeverChanges() {
+        FormatPolicy policy = FormatPolicy.fixed(ScanProfile.PHARMA);
+        policy.onFrameScanned(ScanProfile.PHARMA.getFormats(), Collections.emptyList());
+        assertEquals(ScanProfile.PHARMA.getFormats(), policy.formatsForNextFrame());
+    }
+
+    @Test
+    public void formatMasksSplitAndPrint() {
+        assertArrayEquals(new int[]{BarcodeFormats.CODE_128, BarcodeFormats.EAN_13},
+                BarcodeFormats.split(BarcodeFormats.EAN_13 | BarcodeFormats.CODE_128));
+        assertEquals("CODE_128|EAN_13", BarcodeFormats.toString(BarcodeFormats.EAN_13 | BarcodeFormats.CODE_128));
+        assertEquals("ALL", BarcodeFormats.toString(BarcodeFormats.ALL));
+        assertFalse(BarcodeFormats.isSingle(BarcodeFormats.EAN_13 | BarcodeFormats.EAN_8));
+        assertTrue(ScanProfile.RETAIL.contains(BarcodeFormats.UPC_E));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void profilesNeedAFormat() {
+        new ScanProfile("none", 0);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.samplebarcodescanner.geometry;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class IntRectTest {
+
+    @Test
+    public void sizeAndCenter() {
+        IntRect rect = new IntRect(10, 20, 110, 70);
+        assertEquals(100, rect.width());
+        assertEquals(50, rect.height());
+        assertEquals(60f, rect.centerX(), 0f);
+        assertEquals(45f, rect.centerY(), 0f);
+        assertFalse(rect.isEmpty());
+        assertTrue(new IntRect(5, 5, 5, 10).isEmpty());
+    }
+
+    @Test
+    public void containsIsHalfOpen() {
+        IntRect rect = new IntRect(0, 0, 10, 10);
+        assertTrue(rect.contains(0, 0));
+        assertTrue(rect.contains(9, 9));
+        assertFalse(rect.contains(10, 5));
+        assertFalse(rect.contains(5, 10));
+    }
+
+    @Test
+    public void intersectsRequiresSharedArea() {
+        IntRect rect = new IntRect(0, 0, 10, 10);
+        assertTrue(rect.intersects(new IntRect(9, 9, 20, 20)));
+        assertFalse(rect.intersects(new IntRect(10, 0, 20, 10)));
+        assertFalse(rect.intersects(new IntRect(5, 5, 5, 5)));
+    }
+
+    @Test
+    public void unionSkipsEmptyRects() {
+        IntRect rect = new IntRect();
+        rect.union(new IntRect(10, 10, 20, 20));
+        assertEquals(new IntRect(10, 10, 20, 20), rect);
+        rect.union(new IntRect(0, 15, 5, 30));
+        assertEquals(new IntRect(0, 10, 20, 30), rect);
+        rect.union(new IntRect(100, 100, 100, 100));
+        assertEquals(new IntRect(0, 10, 20, 30), rect);
+    }
+
+    @Test
+    public void arrayRoundTripAndOffset() {
+        int[] array = new int[4];
+        new IntRect(1, 2, 3, 4).offset(10, 20).toArray(array);
+        assertArrayEquals(new int[]{11, 22, 13, 24}, array);
+        assertEquals(new IntRect(11, 22, 13, 24), new IntRect().setFromArray(array));
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.samplebarcodescanner.image;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CoalescingLoaderTest {
+    private final List<Runnable> work = new ArrayList<>();
+    private final List<Runnable> deliveries = new ArrayList<>();
+    private final List<String> delivered = new ArrayList<>();
+    private final List<String> loaded = new ArrayList<>();
+
+    private CoalescingLoader<String, String> loader() {
+        return new CoalescingLoader<>(key -> {
+            loaded.add(key);
+            if (key.startsWith("bad")) {
+                throw new IOException(key);
+            }
+            return key.toUpperCase();
+        }, work::add, deliveries::add, delivered::add);
+    }
+
+    private static void drain(List<Runnable> queue) {
+        while (!queue.isEmpty()) {
+            queue.remove(0).run();
+        }
+    }
+
+    private static CoalescingLoader.Callback<String> into(List<String> results) {
+        return new CoalescingLoader.Callback<String>() {
+            @Override
+            public void onLoaded(String value) {
+                results.add(value);
+            }
+
+            @Override
+            public void onFailed(Exception error) {
+                results.add("failed: " + error.getMessage());
+            }
+        };
+    }
+
+    @Test
+    public void concurrentRequestsForAKeyShareOneLoad() {
+        CoalescingLoader<String, String> loader = loader();
+        List<String> results = new ArrayList<>();
+        loader.load("a", into(results));
+        loader.load("a", into(results));
+        loader.load("b", into(results));
+        drain(work);
+        loader.load("a", into(results));
+        drain(deliveries);
+
+        assertEquals(List.of("a", "b"), loaded);
+        assertEquals(List.of("A", "A", "A", "B"), results);
+        assertEquals(List.of("A", "B"), delivered);
+        assertEquals(2, loader.getLoadCount());
+        assertEquals(2, loader.getCoalescedCount());
+
+        loader.load("a", into(results));
+        drain(work);
+        assertEquals("a finished load is not reused", List.of("a", "b", "a"), loaded);
+    }
+
+    @Test
+    public void cancelledRequestsAreNotCalledBack() {
+        CoalescingLoader<String, String> loader = loader();
+        List<String> results = new ArrayList<>();
+        CoalescingLoader.Request first = loader.load("a", into(results));
+        loader.load("a", into(results));
+        drain(work);
+        first.cancel();
+        drain(deliveries);
+        assertEquals(List.of("A"), results);
+    }
+
+    @Test
+    public void loadIsSkippedWhenEveryRequestWasCancelled() {
+        CoalescingLoader<String, String> loader = loader();
+        loader.load("a", into(new ArrayList<>())).cancel();
+        drain(work);
+        drain(deliveries);
+        assertTrue(loaded.isEmpty());
+        assertTrue(delivered.isEmpty());
+
+        List<String> results = new ArrayList<>();
+        loader.load("a", into(results));
+        drain(work);
+        drain(deliveries);
+        assertEquals(List.of("A"), results);
+    }
+
+    @Test
+    public void failuresReachEveryRequest() {
+        CoalescingLoader<String, String> loader = loader();
+        List<String> results = new ArrayList<>();
+        loader.load("bad", into(results));
+        loader.load("bad", into(results));
+        drain(work);
+        drain(deliveries);
+        assertEquals(List.of("failed: bad", "failed: bad"), results);
+        assertTrue(delivered.isEmpty());
+    }
+}
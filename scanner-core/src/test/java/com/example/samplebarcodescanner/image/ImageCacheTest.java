@@ -0,0 +1,147 @@
+package com.example.samplebarcodescanner.image;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ImageCacheTest {
+    /** A decoded image stand-in that is only ever compared by identity. */
+    private static final class Image {
+        final int bytes;
+
+        Image(int bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    private final List<Image> recycled = new ArrayList<>();
+
+    private ImageCache<String, Image> cache(long cacheBytes, long poolBytes) {
+        return new ImageCache<>(cacheBytes, poolBytes, image -> image.bytes, recycled::add);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedByBytes() {
+        ImageCache<String, Image> cache = cache(300, 0);
+        Image a = new Image(100);
+        Image b = new Image(100);
+        cache.release(cache.putAndAcquire("a", a));
+        cache.release(cache.putAndAcquire("b", b));
+        cache.release(cache.acquire("a"));
+        cache.release(cache.putAndAcquire("c", new Image(150)));
+
+        assertSame(a, cache.acquire("a"));
+        assertNull(cache.acquire("b"));
+        assertEquals(250, cache.getCacheBytes());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals("no pool, so freed", List.of(b), recycled);
+    }
+
+    @Test
+    public void evictedImagesAreReusedAsDecodeTargets() {
+        ImageCache<String, Image> cache = cache(100, 1000);
+        Image a = new Image(100);
+        cache.release(cache.putAndAcquire("a", a));
+        cache.release(cache.putAndAcquire("b", new Image(100)));
+        assertEquals(100, cache.getPoolBytes());
+
+        assertNull("too small", cache.takeReusable(101));
+        assertNull("too wasteful", cache.takeReusable(49));
+        assertSame(a, cache.takeReusable(60));
+        assertNull(cache.takeReusable(60));
+        assertEquals(0, cache.getPoolBytes());
+        assertEquals(1, cache.getReuseCount());
+    }
+
+    @Test
+    public void pinnedImagesAreNotPooledUntilReleased() {
+        ImageCache<String, Image> cache = cache(100, 1000);
+        Image shown = cache.putAndAcquire("a", new Image(100));
+        cache.retain(shown);
+        cache.release(cache.putAndAcquire("b", new Image(100)));
+        assertNull("evicted but still on screen", cache.takeReusable(100));
+
+        cache.release(shown);
+        assertNull(cache.takeReusable(100));
+        cache.release(shown);
+        assertSame(shown, cache.takeReusable(100));
+    }
+
+    @Test
+    public void replacingAKeyDetachesThePreviousImage() {
+        ImageCache<String, Image> cache = cache(1000, 1000);
+        Image old = cache.putAndAcquire("a", new Image(100));
+        Image fresh = new Image(200);
+        cache.release(cache.putAndAcquire("a", fresh));
+        assertEquals(200, cache.getCacheBytes());
+        assertSame(fresh, cache.acquire("a"));
+
+        cache.release(old);
+        assertSame(old, cache.takeReusable(100));
+    }
+
+    @Test
+    public void imagesLargerThanTheCacheAreReturnedButNotKept() {
+        ImageCache<String, Image> cache = cache(100, 1000);
+        Image big = new Image(500);
+        assertSame(big, cache.putAndAcquire("big", big));
+        assertEquals(0, cache.size());
+        cache.release(big);
+        assertSame(big, cache.takeReusable(400));
+    }
+
+    @Test
+    public void poolDropsOldestImagesBeyondItsLimit() {
+        ImageCache<String, Image> cache = cache(0, 250);
+        Image first = new Image(100);
+        Image second = new Image(100);
+        Image third = new Image(100);
+        cache.offerReusable(first);
+        cache.offerReusable(second);
+        cache.offerReusable(third);
+        cache.offerReusable(new Image(300));
+        assertEquals(200, cache.getPoolBytes());
+        assertEquals(2, recycled.size());
+        assertSame(first, recycled.get(0));
+
+        cache.trim(0, 0);
+        assertEquals(0, cache.getPoolBytes());
+        assertEquals(4, recycled.size());
+    }
+
+    @Test
+    public void trimEvictsDownToTheGivenSize() {
+        ImageCache<String, Image> cache = cache(1000, 1000);
+        for (int i = 0; i < 5; i++) {
+            cache.release(cache.putAndAcquire("k" + i, new Image(100)));
+        }
+        cache.trim(200, 1000);
+        assertEquals(2, cache.size());
+        assertNotNull(cache.acquire("k4"));
+        assertEquals(300, cache.getPoolBytes());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void releasingAnUnpinnedImageFails() {
+        ImageCache<String, Image> cache = cache(1000, 1000);
+        Image image = cache.putAndAcquire("a", new Image(10));
+        cache.release(image);
+        cache.release(image);
+    }
+
+    @Test
+    public void sampleSizeNeverDecodesBelowTheTarget() {
+        assertEquals(2, SampleSize.compute(100, 128, 50, 64));
+        assertEquals(1, SampleSize.compute(99, 128, 50, 64));
+        assertEquals(2, SampleSize.compute(101, 129, 50, 64));
+        assertEquals(8, SampleSize.compute(4000, 3000, 400, 300));
+        assertEquals(4, SampleSize.compute(4000, 3000, 400, 376));
+        assertEquals(1, SampleSize.compute(20, 20, 50, 64));
+        assertEquals(3 * 2 * 4, SampleSize.decodedBytes(5, 3, 2, 4));
+    }
+}
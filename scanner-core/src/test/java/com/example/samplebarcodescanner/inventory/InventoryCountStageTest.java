@@ -0,0 +1,118 @@
+package com.example.samplebarcodescanner.inventory;
+
+import com.example.samplebarcodescanner.tracking.AssignmentTracker;
+import com.example.samplebarcodescanner.tracking.Detection;
+import com.example.samplebarcodescanner.tracking.Track;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class InventoryCountStageTest {
+    private static final long FRAME_NANOS = 33_000_000L;
+
+    private final InventoryTally tally = new InventoryTally();
+    private final InventoryCountStage stage = new InventoryCountStage(tally);
+    // Drops a track after two missed frames, so short gaps start new tracks.
+    private final AssignmentTracker tracker = new AssignmentTracker(2, AssignmentTracker.DEFAULT_MIN_GATE_PX,
+            AssignmentTracker.DEFAULT_GATE_SCALE);
+    private long now;
+
+    private static Detection label(String value, int x, int y) {
+        return new Detection(value, 32, x, y, x + 200, y + 80);
+    }
+
+    private void frame(Detection... detections) {
+        List<Detection> list = new ArrayList<>();
+        Collections.addAll(list, detections);
+        List<Track> tracks = tracker.update(list, now);
+        stage.onTracks(tracks, now);
+        now += FRAME_NANOS;
+    }
+
+    @Test
+    public void aLabelInViewForManyFramesCountsOnce() {
+        for (int i = 0; i < 30; i++) {
+            frame(label("A", 100 + i * 5, 100));
+        }
+        assertEquals(1, tally.get("A"));
+    }
+
+    @Test
+    public void glimpsesAreNotCounted() {
+        frame(label("A", 100, 100));
+        frame(label("A", 100, 100));
+        frame();
+        assertEquals(0, tally.getTotal());
+    }
+
+    @Test
+    public void identicalLabelsSideBySideCountSeparately() {
+        for (int i = 0; i < 5; i++) {
+            frame(label("A", 100, 100), label("A", 600, 100), label("B", 100, 400));
+        }
+        assertEquals(2, tally.get("A"));
+        assertEquals(1, tally.get("B"));
+    }
+
+    @Test
+    public void adjacentIdenticalLabelsCountSeparatelyAfterADroppedFrame() {
+        for (int i = 0; i < 5; i++) {
+            frame(label("A", 100, 100));
+        }
+        frame();
+        for (int i = 0; i < 5; i++) {
+            frame(label("A", 100, 100), label("A", 320, 100));
+        }
+        assertEquals(2, tally.get("A"));
+        assertEquals(0, stage.getReacquiredCount());
+    }
+
+    @Test
+    public void aLabelLostBrieflyIsNotCountedAgain() {
+        for (int i = 0; i < 5; i++) {
+            frame(label("A", 100, 100));
+        }
+        for (int i = 0; i < 4; i++) {
+            frame();
+        }
+        for (int i = 0; i < 5; i++) {
+            frame(label("A", 120, 100));
+        }
+        assertEquals(1, tally.get("A"));
+        assertEquals(1, stage.getReacquiredCount());
+    }
+
+    @Test
+    public void theSameValueElsewhereOrLaterIsANewUnit() {
+        for (int i = 0; i < 5; i++) {
+            frame(label("A", 100, 100));
+        }
+        for (int i = 0; i < 4; i++) {
+            frame();
+        }
+        for (int i = 0; i < 5; i++) {
+            frame(label("A", 1200, 100));
+        }
+        now += 2_000_000_000L;
+        for (int i = 0; i < 5; i++) {
+            frame(label("A", 100, 100));
+        }
+        assertEquals(3, tally.get("A"));
+    }
+
+    @Test
+    public void pausedStageCountsNothing() {
+        stage.setCounting(false);
+        for (int i = 0; i < 5; i++) {
+            frame(label("A", 100, 100));
+        }
+        stage.setCounting(true);
+        frame(label("A", 100, 100));
+        assertEquals(0, tally.getTotal());
+    }
+}
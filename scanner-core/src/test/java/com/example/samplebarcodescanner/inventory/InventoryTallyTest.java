@@ -0,0 +1,134 @@
+package com.example.samplebarcodescanner.inventory;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class InventoryTallyTest {
+
+    @Test
+    public void countsPerValue() {
+        InventoryTally tally = new InventoryTally();
+        tally.add("A");
+        tally.add("B");
+        tally.add("A");
+        tally.add("C", 5);
+        tally.add("C", -1);
+        assertEquals(2, tally.get("A"));
+        assertEquals(4, tally.get("C"));
+        assertEquals(0, tally.get("Z"));
+        assertEquals(3, tally.getDistinctCount());
+        assertEquals(7, tally.getTotal());
+    }
+
+    @Test
+    public void snapshotIsSortedAndReusedWhileIdle() {
+        InventoryTally tally = new InventoryTally();
+        tally.add("B");
+        tally.add("A");
+        tally.add("C");
+        tally.add("C");
+        InventoryTally.Snapshot snapshot = tally.snapshot();
+        assertEquals(3, snapshot.size());
+        assertEquals("C", snapshot.getValue(0));
+        assertEquals(2, snapshot.getCount(0));
+        assertEquals("A", snapshot.getValue(1));
+        assertEquals("B", snapshot.getValue(2));
+        assertEquals(4, snapshot.getTotal());
+        assertSame(snapshot, tally.snapshot());
+
+        tally.add("B");
+        InventoryTally.Snapshot next = tally.snapshot();
+        assertNotSame(snapshot, next);
+        assertEquals("ties by value", "B", next.getValue(0));
+        assertEquals(1, snapshot.getCount(2));
+    }
+
+    @Test
+    public void correctionThatRestoresTheTotalStillRefreshesTheSnapshot() {
+        InventoryTally tally = new InventoryTally();
+        tally.add("a");
+        tally.add("b");
+        InventoryTally.Snapshot before = tally.snapshot();
+
+        tally.add("a", 1);
+        tally.add("b", -1);
+        InventoryTally.Snapshot after = tally.snapshot();
+
+        assertEquals(before.getTotal(), after.getTotal());
+        assertEquals(before.size(), after.size());
+        assertNotSame(before, after);
+        assertEquals("a", after.getValue(0));
+        assertEquals(2, after.getCount(0));
+        assertEquals("b", after.getValue(1));
+        assertEquals(0, after.getCount(1));
+    }
+
+    @Test
+    public void exportQuotesValuesThatNeedIt() throws IOException {
+        InventoryTally tally = new InventoryTally();
+        tally.add("a,b");
+        tally.add("say \"hi\"", 2);
+        StringBuilder csv = new StringBuilder();
+        tally.export(csv);
+        String text = csv.toString();
+        assertTrue(text.startsWith("barcode,count\n"));
+        assertTrue(text.contains("\"a,b\",1\n"));
+        assertTrue(text.contains("\"say \"\"hi\"\"\",2\n"));
+    }
+
+    @Test
+    public void clearForgetsEverything() {
+        InventoryTally tally = new InventoryTally();
+        tally.add("A");
+        tally.snapshot();
+        tally.clear();
+        assertEquals(0, tally.getTotal());
+        assertEquals(0, tally.snapshot().size());
+        tally.add("A");
+        assertEquals(1, tally.snapshot().getCount(0));
+    }
+
+    @Test
+    public void concurrentSkewedCountsAreExact() throws InterruptedException {
+        InventoryTally tally = new InventoryTally();
+        String[] reads = new ZipfValues(1_000, 1.1).sample(200_000, 3);
+        Map<String, Integer> expected = new HashMap<>();
+        for (String read : reads) {
+            expected.merge(read, 4, Integer::sum);
+        }
+        runThreads(4, reads, tally);
+        assertEquals(4L * reads.length, tally.getTotal());
+        for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getKey(), (long) entry.getValue(), tally.get(entry.getKey()));
+        }
+        assertEquals(expected.size(), tally.snapshot().size());
+    }
+
+    private static void runThreads(int count, String[] reads, InventoryTally tally) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[count];
+        for (int t = 0; t < count; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (String read : reads) {
+                    tally.add(read);
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.samplebarcodescanner.inventory;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/** Barcode values drawn with Zipfian frequencies: a few values are read far more than the rest. */
+final class ZipfValues {
+    private final String[] values;
+    private final double[] cumulative;
+
+    ZipfValues(int distinct, double exponent) {
+        values = new String[distinct];
+        cumulative = new double[distinct];
+        double sum = 0;
+        for (int rank = 0; rank < distinct; rank++) {
+            values[rank] = String.format(Locale.ROOT, "40%011d", rank * 7919L);
+            sum += 1 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < distinct; rank++) {
+            cumulative[rank] /= sum;
+        }
+    }
+
+    String next(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return values[Math.min(values.length - 1, index < 0 ? -index - 1 : index)];
+    }
+
+    /** {@code count} draws, so generating values stays out of timed loops. */
+    String[] sample(int count, long seed) {
+        Random random = new Random(seed);
+        String[] sample = new String[count];
+        for (int i = 0; i < count; i++) {
+            sample[i] = next(random);
+        }
+        return sample;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.samplebarcodescanner.journal;
+
+import com.example.samplebarcodescanner.pipeline.ScanPipeline;
+import com.example.samplebarcodescanner.tracking.AssignmentTracker;
+import com.example.samplebarcodescanner.tracking.Detection;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ConfirmedReadStageTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void journalsEachTrackOnceWhenConfirmed() throws Exception {
+        try (ScanJournal journal = ScanJournal.open(folder.newFolder())) {
+            ScanPipeline pipeline = new ScanPipeline.Builder(new AssignmentTracker())
+                    .addTrackStage(new ConfirmedReadStage(journal, 3, () -> 1234L))
+                    .build();
+            List<Detection> both = Arrays.asList(new Detection("A", 32, 100, 100, 140, 140),
+                    new Detection("B", 32, 400, 100, 440, 140));
+            List<Detection> onlyA = both.subList(0, 1);
+
+            // B is seen twice, never confirmed; A is confirmed on its third frame and stays.
+            pipeline.process(both, 0, 1920, 1440);
+            pipeline.process(both, 33_000_000L, 1920, 1440);
+            assertEquals(0, journal.getDurableSequence());
+            for (int frame = 2; frame < 10; frame++) {
+                pipeline.process(onlyA, frame * 33_000_000L, 1920, 1440);
+            }
+
+            assertTrue(journal.awaitDurable(1, 10, TimeUnit.SECONDS));
+            List<JournalEntry> entries = new ArrayList<>();
+            journal.read(0, 10, entries);
+            assertEquals(1, entries.size());
+            assertEquals("A", entries.get(0).getValue());
+            assertEquals(32, entries.get(0).getFormat());
+            assertEquals(1234L, entries.get(0).getTimestampMillis());
+            assertEquals(pipeline.getTracks().get(0).getId(), entries.get(0).getTrackId());
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.samplebarcodescanner.journal;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ScanJournalTest {
+    private static final int SMALL_SEGMENT = 4096;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String value(long i) {
+        return "(01)0400638" + String.format("%07d", i) + "(10)LOT" + (i % 97);
+    }
+
+    private static long appendAll(ScanJournal journal, long from, long to) {
+        long last = 0;
+        for (long i = from; i <= to; i++) {
+            last = journal.append(1_700_000_000_000L + i, (int) i, 32, value(i));
+            assertNotEquals(ScanJournal.REJECTED, last);
+        }
+        return last;
+    }
+
+    private static List<JournalEntry> readAll(ScanJournal journal) {
+        List<JournalEntry> entries = new ArrayList<>();
+        while (journal.read(entries.isEmpty() ? 0 : entries.get(entries.size() - 1).getSequence() + 1,
+                1000, entries) == 1000) {
+            // Keep paging.
+        }
+        return entries;
+    }
+
+    private static void assertContiguous(List<JournalEntry> entries, long first, long last) {
+        assertEquals(last - first + 1, entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            JournalEntry entry = entries.get(i);
+            long expected = first + i;
+            assertEquals(expected, entry.getSequence());
+            assertEquals(value(expected), entry.getValue());
+            assertEquals((int) expected, entry.getTrackId());
+            assertEquals(32, entry.getFormat());
+            assertEquals(1_700_000_000_000L + expected, entry.getTimestampMillis());
+        }
+    }
+
+    /** Where the record for {@code sequence} ends in a segment that starts at sequence 1. */
+    private static long endOf(long sequence) {
+        long end = JournalSegment.HEADER_SIZE;
+        for (long i = 1; i <= sequence; i++) {
+            end += JournalSegment.recordSize(value(i).length());
+        }
+        return end;
+    }
+
+    private static File newestSegment(File dir) {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(JournalSegment.SUFFIX));
+        Arrays.sort(files);
+        return files[files.length - 1];
+    }
+
+    @Test
+    public void readsSurviveReopenAndSequencesContinue() throws Exception {
+        File dir = folder.newFolder();
+        try (ScanJournal journal = ScanJournal.open(dir)) {
+            long last = appendAll(journal, 1, 100);
+            assertEquals(100, last);
+            assertTrue(journal.awaitDurable(last, 10, TimeUnit.SECONDS));
+            assertContiguous(readAll(journal), 1, 100);
+        }
+        try (ScanJournal journal = ScanJournal.open(dir)) {
+            assertFalse(journal.recoveredTornTail());
+            assertEquals(100, journal.getDurableSequence());
+            assertEquals(150, appendAll(journal, 101, 150));
+        }
+        try (ScanJournal journal = ScanJournal.open(dir)) {
+            assertContiguous(readAll(journal), 1, 150);
+        }
+    }
+
+    @Test
+    public void tornTailIsDroppedAndAppendingResumesBeforeIt() throws Exception {
+        File dir = folder.newFolder();
+        try (ScanJournal journal = ScanJournal.open(dir)) {
+            journal.awaitDurable(appendAll(journal, 1, 50), 10, TimeUnit.SECONDS);
+        }
+        // Simulate a crash mid-write: corrupt one payload byte of the last record, and leave
+        // stray bytes after it as a half-written next record would.
+        File segment = newestSegment(dir);
+        long end = endOf(50);
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            raf.seek(end - 3);
+            raf.write('#');
+            raf.seek(end + 10);
+            raf.write(new byte[]{1, 2, 3, 4});
+        }
+
+        try (ScanJournal journal = ScanJournal.open(dir)) {
+            assertTrue(journal.recoveredTornTail());
+            assertEquals(49, journal.getDurableSequence());
+            assertContiguous(readAll(journal), 1, 49);
+            assertEquals(49 + 20, appendAll(journal, 50, 69));
+        }
+        try (ScanJournal journal = ScanJournal.open(dir)) {
+            assertFalse(journal.recoveredTornTail());
+            assertContiguous(readAll(journal), 1, 69);
+        }
+    }
+
+    @Test
+    public void truncatedFinalRecordIsDropped() throws Exception {
+        File dir = folder.newFolder();
+        try (ScanJournal journal = ScanJournal.builder(dir).segmentSize(SMALL_SEGMENT).open()) {
+            journal.awaitDurable(appendAll(journal, 1, 10), 10, TimeUnit.SECONDS);
+        }
+        // A file cut short mid-record, as after a crash on a file system without preallocation.
+        File segment = newestSegment(dir);
+        long end = endOf(10);
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            raf.setLength(end - 5);
+        }
+        try (ScanJournal journal = ScanJournal.open(dir)) {
+            assertContiguous(readAll(journal), 1, 9);
+            journal.awaitDurable(appendAll(journal, 10, 200), 10, TimeUnit.SECONDS);
+            assertContiguous(readAll(journal), 1, 200);
+        }
+    }
+
+    @Test
+    public void fullSegmentsRotateAndAreSealed() throws Exception {
+        File dir = folder.newFolder();
+        try (ScanJournal journal = ScanJournal.builder(dir).segmentSize(SMALL_SEGMENT).open()) {
+            journal.awaitDurable(appendAll(journal, 1, 1000), 10, TimeUnit.SECONDS);
+            assertTrue(journal.getSegmentCount() > 10);
+            assertContiguous(readAll(journal), 1, 1000);
+        }
+        File[] files = dir.listFiles((d, name) -> name.endsWith(JournalSegment.SUFFIX));
+        Arrays.sort(files);
+        for (int i = 0; i < files.length - 1; i++) {
+            assertTrue("sealed segment is cut to its records", files[i].length() < SMALL_SEGMENT);
+        }
+        assertEquals(SMALL_SEGMENT, files[files.length - 1].length());
+        try (ScanJournal journal = ScanJournal.builder(dir).segmentSize(SMALL_SEGMENT).open()) {
+            assertContiguous(readAll(journal), 1, 1000);
+        }
+    }
+
+    @Test
+    public void discardedReadsAreCompactedAway() throws Exception {
+        File dir = folder.newFolder();
+        try (ScanJournal journal = ScanJournal.builder(dir).segmentSize(SMALL_SEGMENT).open()) {
+            long last = appendAll(journal, 1, 1000);
+            journal.awaitDurable(last, 10, TimeUnit.SECONDS);
+            int segments = journal.getSegmentCount();
+
+            // Mid-segment, so the oldest surviving segment has to be rewritten.
+            journal.discardBefore(975);
+            for (int i = 0; i < 100 && journal.getSegmentCount() > 2; i++) {
+                Thread.sleep(20);
+            }
+            assertTrue(journal.getSegmentCount() <= 2);
+            assertTrue(journal.getSegmentCount() < segments);
+            assertTrue(journal.getCompactionCount() > 0);
+            assertContiguous(readAll(journal), 975, 1000);
+        }
+        try (ScanJournal journal = ScanJournal.builder(dir).segmentSize(SMALL_SEGMENT).open()) {
+            assertContiguous(readAll(journal), 975, 1000);
+            assertEquals(1001, journal.append(0, 1, 32, "x"));
+        }
+    }
+
+    @Test
+    public void interruptedCompactionIsFinishedOnOpen() throws Exception {
+        File dir = folder.newFolder();
+        try (ScanJournal journal = ScanJournal.builder(dir).segmentSize(SMALL_SEGMENT).open()) {
+            journal.awaitDurable(appendAll(journal, 1, 300), 10, TimeUnit.SECONDS);
+        }
+        File[] files = dir.listFiles((d, name) -> name.endsWith(JournalSegment.SUFFIX));
+        Arrays.sort(files);
+        assertTrue(files.length >= 3);
+        // A crash after the merged first segment was renamed into place but before the second was
+        // deleted: the first now holds both, and the second duplicates its reads.
+        JournalSegment first = JournalSegment.open(files[0], false);
+        JournalSegment second = JournalSegment.open(files[1], false);
+        File temp = new File(dir, "merged" + JournalSegment.TEMP_SUFFIX);
+        JournalSegment merged = JournalSegment.create(temp, first.getPosition() + second.getPosition());
+        merged.copyFrom(first, 0);
+        merged.copyFrom(second, 0);
+        merged.force();
+        merged.close();
+        first.close();
+        second.close();
+        assertTrue(temp.renameTo(files[0]));
+        // And a temp file from another, earlier interrupted compaction.
+        assertTrue(new File(dir, files[2].getName() + JournalSegment.TEMP_SUFFIX).createNewFile());
+
+        try (ScanJournal journal = ScanJournal.builder(dir).segmentSize(SMALL_SEGMENT).open()) {
+            assertContiguous(readAll(journal), 1, 300);
+        }
+        assertFalse(files[1].exists());
+        assertEquals(0, dir.listFiles((d, name) -> name.endsWith(JournalSegment.TEMP_SUFFIX)).length);
+    }
+
+    @Test
+    public void groupCommitCoversManyReadsPerForce() throws Exception {
+        File dir = folder.newFolder();
+        int reads = 50_000;
+        try (ScanJournal journal = ScanJournal.open(dir)) {
+            long last = appendAll(journal, 1, reads);
+            assertTrue(journal.awaitDurable(last, 30, TimeUnit.SECONDS));
+
+            assertEquals(reads, journal.getWrittenCount());
+            assertEquals(0, journal.getRejectedCount());
+            assertTrue("reads per force", journal.getCommitCount() * 10 < reads);
+        }
+    }
+
+    @Test
+    public void concurrentReadersSeeOnlyDurablePrefix() throws Exception {
+        File dir = folder.newFolder();
+        try (ScanJournal journal = ScanJournal.builder(dir).segmentSize(SMALL_SEGMENT).open()) {
+            Thread producer = new Thread(() -> appendAll(journal, 1, 5000));
+            producer.start();
+            List<JournalEntry> seen = new ArrayList<>();
+            while (producer.isAlive() || seen.size() < 5000) {
+                long next = seen.isEmpty() ? 1 : seen.get(seen.size() - 1).getSequence() + 1;
+                if (journal.read(next, 500, seen) == 0) {
+                    journal.awaitDurable(next, 10, TimeUnit.MILLISECONDS);
+                }
+            }
+            producer.join();
+            assertContiguous(seen, 1, 5000);
+        }
+    }
+
+    @Test
+    public void appendAfterCloseFails() throws IOException {
+        ScanJournal journal = ScanJournal.open(folder.newFolder());
+        journal.close();
+        try {
+            journal.append(0, 1, 32, "x");
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsValuesLongerThanASegment() throws IOException {
+        try (ScanJournal journal = ScanJournal.builder(folder.newFolder()).segmentSize(SMALL_SEGMENT).open()) {
+            char[] chars = new char[SMALL_SEGMENT];
+            Arrays.fill(chars, 'x');
+            journal.append(0, 1, 32, new String(chars));
+        }
+    }
+}
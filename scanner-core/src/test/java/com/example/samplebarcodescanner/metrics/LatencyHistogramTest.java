@@ -0,0 +1,137 @@
+package com.example.samplebarcodescanner.metrics;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsAreContiguousAndNarrow() {
+        assertEquals(0, LatencyHistogram.bucketLowerBound(0));
+        for (int i = 1; i < LatencyHistogram.BUCKET_COUNT; i++) {
+            long lower = LatencyHistogram.bucketLowerBound(i);
+            assertEquals(LatencyHistogram.bucketUpperBound(i - 1) + 1, lower);
+            assertEquals(i, LatencyHistogram.bucketIndex(lower));
+            assertEquals(i, LatencyHistogram.bucketIndex(LatencyHistogram.bucketUpperBound(i)));
+            long width = LatencyHistogram.bucketUpperBound(i) - lower + 1;
+            assertTrue("bucket " + i, width * LatencyHistogram.SUB_BUCKETS <= Math.max(LatencyHistogram.SUB_BUCKETS, lower));
+        }
+        assertEquals(LatencyHistogram.MAX_TRACKABLE_NANOS,
+                LatencyHistogram.bucketUpperBound(LatencyHistogram.BUCKET_COUNT - 1));
+    }
+
+    @Test
+    public void percentilesAreWithinABucketOfTheExactValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(21);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            // Log-normal around 8 ms, like detector latency, with a long tail.
+            values[i] = (long) (8e6 * Math.exp(random.nextGaussian() * 0.6));
+            histogram.record(values[i]);
+        }
+        java.util.Arrays.sort(values);
+
+        for (double p : new double[]{50, 95, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(p / 100 * values.length) - 1];
+            long reported = histogram.getPercentileNanos(p);
+            assertTrue("p" + p + " " + reported + " vs " + exact,
+                    reported >= exact && reported - exact <= exact / LatencyHistogram.SUB_BUCKETS);
+        }
+        assertEquals(values[values.length - 1], histogram.getMaxNanos());
+        assertEquals(values[values.length - 1], histogram.getPercentileNanos(100));
+        assertEquals(values.length, histogram.getCount());
+    }
+
+    @Test
+    public void outOfRangeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(1, histogram.getBucketCount(0));
+        assertEquals(1, histogram.getBucketCount(LatencyHistogram.BUCKET_COUNT - 1));
+        assertEquals(0, histogram.getPercentileNanos(50));
+        assertEquals(LatencyHistogram.MAX_TRACKABLE_NANOS, histogram.getPercentileNanos(100));
+    }
+
+    @Test
+    public void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000_000);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileNanos(99));
+        assertEquals(0, histogram.getMeanNanos());
+    }
+
+    @Test
+    public void concurrentRecordingLosesNothing() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int threads = 4;
+        int perThread = 250_000;
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long base = (t + 1) * 1_000_000L;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    histogram.record(base + i);
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        long bucketed = 0;
+        for (int i = 0; i < LatencyHistogram.BUCKET_COUNT; i++) {
+            bucketed += histogram.getBucketCount(i);
+        }
+        assertEquals((long) threads * perThread, histogram.getCount());
+        assertEquals(histogram.getCount(), bucketed);
+        assertEquals(threads * 1_000_000L + perThread - 1, histogram.getMaxNanos());
+    }
+
+    @Test
+    public void recordingIsAllocationFree() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int n = 2_000_000;
+        for (int i = 0; i < n; i++) {
+            histogram.record(i * 37L);
+        }
+
+        long allocatedBefore = allocatedBytes();
+        for (int i = 0; i < n; i++) {
+            histogram.record(i * 37L);
+        }
+        long allocated = allocatedBytes() - allocatedBefore;
+        if (allocatedBefore >= 0) {
+            assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+        }
+    }
+
+    /** Bytes allocated by this thread, or -1 if the JVM cannot tell. */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        if (!(mx instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) mx;
+        return threads.isThreadAllocatedMemorySupported()
+                ? threads.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+}
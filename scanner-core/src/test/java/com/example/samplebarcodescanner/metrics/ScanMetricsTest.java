@@ -0,0 +1,60 @@
+package com.example.samplebarcodescanner.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ScanMetricsTest {
+
+    @Test
+    public void recordsStagesAndCounters() {
+        ScanMetrics metrics = new ScanMetrics(0);
+        metrics.increment(ScanMetrics.COUNTER_ARRIVED);
+        metrics.increment(ScanMetrics.COUNTER_ARRIVED);
+        metrics.increment(ScanMetrics.COUNTER_SKIPPED);
+        metrics.record(ScanMetrics.STAGE_DETECT, 1_000_000, 9_000_000);
+
+        assertEquals(2, metrics.getCount(ScanMetrics.COUNTER_ARRIVED));
+        assertEquals(1, metrics.getCount(ScanMetrics.COUNTER_SKIPPED));
+        assertEquals(0, metrics.getCount(ScanMetrics.COUNTER_DROPPED));
+        assertEquals(1, metrics.getStage(ScanMetrics.STAGE_DETECT).getCount());
+        assertEquals(8_000_000, metrics.getStage(ScanMetrics.STAGE_DETECT).getMaxNanos());
+        assertEquals(0, metrics.getStage(ScanMetrics.STAGE_TOTAL).getCount());
+
+        metrics.reset();
+        assertEquals(0, metrics.getCount(ScanMetrics.COUNTER_ARRIVED));
+        assertEquals(0, metrics.getStage(ScanMetrics.STAGE_DETECT).getCount());
+    }
+
+    @Test
+    public void dumpsCompactJson() throws Exception {
+        ScanMetrics metrics = new ScanMetrics(1_000);
+        metrics.increment(ScanMetrics.COUNTER_SCANNED);
+        metrics.record(ScanMetrics.STAGE_TRACK, 0, 10);
+        metrics.record(ScanMetrics.STAGE_TRACK, 0, 10);
+        metrics.record(ScanMetrics.STAGE_TRACK, 0, 100);
+
+        StringBuilder json = new StringBuilder();
+        metrics.writeJson(json, 5_000);
+
+        String text = json.toString();
+        assertTrue(text, text.startsWith("{\"uptimeNanos\":4000,\"counters\":{\"arrived\":0,\"scanned\":1,"
+                + "\"dropped\":0,\"skipped\":0,\"closed\":0},\"stages\":{\"queue\":{\"count\":0,"));
+        assertTrue(text, text.contains("\"track\":{\"count\":3,\"meanNanos\":40,\"maxNanos\":100,"
+                + "\"p50Nanos\":10,\"p95Nanos\":100,\"p99Nanos\":100,\"buckets\":[[10,2],[103,1]]}"));
+        assertTrue(text, text.endsWith("}}\n"));
+        assertEquals(1, text.split("\n").length);
+    }
+
+    @Test
+    public void summaryHasALinePerStage() {
+        ScanMetrics metrics = new ScanMetrics(0);
+        metrics.record(ScanMetrics.STAGE_TOTAL, 0, 42_000_000);
+
+        String[] lines = metrics.summary().split("\n");
+
+        assertEquals(6, lines.length);
+        assertTrue(lines[4], lines[4].startsWith("total  p50  42.0"));
+        assertEquals("arrived 0  scanned 0  dropped 0  skipped 0  closed 0", lines[5]);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.samplebarcodescanner.overlay;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MotionExtrapolatorTest {
+    private static final long MS = 1_000_000L;
+    private final MotionExtrapolator extrapolator = new MotionExtrapolator(100 * MS, 50 * MS);
+
+    @Test
+    public void leadIsLinearDuringHold() {
+        assertEquals(0f, extrapolator.leadSeconds(-5 * MS), 0f);
+        assertEquals(0f, extrapolator.leadSeconds(0), 0f);
+        assertEquals(0.016f, extrapolator.leadSeconds(16 * MS), 1e-6f);
+        assertEquals(0.1f, extrapolator.leadSeconds(100 * MS), 1e-6f);
+    }
+
+    @Test
+    public void leadDecaysTowardsBoundAfterHold() {
+        float previous = extrapolator.leadSeconds(100 * MS);
+        float previousStep = Float.MAX_VALUE;
+        for (long t = 110; t <= 1000; t += 10) {
+            float lead = extrapolator.leadSeconds(t * MS);
+            float step = lead - previous;
+            assertTrue("lead must keep growing", step >= 0f);
+            assertTrue("growth must slow down", step <= previousStep + 1e-6f);
+            assertTrue("lead bounded by hold + decay", lead <= 0.15f + 1e-6f);
+            previous = lead;
+            previousStep = step;
+        }
+        assertEquals(0.15f, extrapolator.leadSeconds(2000 * MS), 1e-4f);
+    }
+
+    @Test
+    public void leadIsContinuousAtEndOfHold() {
+        float before = extrapolator.leadSeconds(100 * MS - 1000);
+        float after = extrapolator.leadSeconds(100 * MS + 1000);
+        assertEquals(before, after, 1e-5f);
+    }
+
+    @Test
+    public void extrapolatesBoxAlongVelocity() {
+        FrameSnapshot snapshot = new FrameSnapshot.Builder(1)
+                .add(1, "A", 100, 200, 180, 260, 300f, -120f)
+                .build(1, 1_000 * MS, 1080, 1920);
+        float[] box = new float[4];
+
+        extrapolator.extrapolate(snapshot, 0, 1_000 * MS, box);
+        assertArrayEquals(new float[]{100, 200, 180, 260}, box, 1e-3f);
+
+        // 50 ms later at 300 px/s right and 120 px/s up.
+        extrapolator.extrapolate(snapshot, 0, 1_050 * MS, box);
+        assertArrayEquals(new float[]{115, 194, 195, 254}, box, 1e-3f);
+    }
+
+    @Test
+    public void settledWhenStationaryOrDecayed() {
+        FrameSnapshot still = new FrameSnapshot.Builder(1)
+                .add(1, "A", 0, 0, 10, 10, 0.5f, 0f)
+                .build(1, 0, 100, 100);
+        assertTrue(extrapolator.isSettled(still, 10 * MS));
+
+        FrameSnapshot moving = new FrameSnapshot.Builder(1)
+                .add(1, "A", 0, 0, 10, 10, 200f, 0f)
+                .build(1, 0, 100, 100);
+        assertFalse(extrapolator.isSettled(moving, 10 * MS));
+        assertFalse(extrapolator.isSettled(moving, 200 * MS));
+        assertTrue(extrapolator.isSettled(moving, 400 * MS));
+    }
+}
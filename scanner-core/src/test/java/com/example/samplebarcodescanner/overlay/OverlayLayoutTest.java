@@ -0,0 +1,238 @@
+package com.example.samplebarcodescanner.overlay;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+public class OverlayLayoutTest {
+    private static final long MS = 1_000_000L;
+    private static final float TEXT_SIZE = 36f;
+    private static final float PADDING = 25f;
+
+    private int measured;
+    private final TrackStateStore<Object> states = new TrackStateStore<>(null);
+    private final TextMeasurer measurer = text -> {
+        measured++;
+        return text.length() * 10f;
+    };
+
+    @Test
+    public void scalesBoxesAndPlacesLabelBelow() {
+        OverlayLayout layout = new OverlayLayout(states, measurer, null, TEXT_SIZE, PADDING, 0f, 0f);
+        FrameSnapshot snapshot = new FrameSnapshot.Builder(1)
+                .add(1, "ABC", 10, 20, 50, 60, 0f, 0f)
+                .build(1, 0, 100, 200);
+        assertTrue(layout.compute(snapshot, 0, 200, 400));
+
+        assertEquals(1, layout.size());
+        assertArrayEquals(new float[]{20, 40, 100, 120}, slice(layout.boxes(), 0, 4), 0f);
+        assertArrayEquals(new float[]{20, 120 + PADDING / 2, 20 + 30 + PADDING * 2, 120 + TEXT_SIZE + PADDING},
+                slice(layout.labelRects(), 0, 4), 0f);
+        assertEquals(60f, layout.getCenterX(0), 0f);
+        assertEquals(80f, layout.getCenterY(0), 0f);
+        assertEquals("ABC", layout.getLabel(0));
+        assertEquals(LabelColors.forValue("ABC"), layout.getColor(0));
+        assertEquals(1, layout.getTrackId(0));
+    }
+
+    @Test
+    public void unchangedGeometryLeavesNothingDirty() {
+        OverlayLayout layout = new OverlayLayout(states, measurer, null, TEXT_SIZE, PADDING, 7f, 49f);
+        FrameSnapshot snapshot = shelf(20, 0, 1);
+        assertTrue(layout.compute(snapshot, 0, 1000, 1000));
+        assertFalse(layout.compute(snapshot, 16 * MS, 1000, 1000));
+        assertTrue(layout.isDirtyEmpty());
+    }
+
+    @Test
+    public void dirtyRegionCoversOldAndNewBounds() {
+        OverlayLayout layout = new OverlayLayout(states, measurer, null, TEXT_SIZE, PADDING, 8f, 40f);
+        layout.compute(single(100, 100), 0, 1000, 1000);
+        assertTrue(layout.compute(single(300, 120), 0, 1000, 1000));
+
+        // Old box starts at 100 less half the stroke; new label extends below the new box.
+        assertEquals(96f, layout.getDirtyLeft(), 0f);
+        assertEquals(96f, layout.getDirtyTop(), 0f);
+        assertTrue(layout.getDirtyRight() >= 300 + 30 + PADDING * 2);
+        assertTrue(layout.getDirtyBottom() >= 170 + PADDING * 2 + TEXT_SIZE);
+        // Nothing far from either position is invalidated.
+        assertTrue(layout.getDirtyRight() < 500);
+        assertTrue(layout.getDirtyBottom() < 300);
+    }
+
+    @Test
+    public void removedTrackIsStillInvalidated() {
+        OverlayLayout layout = new OverlayLayout(states, measurer, null, TEXT_SIZE, PADDING, 0f, 0f);
+        layout.compute(single(100, 100), 0, 1000, 1000);
+        assertTrue(layout.compute(FrameSnapshot.EMPTY, 0, 1000, 1000));
+        assertEquals(0, layout.size());
+        assertFalse(layout.isDirtyEmpty());
+        assertEquals(100f, layout.getDirtyLeft(), 0f);
+    }
+
+    @Test
+    public void labelsAreMeasuredOncePerTrack() {
+        OverlayLayout layout = new OverlayLayout(states, measurer, new MotionExtrapolator(), TEXT_SIZE, PADDING, 7f, 49f);
+        FrameSnapshot snapshot = shelf(20, 0, 1);
+        for (int frame = 0; frame < 30; frame++) {
+            layout.compute(snapshot, frame * 16 * MS, 1000, 1000);
+        }
+        assertEquals(20, measured);
+        assertEquals(20, states.getMissCount());
+        assertEquals(29 * 20, states.getHitCount());
+    }
+
+    @Test
+    public void stateOfVanishedTracksExpires() {
+        OverlayLayout layout = new OverlayLayout(states, measurer, null, TEXT_SIZE, PADDING, 0f, 0f);
+        layout.compute(shelf(20, 0, 1), 0, 1000, 1000);
+        layout.compute(single(0, 0), TrackStateStore.DEFAULT_TTL_NANOS / 2, 1000, 1000);
+        assertEquals(21, states.size());
+        layout.compute(single(0, 0), TrackStateStore.DEFAULT_TTL_NANOS + MS, 1000, 1000);
+        assertEquals(1, states.size());
+        assertEquals(20, states.getEvictionCount());
+    }
+
+    @Test
+    public void crowdedLabelsDoNotOverlap() {
+        OverlayLayout layout = new OverlayLayout(states, measurer, null, TEXT_SIZE, PADDING, 0f, 0f);
+        FrameSnapshot.Builder builder = new FrameSnapshot.Builder(8);
+        for (int i = 0; i < 8; i++) {
+            // Labels are 190 px wide, boxes only 100 px apart.
+            int left = 20 + (i % 4) * 100;
+            int top = 200 + (i / 4) * 400;
+            builder.add(i, "0100000" + (1_000_000 + i), left, top, left + 80, top + 40, 0f, 0f);
+        }
+        layout.compute(builder.build(1, 0, 1000, 1000), 0, 1000, 1000);
+
+        float[] rects = layout.labelRects();
+        int above = 0;
+        for (int i = 0; i < layout.size(); i++) {
+            for (int j = i + 1; j < layout.size(); j++) {
+                assertFalse(i + " and " + j + " overlap", overlaps(rects, i, j));
+            }
+            if (rects[i * 4 + 3] <= layout.boxes()[i * 4 + 1]) {
+                above++;
+            }
+        }
+        assertTrue(above > 0);
+    }
+
+    @Test
+    public void settledLabelKeepsItsSpotWhenANeighbourArrives() {
+        OverlayLayout layout = new OverlayLayout(states, measurer, null, TEXT_SIZE, PADDING, 0f, 0f);
+        FrameSnapshot alone = new FrameSnapshot.Builder(1)
+                .add(2, "0100000123", 200, 300, 280, 340, 0f, 0f)
+                .build(1, 0, 1000, 1000);
+        layout.compute(alone, 0, 1000, 1000);
+        assertEquals(340 + PADDING / 2, layout.labelRects()[1], 0f);
+
+        // The newcomer comes first in the snapshot and would otherwise take the spot below.
+        FrameSnapshot crowded = new FrameSnapshot.Builder(2)
+                .add(3, "0100000456", 150, 300, 230, 340, 0f, 0f)
+                .add(2, "0100000123", 200, 300, 280, 340, 0f, 0f)
+                .build(2, 0, 1000, 1000);
+        layout.compute(crowded, 16 * MS, 1000, 1000);
+
+        float[] rects = layout.labelRects();
+        assertEquals(340 + PADDING / 2, rects[5], 0f);
+        assertTrue("newcomer moved above", rects[3] <= 300);
+        assertFalse(overlaps(rects, 0, 1));
+    }
+
+    @Test
+    public void labelsFollowOnlyMovesPastTheThreshold() {
+        OverlayLayout layout = new OverlayLayout(states, measurer, null, TEXT_SIZE, PADDING, 0f, 0f);
+        layout.setMoveThreshold(3f);
+        layout.compute(single(100, 100), 0, 1000, 1000);
+        layout.compute(single(102, 101), 16 * MS, 1000, 1000);
+        assertEquals("a 2 px move leaves the label", 100f, layout.labelRects()[0], 0f);
+        assertEquals(150 + PADDING / 2, layout.labelRects()[1], 0f);
+        assertEquals(102f, layout.boxes()[0], 0f);
+
+        layout.compute(single(110, 101), 32 * MS, 1000, 1000);
+        assertEquals(110f, layout.labelRects()[0], 0f);
+        assertEquals(110f + PADDING, layout.textOrigins()[0], 0f);
+    }
+
+    @Test
+    public void findIconReturnsTheIconUnderTheTouch() {
+        OverlayLayout layout = new OverlayLayout(states, measurer, null, TEXT_SIZE, PADDING, 0f, 0f);
+        assertEquals(-1, layout.findIcon(10, 10, 25));
+        layout.compute(shelf(60, 0, 1), 0, 1920, 1920);
+
+        for (int i = 0; i < layout.size(); i++) {
+            assertEquals(i, layout.findIcon(layout.getCenterX(i) + 20, layout.getCenterY(i) - 20, 25));
+        }
+        assertEquals(-1, layout.findIcon(layout.getCenterX(17) + 30, layout.getCenterY(17), 25));
+        assertEquals(-1, layout.findIcon(5000, 5000, 25));
+    }
+
+    /**
+     * Layout of 200 moving labels, the step that runs on the UI thread each display frame, label
+     * placement and the touch index included, does not allocate once warm. Its cost is measured
+     * by {@code OverlayLayoutBenchmark}.
+     */
+    @Test
+    public void steadyStateLayoutIsAllocationFree() {
+        java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(mx instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) mx;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        OverlayLayout layout = new OverlayLayout(new TrackStateStore<>(null), text -> text.length() * 18f,
+                new MotionExtrapolator(), TEXT_SIZE, PADDING, 7f, 49f);
+        FrameSnapshot snapshot = shelf(200, 300f, 1);
+        int frames = 20_000;
+        runFrames(layout, snapshot, frames); // warm up so the loop is compiled
+
+        long baseline = threads.getThreadAllocatedBytes(thread);
+        baseline = threads.getThreadAllocatedBytes(thread) - baseline;
+        long before = threads.getThreadAllocatedBytes(thread);
+        runFrames(layout, snapshot, frames);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before - baseline;
+
+        assertEquals("bytes allocated over " + frames + " layouts of 200 labels", 0, allocated);
+    }
+
+    private static void runFrames(OverlayLayout layout, FrameSnapshot snapshot, int frames) {
+        for (int frame = 0; frame < frames; frame++) {
+            // Cycle through the first 100 ms so every frame moves the boxes.
+            layout.compute(snapshot, (frame % 6) * 16 * MS, 1080, 1920);
+        }
+    }
+
+    private static FrameSnapshot single(int left, int top) {
+        return new FrameSnapshot.Builder(1)
+                .add(1000, "ABC", left, top, left + 50, top + 50, 0f, 0f)
+                .build(1, 0, 1000, 1000);
+    }
+
+    private static FrameSnapshot shelf(int labels, float velocity, long sequence) {
+        FrameSnapshot.Builder builder = new FrameSnapshot.Builder(labels);
+        for (int i = 0; i < labels; i++) {
+            int left = 20 + (i % 15) * 120;
+            int top = 20 + (i / 15) * 120;
+            builder.add(i, "0100000" + (1_000_000 + i), left, top, left + 70, top + 70, velocity, -velocity / 2);
+        }
+        return builder.build(sequence, 0, 1920, 1920);
+    }
+
+    private static boolean overlaps(float[] rects, int i, int j) {
+        int a = i * 4;
+        int b = j * 4;
+        return rects[a] < rects[b + 2] && rects[b] < rects[a + 2]
+                && rects[a + 1] < rects[b + 3] && rects[b + 1] < rects[a + 3];
+    }
+
+    private static float[] slice(float[] values, int from, int length) {
+        float[] slice = new float[length];
+        System.arraycopy(values, from, slice, 0, length);
+        return slice;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.samplebarcodescanner.overlay;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RectGridTest {
+
+    @Test
+    public void findsOverlapsAcrossCells() {
+        RectGrid grid = new RectGrid(64);
+        grid.reset(1000, 1000);
+        grid.insert(0, 100, 100, 300, 140);
+
+        assertTrue(grid.intersectsAny(290, 130, 400, 200));
+        assertTrue("contained in one inner cell", grid.intersectsAny(200, 110, 210, 120));
+        assertFalse("touching edges do not overlap", grid.intersectsAny(300, 100, 400, 140));
+        assertFalse(grid.intersectsAny(100, 141, 300, 200));
+    }
+
+    @Test
+    public void itemsOffScreenAreClampedIntoEdgeCells() {
+        RectGrid grid = new RectGrid(64);
+        grid.reset(500, 500);
+        grid.insert(0, -200, -50, -20, 10);
+        grid.insert(1, 480, 480, 900, 900);
+
+        assertTrue(grid.intersectsAny(-100, 0, -90, 5));
+        assertTrue(grid.intersectsAny(800, 800, 850, 850));
+        assertEquals(1, grid.find(700, 700, 1));
+        assertEquals(-1, grid.find(250, 250, 50));
+    }
+
+    @Test
+    public void findReturnsTheLowestItemInReach() {
+        RectGrid grid = new RectGrid(64);
+        grid.reset(1000, 1000);
+        grid.insert(3, 100, 100, 100, 100);
+        grid.insert(1, 110, 100, 110, 100);
+
+        assertEquals(1, grid.find(105, 100, 25));
+        assertEquals(3, grid.find(80, 100, 25));
+        assertEquals(-1, grid.find(140, 100, 25));
+    }
+
+    @Test
+    public void resetForgetsEverything() {
+        RectGrid grid = new RectGrid(64);
+        grid.reset(1000, 1000);
+        grid.insert(0, 0, 0, 1000, 1000);
+        grid.reset(2000, 500);
+
+        assertFalse(grid.intersectsAny(0, 0, 2000, 500));
+        assertEquals(-1, grid.find(10, 10, 10));
+    }
+
+    @Test
+    public void matchesBruteForce() {
+        Random random = new Random(24);
+        RectGrid grid = new RectGrid(50);
+        for (int round = 0; round < 20; round++) {
+            grid.reset(1200, 800);
+            int count = 1 + random.nextInt(200);
+            float[] rects = new float[count * 4];
+            for (int i = 0; i < count; i++) {
+                float left = random.nextFloat() * 1400 - 100;
+                float top = random.nextFloat() * 1000 - 100;
+                rects[i * 4] = left;
+                rects[i * 4 + 1] = top;
+                rects[i * 4 + 2] = left + random.nextFloat() * 200;
+                rects[i * 4 + 3] = top + random.nextFloat() * 80;
+                grid.insert(i, rects[i * 4], rects[i * 4 + 1], rects[i * 4 + 2], rects[i * 4 + 3]);
+            }
+            for (int q = 0; q < 200; q++) {
+                float left = random.nextFloat() * 1400 - 100;
+                float top = random.nextFloat() * 1000 - 100;
+                float right = left + random.nextFloat() * 200;
+                float bottom = top + random.nextFloat() * 80;
+                boolean expected = false;
+                int nearest = -1;
+                for (int i = 0; i < count && !expected; i++) {
+                    int r = i * 4;
+                    expected = rects[r] < right && left < rects[r + 2] && rects[r + 1] < bottom && top < rects[r + 3];
+                }
+                for (int i = 0; i < count && nearest < 0; i++) {
+                    int r = i * 4;
+                    if (left + 30 >= rects[r] && left - 30 <= rects[r + 2]
+                            && top + 30 >= rects[r + 1] && top - 30 <= rects[r + 3]) {
+                        nearest = i;
+                    }
+                }
+                assertEquals(expected, grid.intersectsAny(left, top, right, bottom));
+                assertEquals(nearest, grid.find(left, top, 30));
+            }
+        }
+    }
+}
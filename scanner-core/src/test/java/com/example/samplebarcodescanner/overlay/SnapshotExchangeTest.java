@@ -0,0 +1,143 @@
+package com.example.samplebarcodescanner.overlay;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class SnapshotExchangeTest {
+
+    @Test
+    public void startsEmpty() {
+        SnapshotExchange exchange = new SnapshotExchange();
+        assertSame(FrameSnapshot.EMPTY, exchange.latest());
+        assertEquals(0, exchange.latest().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonAdvancingSequence() {
+        SnapshotExchange exchange = new SnapshotExchange();
+        exchange.publish(snapshot(5));
+        exchange.publish(snapshot(5));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void builderIsSingleUse() {
+        FrameSnapshot.Builder builder = new FrameSnapshot.Builder(1);
+        builder.build(1, 0, 10, 10);
+        builder.add(1, "A", 0, 0, 1, 1, 0f, 0f);
+    }
+
+    @Test
+    public void builderGrowsPastExpectedSize() {
+        FrameSnapshot.Builder builder = new FrameSnapshot.Builder(0);
+        for (int i = 0; i < 10; i++) {
+            builder.add(i, "v" + i, i, i + 1, i + 2, i + 3, i + 5, i + 6);
+        }
+        FrameSnapshot snapshot = builder.build(1, 99, 640, 480);
+        assertEquals(10, snapshot.size());
+        assertEquals(7, snapshot.indexOf(7));
+        assertEquals("v7", snapshot.getValue(7));
+        assertEquals(10, snapshot.getBottom(7));
+        assertEquals(13f, snapshot.getVelocityY(7), 0f);
+        assertEquals(-1, snapshot.indexOf(42));
+    }
+
+    /**
+     * One producer publishes snapshots whose every field is derived from the sequence number,
+     * while readers continuously check that each snapshot they see is internally consistent and
+     * that sequences never go backwards.
+     */
+    @Test
+    public void concurrentReadersAlwaysSeeConsistentSnapshots() throws Exception {
+        SnapshotExchange exchange = new SnapshotExchange();
+        int snapshots = 200_000;
+        int readers = 3;
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicLong reads = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int r = 0; r < readers; r++) {
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    long lastSequence = 0;
+                    while (!done.get()) {
+                        FrameSnapshot snapshot = exchange.latest();
+                        assertTrue("sequence went backwards", snapshot.getSequence() >= lastSequence);
+                        lastSequence = snapshot.getSequence();
+                        verify(snapshot);
+                        reads.incrementAndGet();
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }, "reader-" + r));
+        }
+        threads.add(new Thread(() -> {
+            try {
+                start.await();
+                for (int seq = 1; seq <= snapshots; seq++) {
+                    exchange.publish(snapshot(seq));
+                }
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            } finally {
+                done.set(true);
+            }
+        }, "writer"));
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+            assertFalse(thread.getName() + " still running", thread.isAlive());
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        assertEquals(snapshots, exchange.latest().getSequence());
+        assertTrue(reads.get() > 0);
+    }
+
+    private static FrameSnapshot snapshot(long sequence) {
+        int size = (int) (sequence % 40);
+        FrameSnapshot.Builder builder = new FrameSnapshot.Builder(size);
+        for (int i = 0; i < size; i++) {
+            int base = (int) sequence + i;
+            builder.add(base, Long.toString(sequence), base, base + 1, base + 2, base + 3, base * 31f, -i);
+        }
+        return builder.build(sequence, sequence * 10, 1080, 1920);
+    }
+
+    private static void verify(FrameSnapshot snapshot) {
+        long sequence = snapshot.getSequence();
+        if (sequence == 0) {
+            assertEquals(0, snapshot.size());
+            return;
+        }
+        assertEquals(sequence % 40, snapshot.size());
+        assertEquals(sequence * 10, snapshot.getTimestampNanos());
+        String value = Long.toString(sequence);
+        for (int i = 0; i < snapshot.size(); i++) {
+            int base = (int) sequence + i;
+            assertEquals(base, snapshot.getTrackId(i));
+            assertEquals(value, snapshot.getValue(i));
+            assertEquals(base, snapshot.getLeft(i));
+            assertEquals(base + 3, snapshot.getBottom(i));
+            assertEquals(base * 31f, snapshot.getVelocityX(i), 0f);
+            assertEquals(-i, snapshot.getVelocityY(i), 0f);
+        }
+    }
+}
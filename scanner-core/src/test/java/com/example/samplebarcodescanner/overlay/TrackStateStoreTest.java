@@ -0,0 +1,163 @@
+package com.example.samplebarcodescanner.overlay;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TrackStateStoreTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    private final List<Integer> evicted = new ArrayList<>();
+    private final List<String> dismissed = new ArrayList<>();
+
+    private TrackStateStore<String> store(int capacity) {
+        return new TrackStateStore<>(capacity, 5 * SECOND, (trackId, value, popup) -> {
+            evicted.add(trackId);
+            if (popup != null) {
+                dismissed.add(popup);
+            }
+        });
+    }
+
+    @Test
+    public void acquireCountsHitsAndMisses() {
+        TrackStateStore<String> store = store(4);
+        int slot = store.acquire(7, "A", 0);
+        assertEquals(slot, store.acquire(7, "A", 1));
+        assertEquals(slot, store.find(7));
+        assertEquals(-1, store.find(8));
+        assertEquals(1, store.getHitCount());
+        assertEquals(1, store.getMissCount());
+        assertTrue(Float.isNaN(store.getLabelWidth(slot)));
+        store.setLabelWidth(slot, 42f);
+        assertEquals(42f, store.getLabelWidth(store.acquire(7, "A", 2)), 0f);
+    }
+
+    @Test
+    public void popupMovesOnlyPastTheThreshold() {
+        TrackStateStore<String> store = store(4);
+        int slot = store.acquire(1, "A", 0);
+        store.setPopup(slot, "popup-1", 100, 200);
+
+        assertFalse(store.movePopup(slot, 103, 196, 4));
+        assertTrue(store.movePopup(slot, 105, 200, 4));
+        assertFalse("measured from where it was last moved", store.movePopup(slot, 108, 200, 4));
+        assertTrue(store.movePopup(slot, 110, 200, 4));
+    }
+
+    @Test
+    public void labelPlacementIsResetForANewTrack() {
+        TrackStateStore<String> store = store(1);
+        int slot = store.acquire(1, "A", 0);
+        assertEquals(-1, store.getLabelPlacement(slot));
+        store.setLabelPlacement(slot, OverlayLayout.PLACE_ABOVE, 10, 20);
+        assertEquals(OverlayLayout.PLACE_ABOVE, store.getLabelPlacement(store.acquire(1, "A", 1)));
+        assertEquals(20f, store.getLabelTop(slot), 0f);
+
+        assertEquals(-1, store.getLabelPlacement(store.acquire(2, "B", 2)));
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvictedAtCapacity() {
+        TrackStateStore<String> store = store(3);
+        store.acquire(1, "A", 0);
+        store.acquire(2, "B", 0);
+        store.acquire(3, "C", 0);
+        store.acquire(1, "A", 1);
+        store.acquire(4, "D", 2);
+
+        assertEquals(3, store.size());
+        assertEquals(-1, store.find(2));
+        assertEquals(1, store.getEvictionCount());
+        assertEquals(List.of(2), evicted);
+    }
+
+    @Test
+    public void untouchedEntriesExpireAndDismissTheirPopup() {
+        TrackStateStore<String> store = store(8);
+        store.setPopup(store.acquire(1, "A", 0), "popup-1");
+        store.acquire(2, "B", 0);
+        store.acquire(2, "B", 4 * SECOND);
+
+        assertEquals(0, store.expire(5 * SECOND));
+        assertEquals(1, store.expire(6 * SECOND));
+        assertEquals(-1, store.find(1));
+        assertNotEquals(-1, store.find(2));
+        assertEquals(List.of("popup-1"), dismissed);
+    }
+
+    @Test
+    public void colorIsDeterministicAcrossEviction() {
+        TrackStateStore<String> store = store(1);
+        int color = store.getColor(store.acquire(1, "4006381333931", 0));
+        store.acquire(2, "other", 0);
+        assertEquals(-1, store.find(1));
+        assertEquals(color, store.getColor(store.acquire(3, "4006381333931", 0)));
+        assertEquals(color, LabelColors.forValue("4006381333931"));
+    }
+
+    @Test
+    public void colorsAreOpaqueAndSpread() {
+        Map<Integer, Integer> hues = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            int color = LabelColors.forValue("0100000" + (1_000_000 + i));
+            assertEquals(0xff, color >>> 24);
+            hues.merge(hueBucket(color), 1, Integer::sum);
+        }
+        // Sequential SKUs land in every sixth of the hue circle.
+        assertEquals(6, hues.size());
+    }
+
+    @Test
+    public void hsvConversionMatchesPrimaries() {
+        assertEquals(0xffff0000, LabelColors.hsvToArgb(0f, 1f, 1f));
+        assertEquals(0xff00ff00, LabelColors.hsvToArgb(120f, 1f, 1f));
+        assertEquals(0xff0000ff, LabelColors.hsvToArgb(240f, 1f, 1f));
+        assertEquals(0xffffffff, LabelColors.hsvToArgb(77f, 0f, 1f));
+    }
+
+    @Test
+    public void randomOperationsMatchReferenceModel() {
+        TrackStateStore<String> store = store(64);
+        Map<Integer, String> model = new HashMap<>();
+        Random random = new Random(3);
+        for (int step = 0; step < 50_000; step++) {
+            int trackId = random.nextInt(200);
+            if (random.nextInt(4) == 0) {
+                assertEquals(model.remove(trackId) != null, store.remove(trackId));
+                evicted.clear();
+            } else {
+                String value = "v" + trackId;
+                store.acquire(trackId, value, step);
+                model.put(trackId, value);
+                evicted.forEach(model::remove);
+                evicted.clear();
+            }
+            assertEquals(model.size(), store.size());
+        }
+        for (Map.Entry<Integer, String> entry : model.entrySet()) {
+            int slot = store.find(entry.getKey());
+            assertNotEquals(-1, slot);
+            assertEquals(entry.getValue(), store.getValue(slot));
+        }
+    }
+
+    private static int hueBucket(int color) {
+        int r = (color >> 16) & 0xff;
+        int g = (color >> 8) & 0xff;
+        int b = color & 0xff;
+        int max = Math.max(r, Math.max(g, b));
+        if (max == r && g >= b) return 0;
+        if (max == g && r >= b) return 1;
+        if (max == g) return 2;
+        if (max == b && g >= r) return 3;
+        if (max == b) return 4;
+        return 5;
+    }
+}
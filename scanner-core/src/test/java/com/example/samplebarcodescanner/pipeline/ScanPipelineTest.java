@@ -0,0 +1,138 @@
+package com.example.samplebarcodescanner.pipeline;
+
+import com.example.samplebarcodescanner.overlay.FrameSnapshot;
+import com.example.samplebarcodescanner.tracking.AssignmentTracker;
+import com.example.samplebarcodescanner.tracking.Detection;
+import com.example.samplebarcodescanner.tracking.Track;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ScanPipelineTest {
+    private static final long FRAME_NANOS = 33_333_333L;
+
+    private static Detection detection(String value, int left, int top) {
+        return new Detection(value, 0, left, top, left + 40, top + 40);
+    }
+
+    @Test
+    public void snapshotCarriesTrackedBoxesAndAdvancingSequence() {
+        ScanPipeline pipeline = new ScanPipeline.Builder(new AssignmentTracker()).build();
+        List<Detection> frame = Arrays.asList(detection("A", 100, 100), detection("B", 400, 100));
+
+        FrameSnapshot first = pipeline.process(frame, 0, 1920, 1440);
+        FrameSnapshot second = pipeline.process(frame, FRAME_NANOS, 1920, 1440);
+
+        assertEquals(2, second.size());
+        assertTrue(second.getSequence() > first.getSequence());
+        assertEquals(FRAME_NANOS, second.getTimestampNanos());
+        assertEquals(1920, second.getFrameWidth());
+        for (int i = 0; i < second.size(); i++) {
+            assertTrue("track kept its id", first.indexOf(second.getTrackId(i)) >= 0);
+        }
+    }
+
+    @Test
+    public void detectionStagesRunInOrderOnACopy() {
+        List<String> calls = new ArrayList<>();
+        ScanPipeline pipeline = new ScanPipeline.Builder(new AssignmentTracker())
+                .addDetectionStage((detections, timestamp) -> {
+                    calls.add("drop B");
+                    detections.removeIf(d -> d.getValue().equals("B"));
+                })
+                .addDetectionStage((detections, timestamp) -> {
+                    calls.add("count " + detections.size());
+                })
+                .build();
+        List<Detection> frame = Arrays.asList(detection("A", 100, 100), detection("B", 400, 100));
+
+        FrameSnapshot snapshot = pipeline.process(frame, 0, 1920, 1440);
+
+        assertEquals(Arrays.asList("drop B", "count 1"), calls);
+        assertEquals(1, snapshot.size());
+        assertEquals("A", snapshot.getValue(0));
+        assertEquals(2, frame.size());
+    }
+
+    @Test
+    public void trackStagesSeeTheTrackerOutput() {
+        List<Integer> seen = new ArrayList<>();
+        ScanPipeline pipeline = new ScanPipeline.Builder(new AssignmentTracker())
+                .addTrackStage((tracks, timestamp) -> {
+                    for (Track track : tracks) {
+                        seen.add(track.getId());
+                    }
+                })
+                .build();
+
+        FrameSnapshot snapshot = pipeline.process(Arrays.asList(detection("A", 100, 100)), 0, 1920, 1440);
+
+        assertEquals(1, seen.size());
+        assertEquals((int) seen.get(0), snapshot.getTrackId(0));
+    }
+
+    @Test
+    public void resetDropsTracksButKeepsSequenceIncreasing() {
+        ScanPipeline pipeline = new ScanPipeline.Builder(new AssignmentTracker()).build();
+        FrameSnapshot before = pipeline.process(Arrays.asList(detection("A", 100, 100)), 0, 1920, 1440);
+
+        pipeline.reset();
+        FrameSnapshot after = pipeline.process(new ArrayList<>(), FRAME_NANOS, 1920, 1440);
+
+        assertEquals(0, after.size());
+        assertTrue(pipeline.getTracks().isEmpty());
+        assertTrue(after.getSequence() > before.getSequence());
+    }
+
+    @Test
+    public void coastedFramesNeverConfirmATrackSeenOnce() {
+        List<Integer> stageHits = new ArrayList<>();
+        ScanPipeline pipeline = new ScanPipeline.Builder(new AssignmentTracker())
+                .addTrackStage((tracks, timestamp) -> {
+                    for (Track track : tracks) {
+                        stageHits.add(track.getHits());
+                    }
+                })
+                .build();
+        pipeline.process(Arrays.asList(detection("misread", 100, 100)), 0, 1920, 1440);
+
+        // A still scene: the motion gate skips up to MotionGate.DEFAULT_MAX_SKIPPED_FRAMES frames.
+        for (int i = 1; i <= 15; i++) {
+            FrameSnapshot coasted = pipeline.coast(i * FRAME_NANOS, 1920, 1440);
+            assertEquals(1, coasted.size());
+            assertEquals("misread", coasted.getValue(0));
+        }
+
+        assertEquals(Arrays.asList(1), stageHits);
+        Track track = pipeline.getTracks().get(0);
+        assertEquals(1, track.getHits());
+        assertEquals(0, track.getMissedFrames());
+    }
+
+    @Test
+    public void coastMovesTracksAlongTheirVelocity() {
+        ScanPipeline pipeline = new ScanPipeline.Builder(new AssignmentTracker()).build();
+        for (int i = 0; i < 10; i++) {
+            pipeline.process(Arrays.asList(detection("A", 100 + 10 * i, 100)), i * FRAME_NANOS, 1920, 1440);
+        }
+        Track track = pipeline.getTracks().get(0);
+        int left = track.getLeft();
+
+        FrameSnapshot coasted = pipeline.coast(12 * FRAME_NANOS, 1920, 1440);
+
+        assertTrue(track.getVelocityX() > 0);
+        float elapsedSeconds = 3 * FRAME_NANOS / 1e9f;
+        assertEquals(left + Math.round(track.getVelocityX() * elapsedSeconds), coasted.getLeft(0));
+        assertEquals(12 * FRAME_NANOS, coasted.getTimestampNanos());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requiresATracker() {
+        new ScanPipeline.Builder(null);
+    }
+}
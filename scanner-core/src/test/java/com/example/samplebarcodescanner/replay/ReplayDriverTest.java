@@ -0,0 +1,68 @@
+package com.example.samplebarcodescanner.replay;
+
+import com.example.samplebarcodescanner.overlay.MotionExtrapolator;
+import com.example.samplebarcodescanner.overlay.OverlayLayout;
+import com.example.samplebarcodescanner.overlay.TrackStateStore;
+import com.example.samplebarcodescanner.pipeline.ScanPipeline;
+import com.example.samplebarcodescanner.schedule.Clock;
+import com.example.samplebarcodescanner.tracking.AssignmentTracker;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+/**
+ * Replays synthetic shelf recordings through tracking and layout, as CI would with recordings
+ * captured on a device.
+ */
+public class ReplayDriverTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ReplayDriver driver(AllocationCounter allocations) {
+        OverlayLayout layout = new OverlayLayout(new TrackStateStore<>(null), text -> text.length() * 18f,
+                new MotionExtrapolator(), 36f, 25f, 7f, 49f);
+        return new ReplayDriver(new ScanPipeline.Builder(new AssignmentTracker()).build(), layout, 1080, 1440, Clock.SYSTEM, allocations);
+    }
+
+    @Test
+    public void shelfReplayKeepsIdentitiesAndBoundsPerFrameCost() throws IOException {
+        Path path = folder.newFile("shelf.scanrec").toPath();
+        ShelfRecordings.write(path, 150, 300, 42L, false);
+        AllocationCounter allocations = ThreadAllocationCounter.create();
+
+        try (ScanRecording recording = ScanRecording.open(path)) {
+            ReplayReport report = driver(allocations).run(recording, ReplayDriver.Pacing.MAXIMUM, 3);
+
+            assertEquals(300, report.getFrameCount());
+            assertTrue(report.getDetectionCount() > 300 * 130);
+            // Missed reads coast; no label should ever need a second track.
+            assertEquals(150, report.getTracksStarted());
+            assertTrue(report.getLatencyPercentileNanos(50) > 0);
+            assertTrue(report.getLatencyPercentileNanos(50) <= report.getLatencyPercentileNanos(99));
+
+            Assume.assumeTrue(report.isAllocationMeasured());
+            // The published snapshot is the only per-frame allocation: a few arrays of 150 entries.
+            assertTrue("mean " + report.getMeanAllocatedBytesPerFrame() + " B/frame",
+                    report.getMeanAllocatedBytesPerFrame() < 8 * 1024);
+        }
+    }
+
+    @Test
+    public void recordedPacingTakesTheRecordedTime() throws IOException {
+        Path path = folder.newFile("short.scanrec").toPath();
+        ShelfRecordings.write(path, 5, 6, 1L, false);
+        try (ScanRecording recording = ScanRecording.open(path)) {
+            ReplayReport report = driver(AllocationCounter.NONE).run(recording, ReplayDriver.Pacing.RECORDED, 0);
+            assertEquals(6, report.getFrameCount());
+            assertTrue(report.getWallNanos() >= 5 * ShelfRecordings.FRAME_NANOS);
+            assertFalse(report.isAllocationMeasured());
+        }
+    }
+}
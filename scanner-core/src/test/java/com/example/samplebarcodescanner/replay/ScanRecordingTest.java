@@ -0,0 +1,149 @@
+package com.example.samplebarcodescanner.replay;
+
+import com.example.samplebarcodescanner.tracking.Detection;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ScanRecordingTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void framesRoundTrip() throws IOException {
+        Path path = folder.newFile("a.scanrec").toPath();
+        byte[] luma = {1, 2, 3, 4, 5, 6};
+        List<Detection> first = Arrays.asList(
+                new Detection("4006381333931", 32, 10, 20, 110, 80),
+                new Detection("ünïcode", 256, -5, 0, 5, 10));
+        List<Detection> second = Arrays.asList(
+                new Detection("ünïcode", 256, 0, 1, 2, 3),
+                new Detection("4006381333931", 64, 1, 1, 2, 2));
+        try (OutputStream out = Files.newOutputStream(path); ScanRecorder recorder = new ScanRecorder(out)) {
+            recorder.recordFrame(5_000L, 480, 640, 90, first, luma, 3, 2);
+            recorder.recordFrame(4_000L, 480, 640, 270, second, null, 0, 0);
+        }
+
+        try (ScanRecording recording = ScanRecording.open(path)) {
+            assertEquals(2, recording.getFrameCount());
+            assertFalse(recording.isTruncated());
+            assertEquals(3, recording.getValueCount());
+
+            RecordedFrame frame = recording.frame(0);
+            assertEquals(5_000L, frame.getTimestampNanos());
+            assertEquals(480, frame.getFrameWidth());
+            assertEquals(640, frame.getFrameHeight());
+            assertEquals(90, frame.getRotation());
+            assertDetections(first, frame.getDetections());
+            assertTrue(frame.hasLuma());
+            assertEquals(3, frame.getLumaWidth());
+            assertEquals(2, frame.getLumaHeight());
+            ByteBuffer readLuma = frame.getLuma();
+            byte[] copy = new byte[readLuma.remaining()];
+            readLuma.get(copy);
+            assertArrayEquals(luma, copy);
+
+            // Random access, and a timestamp that went backwards.
+            RecordedFrame later = recording.frame(1);
+            assertEquals(4_000L, later.getTimestampNanos());
+            assertEquals(270, later.getRotation());
+            assertDetections(second, later.getDetections());
+            assertFalse(later.hasLuma());
+            assertDetections(first, recording.frame(0).getDetections());
+        }
+    }
+
+    @Test
+    public void repeatedValuesAreStoredOnce() throws IOException {
+        Path path = folder.newFile("shelf.scanrec").toPath();
+        ShelfRecordings.write(path, 150, 300, 7L, false);
+        try (ScanRecording recording = ScanRecording.open(path)) {
+            assertEquals(300, recording.getFrameCount());
+            assertEquals(120, recording.getValueCount());
+            int detections = 0;
+            for (int i = 0; i < recording.getFrameCount(); i++) {
+                detections += recording.frame(i).getDetections().size();
+            }
+            double bytesPerDetection = (Files.size(path) - 8.0) / detections;
+            assertTrue("bytes per detection " + bytesPerDetection, bytesPerDetection < 12);
+        }
+    }
+
+    @Test
+    public void tornFinalFrameIsIgnored() throws IOException {
+        Path path = folder.newFile("torn.scanrec").toPath();
+        ShelfRecordings.write(path, 20, 10, 3L, true);
+        long size = Files.size(path);
+        for (long cut : new long[]{size - 1, size - 100, size - 3000}) {
+            Path torn = folder.newFile("torn-" + cut + ".scanrec").toPath();
+            Files.copy(path, torn, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            try (FileChannel channel = FileChannel.open(torn, StandardOpenOption.WRITE)) {
+                channel.truncate(cut);
+            }
+            try (ScanRecording recording = ScanRecording.open(torn)) {
+                assertTrue(recording.isTruncated());
+                assertEquals(9, recording.getFrameCount());
+                assertEquals(recording.frame(8).getTimestampNanos(), recording.getTimestampNanos(8));
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        Path path = folder.newFile("other.bin").toPath();
+        Files.write(path, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+        ScanRecording.open(path).close();
+    }
+
+    @Test
+    public void randomRecordingsRoundTrip() throws IOException {
+        Random random = new Random(17);
+        Path path = folder.newFile("random.scanrec").toPath();
+        List<List<Detection>> frames = new java.util.ArrayList<>();
+        try (OutputStream out = Files.newOutputStream(path); ScanRecorder recorder = new ScanRecorder(out)) {
+            for (int f = 0; f < 200; f++) {
+                List<Detection> detections = new java.util.ArrayList<>();
+                for (int d = random.nextInt(6); d > 0; d--) {
+                    int left = random.nextInt() >> random.nextInt(32);
+                    detections.add(new Detection("v" + random.nextInt(30), random.nextInt(5) << 4,
+                            left, random.nextInt(), left + random.nextInt(100), random.nextInt()));
+                }
+                frames.add(detections);
+                recorder.recordFrame(f * 1000L, 100, 100, 0, detections, null, 0, 0);
+            }
+        }
+        try (ScanRecording recording = ScanRecording.open(path)) {
+            for (int f = frames.size() - 1; f >= 0; f--) {
+                assertDetections(frames.get(f), recording.frame(f).getDetections());
+            }
+        }
+    }
+
+    private static void assertDetections(List<Detection> expected, List<Detection> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Detection e = expected.get(i);
+            Detection a = actual.get(i);
+            assertEquals(e.getValue(), a.getValue());
+            assertEquals(e.getFormat(), a.getFormat());
+            assertEquals(e.getLeft(), a.getLeft());
+            assertEquals(e.getTop(), a.getTop());
+            assertEquals(e.getRight(), a.getRight());
+            assertEquals(e.getBottom(), a.getBottom());
+        }
+    }
+}
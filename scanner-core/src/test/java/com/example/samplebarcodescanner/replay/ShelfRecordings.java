@@ -0,0 +1,61 @@
+package com.example.samplebarcodescanner.replay;
+
+import com.example.samplebarcodescanner.tracking.Detection;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Writes synthetic recordings of a shelf of labels panning slowly past the camera, with
+ * per-label jitter and occasional missed reads.
+ */
+final class ShelfRecordings {
+    static final long FRAME_NANOS = 33_000_000L;
+    static final int FRAME_WIDTH = 1920;
+    static final int FRAME_HEIGHT = 1440;
+    private static final int COLUMNS = 15;
+    private static final int PITCH = 120;
+    private static final int SIZE = 70;
+
+    private ShelfRecordings() {
+    }
+
+    static void write(Path path, int labels, int frames, long seed, boolean withLuma) throws IOException {
+        try (OutputStream out = Files.newOutputStream(path); ScanRecorder recorder = new ScanRecorder(out)) {
+            Random random = new Random(seed);
+            byte[] luma = withLuma ? new byte[64 * 48] : null;
+            for (int f = 0; f < frames; f++) {
+                if (luma != null) {
+                    random.nextBytes(luma);
+                }
+                recorder.recordFrame(1_000_000_000L + f * FRAME_NANOS, FRAME_WIDTH, FRAME_HEIGHT, 90,
+                        frame(labels, f, random), luma, 64, 48);
+            }
+        }
+    }
+
+    static List<Detection> frame(int labels, int frame, Random random) {
+        float panX = 40 * (float) Math.sin(frame / 20.0);
+        float panY = 25 * (float) Math.cos(frame / 27.0);
+        List<Detection> detections = new ArrayList<>(labels);
+        for (int i = 0; i < labels; i++) {
+            if (random.nextInt(20) == 0) {
+                continue; // missed read
+            }
+            int left = Math.round(20 + (i % COLUMNS) * PITCH + panX) + random.nextInt(7) - 3;
+            int top = Math.round(20 + (i / COLUMNS) * PITCH + panY) + random.nextInt(7) - 3;
+            String value = (i % 5 == 4) ? value(i - 1) : value(i);
+            detections.add(new Detection(value, 32, left, top, left + SIZE, top + SIZE));
+        }
+        return detections;
+    }
+
+    private static String value(int label) {
+        return "(01)0" + (4006381000000L + label) + "(10)LOT" + label;
+    }
+}
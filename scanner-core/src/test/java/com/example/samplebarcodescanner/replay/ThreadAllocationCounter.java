@@ -0,0 +1,31 @@
+package com.example.samplebarcodescanner.replay;
+
+import java.lang.management.ManagementFactory;
+
+/** {@link AllocationCounter} backed by the HotSpot thread allocation counters. */
+final class ThreadAllocationCounter implements AllocationCounter {
+    private final com.sun.management.ThreadMXBean threads;
+
+    private ThreadAllocationCounter(com.sun.management.ThreadMXBean threads) {
+        this.threads = threads;
+    }
+
+    /** Returns a counter for this JVM, or {@link AllocationCounter#NONE} if it has none. */
+    static AllocationCounter create() {
+        java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        if (!(mx instanceof com.sun.management.ThreadMXBean)) {
+            return NONE;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) mx;
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            return NONE;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return new ThreadAllocationCounter(threads);
+    }
+
+    @Override
+    public long currentThreadAllocatedBytes() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,291 @@
+package com.example.samplebarcodescanner.results;
+
+import com.example.samplebarcodescanner.tracking.AssignmentTracker;
+import com.example.samplebarcodescanner.tracking.Detection;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ScanResultsHubTest {
+    private static final long FRAME_NANOS = 33_000_000L;
+
+    private final ScanResultsHub hub = new ScanResultsHub();
+    private final AssignmentTracker tracker = new AssignmentTracker(2, AssignmentTracker.DEFAULT_MIN_GATE_PX,
+            AssignmentTracker.DEFAULT_GATE_SCALE);
+    // Deliveries waiting for a manually driven executor.
+    private final List<Runnable> pending = new ArrayList<>();
+    private long now;
+
+    private static Detection label(String value, int x, int y) {
+        return new Detection(value, 32, x, y, x + 200, y + 80);
+    }
+
+    private void frame(Detection... detections) {
+        hub.onTracks(tracker.update(Arrays.asList(detections), now), now);
+        now += FRAME_NANOS;
+    }
+
+    private void runPending() {
+        while (!pending.isEmpty()) {
+            pending.remove(0).run();
+        }
+    }
+
+    private static List<String> values(List<List<ScanResult>> deliveries) {
+        List<String> values = new ArrayList<>();
+        for (List<ScanResult> delivery : deliveries) {
+            for (ScanResult result : delivery) {
+                values.add(result.getValue());
+            }
+        }
+        return values;
+    }
+
+    @Test
+    public void everyReadIsOneDeliveryPerFrame() {
+        List<List<ScanResult>> received = new ArrayList<>();
+        hub.subscribe(new ScanResultsHub.Options.Builder(Runnable::run).build(), received::add);
+
+        frame(label("A", 100, 100), label("B", 600, 100));
+        frame(label("A", 100, 100));
+        frame();
+
+        assertEquals(2, received.size());
+        assertEquals(List.of("A", "B", "A"), values(received));
+        ScanResult again = received.get(1).get(0);
+        assertEquals(received.get(0).get(0).getTrackId(), again.getTrackId());
+        assertEquals(2, again.getHits());
+        assertEquals(FRAME_NANOS, again.getTimestampNanos());
+    }
+
+    @Test
+    public void distinctPerTrackSendsEachTrackOnceWhenConfirmed() {
+        List<List<ScanResult>> received = new ArrayList<>();
+        hub.subscribe(new ScanResultsHub.Options.Builder(Runnable::run)
+                .mode(ScanResultsHub.Mode.DISTINCT_PER_TRACK)
+                .minHits(3)
+                .build(), received::add);
+
+        frame(label("A", 100, 100), label("B", 600, 100));
+        frame(label("A", 100, 100), label("B", 600, 100));
+        frame(label("A", 100, 100));
+        for (int i = 0; i < 20; i++) {
+            frame(label("A", 100, 100), label("B", 600, 100));
+        }
+
+        assertEquals(List.of("A", "B"), values(received));
+        assertEquals(3, received.get(0).get(0).getHits());
+    }
+
+    @Test
+    public void batchesCloseOnReadCountOrWindow() {
+        List<List<ScanResult>> received = new ArrayList<>();
+        hub.subscribe(new ScanResultsHub.Options.Builder(Runnable::run)
+                .batches(60, 5)
+                .build(), received::add);
+
+        frame(label("A", 100, 100), label("B", 600, 100), label("C", 100, 400));
+        frame(label("A", 100, 100), label("B", 600, 100), label("C", 100, 400));
+        assertEquals("five reads fill a batch", 1, received.size());
+        assertEquals(5, received.get(0).size());
+
+        frame();
+        assertEquals("window still open at 33 ms", 1, received.size());
+        frame();
+        assertEquals("window closed at 66 ms", 2, received.size());
+        assertEquals(List.of("C"), values(received.subList(1, 2)));
+    }
+
+    @Test
+    public void flushDeliversAnOpenWindow() {
+        List<List<ScanResult>> received = new ArrayList<>();
+        hub.subscribe(new ScanResultsHub.Options.Builder(Runnable::run)
+                .batches(10_000, 1000)
+                .build(), received::add);
+        frame(label("A", 100, 100));
+        frame(label("A", 100, 100));
+        assertTrue(received.isEmpty());
+
+        hub.close();
+
+        assertEquals(List.of("A", "A"), values(received));
+        assertEquals(0, hub.getSubscriberCount());
+        frame(label("A", 100, 100));
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    public void fullQueueDropsTheOldestDelivery() {
+        List<List<ScanResult>> received = new ArrayList<>();
+        ScanResultsHub.Subscription subscription = hub.subscribe(new ScanResultsHub.Options.Builder(pending::add)
+                .capacity(2)
+                .build(), received::add);
+
+        frame(label("A", 100, 100));
+        frame(label("B", 600, 100));
+        frame(label("C", 100, 400));
+        assertEquals(1, pending.size());
+        assertEquals(2, subscription.getQueuedCount());
+        runPending();
+
+        assertEquals(List.of("B", "C"), values(received));
+        assertEquals(2, subscription.getDeliveredCount());
+        assertEquals(1, subscription.getDroppedCount());
+    }
+
+    @Test
+    public void fullQueueCanDropTheNewestDelivery() {
+        List<List<ScanResult>> received = new ArrayList<>();
+        ScanResultsHub.Subscription subscription = hub.subscribe(new ScanResultsHub.Options.Builder(pending::add)
+                .capacity(2)
+                .overflow(ScanResultsHub.Overflow.DROP_NEWEST)
+                .build(), received::add);
+
+        frame(label("A", 100, 100));
+        frame(label("B", 600, 100));
+        frame(label("C", 100, 400));
+        runPending();
+
+        assertEquals(List.of("A", "B"), values(received));
+        assertEquals(1, subscription.getDroppedCount());
+    }
+
+    @Test
+    public void fullQueueCanCancelTheSubscription() {
+        List<List<ScanResult>> received = new ArrayList<>();
+        ScanResultsHub.Subscription subscription = hub.subscribe(new ScanResultsHub.Options.Builder(pending::add)
+                .capacity(2)
+                .overflow(ScanResultsHub.Overflow.CANCEL)
+                .build(), received::add);
+
+        frame(label("A", 100, 100));
+        frame(label("B", 600, 100));
+        frame(label("C", 100, 400));
+        runPending();
+
+        assertTrue(subscription.isCancelled());
+        assertTrue(received.isEmpty());
+        assertEquals(3, subscription.getDroppedCount());
+        assertEquals(0, hub.getSubscriberCount());
+    }
+
+    @Test
+    public void failingSubscriberIsCountedAndKeepsReceiving() {
+        List<List<ScanResult>> received = new ArrayList<>();
+        ScanResultsHub.Subscription failing = hub.subscribe(new ScanResultsHub.Options.Builder(Runnable::run).build(),
+                results -> {
+                    if (results.get(0).getValue().equals("B")) {
+                        throw new IllegalStateException("printer offline");
+                    }
+                    received.add(results);
+                });
+        List<List<ScanResult>> other = new ArrayList<>();
+        hub.subscribe(new ScanResultsHub.Options.Builder(Runnable::run).build(), other::add);
+
+        frame(label("A", 100, 100));
+        frame(label("B", 600, 100));
+        frame(label("C", 100, 400));
+
+        assertEquals(List.of("A", "C"), values(received));
+        assertEquals(List.of("A", "B", "C"), values(other));
+        assertEquals(2, failing.getDeliveredCount());
+        assertEquals(1, failing.getFailedCount());
+        assertEquals("printer offline", failing.getLastError().getMessage());
+    }
+
+    @Test
+    public void deliveriesAreUnmodifiable() {
+        List<List<ScanResult>> received = new ArrayList<>();
+        hub.subscribe(new ScanResultsHub.Options.Builder(Runnable::run).build(), received::add);
+        frame(label("A", 100, 100));
+        try {
+            received.get(0).clear();
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test
+    public void cancelledSubscriberHearsNothingQueued() {
+        List<List<ScanResult>> received = new ArrayList<>();
+        ScanResultsHub.Subscription subscription = hub.subscribe(
+                new ScanResultsHub.Options.Builder(pending::add).build(), received::add);
+        frame(label("A", 100, 100));
+        subscription.cancel();
+        frame(label("A", 100, 100));
+        runPending();
+
+        assertTrue(received.isEmpty());
+        assertEquals(1, subscription.getDroppedCount());
+    }
+
+    @Test
+    public void shutDownExecutorCancelsTheSubscription() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        ScanResultsHub.Subscription subscription = hub.subscribe(
+                new ScanResultsHub.Options.Builder(executor).build(), results -> fail());
+
+        frame(label("A", 100, 100));
+
+        assertTrue(subscription.isCancelled());
+        assertEquals(1, subscription.getDroppedCount());
+        assertNotNull(subscription.getLastError());
+    }
+
+    @Test
+    public void slowSubscriberNeverStallsTheTrackingThread() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService slowExecutor = Executors.newSingleThreadExecutor();
+        ExecutorService fastExecutor = Executors.newSingleThreadExecutor();
+        try {
+            ScanResultsHub.Subscription slow = hub.subscribe(new ScanResultsHub.Options.Builder(slowExecutor)
+                    .capacity(8)
+                    .build(), results -> awaitQuietly(release));
+            List<ScanResult> fastReceived = Collections.synchronizedList(new ArrayList<>());
+            ScanResultsHub.Subscription fast = hub.subscribe(new ScanResultsHub.Options.Builder(fastExecutor)
+                    .capacity(1000)
+                    .build(), fastReceived::addAll);
+
+            int frames = 500;
+            for (int i = 0; i < frames; i++) {
+                frame(label("A", 100, 100), label("B", 600, 100));
+            }
+            assertTrue("slow queue stays bounded", slow.getQueuedCount() <= 8);
+            assertTrue(slow.getDroppedCount() >= 2 * (frames - 9));
+
+            release.countDown();
+            slowExecutor.shutdown();
+            fastExecutor.shutdown();
+            assertTrue(slowExecutor.awaitTermination(5, TimeUnit.SECONDS));
+            assertTrue(fastExecutor.awaitTermination(5, TimeUnit.SECONDS));
+
+            assertEquals(2 * frames, fastReceived.size());
+            assertEquals(2 * frames, fast.getDeliveredCount());
+            assertEquals(0, fast.getDroppedCount());
+            assertEquals(2 * frames, slow.getDeliveredCount() + slow.getDroppedCount());
+        } finally {
+            release.countDown();
+            slowExecutor.shutdownNow();
+            fastExecutor.shutdownNow();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.samplebarcodescanner.roi;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RoiGeometryTest {
+    private static final int W = 640;
+    private static final int H = 480;
+
+    @Test
+    public void roundTripsForEveryRotation() {
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            int[] rect = {10, 20, 110, 70};
+            RoiGeometry.uprightToSensor(rect, W, H, rotation);
+            RoiGeometry.sensorToUpright(rect, W, H, rotation);
+            assertArrayEquals("rotation " + rotation, new int[]{10, 20, 110, 70}, rect);
+        }
+    }
+
+    @Test
+    public void rotation90MapsUprightTopLeftToSensorBottomLeft() {
+        // Upright image is 480 wide and 640 tall; its top-left corner is the sensor's bottom-left.
+        int[] rect = {0, 0, 10, 20};
+        RoiGeometry.uprightToSensor(rect, W, H, 90);
+        assertArrayEquals(new int[]{0, H - 10, 20, H}, rect);
+        assertEquals(H, RoiGeometry.uprightWidth(W, H, 90));
+        assertEquals(W, RoiGeometry.uprightHeight(W, H, 90));
+    }
+
+    @Test
+    public void rotation270MapsUprightTopLeftToSensorTopRight() {
+        int[] rect = {0, 0, 10, 20};
+        RoiGeometry.uprightToSensor(rect, W, H, 270);
+        assertArrayEquals(new int[]{W - 20, 0, W, 10}, rect);
+    }
+
+    @Test
+    public void cropDetectionsMapBackToFrameForEveryRotation() {
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            // A label at a known upright position in the full frame.
+            int[] label = {150, 200, 230, 260};
+            int[] sensor = label.clone();
+            RoiGeometry.uprightToSensor(sensor, W, H, rotation);
+
+            // Crop around it in sensor space, then express the label in the crop's upright space
+            // the way the detector would report it.
+            CropRegion crop = new CropRegion(sensor[0] - 40 & ~1, sensor[1] - 30 & ~1, 200, 160, W, H, rotation);
+            int[] inCrop = {sensor[0] - crop.getLeft(), sensor[1] - crop.getTop(),
+                    sensor[2] - crop.getLeft(), sensor[3] - crop.getTop()};
+            RoiGeometry.sensorToUpright(inCrop, crop.getWidth(), crop.getHeight(), rotation);
+
+            crop.mapToFrame(inCrop);
+            assertArrayEquals("rotation " + rotation, label, inCrop);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void oddCropIsRejected() {
+        new CropRegion(1, 0, 10, 10, W, H, 0);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.samplebarcodescanner.roi;
+
+import com.example.samplebarcodescanner.tracking.AssignmentTracker;
+import com.example.samplebarcodescanner.tracking.Detection;
+import com.example.samplebarcodescanner.tracking.Track;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RoiPlannerTest {
+    private static final int SENSOR_W = 1920;
+    private static final int SENSOR_H = 1080;
+    private static final long FRAME_NANOS = 33_000_000L;
+
+    @Test
+    public void firstPlanAndEveryNthPlanScanFullFrame() {
+        RoiPlanner planner = new RoiPlanner(4, RoiPlanner.DEFAULT_MAX_REGIONS, RoiPlanner.DEFAULT_MAX_COVERAGE);
+        AssignmentTracker tracker = new AssignmentTracker();
+        planner.onTracksUpdated(tracker.update(labels(200, 300, 900, 300), 0));
+
+        int full = 0;
+        for (int frame = 0; frame < 12; frame++) {
+            List<CropRegion> plan = planner.nextPlan(SENSOR_W, SENSOR_H, 90);
+            if (plan.isEmpty()) {
+                full++;
+                assertEquals("frame " + frame, 0, frame % 4);
+            } else {
+                assertEquals(2, plan.size());
+            }
+            planner.onTracksUpdated(tracker.update(labels(200, 300, 900, 300), (frame + 1) * FRAME_NANOS));
+        }
+        assertEquals(3, full);
+    }
+
+    @Test
+    public void cropsCoverTheirTracksInUprightSpace() {
+        RoiPlanner planner = new RoiPlanner(100, RoiPlanner.DEFAULT_MAX_REGIONS, RoiPlanner.DEFAULT_MAX_COVERAGE);
+        AssignmentTracker tracker = new AssignmentTracker();
+        List<Track> tracks = tracker.update(labels(200, 300, 700, 1500), 0);
+        planner.onTracksUpdated(tracks);
+        planner.nextPlan(SENSOR_W, SENSOR_H, 90); // scheduled full scan
+
+        List<CropRegion> plan = planner.nextPlan(SENSOR_W, SENSOR_H, 90);
+        assertEquals(2, plan.size());
+        for (Track track : tracks) {
+            boolean covered = false;
+            for (CropRegion crop : plan) {
+                int[] upright = {crop.getLeft(), crop.getTop(), crop.getLeft() + crop.getWidth(), crop.getTop() + crop.getHeight()};
+                RoiGeometry.sensorToUpright(upright, SENSOR_W, SENSOR_H, 90);
+                covered |= upright[0] <= track.getLeft() && upright[1] <= track.getTop()
+                        && upright[2] >= track.getRight() && upright[3] >= track.getBottom();
+            }
+            assertTrue("track " + track.getId() + " not covered", covered);
+        }
+    }
+
+    @Test
+    public void lostTrackForcesFullScan() {
+        RoiPlanner planner = new RoiPlanner(100, RoiPlanner.DEFAULT_MAX_REGIONS, RoiPlanner.DEFAULT_MAX_COVERAGE);
+        AssignmentTracker tracker = new AssignmentTracker();
+        planner.onTracksUpdated(tracker.update(labels(200, 300, 700, 900), 0));
+        planner.nextPlan(SENSOR_W, SENSOR_H, 0);
+        assertFalse(planner.nextPlan(SENSOR_W, SENSOR_H, 0).isEmpty());
+
+        // Only one of the two labels is seen: the other coasts and a full scan is requested.
+        planner.onTracksUpdated(tracker.update(labels(200, 300), FRAME_NANOS));
+        assertTrue(planner.nextPlan(SENSOR_W, SENSOR_H, 0).isEmpty());
+    }
+
+    @Test
+    public void nothingTrackedScansFullFrame() {
+        RoiPlanner planner = new RoiPlanner();
+        planner.onTracksUpdated(Collections.emptyList());
+        for (int i = 0; i < 5; i++) {
+            assertTrue(planner.nextPlan(SENSOR_W, SENSOR_H, 0).isEmpty());
+        }
+    }
+
+    @Test
+    public void denseShelfFallsBackToFullFrame() {
+        RoiPlanner planner = new RoiPlanner(100, RoiPlanner.DEFAULT_MAX_REGIONS, RoiPlanner.DEFAULT_MAX_COVERAGE);
+        AssignmentTracker tracker = new AssignmentTracker();
+        int[] coordinates = new int[80];
+        for (int i = 0; i < 40; i++) {
+            coordinates[i * 2] = 100 + (i % 8) * 220;
+            coordinates[i * 2 + 1] = 60 + (i / 8) * 200;
+        }
+        planner.onTracksUpdated(tracker.update(labels(coordinates), 0));
+        planner.nextPlan(SENSOR_W, SENSOR_H, 0);
+        assertTrue(planner.nextPlan(SENSOR_W, SENSOR_H, 0).isEmpty());
+    }
+
+    @Test
+    public void mergesOverlappingRegions() {
+        int[] rects = {0, 0, 100, 100, 50, 50, 150, 150, 400, 400, 500, 500, 140, 140, 200, 200};
+        int[] merged = RoiPlanner.mergeOverlapping(rects, 4);
+        assertEquals(8, merged.length);
+        assertArrayEquals(new int[]{0, 0, 200, 200}, new int[]{merged[0], merged[1], merged[2], merged[3]});
+    }
+
+    @Test
+    public void tracksFromAnotherResolutionAreScaledIntoTheFrame() {
+        RoiPlanner planner = new RoiPlanner(100, RoiPlanner.DEFAULT_MAX_REGIONS, RoiPlanner.DEFAULT_MAX_COVERAGE);
+        AssignmentTracker tracker = new AssignmentTracker();
+        // Tracked at 1920x1080, scanned at 960x540.
+        planner.onTracksUpdated(tracker.update(labels(400, 300), 0));
+        planner.nextPlan(SENSOR_W / 2, SENSOR_H / 2, 0, 0.5f); // scheduled full scan
+
+        List<CropRegion> plan = planner.nextPlan(SENSOR_W / 2, SENSOR_H / 2, 0, 0.5f);
+        assertEquals(1, plan.size());
+        CropRegion crop = plan.get(0);
+        assertTrue(crop.getLeft() <= 200 && crop.getLeft() + crop.getWidth() >= 200);
+        assertTrue(crop.getTop() <= 150 && crop.getTop() + crop.getHeight() >= 150);
+        assertTrue(crop.getLeft() + crop.getWidth() <= SENSOR_W / 2);
+    }
+
+    private static List<Detection> labels(int... centres) {
+        List<Detection> detections = new ArrayList<>();
+        for (int i = 0; i < centres.length; i += 2) {
+            detections.add(new Detection("label" + i, 0, centres[i] - 40, centres[i + 1] - 30,
+                    centres[i] + 40, centres[i + 1] + 30));
+        }
+        return detections;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.samplebarcodescanner.roi;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Crops synthetic YUV_420_888 planes whose bytes encode their own coordinates.
+ */
+public class YuvCropperTest {
+    private static final int W = 64;
+    private static final int H = 48;
+
+    @Test
+    public void cropsSemiPlanarPlanesWithRowPadding() {
+        assertCrop(W + 16, 2, W + 16);
+    }
+
+    @Test
+    public void cropsPlanarPlanes() {
+        assertCrop(W, 1, W / 2);
+    }
+
+    @Test
+    public void restoresSourceBufferState() {
+        Planes planes = new Planes(W, 1, W / 2);
+        planes.y.position(3);
+        CropRegion crop = new CropRegion(8, 8, 16, 16, W, H, 0);
+        ByteBuffer out = ByteBuffer.allocateDirect(crop.nv21Size());
+        YuvCropper.cropToNv21(planes.y, W, planes.u, planes.v, W / 2, 1, crop, out);
+        assertEquals(3, planes.y.position());
+        assertEquals(planes.y.capacity(), planes.y.limit());
+        assertEquals(0, out.position());
+        assertEquals(crop.nv21Size(), out.limit());
+    }
+
+    @Test
+    public void poolReusesReleasedBuffers() {
+        DirectBufferPool pool = new DirectBufferPool(4);
+        ByteBuffer first = pool.acquire(5000);
+        assertTrue(first.isDirect());
+        assertTrue(first.capacity() >= 5000);
+        pool.release(first);
+        ByteBuffer second = pool.acquire(6000);
+        assertSame(first, second);
+        assertEquals(1, pool.getAllocationCount());
+    }
+
+    private static void assertCrop(int yRowStride, int uvPixelStride, int uvRowStride) {
+        Planes planes = new Planes(yRowStride, uvPixelStride, uvRowStride);
+        CropRegion crop = new CropRegion(10, 6, 20, 14, W, H, 90);
+        ByteBuffer out = ByteBuffer.allocateDirect(crop.nv21Size());
+        YuvCropper.cropToNv21(planes.y, yRowStride, planes.u, planes.v, uvRowStride, uvPixelStride, crop, out);
+
+        for (int row = 0; row < crop.getHeight(); row++) {
+            for (int col = 0; col < crop.getWidth(); col++) {
+                assertEquals("Y " + col + "," + row, luma(crop.getLeft() + col, crop.getTop() + row),
+                        out.get(row * crop.getWidth() + col));
+            }
+        }
+        int chroma = crop.getWidth() * crop.getHeight();
+        for (int row = 0; row < crop.getHeight() / 2; row++) {
+            for (int col = 0; col < crop.getWidth() / 2; col++) {
+                int cx = crop.getLeft() / 2 + col;
+                int cy = crop.getTop() / 2 + row;
+                int index = chroma + (row * crop.getWidth() / 2 + col) * 2;
+                assertEquals("V " + cx + "," + cy, chromaV(cx, cy), out.get(index));
+                assertEquals("U " + cx + "," + cy, chromaU(cx, cy), out.get(index + 1));
+            }
+        }
+    }
+
+    private static byte luma(int x, int y) {
+        return (byte) (x * 3 + y * 7);
+    }
+
+    private static byte chromaU(int x, int y) {
+        return (byte) (x * 5 + y * 11 + 1);
+    }
+
+    private static byte chromaV(int x, int y) {
+        return (byte) (x * 13 + y * 2 + 2);
+    }
+
+    /** Y, U and V planes laid out like a camera would, including stride padding. */
+    private static final class Planes {
+        final ByteBuffer y;
+        final ByteBuffer u;
+        final ByteBuffer v;
+
+        Planes(int yRowStride, int uvPixelStride, int uvRowStride) {
+            byte[] yBytes = new byte[yRowStride * H];
+            for (int row = 0; row < H; row++) {
+                for (int col = 0; col < W; col++) {
+                    yBytes[row * yRowStride + col] = luma(col, row);
+                }
+            }
+            y = ByteBuffer.wrap(yBytes);
+            if (uvPixelStride == 2) {
+                // Semi-planar: U and V views share one interleaved buffer offset by a byte.
+                byte[] uv = new byte[uvRowStride * H / 2 + 1];
+                for (int row = 0; row < H / 2; row++) {
+                    for (int col = 0; col < W / 2; col++) {
+                        uv[row * uvRowStride + col * 2] = chromaV(col, row);
+                        uv[row * uvRowStride + col * 2 + 1] = chromaU(col, row);
+                    }
+                }
+                v = ByteBuffer.wrap(uv);
+                ByteBuffer shifted = ByteBuffer.wrap(uv);
+                shifted.position(1);
+                u = shifted.slice();
+            } else {
+                byte[] uBytes = new byte[uvRowStride * H / 2];
+                byte[] vBytes = new byte[uvRowStride * H / 2];
+                for (int row = 0; row < H / 2; row++) {
+                    for (int col = 0; col < W / 2; col++) {
+                        uBytes[row * uvRowStride + col] = chromaU(col, row);
+                        vBytes[row * uvRowStride + col] = chromaV(col, row);
+                    }
+                }
+                u = ByteBuffer.wrap(uBytes);
+                v = ByteBuffer.wrap(vBytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.samplebarcodescanner.schedule;
+
+import com.example.samplebarcodescanner.tracking.AssignmentTracker;
+import com.example.samplebarcodescanner.tracking.Detection;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MotionGateTest {
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+    // Camera planes are often padded past the image width.
+    private static final int ROW_STRIDE = 1984;
+
+    /** A textured shelf: smooth gradients plus fine detail, as a Y plane. */
+    private static byte[] scene(long seed) {
+        Random random = new Random(seed);
+        byte[] plane = new byte[ROW_STRIDE * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int value = 40 + (x * 120 / WIDTH) + ((y / 90) % 2) * 50 + random.nextInt(16);
+                plane[y * ROW_STRIDE + x] = (byte) value;
+            }
+        }
+        return plane;
+    }
+
+    /** {@code plane} with per-pixel sensor noise of up to {@code amplitude} levels. */
+    private static byte[] noisy(byte[] plane, int amplitude, long seed) {
+        Random random = new Random(seed);
+        byte[] copy = plane.clone();
+        for (int i = 0; i < copy.length; i++) {
+            int value = (copy[i] & 0xff) + random.nextInt(2 * amplitude + 1) - amplitude;
+            copy[i] = (byte) Math.max(0, Math.min(255, value));
+        }
+        return copy;
+    }
+
+    private static byte[] brighter(byte[] plane, int levels) {
+        byte[] copy = plane.clone();
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = (byte) Math.min(255, (copy[i] & 0xff) + levels);
+        }
+        return copy;
+    }
+
+    /** {@code plane} with a {@code size} square of flat gray at {@code x, y}. */
+    private static byte[] withPatch(byte[] plane, int x, int y, int size) {
+        byte[] copy = plane.clone();
+        for (int row = y; row < y + size; row++) {
+            for (int column = x; column < x + size; column++) {
+                copy[row * ROW_STRIDE + column] = (byte) 250;
+            }
+        }
+        return copy;
+    }
+
+    /** Asks the gate about {@code plane} and, if it says to scan, hands the frame on. */
+    private static boolean scan(MotionGate gate, byte[] plane) {
+        boolean scan = gate.shouldScan(ByteBuffer.wrap(plane), ROW_STRIDE, WIDTH, HEIGHT);
+        gate.commit();
+        return scan;
+    }
+
+    private static MotionGate stableGate(MotionGate.Builder builder) {
+        MotionGate gate = builder.build();
+        gate.onTracks(Collections.emptyList(), 0);
+        return gate;
+    }
+
+    @Test
+    public void unchangedSceneIsSkippedUntilTheRefreshInterval() {
+        MotionGate gate = stableGate(new MotionGate.Builder().maxSkippedFrames(3));
+        byte[] shelf = scene(1);
+        assertTrue("no reference yet", scan(gate, shelf));
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < 3; i++) {
+                assertFalse(scan(gate, noisy(shelf, 3, round * 10 + i)));
+            }
+            assertTrue("forced refresh", scan(gate, shelf));
+        }
+        assertEquals(3, gate.getScannedCount());
+        assertEquals(6, gate.getSkippedCount());
+    }
+
+    @Test
+    public void motionAnywhereIsScanned() {
+        MotionGate gate = stableGate(new MotionGate.Builder().maxSkippedFrames(100));
+        byte[] shelf = scene(1);
+        scan(gate, shelf);
+        assertTrue("a new scene", scan(gate, scene(2)));
+        assertTrue("a hand in one corner", scan(gate, withPatch(scene(2), 1600, 800, 200)));
+        assertFalse(scan(gate, withPatch(scene(2), 1600, 800, 200)));
+    }
+
+    @Test
+    public void changedFrameThatIsNotScannedStaysChanged() {
+        MotionGate gate = stableGate(new MotionGate.Builder().maxSkippedFrames(100));
+        scan(gate, scene(1));
+
+        // The scheduler drops the frame, so it never reaches the detector.
+        assertTrue(gate.shouldScan(ByteBuffer.wrap(scene(2)), ROW_STRIDE, WIDTH, HEIGHT));
+
+        assertTrue("still a new scene", scan(gate, noisy(scene(2), 3, 1)));
+        assertFalse(scan(gate, noisy(scene(2), 3, 2)));
+        assertEquals(2, gate.getScannedCount());
+    }
+
+    @Test
+    public void gradualDriftAccumulatesAgainstTheLastScannedFrame() {
+        MotionGate gate = stableGate(new MotionGate.Builder().maxSkippedFrames(100).maxHistogramDistance(1f));
+        byte[] shelf = scene(1);
+        scan(gate, shelf);
+        int scans = 0;
+        for (int levels = 1; levels <= 12; levels++) {
+            scans += scan(gate, brighter(shelf, levels)) ? 1 : 0;
+        }
+        assertEquals("scanned once the drift passed the threshold", 2, scans);
+    }
+
+    @Test
+    public void histogramAloneSeparatesExposureChangesFromNoise() {
+        // Sample thresholds out of reach, so only the histogram can report a change.
+        MotionGate gate = stableGate(new MotionGate.Builder().meanDifference(255).changedSamples(255, 1f)
+                .maxHistogramDistance(0.08f).maxSkippedFrames(100));
+        byte[] shelf = scene(1);
+        scan(gate, shelf);
+        assertFalse(scan(gate, noisy(shelf, 3, 7)));
+        assertTrue(scan(gate, brighter(shelf, 12)));
+    }
+
+    @Test
+    public void unstableTracksAreAlwaysScanned() {
+        MotionGate gate = new MotionGate();
+        byte[] shelf = scene(1);
+        scan(gate, shelf);
+        assertTrue("no tracks reported yet", scan(gate, shelf));
+
+        AssignmentTracker tracker = new AssignmentTracker();
+        List<Detection> label = Collections.singletonList(new Detection("a", 0, 100, 100, 300, 160));
+        gate.onTracks(tracker.update(label, 0), 0);
+        assertFalse(scan(gate, shelf));
+        gate.onTracks(tracker.update(Collections.emptyList(), 33_000_000L), 33_000_000L);
+        assertTrue("a track went unmatched", scan(gate, shelf));
+    }
+
+    @Test
+    public void bufferPositionIsRespectedAndLeftAlone() {
+        MotionGate gate = stableGate(new MotionGate.Builder());
+        byte[] shelf = scene(1);
+        byte[] padded = new byte[shelf.length + 64];
+        System.arraycopy(shelf, 0, padded, 64, shelf.length);
+        ByteBuffer buffer = ByteBuffer.wrap(padded);
+        buffer.position(64);
+        scan(gate, shelf);
+        assertFalse(gate.shouldScan(buffer, ROW_STRIDE, WIDTH, HEIGHT));
+        assertEquals(64, buffer.position());
+        assertTrue("size changed", gate.shouldScan(buffer, ROW_STRIDE, WIDTH / 2, HEIGHT / 2));
+    }
+
+    @Test
+    public void gateIsAllocationFree() {
+        MotionGate gate = stableGate(new MotionGate.Builder().maxSkippedFrames(Integer.MAX_VALUE));
+        ByteBuffer plane = ByteBuffer.allocateDirect(ROW_STRIDE * HEIGHT);
+        plane.put(scene(1)).clear();
+        for (int i = 0; i < 5_000; i++) {
+            gate.shouldScan(plane, ROW_STRIDE, WIDTH, HEIGHT);
+            gate.commit();
+        }
+        long allocatedBefore = allocatedBytes();
+        for (int i = 0; i < 5_000; i++) {
+            gate.shouldScan(plane, ROW_STRIDE, WIDTH, HEIGHT);
+            gate.commit();
+        }
+        long allocated = allocatedBytes() - allocatedBefore;
+        if (allocatedBefore >= 0) {
+            assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+        }
+    }
+
+    /** Bytes allocated by this thread, or -1 if the JVM cannot tell. */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        if (!(mx instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) mx;
+        return threads.isThreadAllocatedMemorySupported()
+                ? threads.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.samplebarcodescanner.schedule;
+
+import com.example.samplebarcodescanner.format.BarcodeFormats;
+import com.example.samplebarcodescanner.tracking.Detection;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ResolutionControllerTest {
+    private static final int[] LADDER = {640, 1280, 1920};
+
+    private static ResolutionController.Builder controller() {
+        return new ResolutionController.Builder(LADDER).confirmFrames(2).windowFrames(4).cooldownFrames(2)
+                .idleFrames(5);
+    }
+
+    /** An EAN-13 (95 modules) whose bars span {@code widthPx}. */
+    private static List<Detection> ean(int widthPx) {
+        return Collections.singletonList(new Detection("4006381333931", BarcodeFormats.EAN_13, 100, 100,
+                100 + widthPx, 160));
+    }
+
+    /**
+     * Replays label widths, given in pixels of a 1920-pixel frame, through the controller, as
+     * frames at its current resolution would show them. Returns the level after each frame.
+     */
+    private static int[] replay(ResolutionController controller, int... widthsAt1920) {
+        int[] levels = new int[widthsAt1920.length];
+        for (int i = 0; i < widthsAt1920.length; i++) {
+            int longEdge = LADDER[controller.getLevel()];
+            List<Detection> detections = widthsAt1920[i] > 0
+                    ? ean(widthsAt1920[i] * longEdge / 1920)
+                    : Collections.emptyList();
+            levels[i] = controller.onFrame(detections, longEdge * 9 / 16, longEdge);
+        }
+        return levels;
+    }
+
+    @Test
+    public void largeLabelsStepDownOneLevelAtATime() {
+        ResolutionController controller = controller().build();
+        // 900 px at 1920 is ~9.5 px/module; 640 still gives ~3.2 px.
+        int[] levels = replay(controller, 900, 900, 900, 900, 900, 900, 900, 900, 900, 900, 900, 900, 900);
+        assertArrayEquals(new int[]{2, 2, 2, 1, 1, 1, 1, 1, 1, 0, 0, 0, 0}, levels);
+        assertEquals(2, controller.getStepDownCount());
+    }
+
+    @Test
+    public void staysWhereTheLowerLevelWouldBeMarginal() {
+        ResolutionController controller = controller().build();
+        // ~4.2 px/module at 1920, ~2.8 at 1280: readable, but not comfortably.
+        int[] levels = replay(controller, 400, 400, 400, 400, 400, 400, 400, 400);
+        assertArrayEquals(new int[]{2, 2, 2, 2, 2, 2, 2, 2}, levels);
+    }
+
+    @Test
+    public void smallLabelsStepBackUpAfterConfirmation() {
+        ResolutionController controller = controller().initialLevel(0).build();
+        // 400 px at 1920 is ~1.4 px/module at 640.
+        int[] levels = replay(controller, 400, 400, 400, 400, 400, 400, 400);
+        assertArrayEquals(new int[]{0, 1, 1, 1, 1, 1, 1}, levels);
+        assertEquals(1, controller.getStepUpCount());
+    }
+
+    @Test
+    public void oneSmallOutlierDoesNotStepUp() {
+        ResolutionController controller = controller().initialLevel(1).build();
+        int[] levels = replay(controller, 600, 200, 600, 600, 200, 600);
+        assertArrayEquals(new int[]{1, 1, 1, 1, 1, 1}, levels);
+    }
+
+    @Test
+    public void theSmallestLabelInViewDecides() {
+        ResolutionController controller = controller().windowFrames(2).build();
+        List<Detection> mixed = new ArrayList<>(ean(1800));
+        mixed.addAll(ean(200));
+        for (int i = 0; i < 10; i++) {
+            controller.onFrame(mixed, 1080, 1920);
+        }
+        assertEquals(2, controller.getLevel());
+    }
+
+    @Test
+    public void noReadsForAWhileStepsUpToSearch() {
+        ResolutionController controller = controller().initialLevel(0).build();
+        int[] levels = replay(controller, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+        assertArrayEquals(new int[]{0, 0, 0, 0, 1, 1, 1, 1, 1, 1, 1, 2, 2, 2}, levels);
+    }
+
+    @Test
+    public void twoDimensionalCodesUseTheirShortSide() {
+        ResolutionController controller = controller().initialLevel(0).build();
+        // A 25-module QR code 30 px tall: 1.2 px/module, even though it is 600 px wide.
+        List<Detection> qr = Collections.singletonList(new Detection("q", BarcodeFormats.QR_CODE, 0, 0, 600, 30));
+        controller.onFrame(qr, 360, 640);
+        assertEquals(1, controller.onFrame(qr, 360, 640));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ladderMustAscend() {
+        new ResolutionController.Builder(1280, 640);
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.samplebarcodescanner.schedule;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives {@link ScanScheduler} with a fake clock and thermal source at a 30 fps camera cadence.
+ */
+public class ScanSchedulerTest {
+    private static final long FRAME_NANOS = 33_333_333L;
+    private static final long MS = 1_000_000L;
+
+    private final FakeClock clock = new FakeClock();
+    private final FakeThermal thermal = new FakeThermal();
+
+    @Test
+    public void boundsFramesInFlight() {
+        ScanScheduler scheduler = new ScanScheduler(2, 60 * MS, clock, thermal);
+        long first = scheduler.tryBeginFrame();
+        clock.advance(FRAME_NANOS);
+        long second = scheduler.tryBeginFrame();
+        clock.advance(FRAME_NANOS);
+        assertTrue(first >= 0 && second >= 0);
+        assertEquals(-1, scheduler.tryBeginFrame());
+        assertEquals(2, scheduler.getInFlight());
+
+        scheduler.endFrame(first);
+        assertTrue(scheduler.tryBeginFrame() >= 0);
+        assertEquals(1, scheduler.getThrottledCount());
+    }
+
+    @Test
+    public void cheapFramesRunAtFullRate() {
+        ScanScheduler scheduler = new ScanScheduler(1, 60 * MS, clock, thermal);
+        int admitted = run(scheduler, 90, 15 * MS);
+        assertEquals(90, admitted);
+        assertEquals(0, scheduler.getTargetIntervalNanos());
+        assertEquals(Float.POSITIVE_INFINITY, scheduler.getTargetRate(), 0f);
+    }
+
+    @Test
+    public void slowDetectorThrottlesAndRecovers() {
+        ScanScheduler scheduler = new ScanScheduler(2, 60 * MS, clock, thermal);
+        run(scheduler, 60, 120 * MS);
+        long throttledInterval = scheduler.getTargetIntervalNanos();
+        assertTrue("interval " + throttledInterval, throttledInterval > FRAME_NANOS);
+        int admittedWhileSlow = run(scheduler, 90, 120 * MS);
+        assertTrue("admitted " + admittedWhileSlow, admittedWhileSlow < 45);
+
+        // Detector gets fast again: the interval decays back to full rate.
+        run(scheduler, 300, 10 * MS);
+        assertEquals(0, scheduler.getTargetIntervalNanos());
+        assertEquals(90, run(scheduler, 90, 10 * MS));
+    }
+
+    @Test
+    public void thermalStatusImposesAFloor() {
+        ScanScheduler scheduler = new ScanScheduler(2, 60 * MS, clock, thermal);
+        thermal.status = ThermalSource.STATUS_SEVERE;
+        int admitted = run(scheduler, 90, 5 * MS);
+        // Three seconds at 30 fps, capped at 4 fps.
+        assertTrue("admitted " + admitted, admitted <= 13 && admitted >= 11);
+        assertEquals(4f, scheduler.getTargetRate(), 0.01f);
+
+        thermal.status = ThermalSource.STATUS_NONE;
+        clock.advance(1_000 * MS); // let the next poll see the new status
+        assertEquals(90, run(scheduler, 90, 5 * MS));
+    }
+
+    @Test
+    public void thermalSourceIsPolledAtMostOncePerSecond() {
+        ScanScheduler scheduler = new ScanScheduler(2, 60 * MS, clock, thermal);
+        run(scheduler, 60, 5 * MS);
+        assertEquals(2, thermal.polls);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unmatchedEndFrameFails() {
+        new ScanScheduler(clock, thermal).endFrame(0);
+    }
+
+    /**
+     * Offers {@code frames} camera frames; each admitted frame completes {@code latency} later
+     * or, if that is beyond the next frame, when the next frame arrives.
+     */
+    private int run(ScanScheduler scheduler, int frames, long latency) {
+        int admitted = 0;
+        long[] pending = new long[4];
+        long[] pendingEnd = new long[4];
+        int pendingCount = 0;
+        for (int f = 0; f < frames; f++) {
+            long frameTime = clock.now;
+            for (int i = 0; i < pendingCount; ) {
+                if (pendingEnd[i] <= frameTime) {
+                    clock.now = pendingEnd[i];
+                    scheduler.endFrame(pending[i]);
+                    pending[i] = pending[--pendingCount];
+                    pendingEnd[i] = pendingEnd[pendingCount];
+                } else {
+                    i++;
+                }
+            }
+            clock.now = frameTime;
+            long start = scheduler.tryBeginFrame();
+            if (start >= 0) {
+                admitted++;
+                pending[pendingCount] = start;
+                pendingEnd[pendingCount++] = start + latency;
+            }
+            clock.advance(FRAME_NANOS);
+        }
+        for (int i = 0; i < pendingCount; i++) {
+            clock.now = Math.max(clock.now, pendingEnd[i]);
+            scheduler.endFrame(pending[i]);
+        }
+        return admitted;
+    }
+
+    private static final class FakeClock implements Clock {
+        long now = 1_000_000_000L;
+
+        void advance(long nanos) {
+            now += nanos;
+        }
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+    }
+
+    private static final class FakeThermal implements ThermalSource {
+        int status = STATUS_NONE;
+        int polls;
+
+        @Override
+        public int getThermalStatus() {
+            polls++;
+            return status;
+        }
+    }
+}
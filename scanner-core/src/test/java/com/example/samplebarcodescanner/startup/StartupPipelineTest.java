@@ -0,0 +1,135 @@
+package com.example.samplebarcodescanner.startup;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class StartupPipelineTest {
+    private final List<Runnable> background = new ArrayList<>();
+    private final List<Runnable> idle = new ArrayList<>();
+
+    private static void drain(List<Runnable> queue) {
+        while (!queue.isEmpty()) {
+            queue.remove(0).run();
+        }
+    }
+
+    @Test
+    public void idleTasksWaitForIdleThenRunInTheBackground() {
+        StartupPipeline pipeline = new StartupPipeline();
+        List<String> ran = new ArrayList<>();
+        StartupPipeline.Task<String> model = pipeline.background("model", () -> {
+            ran.add("model");
+            return "warm";
+        });
+        StartupPipeline.Task<String> beep = pipeline.idle("beep", () -> {
+            ran.add("beep");
+            return "player";
+        });
+
+        pipeline.start(background::add, idle::add);
+        assertEquals(1, background.size());
+        drain(background);
+        assertEquals(List.of("model"), ran);
+        assertFalse(beep.isDone());
+        assertNull(beep.getIfDone());
+
+        drain(idle);
+        assertFalse("idle hands over to the background", beep.isDone());
+        drain(background);
+        assertEquals(List.of("model", "beep"), ran);
+        assertEquals("warm", model.getIfDone());
+        assertEquals("player", beep.get());
+    }
+
+    @Test
+    public void getRunsATaskNotYetStartedOnceOnTheCaller() {
+        StartupPipeline pipeline = new StartupPipeline();
+        AtomicInteger runs = new AtomicInteger();
+        StartupPipeline.Task<Integer> beep = pipeline.idle("beep", runs::incrementAndGet);
+        pipeline.start(background::add, idle::add);
+
+        assertEquals(Integer.valueOf(1), beep.get());
+        assertEquals(Thread.currentThread().getName(), beep.getThread());
+        drain(idle);
+        drain(background);
+
+        assertEquals(1, runs.get());
+        assertEquals(Integer.valueOf(1), beep.get());
+    }
+
+    @Test
+    public void getWaitsForATaskAlreadyRunning() throws Exception {
+        StartupPipeline pipeline = new StartupPipeline();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        StartupPipeline.Task<String> model = pipeline.background("model", () -> {
+            runs.incrementAndGet();
+            running.countDown();
+            release.await();
+            return "warm";
+        });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            pipeline.start(executor, idle::add);
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+            new Thread(() -> {
+                sleep(50);
+                release.countDown();
+            }).start();
+
+            assertEquals("warm", model.get());
+            assertEquals(1, runs.get());
+            assertTrue(model.getElapsedNanos() >= TimeUnit.MILLISECONDS.toNanos(40));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void failedTaskYieldsNullAndKeepsItsError() {
+        StartupPipeline pipeline = new StartupPipeline();
+        StartupPipeline.Task<String> camera = pipeline.background("camera", () -> {
+            throw new IOException("no camera");
+        });
+        pipeline.start(background::add, idle::add);
+        assertNull(camera.getError());
+
+        drain(background);
+
+        assertTrue(camera.isDone());
+        assertNull(camera.get());
+        assertNull(camera.getIfDone());
+        assertEquals("no camera", camera.getError().getMessage());
+    }
+
+    @Test
+    public void tasksCannotBeAddedAfterStart() {
+        StartupPipeline pipeline = new StartupPipeline();
+        pipeline.start(background::add, idle::add);
+        assertTrue("nothing idle, nothing scheduled", idle.isEmpty());
+        try {
+            pipeline.background("late", () -> null);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.samplebarcodescanner.sync;
+
+import com.example.samplebarcodescanner.journal.JournalEntry;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-process stand-in for the sync endpoint: stores each batch ID once, answers 409 to a repeat,
+ * and fails a given number of upcoming requests on demand.
+ */
+final class StandInSyncServer implements Closeable {
+    enum Fault {
+        /** 503 without storing the batch. */
+        UNAVAILABLE,
+        /** Stores the batch, then answers 500, as if the response was lost on the way back. */
+        LOSE_RESPONSE,
+        /** 400 without storing the batch. */
+        REJECT
+    }
+
+    private final HttpServer server;
+    private final Map<String, List<JournalEntry>> batches = new LinkedHashMap<>();
+    private final List<String> requestIds = new ArrayList<>();
+    private final List<Long> requestNanos = new ArrayList<>();
+    private Fault fault;
+    private int faultsLeft;
+    private int duplicateCount;
+
+    StandInSyncServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/batches", this::handle);
+        server.start();
+    }
+
+    URL url() throws IOException {
+        return new URL("http", server.getAddress().getHostString(), server.getAddress().getPort(), "/batches");
+    }
+
+    /** Fails the next {@code requests} requests with {@code fault}. */
+    synchronized void fail(Fault fault, int requests) {
+        this.fault = fault;
+        faultsLeft = requests;
+    }
+
+    synchronized List<String> requestIds() {
+        return new ArrayList<>(requestIds);
+    }
+
+    synchronized List<Long> requestNanos() {
+        return new ArrayList<>(requestNanos);
+    }
+
+    synchronized List<String> batchIds() {
+        return new ArrayList<>(batches.keySet());
+    }
+
+    synchronized List<List<JournalEntry>> batches() {
+        return new ArrayList<>(batches.values());
+    }
+
+    /** Every stored read, in the order the batches arrived. */
+    synchronized List<JournalEntry> received() {
+        List<JournalEntry> received = new ArrayList<>();
+        for (List<JournalEntry> batch : batches.values()) {
+            received.addAll(batch);
+        }
+        return received;
+    }
+
+    synchronized int receivedCount() {
+        int count = 0;
+        for (List<JournalEntry> batch : batches.values()) {
+            count += batch.size();
+        }
+        return count;
+    }
+
+    synchronized int duplicateCount() {
+        return duplicateCount;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        byte[] body = readAll(exchange.getRequestBody());
+        String id = exchange.getRequestHeaders().getFirst(HttpSyncTransport.IDEMPOTENCY_HEADER);
+        int status;
+        synchronized (this) {
+            requestIds.add(id);
+            requestNanos.add(System.nanoTime());
+            Fault current = faultsLeft > 0 ? fault : null;
+            if (current != null) {
+                faultsLeft--;
+            }
+            if (current == Fault.UNAVAILABLE) {
+                status = 503;
+            } else if (current == Fault.REJECT || id == null) {
+                status = 400;
+            } else if (batches.containsKey(id)) {
+                duplicateCount++;
+                status = 409;
+            } else {
+                try {
+                    batches.put(id, SyncBatchCodec.decode(body));
+                    status = current == Fault.LOSE_RESPONSE ? 500 : 200;
+                } catch (IOException e) {
+                    status = 400;
+                }
+            }
+        }
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int n; (n = in.read(buffer)) != -1; ) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
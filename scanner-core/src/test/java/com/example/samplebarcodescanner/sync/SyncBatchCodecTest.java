@@ -0,0 +1,115 @@
+package com.example.samplebarcodescanner.sync;
+
+import com.example.samplebarcodescanner.journal.JournalEntry;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SyncBatchCodecTest {
+    private static void assertSameEntries(List<JournalEntry> expected, List<JournalEntry> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            JournalEntry e = expected.get(i);
+            JournalEntry a = actual.get(i);
+            assertEquals(e.getSequence(), a.getSequence());
+            assertEquals(e.getTimestampMillis(), a.getTimestampMillis());
+            assertEquals(e.getTrackId(), a.getTrackId());
+            assertEquals(e.getFormat(), a.getFormat());
+            assertEquals(e.getValue(), a.getValue());
+        }
+    }
+
+    /** A shelf sweep: consecutive reads a few hundred ms apart, 40 products read over and over. */
+    private static List<JournalEntry> sweep(int reads, long firstSequence) {
+        Random random = new Random(7);
+        List<JournalEntry> entries = new ArrayList<>(reads);
+        long timestamp = 1_700_000_000_000L;
+        for (int i = 0; i < reads; i++) {
+            timestamp += 50 + random.nextInt(400);
+            String value = String.format(Locale.ROOT, "(01)0400638%07d(10)LOT%d", random.nextInt(40) * 131, i / 100);
+            entries.add(new JournalEntry(firstSequence + i, timestamp, 1000 + i / 3, 32, value));
+        }
+        return entries;
+    }
+
+    private static int rawSize(List<JournalEntry> entries) {
+        // Sequence, timestamp, track ID and format as fixed-width fields, then the UTF-8 value.
+        int bytes = 0;
+        for (JournalEntry entry : entries) {
+            bytes += 8 + 8 + 4 + 4 + 2 + entry.getValue().getBytes(StandardCharsets.UTF_8).length;
+        }
+        return bytes;
+    }
+
+    @Test
+    public void roundTripsEveryField() throws IOException {
+        List<JournalEntry> entries = Arrays.asList(
+                new JournalEntry(41, 1_700_000_000_000L, 7, 32, "4006381333931"),
+                new JournalEntry(42, 1_700_000_000_250L, -3, 256, "https://example.com/p?id=ü€"),
+                // Clock stepped back, value repeated, gap in sequences after a discard.
+                new JournalEntry(45, 1_699_999_999_000L, Integer.MAX_VALUE, Integer.MIN_VALUE, "4006381333931"),
+                new JournalEntry(46, 1_699_999_999_000L, Integer.MIN_VALUE, 0, ""));
+
+        assertSameEntries(entries, SyncBatchCodec.decode(SyncBatchCodec.encode(entries)));
+    }
+
+    @Test
+    public void roundTripsAnEmptyBatch() throws IOException {
+        assertTrue(SyncBatchCodec.decode(SyncBatchCodec.encode(Collections.emptyList())).isEmpty());
+    }
+
+    @Test
+    public void sweepCompressesFarBelowFixedWidthRecords() throws IOException {
+        List<JournalEntry> entries = sweep(500, 1_000_000);
+        byte[] batch = SyncBatchCodec.encode(entries);
+
+        assertSameEntries(entries, SyncBatchCodec.decode(batch));
+        int raw = rawSize(entries);
+        assertTrue(batch.length + " of " + raw, batch.length * 8 < raw);
+    }
+
+    @Test
+    public void outOfOrderEntriesAreRefused() {
+        try {
+            SyncBatchCodec.encode(Arrays.asList(
+                    new JournalEntry(2, 0, 1, 32, "a"),
+                    new JournalEntry(1, 0, 1, 32, "a")));
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void corruptBatchesFailWithIOException() {
+        byte[] batch = SyncBatchCodec.encode(sweep(50, 1));
+        byte[][] corrupt = {
+                new byte[0],
+                Arrays.copyOf(batch, 4),
+                Arrays.copyOf(batch, batch.length / 2),
+                badMagic(batch),
+        };
+        for (byte[] bytes : corrupt) {
+            try {
+                SyncBatchCodec.decode(bytes);
+                fail("decoded " + bytes.length + " bytes");
+            } catch (IOException expected) {
+            }
+        }
+    }
+
+    private static byte[] badMagic(byte[] batch) {
+        byte[] copy = batch.clone();
+        copy[0] ^= 0x55;
+        return copy;
+    }
+}
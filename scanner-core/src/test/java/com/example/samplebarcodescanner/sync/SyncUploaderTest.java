@@ -0,0 +1,214 @@
+package com.example.samplebarcodescanner.sync;
+
+import com.example.samplebarcodescanner.journal.JournalEntry;
+import com.example.samplebarcodescanner.journal.ScanJournal;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+public class SyncUploaderTest {
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private StandInSyncServer server;
+    private File journalDir;
+    private File stateFile;
+    private ScanJournal journal;
+    private SyncUploader uploader;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StandInSyncServer();
+        journalDir = folder.newFolder("journal");
+        stateFile = new File(folder.getRoot(), "sync-state");
+        journal = ScanJournal.open(journalDir);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (uploader != null) {
+            uploader.close();
+        }
+        journal.close();
+        server.close();
+    }
+
+    private static String value(long i) {
+        return "(01)0400638" + String.format("%07d", i % 300) + "(10)LOT" + (i / 1000);
+    }
+
+    private void appendAll(long from, long to) {
+        for (long i = from; i <= to; i++) {
+            assertEquals(i, journal.append(1_700_000_000_000L + 200 * i, (int) (i / 4), 32, value(i)));
+        }
+    }
+
+    private SyncUploader.Builder uploader() throws IOException {
+        return SyncUploader.builder(journal, new HttpSyncTransport(server.url()), stateFile)
+                .jitter(0)
+                .backoff(20, 1000);
+    }
+
+    private static void await(String what, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("timed out waiting for " + what);
+            }
+            Thread.sleep(2);
+        }
+    }
+
+    private static void assertExactlyOnce(List<JournalEntry> received, long first, long last) {
+        assertEquals(last - first + 1, received.size());
+        Set<Long> seen = new HashSet<>();
+        for (JournalEntry entry : received) {
+            assertTrue("duplicate " + entry.getSequence(), seen.add(entry.getSequence()));
+            assertEquals(value(entry.getSequence()), entry.getValue());
+        }
+        for (long i = first; i <= last; i++) {
+            assertTrue("missing " + i, seen.contains(i));
+        }
+    }
+
+    @Test
+    public void fullBatchesGoOutWithoutWaitingForTheDelay() throws Exception {
+        uploader = uploader().batches(60_000, 100).start();
+        appendAll(1, 1000);
+
+        // The server stores a batch before it answers, so wait for the uploader to hear back.
+        await("ten batches", () -> uploader.getNextSequence() == 1001);
+
+        for (List<JournalEntry> batch : server.batches()) {
+            assertEquals(100, batch.size());
+        }
+        assertExactlyOnce(server.received(), 1, 1000);
+        assertEquals(10, uploader.getUploadedBatchCount());
+        assertEquals(1001, uploader.getNextSequence());
+        assertEquals("uploaded reads are released from the journal", 0, journal.read(0, 10, new ArrayList<>()));
+    }
+
+    @Test
+    public void partialBatchGoesOutAfterTheDelay() throws Exception {
+        uploader = uploader().batches(200, 1000).start();
+        long start = System.nanoTime();
+        appendAll(1, 10);
+
+        await("the partial batch", () -> server.receivedCount() == 10);
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("sent after " + elapsedMillis + " ms", elapsedMillis >= 200);
+        assertEquals(1, server.batches().size());
+        assertExactlyOnce(server.received(), 1, 10);
+    }
+
+    @Test
+    public void outageIsRetriedWithGrowingBackoffAndNothingLostOrDoubled() throws Exception {
+        server.fail(StandInSyncServer.Fault.UNAVAILABLE, 4);
+        uploader = uploader().batches(50, 100).start();
+        appendAll(1, 250);
+
+        await("every read", () -> server.receivedCount() == 250);
+
+        assertExactlyOnce(server.received(), 1, 250);
+        assertEquals(4, uploader.getFailedAttemptCount());
+        assertEquals(0, server.duplicateCount());
+        List<String> ids = server.requestIds();
+        List<Long> times = server.requestNanos();
+        for (int attempt = 1; attempt <= 4; attempt++) {
+            assertEquals("retries reuse the batch ID", ids.get(0), ids.get(attempt));
+            long gapMillis = TimeUnit.NANOSECONDS.toMillis(times.get(attempt) - times.get(attempt - 1));
+            assertTrue("retry " + attempt + " after " + gapMillis + " ms", gapMillis >= 20L << (attempt - 1));
+        }
+    }
+
+    @Test
+    public void lostResponseResendsTheSameBatchIdAndTheServerDropsIt() throws Exception {
+        server.fail(StandInSyncServer.Fault.LOSE_RESPONSE, 1);
+        uploader = uploader().batches(60_000, 50).start();
+        appendAll(1, 50);
+
+        await("the batch to be acknowledged", () -> uploader.getUploadedBatchCount() == 1);
+
+        List<String> ids = server.requestIds();
+        assertEquals(2, ids.size());
+        assertEquals(ids.get(0), ids.get(1));
+        assertEquals(1, server.duplicateCount());
+        assertExactlyOnce(server.received(), 1, 50);
+    }
+
+    @Test
+    public void batchInFlightAtShutdownIsResentUnderItsIdAfterRestart() throws Exception {
+        server.fail(StandInSyncServer.Fault.UNAVAILABLE, Integer.MAX_VALUE);
+        uploader = uploader().batches(60_000, 50).start();
+        appendAll(1, 50);
+        await("a failed attempt", () -> uploader.getFailedAttemptCount() > 0);
+        uploader.close();
+        String inFlight = server.requestIds().get(0);
+
+        // The process dies with the batch unsent; more reads arrive after it restarts.
+        journal.close();
+        journal = ScanJournal.open(journalDir);
+        server.fail(null, 0);
+        uploader = uploader().batches(60_000, 50).start();
+        appendAll(51, 100);
+
+        await("every read", () -> server.receivedCount() == 100);
+
+        List<String> batchIds = server.batchIds();
+        assertEquals(2, batchIds.size());
+        assertEquals(inFlight, batchIds.get(0));
+        assertTrue(inFlight, inFlight.endsWith("-1-50"));
+        assertTrue(batchIds.get(1), batchIds.get(1).endsWith("-51-100"));
+        assertEquals("same installation ID", inFlight.split("-")[0], batchIds.get(1).split("-")[0]);
+        assertExactlyOnce(server.received(), 1, 100);
+    }
+
+    @Test
+    public void rejectedBatchIsDroppedAndTheRestStillGoOut() throws Exception {
+        server.fail(StandInSyncServer.Fault.REJECT, 1);
+        uploader = uploader().batches(60_000, 10).start();
+        appendAll(1, 20);
+
+        await("both batches", () -> uploader.getNextSequence() == 21);
+
+        assertEquals(1, uploader.getRejectedBatchCount());
+        assertEquals(0, uploader.getFailedAttemptCount());
+        assertTrue(uploader.getLastError() instanceof SyncRejectedException);
+        assertExactlyOnce(server.received(), 11, 20);
+    }
+
+    @Test
+    public void sustainedSweepIsUploadedCompressed() throws Exception {
+        int reads = 20_000;
+        uploader = uploader().batches(50, SyncUploader.DEFAULT_MAX_READS).start();
+        appendAll(1, reads);
+
+        await("every read", () -> uploader.getNextSequence() == reads + 1);
+
+        long raw = 0;
+        for (long i = 1; i <= reads; i++) {
+            raw += value(i).getBytes(StandardCharsets.UTF_8).length;
+        }
+        assertExactlyOnce(server.received(), 1, reads);
+        assertTrue(uploader.getSentBytes() + " bytes sent for " + raw + " bytes of values",
+                uploader.getSentBytes() * 4 < raw);
+    }
+}
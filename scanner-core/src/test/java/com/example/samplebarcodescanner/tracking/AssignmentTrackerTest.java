@@ -0,0 +1,214 @@
+package com.example.samplebarcodescanner.tracking;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives {@link AssignmentTracker} with synthetic detection streams.
+ */
+public class AssignmentTrackerTest {
+    private static final long FRAME_NANOS = 33_000_000L;
+
+    @Test
+    public void stationaryLabelKeepsItsId() {
+        AssignmentTracker tracker = new AssignmentTracker();
+        int id = tracker.update(frame(box("A", 100, 100, 80)), 0).get(0).getId();
+        for (int f = 1; f < 20; f++) {
+            List<Track> tracks = tracker.update(frame(box("A", 100 + (f % 3), 100 - (f % 2), 80)), f * FRAME_NANOS);
+            assertEquals(1, tracks.size());
+            assertEquals(id, tracks.get(0).getId());
+            assertEquals(f + 1, tracks.get(0).getHits());
+        }
+    }
+
+    @Test
+    public void labelMovingFasterThanOldThresholdKeepsItsId() {
+        AssignmentTracker tracker = new AssignmentTracker();
+        int id = tracker.update(frame(box("A", 100, 100, 200)), 0).get(0).getId();
+        // 60px per frame, twice the old fixed 30px per-edge threshold.
+        for (int f = 1; f < 10; f++) {
+            List<Track> tracks = tracker.update(frame(box("A", 100 + 60 * f, 100, 200)), f * FRAME_NANOS);
+            assertEquals(1, tracks.size());
+            assertEquals(id, tracks.get(0).getId());
+        }
+    }
+
+    @Test
+    public void globalAssignmentBeatsGreedyForRepeatedValues() {
+        AssignmentTracker tracker = new AssignmentTracker();
+        List<Track> first = tracker.update(frame(box("SKU", 0, 0, 80), box("SKU", 100, 0, 80)), 0);
+        int leftId = first.get(0).getId();
+        int rightId = first.get(1).getId();
+
+        // Both labels shift 60px right. A greedy match hands the first detection to the nearer
+        // right-hand track and strands the left one.
+        List<Track> tracks = tracker.update(frame(box("SKU", 60, 0, 80), box("SKU", 160, 0, 80)), FRAME_NANOS);
+        assertEquals(2, tracks.size());
+        assertEquals(60, trackById(tracks, leftId).getLeft(), 2);
+        assertEquals(160, trackById(tracks, rightId).getLeft(), 2);
+    }
+
+    @Test
+    public void tracksExposeFilteredVelocity() {
+        AssignmentTracker tracker = new AssignmentTracker();
+        List<Track> tracks = null;
+        // 10px per 33ms frame is roughly 300px/s to the right.
+        for (int f = 0; f < 30; f++) {
+            tracks = tracker.update(frame(box("A", 100 + 10 * f, 200, 80)), f * FRAME_NANOS);
+        }
+        assertEquals(1, tracks.size());
+        assertEquals(10f / (FRAME_NANOS / 1e9f), tracks.get(0).getVelocityX(), 10f);
+        assertEquals(0f, tracks.get(0).getVelocityY(), 5f);
+    }
+
+    @Test
+    public void differentValuesAreNeverMatched() {
+        AssignmentTracker tracker = new AssignmentTracker(0, AssignmentTracker.DEFAULT_MIN_GATE_PX,
+                AssignmentTracker.DEFAULT_GATE_SCALE);
+        int id = tracker.update(frame(box("A", 100, 100, 80)), 0).get(0).getId();
+        List<Track> tracks = tracker.update(frame(box("B", 100, 100, 80)), FRAME_NANOS);
+        assertEquals(1, tracks.size());
+        assertEquals("B", tracks.get(0).getValue());
+        assertNotEquals(id, tracks.get(0).getId());
+    }
+
+    @Test
+    public void trackCoastsThroughMissedFramesThenExpires() {
+        AssignmentTracker tracker = new AssignmentTracker(3, AssignmentTracker.DEFAULT_MIN_GATE_PX,
+                AssignmentTracker.DEFAULT_GATE_SCALE);
+        int id = tracker.update(frame(box("A", 100, 100, 80)), 0).get(0).getId();
+        for (int f = 1; f <= 3; f++) {
+            List<Track> tracks = tracker.update(Collections.emptyList(), f * FRAME_NANOS);
+            assertEquals(1, tracks.size());
+            assertEquals(f, tracks.get(0).getMissedFrames());
+        }
+        // Reappears after three misses, slightly displaced: same track.
+        List<Track> tracks = tracker.update(frame(box("A", 150, 110, 80)), 4 * FRAME_NANOS);
+        assertEquals(id, tracks.get(0).getId());
+        assertEquals(0, tracks.get(0).getMissedFrames());
+
+        for (int f = 5; f <= 8; f++) {
+            tracks = tracker.update(Collections.emptyList(), f * FRAME_NANOS);
+        }
+        assertTrue(tracks.isEmpty());
+    }
+
+    @Test
+    public void idsAreNotReusedAfterReset() {
+        AssignmentTracker tracker = new AssignmentTracker();
+        int first = tracker.update(frame(box("A", 0, 0, 50)), 0).get(0).getId();
+        tracker.reset();
+        assertTrue(tracker.getTracks().isEmpty());
+        int second = tracker.update(frame(box("A", 0, 0, 50)), FRAME_NANOS).get(0).getId();
+        assertTrue(second > first);
+    }
+
+    @Test
+    public void denseShelfKeepsEveryIdAndPrunesCandidates() {
+        ShelfStream stream = new ShelfStream(150, 42L);
+        AssignmentTracker tracker = new AssignmentTracker();
+        Map<Integer, Integer> labelToTrack = new HashMap<>();
+
+        int frames = 300;
+        int maxCandidates = 0;
+        for (int f = 0; f < frames; f++) {
+            List<Track> tracks = tracker.update(stream.next(), f * FRAME_NANOS);
+            maxCandidates = Math.max(maxCandidates, tracker.getLastCandidateCount());
+
+            assertEquals(stream.labelCount(), tracks.size());
+            for (Track track : tracks) {
+                int label = stream.labelAt(track.centerX(), track.centerY());
+                Integer previous = labelToTrack.put(label, track.getId());
+                if (previous != null) {
+                    assertEquals("label " + label + " switched track at frame " + f, previous.intValue(), track.getId());
+                }
+            }
+        }
+        // Without the grid every detection would be scored against every track.
+        assertTrue("candidates " + maxCandidates, maxCandidates < 150 * 4);
+    }
+
+    private static Track trackById(List<Track> tracks, int id) {
+        for (Track track : tracks) {
+            if (track.getId() == id) {
+                return track;
+            }
+        }
+        throw new AssertionError("no track " + id);
+    }
+
+    private static List<Detection> frame(Detection... detections) {
+        return new ArrayList<>(Arrays.asList(detections));
+    }
+
+    private static Detection box(String value, int left, int top, int size) {
+        return new Detection(value, 0, left, top, left + size, top + size);
+    }
+
+    /**
+     * A grid of labels, a fifth of them sharing a value with a neighbour, panning slowly across
+     * the frame with per-label jitter.
+     */
+    private static final class ShelfStream {
+        private static final int COLUMNS = 15;
+        private static final int PITCH = 120;
+        private static final int SIZE = 70;
+
+        private final int labels;
+        private final Random random;
+        private final String[] values;
+        private int frame;
+        private float panX;
+        private float panY;
+
+        ShelfStream(int labels, long seed) {
+            this.labels = labels;
+            this.random = new Random(seed);
+            this.values = new String[labels];
+            for (int i = 0; i < labels; i++) {
+                values[i] = (i % 5 == 4) ? values[i - 1] : "0100000" + (1_000_000 + i);
+            }
+        }
+
+        int labelCount() {
+            return labels;
+        }
+
+        List<Detection> next() {
+            panX = 40 * (float) Math.sin(frame / 20.0);
+            panY = 25 * (float) Math.cos(frame / 27.0);
+            frame++;
+            List<Detection> detections = new ArrayList<>(labels);
+            for (int i = 0; i < labels; i++) {
+                int left = Math.round(originX(i) + panX) + random.nextInt(7) - 3;
+                int top = Math.round(originY(i) + panY) + random.nextInt(7) - 3;
+                detections.add(new Detection(values[i], 0, left, top, left + SIZE, top + SIZE));
+            }
+            Collections.shuffle(detections, random);
+            return detections;
+        }
+
+        int labelAt(float x, float y) {
+            int column = Math.round((x - panX - SIZE / 2f - 20) / PITCH);
+            int row = Math.round((y - panY - SIZE / 2f - 20) / PITCH);
+            return row * COLUMNS + column;
+        }
+
+        private static float originX(int label) {
+            return 20 + (label % COLUMNS) * PITCH;
+        }
+
+        private static float originY(int label) {
+            return 20 + (label / COLUMNS) * PITCH;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.samplebarcodescanner.tracking;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class KalmanFilterBankTest {
+    private static final float DT = 1 / 30f;
+
+    @Test
+    public void convergesOnConstantVelocity() {
+        KalmanFilterBank bank = new KalmanFilterBank();
+        Random random = new Random(7);
+        float vx = 240f;
+        float vy = -90f;
+        int slot = bank.allocate(100, 400, 180, 480);
+        for (int f = 1; f <= 60; f++) {
+            float x = 100 + vx * f * DT;
+            float y = 400 + vy * f * DT;
+            bank.predictAll(DT);
+            bank.correct(slot, noisy(x, random), noisy(y, random), noisy(x + 80, random), noisy(y + 80, random));
+        }
+        assertEquals(vx, bank.getVelocityX(slot), vx * 0.05f);
+        assertEquals(vy, bank.getVelocityY(slot), Math.abs(vy) * 0.1f);
+        assertEquals(100 + vx * 60 * DT, bank.getLeft(slot), 3f);
+        assertEquals(400 + vy * 60 * DT, bank.getTop(slot), 3f);
+    }
+
+    @Test
+    public void smoothsStationaryJitter() {
+        KalmanFilterBank bank = new KalmanFilterBank();
+        Random random = new Random(11);
+        int slot = bank.allocate(200, 200, 300, 300);
+        double rawError = 0;
+        double filteredError = 0;
+        for (int f = 0; f < 150; f++) {
+            float measured = noisy(200, random);
+            bank.predictAll(DT);
+            bank.correct(slot, measured, noisy(200, random), noisy(300, random), noisy(300, random));
+            if (f >= 30) {
+                rawError += (measured - 200) * (measured - 200);
+                filteredError += (bank.getLeft(slot) - 200) * (bank.getLeft(slot) - 200);
+            }
+        }
+        assertTrue("filtered " + filteredError + " raw " + rawError, filteredError < rawError * 0.5);
+        assertTrue(bank.getEdgeVariance(slot, 0) < KalmanFilterBank.DEFAULT_MEASUREMENT_NOISE);
+    }
+
+    @Test
+    public void predictionExtrapolatesBetweenCorrections() {
+        KalmanFilterBank bank = new KalmanFilterBank();
+        int slot = bank.allocate(0, 0, 50, 50);
+        for (int f = 1; f <= 40; f++) {
+            bank.predictAll(DT);
+            float x = 300f * f * DT;
+            bank.correct(slot, x, 0, x + 50, 50);
+        }
+        float before = bank.getLeft(slot);
+        bank.predictAll(0.1f);
+        assertEquals(before + 30f, bank.getLeft(slot), 1.5f);
+    }
+
+    @Test
+    public void slotsAreRecycled() {
+        KalmanFilterBank bank = new KalmanFilterBank(2, KalmanFilterBank.DEFAULT_PROCESS_NOISE,
+                KalmanFilterBank.DEFAULT_MEASUREMENT_NOISE);
+        int a = bank.allocate(0, 0, 1, 1);
+        int b = bank.allocate(0, 0, 1, 1);
+        int c = bank.allocate(0, 0, 1, 1);
+        assertEquals(3, bank.getLiveCount());
+        bank.release(b);
+        assertEquals(b, bank.allocate(5, 5, 6, 6));
+        assertEquals(5f, bank.getLeft(b), 0f);
+        assertEquals(0f, bank.getVelocityX(b), 0f);
+        assertNotEquals(a, c);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void releasingTwiceFails() {
+        KalmanFilterBank bank = new KalmanFilterBank();
+        int slot = bank.allocate(0, 0, 1, 1);
+        bank.release(slot);
+        bank.release(slot);
+    }
+
+    @Test
+    public void steadyStateDoesNotAllocate() {
+        java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(mx instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) mx;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        KalmanFilterBank bank = new KalmanFilterBank();
+        int[] slots = new int[200];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = bank.allocate(i, i, i + 50, i + 50);
+        }
+        runFrames(bank, slots, 2_000); // warm up so the loop is compiled
+
+        long baseline = threads.getThreadAllocatedBytes(thread);
+        baseline = threads.getThreadAllocatedBytes(thread) - baseline;
+        long before = threads.getThreadAllocatedBytes(thread);
+        runFrames(bank, slots, 1_000);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before - baseline;
+        assertEquals("bytes allocated over 1000 frames of 200 tracks", 0, allocated);
+    }
+
+    private static void runFrames(KalmanFilterBank bank, int[] slots, int frames) {
+        for (int f = 0; f < frames; f++) {
+            bank.predictAll(DT);
+            for (int i = 0; i < slots.length; i++) {
+                float x = i + (f & 7);
+                bank.correct(slots[i], x, i, x + 50, i + 50);
+            }
+            float sink = 0;
+            for (int slot : slots) {
+                sink += bank.getVelocityX(slot) + bank.getLeft(slot);
+            }
+            if (Float.isNaN(sink)) {
+                throw new AssertionError("NaN estimate");
+            }
+        }
+    }
+
+    private static float noisy(float value, Random random) {
+        return value + (random.nextFloat() * 6f - 3f);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.samplebarcodescanner.tracking;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ValueSymbolTableTest {
+    private static final int FORMAT = 256;
+
+    @Test
+    public void sameValueAndFormatShareAnId() {
+        ValueSymbolTable table = new ValueSymbolTable(16);
+        int id = table.intern("4006381333931", FORMAT);
+        assertEquals(id, table.intern(new String("4006381333931"), FORMAT));
+        assertNotEquals(id, table.intern("4006381333931", FORMAT + 1));
+        assertEquals("4006381333931", table.valueOf(id));
+        assertEquals(FORMAT, table.formatOf(id));
+        assertEquals(2, table.size());
+        assertEquals(1, table.getHitCount());
+        assertEquals(2, table.getMissCount());
+    }
+
+    @Test
+    public void slotsAreDense() {
+        ValueSymbolTable table = new ValueSymbolTable(100);
+        Set<Integer> slots = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            int slot = table.slotOf(table.intern("v" + i, FORMAT));
+            assertTrue(slot >= 0 && slot < 100);
+            slots.add(slot);
+        }
+        assertEquals(100, slots.size());
+    }
+
+    @Test
+    public void evictedIdsAreNeverReissued() {
+        ValueSymbolTable table = new ValueSymbolTable(4);
+        int[] ids = new int[4];
+        for (int i = 0; i < 4; i++) {
+            ids[i] = table.intern("v" + i, FORMAT);
+        }
+        int fresh = table.intern("v4", FORMAT);
+        assertEquals(1, table.getEvictionCount());
+        assertEquals(4, table.size());
+
+        int stale = -1;
+        for (int id : ids) {
+            assertNotEquals(fresh, id);
+            if (!table.isLive(id)) {
+                stale = id;
+            }
+        }
+        assertNotEquals("one of the first four was evicted", -1, stale);
+        assertNull(table.valueOf(stale));
+        assertEquals(table.slotOf(stale), table.slotOf(fresh));
+        assertEquals("v4", table.valueOf(fresh));
+    }
+
+    @Test
+    public void touchedIdsSurviveEviction() {
+        ValueSymbolTable table = new ValueSymbolTable(8);
+        int kept = table.intern("kept", FORMAT);
+        for (int i = 0; i < 1000; i++) {
+            table.touch(kept);
+            table.intern("churn" + i, FORMAT);
+        }
+        assertTrue(table.isLive(kept));
+        assertEquals(kept, table.intern("kept", FORMAT));
+    }
+
+    @Test
+    public void randomChurnStaysConsistent() {
+        ValueSymbolTable table = new ValueSymbolTable(50);
+        Map<Integer, String> issued = new HashMap<>();
+        Random random = new Random(5);
+        for (int step = 0; step < 100_000; step++) {
+            String value = "v" + random.nextInt(120);
+            int id = table.intern(value, FORMAT);
+            String previous = issued.put(id, value);
+            assertTrue("id " + id + " reissued for a different value", previous == null || previous.equals(value));
+            assertEquals(value, table.valueOf(id));
+        }
+        int live = 0;
+        for (Map.Entry<Integer, String> entry : issued.entrySet()) {
+            if (table.isLive(entry.getKey())) {
+                live++;
+                assertEquals(entry.getValue(), table.valueOf(entry.getKey()));
+            }
+        }
+        assertEquals(50, live);
+    }
+
+    @Test
+    public void trackerMatchesOnInternedIds() {
+        ValueSymbolTable table = new ValueSymbolTable(16);
+        AssignmentTracker tracker = new AssignmentTracker(AssignmentTracker.DEFAULT_MAX_MISSED_FRAMES,
+                AssignmentTracker.DEFAULT_MIN_GATE_PX, AssignmentTracker.DEFAULT_GATE_SCALE, table);
+        int valueId = table.intern("A", FORMAT);
+        Track first = tracker.update(java.util.List.of(new Detection(valueId, "A", FORMAT, 0, 0, 50, 50)), 0).get(0);
+        assertEquals(valueId, first.getValueId());
+        int id = first.getId();
+        // Not pre-interned: the tracker interns it and still finds the track.
+        Track second = tracker.update(java.util.List.of(new Detection("A", FORMAT, 2, 0, 52, 50)), 33_000_000L).get(0);
+        assertEquals(id, second.getId());
+        assertEquals(1, table.size());
+    }
+}
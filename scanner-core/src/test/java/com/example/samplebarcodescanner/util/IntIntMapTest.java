@@ -0,0 +1,61 @@
+package com.example.samplebarcodescanner.util;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IntIntMapTest {
+    @Test
+    public void absentKeysReadAsMissingValue() {
+        IntIntMap map = new IntIntMap(4, -1);
+        assertEquals(-1, map.get(0));
+        assertEquals(-1, map.put(0, 10));
+        assertEquals(10, map.get(0));
+        assertEquals(10, map.put(0, 11));
+        assertTrue(map.containsKey(0));
+        assertEquals(11, map.remove(0));
+        assertEquals(-1, map.remove(0));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void growsPastExpectedSize() {
+        IntIntMap map = new IntIntMap(2, 0);
+        for (int i = 0; i < 10_000; i++) {
+            map.put(i * 7919, i);
+        }
+        assertEquals(10_000, map.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, map.get(i * 7919));
+        }
+    }
+
+    @Test
+    public void randomOperationsMatchHashMap() {
+        IntIntMap map = new IntIntMap(16, Integer.MIN_VALUE);
+        Map<Integer, Integer> reference = new HashMap<>();
+        Random random = new Random(11);
+        for (int step = 0; step < 200_000; step++) {
+            // A small key range forces long probe chains and many backward shifts.
+            int key = random.nextInt(512) - 256;
+            switch (random.nextInt(3)) {
+                case 0:
+                    Integer previous = reference.put(key, step);
+                    assertEquals(previous == null ? Integer.MIN_VALUE : previous, map.put(key, step));
+                    break;
+                case 1:
+                    Integer removed = reference.remove(key);
+                    assertEquals(removed == null ? Integer.MIN_VALUE : removed, map.remove(key));
+                    break;
+                default:
+                    Integer value = reference.get(key);
+                    assertEquals(value == null ? Integer.MIN_VALUE : value, map.get(key));
+            }
+            assertEquals(reference.size(), map.size());
+        }
+    }
+}